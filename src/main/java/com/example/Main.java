@@ -1,7 +1,16 @@
 package com.example;
 
+import com.example.device.AdbTransport;
 import com.example.device.AndroidDevice;
+import com.example.device.AppiumSessionManager;
+import com.example.device.CaptureMode;
+import com.example.device.DevicePool;
+import com.example.device.InputBackend;
+import com.example.device.adb.AdbClient;
+import com.example.tools.ToolResult;
 import com.example.tools.ToolsService;
+import com.example.vision.ImagePreprocessor;
+import com.example.vision.VisionResponseCache;
 import com.example.vision.VisionService;
 import org.apache.commons.cli.*;
 import org.slf4j.Logger;
@@ -10,6 +19,7 @@ import org.slf4j.LoggerFactory;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.function.Consumer;
 
 /**
  * Main类是应用程序的入口点
@@ -25,11 +35,22 @@ public class Main {
         Options options = new Options();
         
         // 定义命令行选项
-        options.addOption("d", "device-id", true, "Android设备ID");
+        options.addOption("d", "device-id", true, "Android设备ID，不指定时管理adb服务器上的全部设备");
         options.addOption("a", "adb-path", true, "ADB可执行文件路径");
+        options.addOption("t", "adb-transport", true, "ADB通信方式: socket（默认，直连adb服务器）、process或auto（按实测延迟自动选择）");
+        options.addOption("c", "capture-mode", true, "截图采集方式: png（默认，设备端压缩）或raw（原始帧，主机端编码）");
+        options.addOption("f", "frame-stream-fps", true, "后台帧流帧率，大于0时启动时即开始持续采集");
+        options.addOption("s", "telemetry-interval", true, "后台遥测采样间隔（毫秒），大于0时连接设备后即开始采样");
+        options.addOption("i", "input-backend", true, "点击与滑动的注入方式: input（默认）或sendevent（直接写触摸屏事件）");
+        options.addOption("n", "device-concurrency", true, "多设备模式下每台设备允许同时进行的调用数，默认1");
+        options.addOption("p", "appium-url", true, "Appium服务器地址，会话在首次需要时创建");
+        options.addOption("w", "appium-warmup", true, "连接设备后是否在后台预热Appium会话: true或false（默认）");
         options.addOption("k", "api-key", true, "OpenAI API密钥");
         options.addOption("m", "model-name", true, "视觉模型名称");
         options.addOption("u", "api-base-url", true, "API基础URL");
+        options.addOption("v", "vision-image", true, "上传前的图像预处理，例如max_edge=1280,format=jpeg,quality=0.8,max_tokens=1200，默认上传原图");
+        options.addOption("r", "vision-cache", true, "视觉响应缓存，例如memory_mb=64,dir=/var/cache/vision,disk_mb=1024，默认关闭");
+        options.addOption("l", "vision-concurrency", true, "同一模型端点同时进行的视觉请求数上限，默认4，超出的请求排队");
         options.addOption("h", "help", false, "显示帮助信息");
         
         try {
@@ -44,35 +65,78 @@ public class Main {
             // 获取环境变量和命令行参数
             String deviceId = getEnvOrCmdOption(cmd, "DEVICE_ID", "device-id");
             String adbPath = getEnvOrCmdOption(cmd, "ADB_PATH", "adb-path", "adb");
+            String adbTransport = getEnvOrCmdOption(cmd, "ADB_TRANSPORT", "adb-transport", "socket");
+            String captureMode = getEnvOrCmdOption(cmd, "CAPTURE_MODE", "capture-mode", "png");
+            String frameStreamFps = getEnvOrCmdOption(cmd, "FRAME_STREAM_FPS", "frame-stream-fps", "0");
+            String telemetryInterval = getEnvOrCmdOption(cmd, "TELEMETRY_INTERVAL_MS", "telemetry-interval", "0");
+            String inputBackend = getEnvOrCmdOption(cmd, "INPUT_BACKEND", "input-backend", "input");
+            String deviceConcurrency = getEnvOrCmdOption(cmd, "DEVICE_CONCURRENCY", "device-concurrency", "1");
+            String appiumUrl = getEnvOrCmdOption(cmd, "APPIUM_URL", "appium-url", AppiumSessionManager.DEFAULT_SERVER_URL);
+            String appiumWarmUp = getEnvOrCmdOption(cmd, "APPIUM_WARMUP", "appium-warmup", "false");
             String apiKey = getEnvOrCmdOption(cmd, "OPENAI_API_KEY", "api-key");
             String modelName = getEnvOrCmdOption(cmd, "VISION_MODEL", "model-name", "qwen2.5-vl-7b-instruct");
             String apiBaseUrl = getEnvOrCmdOption(cmd, "API_BASE_URL", "api-base-url", "https://api.openai.com/v1");
-            
-            // 检查必要参数
-            if (deviceId == null || deviceId.isEmpty()) {
-                logger.error("必须提供设备ID，请使用 -d 参数或设置DEVICE_ID环境变量");
-                printHelp(options);
-                System.exit(1);
-            }
-            
-            // 初始化设备
-            logger.info("初始化设备连接，设备ID: {}", deviceId);
-            AndroidDevice device = new AndroidDevice(deviceId, adbPath);
-            if (!device.connect()) {
-                logger.error("设备连接失败");
-                System.exit(1);
-            }
+            String visionImage = getEnvOrCmdOption(cmd, "VISION_IMAGE", "vision-image", "none");
+            String visionCache = getEnvOrCmdOption(cmd, "VISION_CACHE", "vision-cache", "none");
+            String visionConcurrency = getEnvOrCmdOption(cmd, "VISION_CONCURRENCY", "vision-concurrency", "4");
             
             // 初始化视觉服务（如果提供了API密钥）
             VisionService visionService = null;
             if (apiKey != null && !apiKey.isEmpty()) {
                 logger.info("初始化视觉服务，模型: {}", modelName);
                 visionService = new VisionService(apiKey, modelName, apiBaseUrl);
+                ImagePreprocessor.Options imageOptions = ImagePreprocessor.Options.parse(visionImage);
+                if (imageOptions != null) {
+                    visionService.setImagePreprocessor(new ImagePreprocessor(imageOptions));
+                }
+                visionService.setResponseCache(VisionResponseCache.parse(visionCache));
+                visionService.setConcurrency(Integer.parseInt(visionConcurrency));
             }
             
-            // 初始化工具服务
-            logger.info("初始化工具服务");
-            ToolsService toolsService = new ToolsService(device, visionService);
+            // 设备的通用配置
+            Consumer<AndroidDevice> configurer = device -> {
+                device.setTransport(AdbTransport.fromString(adbTransport));
+                device.setCaptureMode(CaptureMode.fromString(captureMode));
+                device.setInputBackend(InputBackend.fromString(inputBackend));
+                device.setAppiumServerUrl(appiumUrl);
+                device.setAppiumWarmUp(Boolean.parseBoolean(appiumWarmUp));
+            };
+            double fps = Double.parseDouble(frameStreamFps);
+            long telemetryIntervalMillis = Long.parseLong(telemetryInterval);
+            Consumer<AndroidDevice> onConnected = device -> {
+                if (fps > 0) {
+                    device.startFrameStream(fps, 8, 256L * 1024 * 1024);
+                }
+                if (telemetryIntervalMillis > 0) {
+                    device.startTelemetry(telemetryIntervalMillis, 720);
+                }
+            };
+            
+            ToolsService toolsService;
+            if (deviceId == null || deviceId.isEmpty()) {
+                // 未指定设备ID时管理adb服务器上的全部设备
+                logger.info("未指定设备ID，进入多设备模式");
+                DevicePool devicePool = new DevicePool(adbPath, new AdbClient(), configurer, onConnected);
+                devicePool.setDefaultMaxConcurrency(Integer.parseInt(deviceConcurrency));
+                devicePool.refresh();
+                devicePool.startAutoRefresh(10000);
+                logger.info("初始化工具服务");
+                toolsService = new ToolsService(devicePool, visionService);
+            } else {
+                // 初始化设备
+                logger.info("初始化设备连接，设备ID: {}", deviceId);
+                AndroidDevice device = new AndroidDevice(deviceId, adbPath);
+                configurer.accept(device);
+                if (!device.connect()) {
+                    logger.error("设备连接失败");
+                    System.exit(1);
+                }
+                onConnected.accept(device);
+                
+                // 初始化工具服务
+                logger.info("初始化工具服务");
+                toolsService = new ToolsService(device, visionService);
+            }
             
             // 启动命令行界面
             startCommandLineInterface(toolsService);
@@ -139,6 +203,7 @@ public class Main {
         logger.info("命令行界面启动，输入 'help' 查看可用命令");
         
         Scanner scanner = new Scanner(System.in);
+        int backgroundJobs = 0;
         
         while (true) {
             System.out.print("adb-tool > ");
@@ -160,6 +225,12 @@ public class Main {
                 continue;
             }
             
+            // 以&结尾的命令在后台执行，完成后打印结果
+            boolean background = input.endsWith("&");
+            if (background) {
+                input = input.substring(0, input.length() - 1).trim();
+            }
+            
             // 解析命令
             String[] parts = input.split("\\s+");
             if (parts.length < 1) {
@@ -183,23 +254,40 @@ public class Main {
                 }
             }
             
+            if (background) {
+                int job = ++backgroundJobs;
+                System.out.println("[" + job + "] 已在后台执行: " + toolName);
+                toolsService.callToolAsync(toolName, params, null).whenComplete((result, error) -> {
+                    synchronized (System.out) {
+                        System.out.println();
+                        System.out.println("[" + job + "] " + toolName + " 已完成");
+                        if (error != null) {
+                            Throwable cause = error.getCause() != null ? error.getCause() : error;
+                            System.out.println("错误: " + cause.getMessage());
+                        } else {
+                            printToolResult(result);
+                        }
+                    }
+                });
+                continue;
+            }
+            
             // 执行工具
             try {
                 logger.info("执行工具: {}, 参数: {}", toolName, params);
                 
-                com.example.tools.ToolsService.ToolResult result = toolsService.callTool(toolName, params);
-                
-                if (result.getStatus().equals("success")) {
-                    System.out.println("成功: " + result.getMessage());
-                    if (result.getData() != null && !result.getData().isEmpty()) {
-                        System.out.println("结果:");
-                        for (Map.Entry<String, Object> entry : result.getData().entrySet()) {
-                            System.out.println("  " + entry.getKey() + ": " + entry.getValue());
-                        }
-                    }
-                } else {
-                    System.out.println("失败: " + result.getMessage());
+                // 流式输出的部分结果直接打印，完成后换行
+                boolean[] streamed = {false};
+                ToolResult result = toolsService.callTool(toolName, params, partial -> {
+                    streamed[0] = true;
+                    System.out.print(partial);
+                    System.out.flush();
+                });
+                if (streamed[0]) {
+                    System.out.println();
                 }
+                
+                printToolResult(result);
             } catch (Exception e) {
                 logger.error("执行工具失败", e);
                 System.out.println("错误: " + e.getMessage());
@@ -209,6 +297,24 @@ public class Main {
         scanner.close();
     }
     
+    /**
+     * 打印工具执行结果
+     * @param result 工具执行结果
+     */
+    private static void printToolResult(ToolResult result) {
+        if (result.getStatus().equals("success")) {
+            System.out.println("成功: " + result.getMessage());
+            if (result.getData() != null && !result.getData().isEmpty()) {
+                System.out.println("结果:");
+                for (Map.Entry<String, Object> entry : result.getData().entrySet()) {
+                    System.out.println("  " + entry.getKey() + ": " + entry.getValue());
+                }
+            }
+        } else {
+            System.out.println("失败: " + result.getMessage());
+        }
+    }
+    
     /**
      * 打印可用工具列表
      * @param toolsService 工具服务实例
@@ -221,6 +327,7 @@ public class Main {
         System.out.println();
         System.out.println("使用方法: <tool_name> --param1=value1 --param2=value2");
         System.out.println("示例: app_install --apk_path=myapp.apk");
+        System.out.println("命令末尾加 & 在后台执行，例如: app_install --apk_path=myapp.apk &");
         System.out.println();
         System.out.println("输入 'exit' 或 'quit' 退出程序");
     }
@@ -0,0 +1,222 @@
+package com.example.device;
+
+import com.example.device.exec.CommandTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * AdbShellSession类维护一个长驻的adb shell会话
+ * 所有命令通过同一个管道发送，每条命令后追加带序号的结束标记以分帧并获取退出码，
+ * 会话进程退出后在下一次调用时自动重建。
+ * 每条命令在子shell中执行，exit、set -e、cd等不会改变会话本身的状态；
+ * 超过截止时间仍未收到结束标记时终止会话进程，下一次调用时重建
+ */
+public class AdbShellSession implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(AdbShellSession.class);
+    
+    private static final String MARKER_PREFIX = "__MCP_RC_";
+    public static final long DEFAULT_TIMEOUT_MILLIS = 60_000;
+    
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "adb-shell-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final String adbPath;
+    private final String deviceId;
+    private final long timeoutMillis;
+    
+    private Process process;
+    private BufferedWriter writer;
+    private BufferedReader reader;
+    private long sequence;
+    private int spawnCount;
+    
+    /**
+     * 构造函数
+     * @param adbPath ADB可执行文件路径
+     * @param deviceId 设备ID
+     */
+    public AdbShellSession(String adbPath, String deviceId) {
+        this(adbPath, deviceId, DEFAULT_TIMEOUT_MILLIS);
+    }
+    
+    /**
+     * 构造函数
+     * @param adbPath ADB可执行文件路径
+     * @param deviceId 设备ID
+     * @param timeoutMillis 单条命令的截止时间（毫秒）
+     */
+    public AdbShellSession(String adbPath, String deviceId, long timeoutMillis) {
+        this.adbPath = adbPath;
+        this.deviceId = deviceId;
+        this.timeoutMillis = timeoutMillis;
+    }
+    
+    /**
+     * 在会话中执行命令
+     * @param command Shell命令（不含"shell"前缀）
+     * @return 命令执行结果
+     * @throws IOException 会话读写失败或命令超时
+     */
+    public synchronized ShellResult execute(String command) throws IOException {
+        ensureAlive();
+        
+        long seq = ++sequence;
+        String marker = MARKER_PREFIX + seq + ":";
+        logger.debug("会话执行命令[{}]: {}", seq, command);
+        
+        try {
+            // 在子shell中执行，标准输入重定向到/dev/null，避免命令读取会话管道中的后续命令
+            writer.write("( " + command + "\n) </dev/null 2>&1; echo \"" + marker + "$?\"\n");
+            writer.flush();
+        } catch (IOException e) {
+            destroy();
+            throw new IOException("向adb shell会话写入命令失败: " + command, e);
+        }
+        
+        // 读取没有截止时间，超时由看门狗终止会话进程使读取结束
+        Process current = process;
+        AtomicBoolean timedOut = new AtomicBoolean();
+        ScheduledFuture<?> watchdog = WATCHDOG.schedule(() -> {
+            timedOut.set(true);
+            List<ProcessHandle> children = current.descendants().collect(Collectors.toList());
+            current.destroyForcibly();
+            children.forEach(ProcessHandle::destroyForcibly);
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        try {
+            StringBuilder output = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null && !timedOut.get()) {
+                int index = line.indexOf(marker);
+                if (index < 0) {
+                    output.append(line).append("\n");
+                    continue;
+                }
+                // 命令输出末尾没有换行时，结束标记会与最后一段输出位于同一行
+                output.append(line, 0, index);
+                int exitCode = parseExitCode(line.substring(index + marker.length()));
+                logger.debug("会话命令[{}]完成，退出码: {}", seq, exitCode);
+                return new ShellResult(output.toString(), exitCode);
+            }
+        } catch (IOException e) {
+            if (!timedOut.get()) {
+                destroy();
+                throw new IOException("读取adb shell会话输出失败，命令: " + command, e);
+            }
+        } finally {
+            watchdog.cancel(false);
+        }
+        
+        destroy();
+        if (timedOut.get()) {
+            logger.warn("会话命令[{}]超时（{} 毫秒），已终止会话: {}", seq, timeoutMillis, deviceId);
+            throw new CommandTimeoutException(Arrays.asList(adbPath, "-s", deviceId, "shell", command), timeoutMillis);
+        }
+        throw new IOException("adb shell会话意外结束，命令: " + command);
+    }
+    
+    /**
+     * 检查会话进程是否存活
+     * @return 是否存活
+     */
+    public synchronized boolean isAlive() {
+        return process != null && process.isAlive();
+    }
+    
+    /**
+     * 获取会话进程的累计启动次数
+     * @return 启动次数
+     */
+    public synchronized int getSpawnCount() {
+        return spawnCount;
+    }
+    
+    /**
+     * 关闭会话
+     */
+    @Override
+    public synchronized void close() {
+        if (process == null) {
+            return;
+        }
+        try {
+            writer.write("exit\n");
+            writer.flush();
+            if (!process.waitFor(1, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (IOException e) {
+            logger.debug("关闭adb shell会话时写入失败: {}", deviceId, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            destroy();
+        }
+        logger.info("adb shell会话已关闭: {}", deviceId);
+    }
+    
+    /**
+     * 确保会话进程存活，必要时重新启动
+     * @throws IOException 启动失败
+     */
+    private void ensureAlive() throws IOException {
+        if (process != null && process.isAlive()) {
+            return;
+        }
+        if (process != null) {
+            logger.warn("adb shell会话已退出，正在重建: {}", deviceId);
+            destroy();
+        }
+        
+        ProcessBuilder processBuilder = new ProcessBuilder(adbPath, "-s", deviceId, "shell");
+        processBuilder.redirectErrorStream(true);
+        process = processBuilder.start();
+        writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+        reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        spawnCount++;
+        logger.info("adb shell会话已启动: {}，累计启动次数: {}", deviceId, spawnCount);
+    }
+    
+    /**
+     * 销毁会话进程并释放管道
+     */
+    private void destroy() {
+        if (process != null) {
+            process.destroyForcibly();
+        }
+        process = null;
+        writer = null;
+        reader = null;
+    }
+    
+    /**
+     * 解析结束标记后的退出码
+     * @param text 标记后的文本
+     * @return 退出码，无法解析时返回-1
+     */
+    private static int parseExitCode(String text) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.example.device;
+
+/**
+ * AdbTransport枚举定义与设备通信的方式
+ */
+public enum AdbTransport {
+    /**
+     * 直接通过TCP与adb服务器通信，不启动adb进程
+     */
+    SOCKET,
+    
+    /**
+     * 通过启动adb可执行文件通信
+     */
+    PROCESS,
+    
+    /**
+     * 同时保留套接字、进程与Appium后端，按各类操作的实测延迟自动选择
+     */
+    AUTO;
+    
+    /**
+     * 从配置字符串解析传输方式，无法识别时返回SOCKET
+     * @param value 配置值，例如"socket"、"process"或"auto"
+     * @return 传输方式
+     */
+    public static AdbTransport fromString(String value) {
+        if (value != null && value.trim().equalsIgnoreCase("process")) {
+            return PROCESS;
+        }
+        if (value != null && value.trim().equalsIgnoreCase("auto")) {
+            return AUTO;
+        }
+        return SOCKET;
+    }
+}
\ No newline at end of file
@@ -1,30 +1,66 @@
 package com.example.device;
 
+import com.example.device.adb.AdbClient;
+import com.example.device.backend.AppiumBackend;
+import com.example.device.backend.BackendSelector;
+import com.example.device.backend.DeviceBackend;
+import com.example.device.backend.DeviceOperation;
+import com.example.device.backend.ProcessBackend;
+import com.example.device.backend.SocketBackend;
+import com.example.device.exec.CommandExecutor;
+import com.example.vision.Element;
+import com.example.vision.UiHierarchyParser;
 import io.appium.java_client.android.AndroidDriver;
-import io.appium.java_client.android.options.UiAutomator2Options;
-import io.appium.java_client.remote.AutomationName;
-import io.appium.java_client.remote.MobilePlatform;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.URL;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * AndroidDevice类负责管理Android设备的连接和操作
  */
 public class AndroidDevice {
     private static final Logger logger = LoggerFactory.getLogger(AndroidDevice.class);
+    private static final String INPUT_STEP_MARKER = "__MCP_STEP_";
+    private static final long START_SERVER_TIMEOUT_MILLIS = 15_000;
+    private static final String UI_DUMP_PATH = "/data/local/tmp/mcp_ui.xml";
     
-    private AndroidDriver driver;
     private String deviceId;
     private String adbPath;
     private boolean isConnected;
+    private AdbClient adbClient;
+    private AdbTransport transport;
+    private final SocketBackend socketBackend;
+    private final ProcessBackend processBackend;
+    private final BackendSelector backends;
+    private CaptureMode captureMode = CaptureMode.PNG;
+    private InputBackend inputBackend = InputBackend.INPUT;
+    private String appiumServerUrl = AppiumSessionManager.DEFAULT_SERVER_URL;
+    private boolean appiumWarmUp;
+    private final TouchInjector touchInjector = new TouchInjector(this);
+    private final TextInjector textInjector = new TextInjector(this);
+    private final FrameBufferPool framePool = new FrameBufferPool(64L * 1024 * 1024);
+    private volatile int lastRawFrameSize;
+    private volatile FrameStream frameStream;
+    private volatile TelemetrySampler telemetry;
+    private volatile LogcatStream logcat;
+    private final DevicePropertyCache propertyCache = new DevicePropertyCache(Duration.ofMinutes(5).toMillis());
     
     /**
      * 构造函数
@@ -40,32 +76,43 @@ public class AndroidDevice {
      * @param adbPath ADB可执行文件路径
      */
     public AndroidDevice(String deviceId, String adbPath) {
+        this(deviceId, adbPath, new AdbClient());
+    }
+    
+    /**
+     * 构造函数
+     * @param deviceId 设备ID
+     * @param adbPath ADB可执行文件路径
+     * @param adbClient adb服务器客户端，可在多个设备间共享
+     */
+    public AndroidDevice(String deviceId, String adbPath, AdbClient adbClient) {
         this.deviceId = deviceId;
         this.adbPath = adbPath;
+        this.adbClient = adbClient;
+        this.socketBackend = new SocketBackend(adbClient, deviceId);
+        this.processBackend = new ProcessBackend(adbPath, deviceId);
+        this.backends = new BackendSelector(Arrays.asList(socketBackend, processBackend,
+                new AppiumBackend(this::getAppiumSession)));
+        this.transport = AdbTransport.SOCKET;
         this.isConnected = false;
         logger.info("创建AndroidDevice实例，设备ID: {}", deviceId);
     }
     
     /**
      * 连接到设备
+     * 只等待adb就绪，Appium会话在首次需要时创建，开启预热时在后台提前创建
      * @return 是否连接成功
      */
     public boolean connect() {
         try {
             logger.info("正在连接设备: {}", deviceId);
-            
-            // 配置Appium驱动选项
-            UiAutomator2Options options = new UiAutomator2Options()
-                    .setPlatformName(MobilePlatform.ANDROID)
-                    .setAutomationName(AutomationName.ANDROID_UIAUTOMATOR2)
-                    .setDeviceName(deviceId)
-                    .setAppPackage("com.android.settings") // 默认包名
-                    .setAppActivity(".Settings") // 默认活动
-                    .setNewCommandTimeout(Duration.ofSeconds(60));
-            
-            // 初始化驱动
-            driver = new AndroidDriver(new URL("http://localhost:4723/wd/hub"), options);
+            ensureTransport();
+            propertyCache.invalidate();
+            textInjector.reset();
             isConnected = true;
+            if (appiumWarmUp) {
+                getAppiumSession().warmUpAsync();
+            }
             logger.info("设备连接成功: {}", deviceId);
             return true;
         } catch (Exception e) {
@@ -76,34 +123,44 @@ public class AndroidDevice {
     
     /**
      * 断开设备连接
+     * Appium会话保留在会话管理器中，重新连接后继续复用
      */
     public void disconnect() {
-        if (driver != null) {
-            try {
-                driver.quit();
-                isConnected = false;
-                logger.info("设备已断开连接: {}", deviceId);
-            } catch (Exception e) {
-                logger.error("断开设备连接失败: {}", deviceId, e);
-            }
-        }
+        stopFrameStream();
+        stopTelemetry();
+        stopLogcat();
+        processBackend.close();
+        isConnected = false;
+        logger.info("设备已断开连接: {}", deviceId);
     }
     
     /**
-     * 安装应用
+     * 安装应用，设备上已安装内容相同的版本时跳过
      * @param apkPath APK文件路径
-     * @return 是否安装成功
+     * @return 是否安装成功（包括跳过）
      */
     public boolean installApp(String apkPath) {
+        return installApp(Collections.singletonList(apkPath), false).isSuccess();
+    }
+    
+    /**
+     * 安装应用，多个APK视为同一应用的基础包与split包
+     * @param apkPaths APK文件路径
+     * @param force 为true时不检查已安装版本，总是重新安装
+     * @return 安装结果
+     */
+    public ApkInstaller.Result installApp(List<String> apkPaths, boolean force) {
+        logger.info("正在安装应用: {}", apkPaths);
+        List<ApkFile> apks = new ArrayList<>();
         try {
-            logger.info("正在安装应用: {}", apkPath);
-            runAdbCommand("install -r " + apkPath);
-            logger.info("应用安装成功: {}", apkPath);
-            return true;
-        } catch (Exception e) {
-            logger.error("安装应用失败: {}", apkPath, e);
-            return false;
+            for (String apkPath : apkPaths) {
+                apks.add(ApkFile.of(Paths.get(apkPath)));
+            }
+        } catch (IOException e) {
+            logger.error("读取APK失败: {}", apkPaths, e);
+            return new ApkInstaller.Result(deviceId, null, ApkInstaller.Status.FAILED, null, 0, e.getMessage());
         }
+        return new ApkInstaller(this).install(apks, force);
     }
     
     /**
@@ -114,7 +171,11 @@ public class AndroidDevice {
     public boolean uninstallApp(String packageName) {
         try {
             logger.info("正在卸载应用: {}", packageName);
-            runAdbCommand("uninstall " + packageName);
+            if (transport != AdbTransport.PROCESS) {
+                runShellCommand("pm uninstall " + packageName);
+            } else {
+                processBackend.runAdbCommand("uninstall", packageName);
+            }
             logger.info("应用卸载成功: {}", packageName);
             return true;
         } catch (Exception e) {
@@ -132,7 +193,7 @@ public class AndroidDevice {
     public boolean startApp(String packageName, String activityName) {
         try {
             logger.info("正在启动应用: {}/{} {}", packageName, activityName, deviceId);
-            runAdbCommand("shell am start -n " + packageName + "/" + activityName);
+            runShellCommand("am start -n " + packageName + "/" + activityName);
             logger.info("应用启动成功: {}/{}", packageName, activityName);
             return true;
         } catch (Exception e) {
@@ -149,7 +210,7 @@ public class AndroidDevice {
     public boolean stopApp(String packageName) {
         try {
             logger.info("正在终止应用: {}", packageName);
-            runAdbCommand("shell am force-stop " + packageName);
+            runShellCommand("am force-stop " + packageName);
             logger.info("应用终止成功: {}", packageName);
             return true;
         } catch (Exception e) {
@@ -165,9 +226,9 @@ public class AndroidDevice {
     public boolean unlockScreen() {
         try {
             logger.info("正在解锁屏幕");
-            runAdbCommand("shell input keyevent KEYCODE_WAKEUP");
+            runShellCommand("input keyevent KEYCODE_WAKEUP");
             // 滑动解锁（假设从下往上滑动）
-            runAdbCommand("shell input swipe 300 1000 300 500");
+            runShellCommand("input swipe 300 1000 300 500");
             logger.info("屏幕解锁成功");
             return true;
         } catch (Exception e) {
@@ -183,7 +244,7 @@ public class AndroidDevice {
     public boolean lockScreen() {
         try {
             logger.info("正在锁定屏幕");
-            runAdbCommand("shell input keyevent KEYCODE_POWER");
+            runShellCommand("input keyevent KEYCODE_POWER");
             logger.info("屏幕锁定成功");
             return true;
         } catch (Exception e) {
@@ -193,14 +254,14 @@ public class AndroidDevice {
     }
     
     /**
-     * 输入文本
+     * 输入文本，设备安装了ADBKeyboard时一次提交整段文本（支持中文与换行），否则分段使用input text
      * @param text 要输入的文本
      * @return 是否输入成功
      */
     public boolean inputText(String text) {
         try {
-            logger.info("正在输入文本: {}", text);
-            runAdbCommand("shell input text " + text);
+            logger.info("正在输入文本，长度: {}", text.length());
+            textInjector.type(text);
             logger.info("文本输入成功");
             return true;
         } catch (Exception e) {
@@ -217,7 +278,7 @@ public class AndroidDevice {
     public boolean inputKeyEvent(String keyCode) {
         try {
             logger.info("正在输入按键: {}", keyCode);
-            runAdbCommand("shell input keyevent " + keyCode);
+            runShellCommand("input keyevent " + keyCode);
             logger.info("按键输入成功");
             return true;
         } catch (Exception e) {
@@ -227,15 +288,33 @@ public class AndroidDevice {
     }
     
     /**
-     * 点击屏幕
+     * 点击屏幕，使用当前配置的注入方式
      * @param x X坐标
      * @param y Y坐标
      * @return 是否点击成功
      */
     public boolean tap(int x, int y) {
+        return tap(x, y, inputBackend);
+    }
+    
+    /**
+     * 点击屏幕
+     * @param x X坐标
+     * @param y Y坐标
+     * @param backend 注入方式
+     * @return 是否点击成功
+     */
+    public boolean tap(int x, int y, InputBackend backend) {
         try {
-            logger.info("正在点击屏幕: ({}, {})", x, y);
-            runAdbCommand("shell input tap " + x + " " + y);
+            logger.info("正在点击屏幕: ({}, {})，注入方式: {}", x, y, backend);
+            if (backend == InputBackend.SENDEVENT) {
+                touchInjector.tap(x, y);
+            } else {
+                backends.execute(DeviceOperation.INPUT, target -> {
+                    target.tap(x, y);
+                    return null;
+                });
+            }
             logger.info("屏幕点击成功");
             return true;
         } catch (Exception e) {
@@ -245,7 +324,30 @@ public class AndroidDevice {
     }
     
     /**
-     * 滑动屏幕
+     * 长按屏幕，使用当前配置的注入方式
+     * @param x X坐标
+     * @param y Y坐标
+     * @param duration 按住时间（毫秒）
+     * @return 是否长按成功
+     */
+    public boolean longPress(int x, int y, int duration) {
+        try {
+            logger.info("正在长按屏幕: ({}, {})，持续 {} 毫秒", x, y, duration);
+            if (inputBackend == InputBackend.SENDEVENT) {
+                touchInjector.longPress(x, y, duration);
+            } else {
+                runShellCommand("input swipe " + x + " " + y + " " + x + " " + y + " " + duration);
+            }
+            logger.info("屏幕长按成功");
+            return true;
+        } catch (Exception e) {
+            logger.error("长按屏幕失败", e);
+            return false;
+        }
+    }
+    
+    /**
+     * 滑动屏幕，使用当前配置的注入方式
      * @param startX 起始X坐标
      * @param startY 起始Y坐标
      * @param endX 结束X坐标
@@ -254,9 +356,30 @@ public class AndroidDevice {
      * @return 是否滑动成功
      */
     public boolean swipe(int startX, int startY, int endX, int endY, int duration) {
+        return swipe(startX, startY, endX, endY, duration, inputBackend);
+    }
+    
+    /**
+     * 滑动屏幕
+     * @param startX 起始X坐标
+     * @param startY 起始Y坐标
+     * @param endX 结束X坐标
+     * @param endY 结束Y坐标
+     * @param duration 滑动持续时间（毫秒）
+     * @param backend 注入方式
+     * @return 是否滑动成功
+     */
+    public boolean swipe(int startX, int startY, int endX, int endY, int duration, InputBackend backend) {
         try {
-            logger.info("正在滑动屏幕: ({}, {}) -> ({}, {})", startX, startY, endX, endY);
-            runAdbCommand("shell input swipe " + startX + " " + startY + " " + endX + " " + endY + " " + duration);
+            logger.info("正在滑动屏幕: ({}, {}) -> ({}, {})，注入方式: {}", startX, startY, endX, endY, backend);
+            if (backend == InputBackend.SENDEVENT) {
+                touchInjector.swipe(startX, startY, endX, endY, duration);
+            } else {
+                backends.execute(DeviceOperation.INPUT, target -> {
+                    target.swipe(startX, startY, endX, endY, duration);
+                    return null;
+                });
+            }
             logger.info("屏幕滑动成功");
             return true;
         } catch (Exception e) {
@@ -265,6 +388,71 @@ public class AndroidDevice {
         }
     }
     
+    /**
+     * 执行多段手势：在第一个点按下，依次经过各点后抬起，始终使用sendevent注入
+     * @param points 途经点，每项为{x, y}
+     * @param segmentDurations 每段的持续时间（毫秒），长度为points.length - 1
+     * @return 是否执行成功
+     */
+    public boolean gesture(int[][] points, long[] segmentDurations) {
+        try {
+            logger.info("正在执行多段手势，共 {} 个点", points.length);
+            touchInjector.gesture(points, segmentDurations);
+            logger.info("多段手势执行成功");
+            return true;
+        } catch (Exception e) {
+            logger.error("执行多段手势失败", e);
+            return false;
+        }
+    }
+    
+    /**
+     * 批量执行输入动作，所有步骤合并为一个Shell脚本在一次设备往返中完成
+     * 每个步骤后输出带序号的标记以获取该步骤的退出码，某一步失败不会中断后续步骤
+     * @param actions 按顺序执行的输入动作
+     * @return 每个步骤的执行结果，与actions一一对应
+     * @throws IOException 通信失败
+     */
+    public List<ShellResult> inputBatch(List<InputAction> actions) throws IOException {
+        logger.info("正在批量执行输入动作，共 {} 步", actions.size());
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < actions.size(); i++) {
+            InputAction action = actions.get(i);
+            script.append(action.toShellCommand()).append("; echo \"").append(INPUT_STEP_MARKER).append(i).append(":$?\"\n");
+            if (action.getDelayAfterMillis() > 0) {
+                script.append(String.format(Locale.ROOT, "sleep %.3f\n", action.getDelayAfterMillis() / 1000.0));
+            }
+        }
+        
+        ShellResult result = executeShell(script.toString());
+        List<ShellResult> steps = new ArrayList<>();
+        StringBuilder stepOutput = new StringBuilder();
+        for (String line : result.getOutput().split("\n")) {
+            int index = line.indexOf(INPUT_STEP_MARKER);
+            if (index < 0) {
+                stepOutput.append(line).append("\n");
+                continue;
+            }
+            stepOutput.append(line, 0, index);
+            String[] parts = line.substring(index + INPUT_STEP_MARKER.length()).trim().split(":");
+            int exitCode;
+            try {
+                exitCode = Integer.parseInt(parts[1]);
+            } catch (RuntimeException e) {
+                exitCode = -1;
+            }
+            steps.add(new ShellResult(stepOutput.toString(), exitCode));
+            stepOutput.setLength(0);
+        }
+        // 脚本被提前中断时，未执行的步骤记为失败
+        while (steps.size() < actions.size()) {
+            steps.add(new ShellResult("", -1));
+        }
+        long failed = steps.stream().filter(step -> !step.isSuccess()).count();
+        logger.info("批量输入完成，成功 {} 步，失败 {} 步", actions.size() - failed, failed);
+        return steps;
+    }
+    
     /**
      * 截图
      * @param outputPath 输出路径
@@ -273,9 +461,7 @@ public class AndroidDevice {
     public boolean screenshot(String outputPath) {
         try {
             logger.info("正在截图，保存到: {}", outputPath);
-            runAdbCommand("shell screencap -p /sdcard/screenshot.png");
-            runAdbCommand("pull /sdcard/screenshot.png " + outputPath);
-            runAdbCommand("shell rm /sdcard/screenshot.png");
+            captureScreen(Paths.get(outputPath));
             logger.info("截图成功");
             return true;
         } catch (Exception e) {
@@ -284,6 +470,288 @@ public class AndroidDevice {
         }
     }
     
+    /**
+     * 截取屏幕并返回PNG数据，不在设备或本地落盘
+     * @return PNG字节
+     * @throws IOException 截图失败
+     * @throws InterruptedException 中断异常
+     */
+    public byte[] captureScreen() throws IOException, InterruptedException {
+        return Buffers.toArray(captureScreen((ByteBuffer) null));
+    }
+    
+    /**
+     * 截取屏幕，将screencap输出直接流式读入可复用的缓冲区
+     * @param reuse 可复用的缓冲区，可以为null
+     * @return 已flip的PNG数据缓冲区，容量不足时为扩容后的新实例
+     * @throws IOException 截图失败
+     * @throws InterruptedException 中断异常
+     */
+    public ByteBuffer captureScreen(ByteBuffer reuse) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        ByteBuffer png;
+        if (captureMode == CaptureMode.RAW) {
+            RawFrame frame = captureRawFrame();
+            try {
+                byte[] encoded = frame.encode("png");
+                ByteBuffer target = reuse != null ? reuse : ByteBuffer.allocate(encoded.length);
+                target.clear();
+                png = Buffers.ensureCapacity(target, encoded.length);
+                png.put(encoded).flip();
+            } finally {
+                frame.release();
+            }
+        } else {
+            png = backends.execute(DeviceOperation.CAPTURE, backend -> backend.screenshot(reuse));
+        }
+        if (png.remaining() == 0) {
+            throw new IOException("截图数据为空");
+        }
+        logger.debug("截图完成，大小: {} 字节，耗时: {} ms", png.remaining(), (System.nanoTime() - start) / 1_000_000);
+        return png;
+    }
+    
+    /**
+     * 截取屏幕并写入本地文件
+     * @param sink 目标文件
+     * @return 写入的字节数
+     * @throws IOException 截图或写入失败
+     * @throws InterruptedException 中断异常
+     */
+    public long captureScreen(Path sink) throws IOException, InterruptedException {
+        if (captureMode == CaptureMode.RAW) {
+            RawFrame frame = captureRawFrame();
+            try {
+                frame.writeTo(sink);
+                return Files.size(sink);
+            } finally {
+                frame.release();
+            }
+        }
+        ByteBuffer png = captureScreen((ByteBuffer) null);
+        if (sink.getParent() != null) {
+            Files.createDirectories(sink.getParent());
+        }
+        long written = 0;
+        try (FileChannel file = FileChannel.open(sink, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (png.hasRemaining()) {
+                written += file.write(png);
+            }
+        }
+        return written;
+    }
+    
+    /**
+     * 采集一帧原始屏幕数据（screencap不带-p），像素保存在池化的直接缓冲区中
+     * 调用方使用完毕后必须调用{@link RawFrame#release()}归还缓冲区
+     * @return 原始帧
+     * @throws IOException 采集或解析失败
+     * @throws InterruptedException 中断异常
+     */
+    public RawFrame captureRawFrame() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        ByteBuffer buffer = framePool.acquire(Math.max(lastRawFrameSize, 64 * 1024));
+        ByteBuffer data;
+        try {
+            data = execOut("screencap", buffer);
+        } catch (IOException | InterruptedException e) {
+            framePool.release(buffer);
+            throw e;
+        }
+        if (data != buffer) {
+            // 缓冲区在读取过程中扩容，旧缓冲区归还到池中
+            framePool.release(buffer);
+        }
+        lastRawFrameSize = data.remaining();
+        try {
+            RawFrame frame = RawFrame.parse(data, framePool);
+            logger.debug("原始帧采集完成: {}x{}，耗时: {} ms", frame.getWidth(), frame.getHeight(),
+                    (System.nanoTime() - start) / 1_000_000);
+            return frame;
+        } catch (IOException e) {
+            framePool.release(data);
+            throw e;
+        }
+    }
+    
+    /**
+     * 获取最新屏幕的PNG数据
+     * 帧流运行且最新帧未过期时直接编码缓冲区中的帧，否则实时截图
+     * @param maxAgeMillis 允许使用的最大帧龄（毫秒）
+     * @return PNG字节
+     * @throws IOException 截图失败
+     * @throws InterruptedException 中断异常
+     */
+    public byte[] captureLatestScreen(long maxAgeMillis) throws IOException, InterruptedException {
+        FrameStream stream = frameStream;
+        if (stream != null && stream.isRunning()) {
+            RawFrame frame = stream.latest(maxAgeMillis);
+            if (frame != null) {
+                try {
+                    logger.debug("使用帧流中的最新帧，帧龄: {} ms", System.currentTimeMillis() - frame.getTimestamp());
+                    return frame.encode("png");
+                } finally {
+                    frame.release();
+                }
+            }
+        }
+        return captureScreen();
+    }
+    
+    /**
+     * 获取最新的原始帧，调用方使用完毕后必须调用{@link RawFrame#release()}
+     * 帧流运行且最新帧未过期时直接返回缓冲区中的帧，否则实时采集
+     * @param maxAgeMillis 允许使用的最大帧龄（毫秒）
+     * @return 原始帧
+     * @throws IOException 采集失败
+     * @throws InterruptedException 中断异常
+     */
+    public RawFrame captureLatestFrame(long maxAgeMillis) throws IOException, InterruptedException {
+        FrameStream stream = frameStream;
+        if (stream != null && stream.isRunning()) {
+            RawFrame frame = stream.latest(maxAgeMillis);
+            if (frame != null) {
+                return frame;
+            }
+        }
+        return captureRawFrame();
+    }
+    
+    /**
+     * 启动后台帧流采集，已启动时先停止旧的帧流
+     * @param fps 目标帧率
+     * @param capacity 保留的帧数
+     * @param maxBytes 帧缓冲区内存上限（字节）
+     * @return 帧流
+     */
+    public synchronized FrameStream startFrameStream(double fps, int capacity, long maxBytes) {
+        stopFrameStream();
+        frameStream = new FrameStream(this, fps, capacity, maxBytes);
+        frameStream.start();
+        return frameStream;
+    }
+    
+    /**
+     * 停止后台帧流采集
+     */
+    public synchronized void stopFrameStream() {
+        if (frameStream != null) {
+            frameStream.close();
+            frameStream = null;
+        }
+    }
+    
+    /**
+     * 获取当前帧流
+     * @return 帧流，未启动时返回null
+     */
+    public synchronized FrameStream getFrameStream() {
+        return frameStream;
+    }
+    
+    /**
+     * 启动后台遥测采样，已启动时先停止旧的采样器
+     * @param intervalMillis 采样间隔（毫秒）
+     * @param capacity 每个指标保留的样本数
+     * @return 采样器
+     */
+    public synchronized TelemetrySampler startTelemetry(long intervalMillis, int capacity) {
+        stopTelemetry();
+        telemetry = new TelemetrySampler(this, intervalMillis, capacity);
+        telemetry.start();
+        return telemetry;
+    }
+    
+    /**
+     * 停止后台遥测采样
+     */
+    public synchronized void stopTelemetry() {
+        if (telemetry != null) {
+            telemetry.close();
+            telemetry = null;
+        }
+    }
+    
+    /**
+     * 获取当前遥测采样器
+     * @return 采样器，未启动时返回null
+     */
+    public synchronized TelemetrySampler getTelemetry() {
+        return telemetry;
+    }
+    
+    /**
+     * 启动后台logcat读取，已启动时先停止旧的读取
+     * @param config 读取配置
+     * @return logcat流
+     * @throws IOException 创建持久化文件失败
+     */
+    public synchronized LogcatStream startLogcat(LogcatStream.Config config) throws IOException {
+        stopLogcat();
+        logcat = new LogcatStream(this, config);
+        logcat.start();
+        return logcat;
+    }
+    
+    /**
+     * 停止后台logcat读取
+     */
+    public synchronized void stopLogcat() {
+        if (logcat != null) {
+            logcat.close();
+            logcat = null;
+        }
+    }
+    
+    /**
+     * 获取当前logcat流
+     * @return logcat流，未启动时返回null
+     */
+    public synchronized LogcatStream getLogcat() {
+        return logcat;
+    }
+    
+    /**
+     * 获取应用主进程的进程ID
+     * @param packageName 应用包名
+     * @return 进程ID，应用未运行时返回-1
+     * @throws IOException 查询失败
+     */
+    public int getPid(String packageName) throws IOException {
+        if (!packageName.matches("[A-Za-z0-9_.:]+")) {
+            throw new IllegalArgumentException("无效的包名: " + packageName);
+        }
+        ShellResult result = executeShell("pidof " + packageName);
+        String output = result.getOutput().trim();
+        if (!result.isSuccess() || output.isEmpty()) {
+            return -1;
+        }
+        return Integer.parseInt(output.split("\\s+")[0]);
+    }
+    
+    /**
+     * 获取电池信息
+     * 遥测采样运行时直接返回最近一次采样的结果，否则实时读取dumpsys battery
+     * @return 电池信息映射
+     * @throws IOException 读取失败
+     */
+    public Map<String, Object> getBatteryInfo() throws IOException {
+        TelemetrySampler sampler = telemetry;
+        if (sampler != null && sampler.isRunning()) {
+            Map<String, Object> cached = sampler.getBatteryInfo();
+            if (cached != null) {
+                return new HashMap<>(cached);
+            }
+        }
+        Map<String, Object> info = TelemetrySampler.parseBattery(runShellCommand("dumpsys battery"));
+        if (info.isEmpty()) {
+            throw new IOException("无法解析dumpsys battery输出");
+        }
+        info.put("timestamp", System.currentTimeMillis());
+        return info;
+    }
+    
     /**
      * 获取设备信息
      * @return 设备信息映射
@@ -292,10 +760,11 @@ public class AndroidDevice {
         Map<String, String> info = new HashMap<>();
         try {
             info.put("deviceId", deviceId);
-            info.put("model", runAdbCommand("shell getprop ro.product.model").trim());
-            info.put("manufacturer", runAdbCommand("shell getprop ro.product.manufacturer").trim());
-            info.put("androidVersion", runAdbCommand("shell getprop ro.build.version.release").trim());
-            info.put("apiLevel", runAdbCommand("shell getprop ro.build.version.sdk").trim());
+            Map<String, String> properties = getProperties();
+            info.put("model", properties.getOrDefault("ro.product.model", ""));
+            info.put("manufacturer", properties.getOrDefault("ro.product.manufacturer", ""));
+            info.put("androidVersion", properties.getOrDefault("ro.build.version.release", ""));
+            info.put("apiLevel", properties.getOrDefault("ro.build.version.sdk", ""));
         } catch (Exception e) {
             logger.error("获取设备信息失败", e);
         }
@@ -303,35 +772,195 @@ public class AndroidDevice {
     }
     
     /**
-     * 运行ADB命令
-     * @param command 命令参数
+     * 获取当前界面的UI层级
+     * 优先将uiautomator dump输出到/dev/tty并边读边解析，省去写文件与再次读取的往返；
+     * 部分系统不支持输出到/dev/tty，此时退回写入临时文件后读取
+     * @return 根元素，其子元素为各窗口的根节点
+     * @throws IOException 获取或解析失败
+     */
+    public Element dumpUi() throws IOException {
+        try {
+            Element root = backends.execute(DeviceOperation.EXEC, backend -> {
+                try (InputStream input = backend.openExec("uiautomator dump /dev/tty", ProcessBackend.EXEC_TIMEOUT_MILLIS)) {
+                    return UiHierarchyParser.parse(input);
+                }
+            });
+            if (!root.getChildren().isEmpty()) {
+                return root;
+            }
+            logger.debug("uiautomator输出到/dev/tty的层级为空，改用临时文件");
+        } catch (IOException e) {
+            logger.debug("uiautomator输出到/dev/tty失败，改用临时文件: {}", e.getMessage());
+        }
+        runShellCommand("uiautomator dump " + UI_DUMP_PATH);
+        return backends.execute(DeviceOperation.EXEC, backend -> {
+            try (InputStream input = backend.openExec("cat " + UI_DUMP_PATH, ProcessBackend.EXEC_TIMEOUT_MILLIS)) {
+                return UiHierarchyParser.parse(input);
+            }
+        });
+    }
+    
+    /**
+     * 获取全部系统属性，一次getprop调用拉取并按有效期缓存
+     * @return 只读的属性表
+     * @throws IOException 拉取失败
+     */
+    public Map<String, String> getProperties() throws IOException {
+        return propertyCache.get(() -> backends.execute(DeviceOperation.PROPERTIES, DeviceBackend::dumpProperties));
+    }
+    
+    /**
+     * 获取指定的系统属性
+     * @param keys 属性名集合
+     * @return 属性表，不存在的属性不包含在结果中
+     * @throws IOException 拉取失败
+     */
+    public Map<String, String> getProperties(Set<String> keys) throws IOException {
+        Map<String, String> properties = getProperties();
+        Map<String, String> result = new HashMap<>();
+        for (String key : keys) {
+            String value = properties.get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 获取单个系统属性
+     * @param key 属性名
+     * @return 属性值，不存在时返回null
+     * @throws IOException 拉取失败
+     */
+    public String getProperty(String key) throws IOException {
+        return getProperties().get(key);
+    }
+    
+    /**
+     * 使属性缓存失效，下次访问时重新拉取
+     */
+    public void invalidateProperties() {
+        propertyCache.invalidate();
+        logger.debug("设备 {} 的属性缓存已失效", deviceId);
+    }
+    
+    /**
+     * 设置属性缓存有效期
+     * @param ttl 有效期
+     */
+    public void setPropertyCacheTtl(Duration ttl) {
+        propertyCache.setTtlMillis(ttl.toMillis());
+    }
+    
+    /**
+     * 通过adb进程运行adb命令，用于只有adb客户端实现的功能（例如增量安装）
+     * @param timeoutMillis 截止时间（毫秒）
+     * @param args 命令参数
+     * @return 标准输出
+     * @throws IOException 命令执行失败或超时
+     */
+    String runAdbCommand(long timeoutMillis, String... args) throws IOException {
+        return processBackend.runAdbCommand(timeoutMillis, args);
+    }
+    
+    /**
+     * 通过长驻adb shell会话运行Shell命令
+     * @param command Shell命令（不含"shell"前缀）
      * @return 命令输出
-     * @throws IOException IO异常
+     * @throws IOException 命令执行失败或会话异常
+     */
+    private String runShellCommand(String command) throws IOException {
+        ShellResult result = executeShell(command);
+        if (!result.isSuccess()) {
+            throw new IOException("Shell命令执行失败，退出码: " + result.getExitCode() + ", 命令: " + command
+                    + ", 输出: " + result.getOutput().trim());
+        }
+        logger.debug("Shell命令输出: {}", result.getOutput().trim());
+        return result.getOutput();
+    }
+    
+    /**
+     * 执行Shell命令并返回包含退出码的结果，退出码非0时不抛出异常
+     * @param command Shell命令（不含"shell"前缀）
+     * @return 命令执行结果
+     * @throws IOException 通信失败
+     */
+    ShellResult executeShell(String command) throws IOException {
+        return backends.execute(DeviceOperation.SHELL, backend -> backend.shell(command));
+    }
+    
+    /**
+     * 以exec-out方式执行命令并以流的方式读取输出，调用方负责关闭，关闭时终止命令
+     * @param command 命令
+     * @return 输出流
+     * @throws IOException 执行失败
+     */
+    InputStream openExec(String command) throws IOException {
+        return backends.execute(DeviceOperation.EXEC, backend -> backend.openExec(command));
+    }
+    
+    /**
+     * 以exec-out方式执行命令并读取原始字节输出（不经过PTY转换）
+     * @param command 命令
+     * @param reuse 可复用的缓冲区，可以为null
+     * @return 已flip的输出缓冲区
+     * @throws IOException 命令执行失败
      * @throws InterruptedException 中断异常
      */
-    private String runAdbCommand(String command) throws IOException, InterruptedException {
-        String fullCommand = adbPath + " -s " + deviceId + " " + command;
-        logger.debug("运行ADB命令: {}", fullCommand);
-        
-        ProcessBuilder processBuilder = new ProcessBuilder();
-        processBuilder.command("cmd.exe", "/c", fullCommand);
-        Process process = processBuilder.start();
-        
-        StringBuilder output = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
-            }
+    private ByteBuffer execOut(String command, ByteBuffer reuse) throws IOException, InterruptedException {
+        return backends.execute(DeviceOperation.EXEC, backend -> backend.exec(command, reuse));
+    }
+    
+    /**
+     * 推送本地文件到设备
+     * @param localPath 本地文件路径
+     * @param remotePath 设备上的目标路径
+     * @throws IOException 传输失败
+     * @throws InterruptedException 中断异常
+     */
+    public void pushFile(String localPath, String remotePath) throws IOException, InterruptedException {
+        logger.debug("推送文件: {} -> {}", localPath, remotePath);
+        backends.execute(DeviceOperation.PUSH, backend -> {
+            backend.push(Paths.get(localPath), remotePath);
+            return null;
+        });
+    }
+    
+    /**
+     * 从设备拉取文件到本地
+     * @param remotePath 设备上的文件路径
+     * @param localPath 本地目标路径
+     * @throws IOException 传输失败
+     * @throws InterruptedException 中断异常
+     */
+    public void pullFile(String remotePath, String localPath) throws IOException, InterruptedException {
+        logger.debug("拉取文件: {} -> {}", remotePath, localPath);
+        backends.execute(DeviceOperation.PULL, backend -> {
+            backend.pull(remotePath, Paths.get(localPath));
+            return null;
+        });
+    }
+    
+    /**
+     * 确认adb服务器可用，不可用时尝试启动一次，仍不可用则降级为进程方式
+     */
+    private void ensureTransport() {
+        if (transport == AdbTransport.PROCESS || adbClient.isServerReachable()) {
+            return;
         }
-        
-        int exitCode = process.waitFor();
-        if (exitCode != 0) {
-            throw new IOException("ADB命令执行失败，退出码: " + exitCode + ", 命令: " + fullCommand);
+        logger.info("adb服务器未运行，尝试启动: {}", adbPath);
+        try {
+            CommandExecutor.getDefault().run(Arrays.asList(adbPath, "start-server"), START_SERVER_TIMEOUT_MILLIS);
+        } catch (IOException e) {
+            logger.warn("启动adb服务器失败", e);
+        }
+        if (adbClient.isServerReachable()) {
+            adbClient.warmUp(deviceId);
+        } else {
+            logger.warn("adb服务器不可达，设备 {} 降级为进程方式通信", deviceId);
+            setTransport(AdbTransport.PROCESS);
         }
-        
-        logger.debug("ADB命令输出: {}", output.toString().trim());
-        return output.toString();
     }
     
     /**
@@ -362,15 +991,117 @@ public class AndroidDevice {
      * 设置ADB路径
      * @param adbPath ADB路径
      */
-    public void setAdbPath(String adbPath) {
+    public synchronized void setAdbPath(String adbPath) {
         this.adbPath = adbPath;
+        processBackend.setAdbPath(adbPath);
+    }
+    
+    /**
+     * 获取ADB传输方式
+     * @return 传输方式
+     */
+    public AdbTransport getTransport() {
+        return transport;
     }
     
     /**
-     * 获取Appium驱动
-     * @return Appium驱动
+     * 设置ADB传输方式
+     * @param transport 传输方式
+     */
+    public void setTransport(AdbTransport transport) {
+        this.transport = transport;
+        if (transport == AdbTransport.AUTO) {
+            backends.useAdaptive();
+        } else {
+            backends.useFixed(transport == AdbTransport.PROCESS ? processBackend : socketBackend);
+        }
+        logger.info("设备 {} 的ADB传输方式已设置为: {}", deviceId, transport);
+    }
+    
+    /**
+     * 获取各后端在每类操作上的延迟统计
+     * @return 延迟统计
+     */
+    public Map<String, Map<String, Object>> getBackendStats() {
+        return backends.getStats();
+    }
+    
+    /**
+     * 获取截图采集方式
+     * @return 采集方式
+     */
+    public CaptureMode getCaptureMode() {
+        return captureMode;
+    }
+    
+    /**
+     * 设置截图采集方式
+     * @param captureMode 采集方式
+     */
+    public void setCaptureMode(CaptureMode captureMode) {
+        this.captureMode = captureMode;
+        logger.info("设备 {} 的截图采集方式已设置为: {}", deviceId, captureMode);
+    }
+    
+    /**
+     * 获取点击与滑动的注入方式
+     * @return 注入方式
+     */
+    public InputBackend getInputBackend() {
+        return inputBackend;
+    }
+    
+    /**
+     * 设置点击与滑动的注入方式
+     * @param inputBackend 注入方式
+     */
+    public void setInputBackend(InputBackend inputBackend) {
+        this.inputBackend = inputBackend;
+        logger.info("设备 {} 的输入注入方式已设置为: {}", deviceId, inputBackend);
+    }
+    
+    /**
+     * 获取adb服务器客户端
+     * @return adb服务器客户端
+     */
+    public AdbClient getAdbClient() {
+        return adbClient;
+    }
+    
+    /**
+     * 获取Appium驱动，首次调用时创建会话
+     * @return Appium驱动，创建失败时返回null
      */
     public AndroidDriver getDriver() {
-        return driver;
+        try {
+            return getAppiumSession().getDriver();
+        } catch (IOException e) {
+            logger.error("获取Appium驱动失败: {}", deviceId, e);
+            return null;
+        }
+    }
+    
+    /**
+     * 获取当前设备的Appium会话管理器
+     * @return 会话管理器
+     */
+    public AppiumSessionManager getAppiumSession() {
+        return AppiumSessionManager.of(appiumServerUrl, deviceId);
+    }
+    
+    /**
+     * 设置Appium服务器地址
+     * @param appiumServerUrl 服务器地址
+     */
+    public void setAppiumServerUrl(String appiumServerUrl) {
+        this.appiumServerUrl = appiumServerUrl;
+    }
+    
+    /**
+     * 设置连接后是否在后台预热Appium会话
+     * @param appiumWarmUp 是否预热
+     */
+    public void setAppiumWarmUp(boolean appiumWarmUp) {
+        this.appiumWarmUp = appiumWarmUp;
     }
 }
\ No newline at end of file
@@ -0,0 +1,154 @@
+package com.example.device;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ApkFile类表示主机上的一个APK文件，缓存其清单信息与SHA-256
+ * 同一文件（路径、大小、修改时间均未变）在多次安装与多台设备间共享一次哈希计算；
+ * 文件内容不常驻内存，安装时按块从文件通道读取
+ */
+public class ApkFile {
+    private static final int MAX_CACHED_FILES = 64;
+    private static final Map<Path, ApkFile> CACHE = new LinkedHashMap<Path, ApkFile>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, ApkFile> eldest) {
+            return size() > MAX_CACHED_FILES; // 按最近使用顺序淘汰
+        }
+    };
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    private final Path path;
+    private final long size;
+    private final long lastModified;
+    private volatile ApkManifest manifest;
+    private volatile String sha256;
+    
+    private ApkFile(Path path, long size, long lastModified) {
+        this.path = path;
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+    
+    /**
+     * 获取APK文件，文件未变化时复用已缓存的实例
+     * @param path 文件路径
+     * @return APK文件
+     * @throws IOException 文件不存在或无法读取
+     */
+    public static ApkFile of(Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        long size = Files.size(key);
+        long lastModified = Files.getLastModifiedTime(key).toMillis();
+        synchronized (CACHE) {
+            ApkFile cached = CACHE.get(key);
+            if (cached != null && cached.size == size && cached.lastModified == lastModified) {
+                return cached;
+            }
+            ApkFile file = new ApkFile(key, size, lastModified);
+            CACHE.put(key, file);
+            return file;
+        }
+    }
+    
+    public Path getPath() {
+        return path;
+    }
+    
+    /**
+     * 获取文件名，用作安装会话中的split名称
+     * @return 文件名
+     */
+    public String getFileName() {
+        return path.getFileName().toString();
+    }
+    
+    public long getSize() {
+        return size;
+    }
+    
+    /**
+     * 获取清单信息，首次调用时解析
+     * @return 清单信息
+     * @throws IOException 解析失败
+     */
+    public ApkManifest getManifest() throws IOException {
+        ApkManifest result = manifest;
+        if (result == null) {
+            result = ApkManifest.read(path);
+            manifest = result;
+        }
+        return result;
+    }
+    
+    /**
+     * 获取文件内容的SHA-256，首次调用时计算
+     * @return 小写十六进制的SHA-256
+     * @throws IOException 读取失败
+     */
+    public String getSha256() throws IOException {
+        String result = sha256;
+        if (result == null) {
+            synchronized (this) {
+                result = sha256;
+                if (result == null) {
+                    result = computeSha256();
+                    sha256 = result;
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 获取同目录下的v4签名文件（APK文件名后加.idsig），增量安装需要该文件
+     * @return 签名文件路径，不存在时返回null
+     */
+    public Path getSignatureFile() {
+        Path signature = path.resolveSibling(getFileName() + ".idsig");
+        return Files.isRegularFile(signature) ? signature : null;
+    }
+    
+    private String computeSha256() throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return toHex(digest.digest());
+    }
+    
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+    
+    @Override
+    public String toString() {
+        return "ApkFile{" +
+                "path=" + path +
+                ", size=" + size +
+                '}';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,408 @@
+package com.example.device;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * ApkInstaller类负责在设备上安装APK（含split APK）
+ * 安装前比较设备上已安装版本的versionCode与各APK的SHA-256，内容一致时跳过安装；
+ * 需要安装时，Android 7.0及以上通过cmd package从stdin流式写入，APK不落地到/data/local/tmp，
+ * 更早的设备回退为推送后pm install，进程方式交给adb install（存在.idsig时使用增量安装）
+ */
+public class ApkInstaller {
+    private static final Logger logger = LoggerFactory.getLogger(ApkInstaller.class);
+    private static final long INSTALL_TIMEOUT_MILLIS = 5 * 60_000;
+    private static final int STREAMING_MIN_SDK = 24;
+    private static final int INCREMENTAL_MIN_SDK = 30;
+    private static final Pattern VERSION_CODE = Pattern.compile("versionCode=(\\d+)");
+    private static final Pattern SHA256_LINE = Pattern.compile("^([0-9a-f]{64})\\s+\\S+", Pattern.MULTILINE);
+    private static final Pattern SESSION_ID = Pattern.compile("\\[(\\d+)]");
+    private static final String NOT_INSTALLED = "__MCP_NOT_INSTALLED";
+    
+    private final AndroidDevice device;
+    
+    /**
+     * 构造函数
+     * @param device 目标设备
+     */
+    public ApkInstaller(AndroidDevice device) {
+        this.device = device;
+    }
+    
+    /**
+     * 安装应用，多个APK视为同一应用的基础包与split包
+     * @param apks APK文件，至少一个
+     * @param force 为true时不检查已安装版本，总是重新安装
+     * @return 安装结果
+     */
+    public Result install(List<ApkFile> apks, boolean force) {
+        long start = System.nanoTime();
+        String packageName = null;
+        try {
+            if (apks.isEmpty()) {
+                throw new IllegalArgumentException("至少需要一个APK文件");
+            }
+            ApkManifest manifest = baseManifest(apks);
+            packageName = manifest.getPackageName();
+            if (!force && isInstalled(manifest, apks)) {
+                logger.info("设备 {} 上的 {} 与待安装APK一致，跳过安装", device.getDeviceId(), packageName);
+                return new Result(device.getDeviceId(), packageName, Status.SKIPPED, "skip", elapsed(start), "已安装相同版本");
+            }
+            String method = doInstall(apks);
+            logger.info("设备 {} 安装 {} 成功，方式: {}，耗时: {} ms", device.getDeviceId(), packageName, method, elapsed(start));
+            return new Result(device.getDeviceId(), packageName, Status.INSTALLED, method, elapsed(start), "安装成功");
+        } catch (Exception e) {
+            logger.error("设备 {} 安装 {} 失败", device.getDeviceId(), apks, e);
+            return new Result(device.getDeviceId(), packageName, Status.FAILED, null, elapsed(start), e.getMessage());
+        }
+    }
+    
+    /**
+     * 在设备池的全部在线设备上并行安装，APK内容与哈希只在主机上读取一次
+     * @param pool 设备池
+     * @param apks APK文件
+     * @param force 是否跳过已安装版本检查
+     * @param parallelism 同时安装的设备数
+     * @param leaseTimeoutMillis 等待设备空闲的最长时间（毫秒）
+     * @return 各设备的安装结果
+     * @throws InterruptedException 等待被中断
+     */
+    public static List<Result> installAll(DevicePool pool, List<ApkFile> apks, boolean force, int parallelism,
+                                          long leaseTimeoutMillis) throws InterruptedException {
+        List<String> deviceIds = new ArrayList<>();
+        for (AndroidDevice device : pool.getDevices()) {
+            if (device.isConnected()) {
+                deviceIds.add(device.getDeviceId());
+            }
+        }
+        if (deviceIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // 先在调用线程中完成哈希，避免各设备线程重复计算
+        for (ApkFile apk : apks) {
+            try {
+                apk.getSha256();
+            } catch (IOException e) {
+                logger.warn("预读APK失败: {}", apk.getPath(), e);
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, deviceIds.size())), r -> {
+            Thread thread = new Thread(r, "apk-install-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (String deviceId : deviceIds) {
+                futures.add(executor.submit(() -> {
+                    try (DevicePool.Lease lease = pool.acquire(deviceId, null, leaseTimeoutMillis)) {
+                        return new ApkInstaller(lease.getDevice()).install(apks, force);
+                    } catch (IOException e) {
+                        return new Result(deviceId, null, Status.FAILED, null, 0, e.getMessage());
+                    }
+                }));
+            }
+            List<Result> results = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    results.add(new Result(deviceIds.get(i), null, Status.FAILED, null, 0, String.valueOf(e.getCause())));
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * 检查设备上已安装的版本是否与待安装APK一致
+     * versionCode相同时再比较pm path列出的各APK的SHA-256，内容一致即签名一致；
+     * 设备缺少sha256sum时无法确认，按未安装处理
+     * @param manifest 基础包清单
+     * @param apks 待安装APK
+     * @return 是否一致
+     * @throws IOException 通信失败
+     */
+    private boolean isInstalled(ApkManifest manifest, List<ApkFile> apks) throws IOException {
+        String packageName = manifest.getPackageName();
+        // 脚本运行在共享shell会话中，不能用exit提前结束，未安装时输出标记
+        String script = "paths=$(pm path " + packageName + " 2>/dev/null | sed 's/^package://'); "
+                + "if [ -z \"$paths\" ]; then echo " + NOT_INSTALLED + "; else "
+                + "dumpsys package " + packageName + " | grep -m 1 versionCode=; "
+                + "sha256sum $paths 2>/dev/null; fi";
+        ShellResult result = device.executeShell(script);
+        String output = result.getOutput();
+        if (output.contains(NOT_INSTALLED)) {
+            return false;
+        }
+        Matcher version = VERSION_CODE.matcher(output);
+        if (!version.find() || Long.parseLong(version.group(1)) != manifest.getVersionCode()) {
+            return false;
+        }
+        Set<String> installed = new HashSet<>();
+        Matcher hash = SHA256_LINE.matcher(output);
+        while (hash.find()) {
+            installed.add(hash.group(1));
+        }
+        if (installed.size() != apks.size()) {
+            return false;
+        }
+        for (ApkFile apk : apks) {
+            if (!installed.contains(apk.getSha256())) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 按传输方式与系统版本选择安装方式
+     * @param apks 待安装APK
+     * @return 实际使用的安装方式
+     * @throws Exception 安装失败
+     */
+    private String doInstall(List<ApkFile> apks) throws Exception {
+        int sdk = sdkVersion();
+        if (device.getTransport() == AdbTransport.PROCESS) {
+            return installWithAdb(apks, sdk);
+        }
+        if (sdk >= STREAMING_MIN_SDK) {
+            if (apks.size() == 1) {
+                ApkFile apk = apks.get(0);
+                checkOutput(exec("cmd package install -r -S " + apk.getSize(), apk.getPath()), apk.getFileName());
+                return "stream";
+            }
+            installSession(apks);
+            return "session";
+        }
+        installWithPush(apks);
+        return "push";
+    }
+    
+    /**
+     * 通过安装会话逐个流式写入基础包与split包，失败时放弃会话
+     * @param apks 待安装APK
+     * @throws IOException 安装失败
+     */
+    private void installSession(List<ApkFile> apks) throws IOException {
+        long totalSize = 0;
+        for (ApkFile apk : apks) {
+            totalSize += apk.getSize();
+        }
+        String created = exec("cmd package install-create -r -S " + totalSize, null);
+        Matcher matcher = SESSION_ID.matcher(created);
+        if (!matcher.find()) {
+            throw new IOException("创建安装会话失败: " + created.trim());
+        }
+        String session = matcher.group(1);
+        boolean committed = false;
+        try {
+            for (int i = 0; i < apks.size(); i++) {
+                ApkFile apk = apks.get(i);
+                String name = i + "_" + apk.getFileName().replaceAll("[^A-Za-z0-9._-]", "_");
+                checkOutput(exec("cmd package install-write -S " + apk.getSize() + " " + session + " " + name + " -", apk.getPath()),
+                        apk.getFileName());
+            }
+            checkOutput(exec("cmd package install-commit " + session, null), "install-commit");
+            committed = true;
+        } finally {
+            if (!committed) {
+                try {
+                    exec("cmd package install-abandon " + session, null);
+                } catch (IOException e) {
+                    logger.debug("放弃安装会话失败: {}", session, e);
+                }
+            }
+        }
+    }
+    
+    /**
+     * 推送到/data/local/tmp后用pm install安装，适用于不支持流式安装的旧设备
+     * @param apks 待安装APK
+     * @throws Exception 安装失败
+     */
+    private void installWithPush(List<ApkFile> apks) throws Exception {
+        if (apks.size() > 1) {
+            throw new IOException("Android 7.0以下的设备不支持通过adb安装split APK");
+        }
+        ApkFile apk = apks.get(0);
+        String remotePath = "/data/local/tmp/" + apk.getFileName();
+        device.pushFile(apk.getPath().toString(), remotePath);
+        try {
+            ShellResult result = device.executeShell("pm install -r " + remotePath);
+            checkOutput(result.getOutput(), apk.getFileName());
+        } finally {
+            device.executeShell("rm -f " + remotePath);
+        }
+    }
+    
+    /**
+     * 交给adb install安装，adb对Android 7.0及以上默认流式安装，存在v4签名时使用增量安装
+     * @param apks 待安装APK
+     * @param sdk 设备SDK版本
+     * @return 实际使用的安装方式
+     * @throws IOException 安装失败
+     */
+    private String installWithAdb(List<ApkFile> apks, int sdk) throws IOException {
+        List<String> args = new ArrayList<>();
+        args.add(apks.size() > 1 ? "install-multiple" : "install");
+        args.add("-r");
+        boolean incremental = sdk >= INCREMENTAL_MIN_SDK && apks.stream().allMatch(apk -> apk.getSignatureFile() != null);
+        if (incremental) {
+            args.add("--incremental");
+        }
+        for (ApkFile apk : apks) {
+            args.add(apk.getPath().toString());
+        }
+        String output = device.runAdbCommand(INSTALL_TIMEOUT_MILLIS, args.toArray(new String[0]));
+        checkOutput(output, apks.get(0).getFileName());
+        return incremental ? "adb-incremental" : "adb";
+    }
+    
+    /**
+     * 通过exec服务执行命令，可选地把数据写入其stdin
+     */
+    private String exec(String command, Path input) throws IOException {
+        byte[] output = input != null
+                ? device.getAdbClient().execWithInput(device.getDeviceId(), command, input)
+                : device.getAdbClient().exec(device.getDeviceId(), command);
+        return new String(output, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * 检查包管理器的输出，不含Success时视为失败
+     */
+    private static void checkOutput(String output, String target) throws IOException {
+        if (!output.contains("Success")) {
+            throw new IOException("安装失败: " + target + ", 输出: " + output.trim());
+        }
+    }
+    
+    /**
+     * 取基础包（没有split属性的APK）的清单，并校验各APK属于同一个包
+     */
+    private static ApkManifest baseManifest(List<ApkFile> apks) throws IOException {
+        ApkManifest base = null;
+        for (ApkFile apk : apks) {
+            ApkManifest manifest = apk.getManifest();
+            if (base != null && !base.getPackageName().equals(manifest.getPackageName())) {
+                throw new IllegalArgumentException("APK不属于同一个包: " + base.getPackageName() + ", " + manifest.getPackageName());
+            }
+            if (base == null || (base.getSplit() != null && manifest.getSplit() == null)) {
+                base = manifest;
+            }
+        }
+        return base;
+    }
+    
+    private int sdkVersion() throws IOException {
+        String value = device.getProperty("ro.build.version.sdk");
+        try {
+            return value == null ? 0 : Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    private static long elapsed(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+    
+    /**
+     * 安装状态
+     */
+    public enum Status {
+        INSTALLED,
+        SKIPPED,
+        FAILED
+    }
+    
+    /**
+     * Result类表示单台设备的安装结果
+     */
+    public static class Result {
+        private final String deviceId;
+        private final String packageName;
+        private final Status status;
+        private final String method;
+        private final long elapsedMillis;
+        private final String message;
+        
+        Result(String deviceId, String packageName, Status status, String method, long elapsedMillis, String message) {
+            this.deviceId = deviceId;
+            this.packageName = packageName;
+            this.status = status;
+            this.method = method;
+            this.elapsedMillis = elapsedMillis;
+            this.message = message;
+        }
+        
+        public String getDeviceId() {
+            return deviceId;
+        }
+        
+        public String getPackageName() {
+            return packageName;
+        }
+        
+        public Status getStatus() {
+            return status;
+        }
+        
+        public String getMethod() {
+            return method;
+        }
+        
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+        
+        public String getMessage() {
+            return message;
+        }
+        
+        /**
+         * 是否成功（包括跳过）
+         * @return 是否成功
+         */
+        public boolean isSuccess() {
+            return status != Status.FAILED;
+        }
+        
+        /**
+         * 转换为工具结果使用的字段表
+         * @return 字段表
+         */
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("device_id", deviceId);
+            map.put("package", packageName);
+            map.put("status", status.name().toLowerCase(Locale.ROOT));
+            map.put("method", method);
+            map.put("elapsed_ms", elapsedMillis);
+            map.put("message", message);
+            return map;
+        }
+    }
+}
\ No newline at end of file
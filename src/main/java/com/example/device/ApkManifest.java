@@ -0,0 +1,210 @@
+package com.example.device;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * ApkManifest类从APK中的二进制AndroidManifest.xml（AXML）读取包名、版本号与split名称
+ * 只解析字符串池、资源ID表与第一个manifest元素，不依赖aapt等外部工具
+ */
+public class ApkManifest {
+    private static final int CHUNK_STRING_POOL = 0x0001;
+    private static final int CHUNK_XML = 0x0003;
+    private static final int CHUNK_RESOURCE_MAP = 0x0180;
+    private static final int CHUNK_START_ELEMENT = 0x0102;
+    private static final int UTF8_FLAG = 0x100;
+    private static final int TYPE_STRING = 0x03;
+    private static final int ATTR_VERSION_CODE = 0x0101021b;
+    private static final int ATTR_VERSION_NAME = 0x0101021c;
+    
+    private final String packageName;
+    private final long versionCode;
+    private final String versionName;
+    private final String split;
+    
+    private ApkManifest(String packageName, long versionCode, String versionName, String split) {
+        this.packageName = packageName;
+        this.versionCode = versionCode;
+        this.versionName = versionName;
+        this.split = split;
+    }
+    
+    /**
+     * 读取APK的清单信息
+     * @param apk APK文件
+     * @return 清单信息
+     * @throws IOException 文件不是有效的APK
+     */
+    public static ApkManifest read(Path apk) throws IOException {
+        try (ZipFile zip = new ZipFile(apk.toFile())) {
+            ZipEntry entry = zip.getEntry("AndroidManifest.xml");
+            if (entry == null) {
+                throw new IOException("APK中缺少AndroidManifest.xml: " + apk);
+            }
+            try (InputStream input = zip.getInputStream(entry)) {
+                return parse(ByteBuffer.wrap(input.readAllBytes()));
+            }
+        }
+    }
+    
+    /**
+     * 解析二进制清单
+     * @param data AndroidManifest.xml的内容
+     * @return 清单信息
+     * @throws IOException 格式无效
+     */
+    static ApkManifest parse(ByteBuffer data) throws IOException {
+        ByteBuffer buffer = data.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if ((buffer.getShort(0) & 0xffff) != CHUNK_XML) {
+                throw new IOException("不是二进制XML格式的清单文件");
+            }
+            String[] strings = null;
+            int[] resourceIds = new int[0];
+            int offset = buffer.getShort(2) & 0xffff;
+            while (offset + 8 <= buffer.limit()) {
+                int type = buffer.getShort(offset) & 0xffff;
+                int size = buffer.getInt(offset + 4);
+                if (size < 8) {
+                    break;
+                }
+                if (type == CHUNK_STRING_POOL) {
+                    strings = readStringPool(buffer, offset);
+                } else if (type == CHUNK_RESOURCE_MAP) {
+                    int headerSize = buffer.getShort(offset + 2) & 0xffff;
+                    resourceIds = new int[(size - headerSize) / 4];
+                    for (int i = 0; i < resourceIds.length; i++) {
+                        resourceIds[i] = buffer.getInt(offset + headerSize + i * 4);
+                    }
+                } else if (type == CHUNK_START_ELEMENT && strings != null) {
+                    return readManifestElement(buffer, offset, strings, resourceIds);
+                }
+                offset += size;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("清单文件已损坏", e);
+        }
+        throw new IOException("清单文件中没有manifest元素");
+    }
+    
+    /**
+     * 读取第一个元素（manifest）的属性
+     */
+    private static ApkManifest readManifestElement(ByteBuffer buffer, int offset, String[] strings, int[] resourceIds) throws IOException {
+        int headerSize = buffer.getShort(offset + 2) & 0xffff;
+        int extension = offset + headerSize; // ResXMLTree_attrExt
+        String name = string(strings, buffer.getInt(extension + 4));
+        if (!"manifest".equals(name)) {
+            throw new IOException("清单文件的根元素应为manifest，实际为: " + name);
+        }
+        int attributeStart = buffer.getShort(extension + 8) & 0xffff;
+        int attributeSize = buffer.getShort(extension + 10) & 0xffff;
+        int attributeCount = buffer.getShort(extension + 12) & 0xffff;
+        String packageName = null;
+        String versionName = null;
+        String split = null;
+        long versionCode = 0;
+        for (int i = 0; i < attributeCount; i++) {
+            int attribute = extension + attributeStart + i * attributeSize;
+            int nameIndex = buffer.getInt(attribute + 4);
+            int rawValue = buffer.getInt(attribute + 8);
+            int dataType = buffer.get(attribute + 15) & 0xff;
+            int value = buffer.getInt(attribute + 16);
+            int resourceId = nameIndex >= 0 && nameIndex < resourceIds.length ? resourceIds[nameIndex] : 0;
+            String attributeName = string(strings, nameIndex);
+            String text = rawValue >= 0 ? string(strings, rawValue) : (dataType == TYPE_STRING ? string(strings, value) : null);
+            if (resourceId == ATTR_VERSION_CODE || (resourceId == 0 && "versionCode".equals(attributeName))) {
+                versionCode = text != null ? Long.parseLong(text.trim()) : Integer.toUnsignedLong(value);
+            } else if (resourceId == ATTR_VERSION_NAME || (resourceId == 0 && "versionName".equals(attributeName))) {
+                versionName = text;
+            } else if ("package".equals(attributeName)) {
+                packageName = text;
+            } else if ("split".equals(attributeName)) {
+                split = text;
+            }
+        }
+        if (packageName == null) {
+            throw new IOException("清单文件中缺少package属性");
+        }
+        return new ApkManifest(packageName, versionCode, versionName, split);
+    }
+    
+    private static String[] readStringPool(ByteBuffer buffer, int offset) {
+        int headerSize = buffer.getShort(offset + 2) & 0xffff;
+        int count = buffer.getInt(offset + 8);
+        int flags = buffer.getInt(offset + 16);
+        int stringsStart = offset + buffer.getInt(offset + 20);
+        boolean utf8 = (flags & UTF8_FLAG) != 0;
+        String[] strings = new String[count];
+        for (int i = 0; i < count; i++) {
+            int position = stringsStart + buffer.getInt(offset + headerSize + i * 4);
+            if (utf8) {
+                position += (buffer.get(position) & 0x80) != 0 ? 2 : 1; // 字符数
+                int length = buffer.get(position) & 0xff;
+                if ((length & 0x80) != 0) {
+                    length = ((length & 0x7f) << 8) | (buffer.get(position + 1) & 0xff);
+                    position += 2;
+                } else {
+                    position += 1;
+                }
+                byte[] bytes = new byte[length];
+                buffer.duplicate().position(position).get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            } else {
+                int length = buffer.getShort(position) & 0xffff;
+                if ((length & 0x8000) != 0) {
+                    length = ((length & 0x7fff) << 16) | (buffer.getShort(position + 2) & 0xffff);
+                    position += 4;
+                } else {
+                    position += 2;
+                }
+                char[] chars = new char[length];
+                for (int c = 0; c < length; c++) {
+                    chars[c] = buffer.getChar(position + c * 2);
+                }
+                strings[i] = new String(chars);
+            }
+        }
+        return strings;
+    }
+    
+    private static String string(String[] strings, int index) {
+        return index >= 0 && index < strings.length ? strings[index] : null;
+    }
+    
+    public String getPackageName() {
+        return packageName;
+    }
+    
+    public long getVersionCode() {
+        return versionCode;
+    }
+    
+    public String getVersionName() {
+        return versionName;
+    }
+    
+    /**
+     * 获取split名称
+     * @return split名称，基础APK返回null
+     */
+    public String getSplit() {
+        return split;
+    }
+    
+    @Override
+    public String toString() {
+        return "ApkManifest{" +
+                "packageName='" + packageName + '\'' +
+                ", versionCode=" + versionCode +
+                ", versionName='" + versionName + '\'' +
+                ", split='" + split + '\'' +
+                '}';
+    }
+}
\ No newline at end of file
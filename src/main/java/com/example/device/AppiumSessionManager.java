@@ -0,0 +1,199 @@
+package com.example.device;
+
+import io.appium.java_client.android.AndroidDriver;
+import io.appium.java_client.android.options.UiAutomator2Options;
+import io.appium.java_client.remote.AutomationName;
+import io.appium.java_client.remote.MobilePlatform;
+import org.openqa.selenium.WebDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URL;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * AppiumSessionManager类按需创建并复用Appium会话
+ * 会话只在工具真正需要时创建（也可在后台预热），按服务器地址和设备ID全局缓存，
+ * 设备断开重连不会关闭会话，进程退出时统一关闭。
+ * 服务器会在空闲超过newCommandTimeout后丢弃会话，因此空闲一段时间后再次使用前先探测会话，
+ * 探测失败或命令报告会话不存在时重新创建
+ */
+public class AppiumSessionManager {
+    private static final Logger logger = LoggerFactory.getLogger(AppiumSessionManager.class);
+    public static final String DEFAULT_SERVER_URL = "http://localhost:4723/wd/hub";
+    private static final long VERIFY_AFTER_IDLE_NANOS = 30_000_000_000L;
+    
+    private static final Map<String, AppiumSessionManager> SESSIONS = new ConcurrentHashMap<>();
+    
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(AppiumSessionManager::closeAll, "appium-shutdown"));
+    }
+    
+    private final String serverUrl;
+    private final String deviceId;
+    private AndroidDriver driver;
+    private CompletableFuture<AndroidDriver> warmUp;
+    private long lastUsed;
+    
+    private AppiumSessionManager(String serverUrl, String deviceId) {
+        this.serverUrl = serverUrl;
+        this.deviceId = deviceId;
+    }
+    
+    /**
+     * 获取指定服务器与设备的会话管理器，同一组合共享同一实例
+     * @param serverUrl Appium服务器地址
+     * @param deviceId 设备ID
+     * @return 会话管理器
+     */
+    public static AppiumSessionManager of(String serverUrl, String deviceId) {
+        return SESSIONS.computeIfAbsent(serverUrl + "|" + deviceId, key -> new AppiumSessionManager(serverUrl, deviceId));
+    }
+    
+    /**
+     * 获取会话，尚未创建或已失效时新建
+     * @return Appium驱动
+     * @throws IOException 创建会话失败
+     */
+    public AndroidDriver getDriver() throws IOException {
+        CompletableFuture<AndroidDriver> pending;
+        synchronized (this) {
+            if (isAlive() && verifyIfIdle()) {
+                lastUsed = System.nanoTime();
+                return driver;
+            }
+            pending = warmUp;
+        }
+        if (pending != null) {
+            // 后台预热进行中，等待其结果而不是重复创建
+            try {
+                pending.join();
+            } catch (RuntimeException e) {
+                logger.debug("Appium会话预热失败，重新创建: {}", deviceId);
+            }
+        }
+        synchronized (this) {
+            if (!isAlive()) {
+                driver = createDriver();
+            }
+            lastUsed = System.nanoTime();
+            return driver;
+        }
+    }
+    
+    /**
+     * 丢弃当前会话，下一次获取时重新创建，用于命令报告会话已不存在时
+     */
+    public synchronized void invalidate() {
+        if (driver != null) {
+            logger.info("Appium会话已失效，将在下次使用时重建: {}", deviceId);
+            quitQuietly(driver);
+            driver = null;
+        }
+    }
+    
+    /**
+     * 会话空闲超过一定时间时向服务器探测，失效的会话被丢弃，调用时必须持有锁
+     * @return 会话是否仍然可用
+     */
+    private boolean verifyIfIdle() {
+        if (System.nanoTime() - lastUsed < VERIFY_AFTER_IDLE_NANOS) {
+            return true;
+        }
+        try {
+            driver.getContext();
+            return true;
+        } catch (WebDriverException e) {
+            logger.info("Appium会话探测失败: {}，原因: {}", deviceId, e.getMessage());
+            invalidate();
+            return false;
+        }
+    }
+    
+    /**
+     * 在后台预热会话，已有会话或预热进行中时直接返回
+     * @return 预热结果
+     */
+    public synchronized CompletableFuture<AndroidDriver> warmUpAsync() {
+        if (isAlive()) {
+            return CompletableFuture.completedFuture(driver);
+        }
+        if (warmUp == null || warmUp.isDone()) {
+            warmUp = CompletableFuture.supplyAsync(() -> {
+                try {
+                    AndroidDriver created = createDriver();
+                    synchronized (this) {
+                        if (isAlive()) {
+                            quitQuietly(created);
+                            return driver;
+                        }
+                        driver = created;
+                        lastUsed = System.nanoTime();
+                        return created;
+                    }
+                } catch (IOException e) {
+                    logger.warn("Appium会话预热失败: {}，原因: {}", deviceId, e.getMessage());
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+        return warmUp;
+    }
+    
+    /**
+     * 是否已有可用会话
+     * @return 是否可用
+     */
+    public synchronized boolean isAlive() {
+        return driver != null && driver.getSessionId() != null;
+    }
+    
+    /**
+     * 关闭会话
+     */
+    public synchronized void close() {
+        if (driver != null) {
+            quitQuietly(driver);
+            driver = null;
+            logger.info("Appium会话已关闭: {}", deviceId);
+        }
+    }
+    
+    /**
+     * 关闭全部缓存的会话
+     */
+    public static void closeAll() {
+        SESSIONS.values().forEach(AppiumSessionManager::close);
+    }
+    
+    private AndroidDriver createDriver() throws IOException {
+        logger.info("正在创建Appium会话: {}，服务器: {}", deviceId, serverUrl);
+        long start = System.nanoTime();
+        UiAutomator2Options options = new UiAutomator2Options()
+                .setPlatformName(MobilePlatform.ANDROID)
+                .setAutomationName(AutomationName.ANDROID_UIAUTOMATOR2)
+                .setDeviceName(deviceId)
+                .setUdid(deviceId)
+                .setNoReset(true)
+                .setNewCommandTimeout(Duration.ofSeconds(300));
+        try {
+            AndroidDriver created = new AndroidDriver(new URL(serverUrl), options);
+            logger.info("Appium会话创建成功: {}，耗时 {} 毫秒", deviceId, (System.nanoTime() - start) / 1_000_000);
+            return created;
+        } catch (Exception e) {
+            throw new IOException("创建Appium会话失败: " + deviceId, e);
+        }
+    }
+    
+    private void quitQuietly(AndroidDriver target) {
+        try {
+            target.quit();
+        } catch (Exception e) {
+            logger.debug("关闭Appium会话失败: {}", deviceId, e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,286 @@
+package com.example.device;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AsyncAndroidDevice类为AndroidDevice提供基于CompletableFuture的异步接口
+ * 每个设备有两条串行通道：动作通道（安装、启动、输入、截图等）保证按提交顺序执行，
+ * 读取通道（设备信息、属性）独立排队，不会被耗时的动作阻塞。两条通道都运行在共享线程池上，
+ * 因此少量线程即可驱动大量设备，在线程池中等待的只是任务而不是被阻塞的线程
+ */
+public class AsyncAndroidDevice {
+    private static final ExecutorService SHARED_EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(4, Runtime.getRuntime().availableProcessors()), new DaemonThreadFactory());
+    
+    private final AndroidDevice device;
+    private final SerialExecutor actionLane;
+    private final SerialExecutor readLane;
+    
+    /**
+     * 构造函数，使用进程内共享的线程池
+     * @param device 同步设备
+     */
+    public AsyncAndroidDevice(AndroidDevice device) {
+        this(device, SHARED_EXECUTOR);
+    }
+    
+    /**
+     * 构造函数
+     * @param device 同步设备
+     * @param executor 执行任务的线程池，可在多个设备间共享
+     */
+    public AsyncAndroidDevice(AndroidDevice device, Executor executor) {
+        this.device = device;
+        this.actionLane = new SerialExecutor(executor);
+        this.readLane = new SerialExecutor(executor);
+    }
+    
+    /**
+     * 获取同步设备
+     * @return 同步设备
+     */
+    public AndroidDevice getDevice() {
+        return device;
+    }
+    
+    /**
+     * 在动作通道上异步执行{@link AndroidDevice#connect()}
+     */
+    public CompletableFuture<Boolean> connect() {
+        return action(device::connect);
+    }
+    
+    /**
+     * 在动作通道上异步执行{@link AndroidDevice#disconnect()}
+     */
+    public CompletableFuture<Void> disconnect() {
+        return action(() -> {
+            device.disconnect();
+            return null;
+        });
+    }
+    
+    /**
+     * 在动作通道上异步执行{@link AndroidDevice#installApp(String)}
+     */
+    public CompletableFuture<Boolean> installApp(String apkPath) {
+        return action(() -> device.installApp(apkPath));
+    }
+    
+    /**
+     * 在动作通道上异步执行{@link AndroidDevice#uninstallApp(String)}
+     */
+    public CompletableFuture<Boolean> uninstallApp(String packageName) {
+        return action(() -> device.uninstallApp(packageName));
+    }
+    
+    /**
+     * 在动作通道上异步执行{@link AndroidDevice#startApp(String, String)}
+     */
+    public CompletableFuture<Boolean> startApp(String packageName, String activityName) {
+        return action(() -> device.startApp(packageName, activityName));
+    }
+    
+    /**
+     * 在动作通道上异步执行{@link AndroidDevice#stopApp(String)}
+     */
+    public CompletableFuture<Boolean> stopApp(String packageName) {
+        return action(() -> device.stopApp(packageName));
+    }
+    
+    /**
+     * 在动作通道上异步执行{@link AndroidDevice#unlockScreen()}
+     */
+    public CompletableFuture<Boolean> unlockScreen() {
+        return action(device::unlockScreen);
+    }
+    
+    /**
+     * 在动作通道上异步执行{@link AndroidDevice#lockScreen()}
+     */
+    public CompletableFuture<Boolean> lockScreen() {
+        return action(device::lockScreen);
+    }
+    
+    /**
+     * 在动作通道上异步执行{@link AndroidDevice#inputText(String)}
+     */
+    public CompletableFuture<Boolean> inputText(String text) {
+        return action(() -> device.inputText(text));
+    }
+    
+    /**
+     * 在动作通道上异步执行{@link AndroidDevice#inputKeyEvent(String)}
+     */
+    public CompletableFuture<Boolean> inputKeyEvent(String keyCode) {
+        return action(() -> device.inputKeyEvent(keyCode));
+    }
+    
+    /**
+     * 在动作通道上异步执行{@link AndroidDevice#tap(int, int)}
+     */
+    public CompletableFuture<Boolean> tap(int x, int y) {
+        return action(() -> device.tap(x, y));
+    }
+    
+    /**
+     * 在动作通道上异步执行{@link AndroidDevice#longPress(int, int, int)}
+     */
+    public CompletableFuture<Boolean> longPress(int x, int y, int duration) {
+        return action(() -> device.longPress(x, y, duration));
+    }
+    
+    /**
+     * 在动作通道上异步执行{@link AndroidDevice#swipe(int, int, int, int, int)}
+     */
+    public CompletableFuture<Boolean> swipe(int startX, int startY, int endX, int endY, int duration) {
+        return action(() -> device.swipe(startX, startY, endX, endY, duration));
+    }
+    
+    /**
+     * 在动作通道上异步执行{@link AndroidDevice#gesture(int[][], long[])}
+     */
+    public CompletableFuture<Boolean> gesture(int[][] points, long[] segmentDurations) {
+        return action(() -> device.gesture(points, segmentDurations));
+    }
+    
+    /**
+     * 在动作通道上异步执行{@link AndroidDevice#inputBatch(List)}
+     */
+    public CompletableFuture<List<ShellResult>> inputBatch(List<InputAction> actions) {
+        return action(() -> device.inputBatch(actions));
+    }
+    
+    /**
+     * 在动作通道上异步执行{@link AndroidDevice#screenshot(String)}
+     */
+    public CompletableFuture<Boolean> screenshot(String outputPath) {
+        return action(() -> device.screenshot(outputPath));
+    }
+    
+    /**
+     * 在动作通道上异步执行{@link AndroidDevice#captureScreen()}
+     */
+    public CompletableFuture<byte[]> captureScreen() {
+        return action(device::captureScreen);
+    }
+    
+    /**
+     * 在动作通道上异步执行{@link AndroidDevice#captureScreen(Path)}
+     */
+    public CompletableFuture<Long> captureScreen(Path sink) {
+        return action(() -> device.captureScreen(sink));
+    }
+    
+    /**
+     * 在动作通道上异步执行{@link AndroidDevice#captureLatestScreen(long)}
+     */
+    public CompletableFuture<byte[]> captureLatestScreen(long maxAgeMillis) {
+        return action(() -> device.captureLatestScreen(maxAgeMillis));
+    }
+    
+    /**
+     * 在动作通道上异步执行{@link AndroidDevice#pushFile(String, String)}
+     */
+    public CompletableFuture<Void> pushFile(String localPath, String remotePath) {
+        return action(() -> {
+            device.pushFile(localPath, remotePath);
+            return null;
+        });
+    }
+    
+    /**
+     * 在动作通道上异步执行{@link AndroidDevice#pullFile(String, String)}
+     */
+    public CompletableFuture<Void> pullFile(String remotePath, String localPath) {
+        return action(() -> {
+            device.pullFile(remotePath, localPath);
+            return null;
+        });
+    }
+    
+    /**
+     * 在读取通道上异步执行{@link AndroidDevice#getDeviceInfo()}
+     */
+    public CompletableFuture<Map<String, String>> getDeviceInfo() {
+        return read(device::getDeviceInfo);
+    }
+    
+    /**
+     * 在读取通道上异步执行{@link AndroidDevice#getProperties()}
+     */
+    public CompletableFuture<Map<String, String>> getProperties() {
+        return read(device::getProperties);
+    }
+    
+    /**
+     * 在读取通道上异步执行{@link AndroidDevice#getProperty(String)}
+     */
+    public CompletableFuture<String> getProperty(String key) {
+        return read(() -> device.getProperty(key));
+    }
+    
+    /**
+     * 获取两条通道中排队的任务总数
+     * @return 任务数量
+     */
+    public int getQueuedTasks() {
+        return actionLane.getQueuedTasks() + readLane.getQueuedTasks();
+    }
+    
+    /**
+     * 在动作通道上执行任务，按提交顺序串行
+     * @param task 任务
+     * @return 任务结果
+     */
+    public <T> CompletableFuture<T> action(Callable<T> task) {
+        return submit(actionLane, task);
+    }
+    
+    /**
+     * 在读取通道上执行任务，与动作通道互不阻塞
+     * @param task 任务
+     * @return 任务结果
+     */
+    public <T> CompletableFuture<T> read(Callable<T> task) {
+        return submit(readLane, task);
+    }
+    
+    private static <T> CompletableFuture<T> submit(Executor lane, Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        lane.execute(() -> {
+            if (future.isDone()) {
+                return; // 已被调用方取消
+            }
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+    
+    /**
+     * DaemonThreadFactory类创建共享线程池使用的守护线程
+     */
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+        
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "device-async-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
\ No newline at end of file
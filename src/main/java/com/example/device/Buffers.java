@@ -0,0 +1,76 @@
+package com.example.device;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Buffers类提供可复用ByteBuffer的读取辅助方法
+ */
+public final class Buffers {
+    private static final int MIN_CAPACITY = 64 * 1024;
+    
+    private Buffers() {
+    }
+    
+    /**
+     * 将通道内容读到末尾，缓冲区不足时按倍数扩容
+     * @param channel 来源通道
+     * @param reuse 可复用的缓冲区，可以为null，容量为0时视为null
+     * @return 已flip的缓冲区，可能是扩容后的新实例
+     * @throws IOException 读取失败
+     */
+    public static ByteBuffer readToEnd(ReadableByteChannel channel, ByteBuffer reuse) throws IOException {
+        ByteBuffer buffer = reuse != null && reuse.capacity() > 0 ? reuse : ByteBuffer.allocate(MIN_CAPACITY);
+        buffer.clear();
+        ByteBuffer probe = null;
+        while (true) {
+            if (!buffer.hasRemaining()) {
+                // 数据恰好填满缓冲区时先探测一个字节，已到末尾则不扩容，池化的缓冲区可以原样复用
+                if (probe == null) {
+                    probe = ByteBuffer.allocate(1);
+                }
+                probe.clear();
+                if (channel.read(probe) < 0) {
+                    break;
+                }
+                buffer = ensureCapacity(buffer, buffer.capacity() * 2);
+                probe.flip();
+                buffer.put(probe);
+            }
+            if (channel.read(buffer) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+    
+    /**
+     * 确保缓冲区容量，不足时分配同类型的新缓冲区并复制已写入的内容
+     * @param buffer 原缓冲区，处于写模式
+     * @param capacity 所需容量
+     * @return 满足容量的缓冲区
+     */
+    public static ByteBuffer ensureCapacity(ByteBuffer buffer, int capacity) {
+        if (buffer.capacity() >= capacity) {
+            return buffer;
+        }
+        int newCapacity = Math.max(capacity, MIN_CAPACITY);
+        ByteBuffer grown = buffer.isDirect() ? ByteBuffer.allocateDirect(newCapacity) : ByteBuffer.allocate(newCapacity);
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+    
+    /**
+     * 复制缓冲区的剩余内容为字节数组，不改变缓冲区位置
+     * @param buffer 来源缓冲区
+     * @return 字节数组
+     */
+    public static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
\ No newline at end of file
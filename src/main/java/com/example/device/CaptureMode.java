@@ -0,0 +1,28 @@
+package com.example.device;
+
+/**
+ * CaptureMode枚举定义截图的采集方式
+ */
+public enum CaptureMode {
+    /**
+     * 设备端执行screencap -p，传输PNG数据
+     */
+    PNG,
+    
+    /**
+     * 设备端输出原始帧，在主机端按需编码，省去设备上的PNG压缩
+     */
+    RAW;
+    
+    /**
+     * 从配置字符串解析采集方式，无法识别时返回PNG
+     * @param value 配置值，例如"png"或"raw"
+     * @return 采集方式
+     */
+    public static CaptureMode fromString(String value) {
+        if (value != null && value.trim().equalsIgnoreCase("raw")) {
+            return RAW;
+        }
+        return PNG;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,524 @@
+package com.example.device;
+
+import com.example.device.adb.AdbClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * DevicePool类管理adb服务器上的全部设备并为调用分配设备
+ * 设备通过host:devices-l发现并定期刷新，每个设备记录在线/不健康状态与进行中的调用数。
+ * 调用方按设备ID或选择器（例如"model=Pixel_7,product=panther"）申请设备，
+ * 等待者按到达顺序排队，但某个等待者暂时无法满足时不会阻塞后面请求其他设备的等待者
+ */
+public class DevicePool implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(DevicePool.class);
+    private static final int MAX_CONSECUTIVE_FAILURES = 3;
+    
+    private final String adbPath;
+    private final AdbClient adbClient;
+    private final Consumer<AndroidDevice> configurer;
+    private final Consumer<AndroidDevice> onConnected;
+    private final Map<String, PooledDevice> devices = new LinkedHashMap<>();
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private volatile int defaultMaxConcurrency = 1;
+    private ScheduledExecutorService refresher;
+    
+    /**
+     * 构造函数
+     * @param adbPath ADB可执行文件路径
+     * @param adbClient adb服务器客户端，由池中所有设备共享
+     * @param configurer 新设备连接前的配置回调，例如设置传输方式，可以为null
+     * @param onConnected 新设备连接成功后的回调，例如启动帧流，可以为null
+     */
+    public DevicePool(String adbPath, AdbClient adbClient, Consumer<AndroidDevice> configurer, Consumer<AndroidDevice> onConnected) {
+        this.adbPath = adbPath;
+        this.adbClient = adbClient;
+        this.configurer = configurer;
+        this.onConnected = onConnected;
+    }
+    
+    /**
+     * 重新发现设备：连接新出现的设备，将消失的设备标记为离线，并探测不健康的设备是否恢复
+     * @throws IOException 查询adb服务器失败
+     */
+    public void refresh() throws IOException {
+        Map<String, Map<String, String>> listed = new LinkedHashMap<>();
+        for (String line : adbClient.devices()) {
+            String[] parts = line.split("\\s+");
+            if (parts.length < 2 || !"device".equals(parts[1])) {
+                continue;
+            }
+            Map<String, String> attributes = new LinkedHashMap<>();
+            attributes.put("serial", parts[0]);
+            for (int i = 2; i < parts.length; i++) {
+                int colon = parts[i].indexOf(':');
+                if (colon > 0) {
+                    attributes.put(parts[i].substring(0, colon), parts[i].substring(colon + 1));
+                }
+            }
+            listed.put(parts[0], attributes);
+        }
+        
+        List<PooledDevice> toConnect = new ArrayList<>();
+        List<PooledDevice> toProbe = new ArrayList<>();
+        lock.lock();
+        try {
+            for (Map.Entry<String, Map<String, String>> entry : listed.entrySet()) {
+                PooledDevice pooled = devices.get(entry.getKey());
+                if (pooled == null) {
+                    AndroidDevice device = new AndroidDevice(entry.getKey(), adbPath, adbClient);
+                    if (configurer != null) {
+                        configurer.accept(device);
+                    }
+                    pooled = new PooledDevice(device, entry.getValue(), defaultMaxConcurrency);
+                    pooled.reconnecting = true;
+                    devices.put(entry.getKey(), pooled);
+                    toConnect.add(pooled);
+                } else {
+                    pooled.attributes = entry.getValue();
+                    // 其他刷新仍在连接或探测该设备时跳过，避免并发刷新重复连接同一设备
+                    if (pooled.reconnecting) {
+                        continue;
+                    }
+                    if (pooled.state == DeviceState.OFFLINE) {
+                        pooled.reconnecting = true;
+                        toConnect.add(pooled);
+                    } else if (pooled.state == DeviceState.UNHEALTHY) {
+                        pooled.reconnecting = true;
+                        toProbe.add(pooled);
+                    }
+                }
+            }
+            for (PooledDevice pooled : devices.values()) {
+                if (!listed.containsKey(pooled.getDeviceId()) && pooled.state != DeviceState.OFFLINE) {
+                    logger.warn("设备已离线: {}", pooled.getDeviceId());
+                    pooled.state = DeviceState.OFFLINE;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        // 连接与探测可能较慢，在锁外进行
+        for (PooledDevice pooled : toConnect) {
+            DeviceState state = DeviceState.UNHEALTHY;
+            try {
+                if (pooled.device.connect()) {
+                    if (onConnected != null) {
+                        onConnected.accept(pooled.device);
+                    }
+                    state = DeviceState.ONLINE;
+                }
+            } finally {
+                finishReconnect(pooled, state);
+            }
+        }
+        for (PooledDevice pooled : toProbe) {
+            DeviceState state = DeviceState.UNHEALTHY;
+            try {
+                state = probe(pooled.device) ? DeviceState.ONLINE : DeviceState.UNHEALTHY;
+            } finally {
+                finishReconnect(pooled, state);
+            }
+        }
+    }
+    
+    /**
+     * 启动后台定期刷新
+     * @param intervalMillis 刷新间隔（毫秒）
+     */
+    public synchronized void startAutoRefresh(long intervalMillis) {
+        if (refresher != null) {
+            return;
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "device-pool-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (Exception e) {
+                logger.warn("刷新设备列表失败: {}", e.getMessage());
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * 申请一个设备，没有可用设备时按到达顺序排队等待
+     * @param deviceId 指定设备ID，为null时按选择器分配
+     * @param selector 设备选择器，格式为逗号分隔的key=value，为null时匹配任意设备
+     * @param timeoutMillis 最长等待时间（毫秒）
+     * @return 设备租约，使用完毕后必须关闭
+     * @throws IOException 等待超时
+     * @throws InterruptedException 等待被中断
+     */
+    public Lease acquire(String deviceId, String selector, long timeoutMillis) throws IOException, InterruptedException {
+        Map<String, String> criteria = parseSelector(selector);
+        if (deviceId != null && !deviceId.isEmpty()) {
+            criteria.put("serial", deviceId);
+        }
+        Waiter waiter = new Waiter(criteria);
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        lock.lock();
+        try {
+            if (devices.values().stream().noneMatch(pooled -> pooled.matches(criteria))) {
+                throw new IllegalArgumentException("没有匹配的设备: " + (criteria.isEmpty() ? "任意设备" : criteria));
+            }
+            waiters.addLast(waiter);
+            dispatch();
+            while (waiter.assigned == null) {
+                if (remaining <= 0) {
+                    waiters.remove(waiter);
+                    throw new IOException("等待空闲设备超时: " + criteria);
+                }
+                try {
+                    remaining = changed.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    waiters.remove(waiter);
+                    if (waiter.assigned != null) {
+                        release(waiter.assigned, true);
+                    }
+                    throw e;
+                }
+            }
+            return new Lease(waiter.assigned);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 设置指定设备允许同时进行的调用数
+     * @param deviceId 设备ID
+     * @param maxConcurrency 并发上限
+     */
+    public void setMaxConcurrency(String deviceId, int maxConcurrency) {
+        lock.lock();
+        try {
+            PooledDevice pooled = devices.get(deviceId);
+            if (pooled == null) {
+                throw new IllegalArgumentException("设备不存在: " + deviceId);
+            }
+            pooled.maxConcurrency = Math.max(1, maxConcurrency);
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 设置新发现设备的默认并发上限
+     * @param maxConcurrency 并发上限
+     */
+    public void setDefaultMaxConcurrency(int maxConcurrency) {
+        this.defaultMaxConcurrency = Math.max(1, maxConcurrency);
+    }
+    
+    /**
+     * 获取池中全部设备的状态
+     * @return 每个设备的ID、属性、状态、进行中与排队的调用数
+     */
+    public List<Map<String, Object>> getStatus() {
+        lock.lock();
+        try {
+            List<Map<String, Object>> status = new ArrayList<>();
+            for (PooledDevice pooled : devices.values()) {
+                Map<String, Object> entry = new LinkedHashMap<>(pooled.attributes);
+                entry.put("state", pooled.state.name().toLowerCase(Locale.ROOT));
+                entry.put("in_flight", pooled.inFlight);
+                entry.put("max_concurrency", pooled.maxConcurrency);
+                entry.put("consecutive_failures", pooled.consecutiveFailures);
+                status.add(entry);
+            }
+            return status;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 获取排队等待设备的调用数
+     * @return 等待数
+     */
+    public int getWaiting() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 获取池中全部设备（包括离线设备）
+     * @return 设备列表
+     */
+    public List<AndroidDevice> getDevices() {
+        lock.lock();
+        try {
+            List<AndroidDevice> list = new ArrayList<>();
+            devices.values().forEach(pooled -> list.add(pooled.device));
+            return list;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 停止刷新并断开全部设备
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (refresher != null) {
+                refresher.shutdownNow();
+                refresher = null;
+            }
+        }
+        Collection<PooledDevice> snapshot;
+        lock.lock();
+        try {
+            snapshot = new ArrayList<>(devices.values());
+            devices.clear();
+        } finally {
+            lock.unlock();
+        }
+        snapshot.forEach(pooled -> pooled.device.disconnect());
+    }
+    
+    /**
+     * 按到达顺序为等待者分配设备，调用时必须持有锁
+     */
+    private void dispatch() {
+        boolean assignedAny = false;
+        Set<PooledDevice> exhausted = new HashSet<>();
+        Iterator<Waiter> iterator = waiters.iterator();
+        while (iterator.hasNext()) {
+            Waiter waiter = iterator.next();
+            PooledDevice best = null;
+            for (PooledDevice pooled : devices.values()) {
+                if (pooled.state != DeviceState.ONLINE || exhausted.contains(pooled)
+                        || pooled.inFlight >= pooled.maxConcurrency || !pooled.matches(waiter.criteria)) {
+                    continue;
+                }
+                if (best == null || pooled.inFlight < best.inFlight
+                        || (pooled.inFlight == best.inFlight && pooled.lastReleased < best.lastReleased)) {
+                    best = pooled;
+                }
+            }
+            if (best == null) {
+                continue;
+            }
+            best.inFlight++;
+            if (best.inFlight >= best.maxConcurrency) {
+                exhausted.add(best);
+            }
+            waiter.assigned = best;
+            iterator.remove();
+            assignedAny = true;
+        }
+        if (assignedAny) {
+            changed.signalAll();
+        }
+    }
+    
+    /**
+     * 归还设备并记录调用结果
+     * @param pooled 设备
+     * @param healthy 调用是否未出现设备级故障
+     */
+    private void release(PooledDevice pooled, boolean healthy) {
+        lock.lock();
+        try {
+            pooled.inFlight--;
+            pooled.lastReleased = System.nanoTime();
+            if (healthy) {
+                pooled.consecutiveFailures = 0;
+            } else if (++pooled.consecutiveFailures >= MAX_CONSECUTIVE_FAILURES && pooled.state == DeviceState.ONLINE) {
+                logger.warn("设备连续 {} 次调用失败，标记为不健康: {}", pooled.consecutiveFailures, pooled.getDeviceId());
+                pooled.state = DeviceState.UNHEALTHY;
+            }
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 结束连接或探测并更新设备状态
+     * @param pooled 设备
+     * @param state 新状态
+     */
+    private void finishReconnect(PooledDevice pooled, DeviceState state) {
+        lock.lock();
+        try {
+            pooled.reconnecting = false;
+            updateState(pooled, state);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void updateState(PooledDevice pooled, DeviceState state) {
+        lock.lock();
+        try {
+            if (pooled.state != state) {
+                logger.info("设备 {} 状态变更: {} -> {}", pooled.getDeviceId(), pooled.state, state);
+            }
+            pooled.state = state;
+            if (state == DeviceState.ONLINE) {
+                pooled.consecutiveFailures = 0;
+            }
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private static boolean probe(AndroidDevice device) {
+        try {
+            return device.executeShell("echo ok").isSuccess();
+        } catch (IOException e) {
+            logger.debug("探测设备失败: {}", device.getDeviceId(), e);
+            return false;
+        }
+    }
+    
+    /**
+     * 解析选择器，支持key=value或key:value，以逗号分隔
+     * @param selector 选择器
+     * @return 条件映射
+     */
+    static Map<String, String> parseSelector(String selector) {
+        Map<String, String> criteria = new LinkedHashMap<>();
+        if (selector == null) {
+            return criteria;
+        }
+        for (String part : selector.split(",")) {
+            int separator = part.indexOf('=') >= 0 ? part.indexOf('=') : part.indexOf(':');
+            if (separator <= 0) {
+                if (!part.trim().isEmpty()) {
+                    throw new IllegalArgumentException("无效的设备选择器: " + part);
+                }
+                continue;
+            }
+            criteria.put(part.substring(0, separator).trim(), part.substring(separator + 1).trim());
+        }
+        return criteria;
+    }
+    
+    /**
+     * DeviceState枚举定义池中设备的状态
+     */
+    public enum DeviceState {
+        ONLINE,
+        UNHEALTHY,
+        OFFLINE
+    }
+    
+    /**
+     * PooledDevice类记录池中单个设备的调度状态，字段均在池的锁内访问
+     */
+    private static class PooledDevice {
+        private final AndroidDevice device;
+        private Map<String, String> attributes;
+        private DeviceState state = DeviceState.OFFLINE;
+        private int maxConcurrency;
+        private int inFlight;
+        private int consecutiveFailures;
+        private long lastReleased;
+        private boolean reconnecting;
+        
+        PooledDevice(AndroidDevice device, Map<String, String> attributes, int maxConcurrency) {
+            this.device = device;
+            this.attributes = attributes;
+            this.maxConcurrency = maxConcurrency;
+        }
+        
+        String getDeviceId() {
+            return device.getDeviceId();
+        }
+        
+        boolean matches(Map<String, String> criteria) {
+            for (Map.Entry<String, String> criterion : criteria.entrySet()) {
+                String value = attributes.get(criterion.getKey());
+                if (!"*".equals(criterion.getValue()) && !criterion.getValue().equalsIgnoreCase(value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * Waiter类表示一个排队中的设备申请
+     */
+    private static class Waiter {
+        private final Map<String, String> criteria;
+        private PooledDevice assigned;
+        
+        Waiter(Map<String, String> criteria) {
+            this.criteria = criteria;
+        }
+    }
+    
+    /**
+     * Lease类表示对一个设备的使用权，关闭时归还设备
+     */
+    public class Lease implements AutoCloseable {
+        private final PooledDevice pooled;
+        private boolean healthy = true;
+        private boolean closed;
+        
+        private Lease(PooledDevice pooled) {
+            this.pooled = pooled;
+        }
+        
+        /**
+         * 获取分配到的设备
+         * @return 设备
+         */
+        public AndroidDevice getDevice() {
+            return pooled.device;
+        }
+        
+        /**
+         * 标记本次调用失败（例如通信异常或设备操作返回失败），连续多次后设备会被标记为不健康
+         */
+        public void markFailed() {
+            healthy = false;
+        }
+        
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release(pooled, healthy);
+            }
+        }
+    }
+}
\ No newline at end of file
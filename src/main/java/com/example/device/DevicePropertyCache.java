@@ -0,0 +1,95 @@
+package com.example.device;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * DevicePropertyCache类缓存一次getprop全量输出解析得到的属性表
+ * 设备属性在会话期间基本不变，过期或显式失效后才重新拉取
+ */
+public class DevicePropertyCache {
+    private volatile long ttlMillis;
+    private Map<String, String> properties;
+    private long expiresAt;
+    
+    /**
+     * 属性加载函数，返回getprop的原始输出
+     */
+    public interface Loader {
+        String load() throws IOException;
+    }
+    
+    /**
+     * 构造函数
+     * @param ttlMillis 缓存有效期（毫秒）
+     */
+    public DevicePropertyCache(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+    
+    /**
+     * 获取属性表，缓存过期时通过加载函数重新拉取
+     * @param loader 加载函数
+     * @return 只读的属性表
+     * @throws IOException 加载失败
+     */
+    public synchronized Map<String, String> get(Loader loader) throws IOException {
+        long now = System.currentTimeMillis();
+        if (properties == null || now >= expiresAt) {
+            properties = Collections.unmodifiableMap(parse(loader.load()));
+            expiresAt = now + ttlMillis;
+        }
+        return properties;
+    }
+    
+    /**
+     * 使缓存失效，下次访问时重新拉取
+     */
+    public synchronized void invalidate() {
+        properties = null;
+    }
+    
+    /**
+     * 设置缓存有效期
+     * @param ttlMillis 有效期（毫秒）
+     */
+    public synchronized void setTtlMillis(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.expiresAt = 0;
+    }
+    
+    /**
+     * 解析getprop输出，每行格式为[key]: [value]，值中包含换行时跨越多行
+     * @param output getprop原始输出
+     * @return 属性表
+     */
+    public static Map<String, String> parse(String output) {
+        Map<String, String> result = new HashMap<>();
+        String key = null;
+        StringBuilder value = new StringBuilder();
+        for (String line : output.split("\n", -1)) {
+            if (key == null) {
+                int separator = line.indexOf("]: [");
+                if (!line.startsWith("[") || separator < 0) {
+                    continue;
+                }
+                key = line.substring(1, separator);
+                value.setLength(0);
+                line = line.substring(separator + 4);
+            } else {
+                value.append('\n');
+            }
+            String trimmed = line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+            if (trimmed.endsWith("]")) {
+                value.append(trimmed, 0, trimmed.length() - 1);
+                result.put(key, value.toString());
+                key = null;
+            } else {
+                value.append(trimmed);
+            }
+        }
+        return result;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,546 @@
+package com.example.device;
+
+import com.example.device.adb.AdbSyncSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * FileTransfer类负责设备与主机之间的批量文件传输
+ * 大文件按固定大小分块，各块通过独立的sync/exec连接并行传输：推送时每块先写入设备上的.part文件，
+ * 全部完成后在设备上拼接；拉取时用dd按块读取并写入本地.part文件的对应位置。
+ * 中断后再次传输同一文件时，设备上已完整的分块与本地已记录完成的分块不会重传；
+ * 推送时设备上记录源文件的大小与修改时间，源文件变化后旧分块作废。
+ * 传输完成后可比较两端的SHA-256（设备缺少sha256sum时使用md5sum）。
+ * 进程方式下直接交给adb push/pull，不分块
+ */
+public class FileTransfer {
+    private static final Logger logger = LoggerFactory.getLogger(FileTransfer.class);
+    private static final long CHUNK_SIZE = 16L * 1024 * 1024;
+    private static final int DD_BLOCK_SIZE = 1024 * 1024;
+    private static final String PART_SUFFIX = ".part";
+    private static final String PROGRESS_SUFFIX = ".part.chunks";
+    private static final String SOURCE_SUFFIX = ".part.source";
+    private static final Pattern HEX_DIGEST = Pattern.compile("[0-9a-f]{32,64}");
+    
+    private final AndroidDevice device;
+    private final int parallelism;
+    
+    /**
+     * 构造函数
+     * @param device 设备
+     * @param parallelism 同时进行的连接数
+     */
+    public FileTransfer(AndroidDevice device, int parallelism) {
+        this.device = device;
+        this.parallelism = Math.max(1, parallelism);
+    }
+    
+    /**
+     * 推送多个本地文件，文件与分块共享同一组连接
+     * @param localPaths 本地文件
+     * @param remotePaths 对应的设备路径
+     * @param verify 是否校验两端的哈希
+     * @return 每个文件的传输结果
+     * @throws InterruptedException 等待被中断
+     */
+    public List<Result> pushAll(List<Path> localPaths, List<String> remotePaths, boolean verify) throws InterruptedException {
+        ExecutorService executor = newExecutor();
+        try {
+            List<Plan> plans = new ArrayList<>();
+            for (int i = 0; i < localPaths.size(); i++) {
+                plans.add(planPush(executor, localPaths.get(i), remotePaths.get(i)));
+            }
+            List<Result> results = new ArrayList<>();
+            for (Plan plan : plans) {
+                results.add(finishPush(plan, verify));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * 拉取多个设备文件
+     * @param remotePaths 设备路径
+     * @param localPaths 对应的本地路径
+     * @param verify 是否校验两端的哈希
+     * @return 每个文件的传输结果
+     * @throws InterruptedException 等待被中断
+     */
+    public List<Result> pullAll(List<String> remotePaths, List<Path> localPaths, boolean verify) throws InterruptedException {
+        ExecutorService executor = newExecutor();
+        try {
+            List<Plan> plans = new ArrayList<>();
+            for (int i = 0; i < remotePaths.size(); i++) {
+                plans.add(planPull(executor, remotePaths.get(i), localPaths.get(i)));
+            }
+            List<Result> results = new ArrayList<>();
+            for (Plan plan : plans) {
+                results.add(finishPull(plan, verify));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * 提交一个文件的推送任务
+     */
+    private Plan planPush(ExecutorService executor, Path localPath, String remotePath) {
+        Plan plan = new Plan(localPath, remotePath);
+        try {
+            plan.size = Files.size(localPath);
+            if (device.getTransport() == AdbTransport.PROCESS || plan.size <= CHUNK_SIZE) {
+                plan.futures.add(executor.submit(() -> {
+                    device.pushFile(localPath.toString(), remotePath);
+                    return plan.size;
+                }));
+                return plan;
+            }
+            plan.chunks = (int) ((plan.size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+            plan.resumable = prepareResume(plan);
+            for (int i = 0; i < plan.chunks; i++) {
+                int index = i;
+                plan.futures.add(executor.submit(() -> pushChunk(plan, index)));
+            }
+        } catch (IOException e) {
+            plan.error = e;
+        }
+        return plan;
+    }
+    
+    /**
+     * 检查设备上的分块是否来自当前的源文件，不是时删除旧分块并记录当前源文件的大小与修改时间
+     * @return 设备上已有的分块能否复用
+     */
+    private boolean prepareResume(Plan plan) throws IOException {
+        String source = plan.size + " " + Files.getLastModifiedTime(plan.localPath).toMillis() + " " + CHUNK_SIZE;
+        String sourcePath = quote(plan.remotePath + SOURCE_SUFFIX);
+        ShellResult recorded = device.executeShell("cat " + sourcePath + " 2>/dev/null");
+        if (recorded.isSuccess() && recorded.getOutput().trim().equals(source)) {
+            return true;
+        }
+        ShellResult reset = device.executeShell("rm -f " + quote(plan.remotePath + PART_SUFFIX) + "[0-9]*; echo "
+                + quote(source) + " > " + sourcePath);
+        if (!reset.isSuccess()) {
+            logger.warn("记录源文件信息失败，全部分块重新推送: {}, 输出: {}", plan.remotePath, reset.getOutput().trim());
+        }
+        return false;
+    }
+    
+    /**
+     * 推送一个分块，源文件未变化且设备上已存在完整的分块时跳过
+     * @return 实际传输的字节数
+     */
+    private long pushChunk(Plan plan, int index) throws IOException {
+        long position = index * CHUNK_SIZE;
+        long length = Math.min(CHUNK_SIZE, plan.size - position);
+        String partPath = partPath(plan.remotePath, index);
+        try (AdbSyncSession sync = device.getAdbClient().openSync(device.getDeviceId());
+             FileChannel file = FileChannel.open(plan.localPath, StandardOpenOption.READ)) {
+            AdbSyncSession.SyncStat stat = sync.stat(partPath);
+            if (plan.resumable && stat.exists() && stat.getSize() == length) {
+                plan.resumed.incrementAndGet();
+                return 0;
+            }
+            return sync.push(file, position, length, partPath, 0644);
+        }
+    }
+    
+    /**
+     * 等待推送完成，拼接分块并校验
+     */
+    private Result finishPush(Plan plan, boolean verify) throws InterruptedException {
+        long start = plan.start;
+        try {
+            long transferred = await(plan);
+            if (plan.chunks > 0) {
+                StringBuilder script = new StringBuilder("cat");
+                StringBuilder parts = new StringBuilder();
+                for (int i = 0; i < plan.chunks; i++) {
+                    parts.append(' ').append(quote(partPath(plan.remotePath, i)));
+                }
+                script.append(parts).append(" > ").append(quote(plan.remotePath))
+                        .append(" && rm -f").append(parts).append(' ').append(quote(plan.remotePath + SOURCE_SUFFIX));
+                ShellResult result = device.executeShell(script.toString());
+                if (!result.isSuccess()) {
+                    throw new IOException("拼接分块失败: " + plan.remotePath + ", 输出: " + result.getOutput().trim());
+                }
+            }
+            Boolean verified = verify ? verify(plan.localPath, plan.remotePath) : null;
+            return new Result(plan.localPath.toString(), plan.remotePath, plan.size, transferred, plan.chunks,
+                    plan.resumed.get(), verified, elapsed(start), null);
+        } catch (IOException e) {
+            logger.error("推送文件失败: {} -> {}", plan.localPath, plan.remotePath, e);
+            return new Result(plan.localPath.toString(), plan.remotePath, plan.size, 0, plan.chunks,
+                    plan.resumed.get(), null, elapsed(start), e.getMessage());
+        }
+    }
+    
+    /**
+     * 提交一个文件的拉取任务，分块写入本地.part文件，已完成的分块记录在进度文件中
+     */
+    private Plan planPull(ExecutorService executor, String remotePath, Path localPath) {
+        Plan plan = new Plan(localPath, remotePath);
+        try {
+            if (localPath.getParent() != null) {
+                Files.createDirectories(localPath.getParent());
+            }
+            if (device.getTransport() == AdbTransport.PROCESS) {
+                plan.futures.add(executor.submit(() -> {
+                    device.pullFile(remotePath, localPath.toString());
+                    plan.size = Files.size(localPath);
+                    return plan.size;
+                }));
+                return plan;
+            }
+            try (AdbSyncSession sync = device.getAdbClient().openSync(device.getDeviceId())) {
+                AdbSyncSession.SyncStat stat = sync.stat(remotePath);
+                if (!stat.exists()) {
+                    throw new IOException("设备上的文件不存在: " + remotePath);
+                }
+                plan.size = stat.isSize64() ? stat.getSize() : remoteSize(remotePath, stat.getSize());
+            }
+            Path partFile = siblingPath(localPath, PART_SUFFIX);
+            if (plan.size <= CHUNK_SIZE) {
+                plan.futures.add(executor.submit(() -> {
+                    try (AdbSyncSession sync = device.getAdbClient().openSync(device.getDeviceId());
+                         FileChannel file = FileChannel.open(partFile, StandardOpenOption.CREATE,
+                                 StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                        return sync.pull(remotePath, file, 0);
+                    }
+                }));
+                return plan;
+            }
+            plan.chunks = (int) ((plan.size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+            Path progressFile = siblingPath(localPath, PROGRESS_SUFFIX);
+            BitSet done = readProgress(progressFile, partFile, plan.size);
+            plan.progress = FileChannel.open(progressFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            for (int i = 0; i < plan.chunks; i++) {
+                if (done.get(i)) {
+                    plan.resumed.incrementAndGet();
+                    continue;
+                }
+                int index = i;
+                plan.futures.add(executor.submit(() -> pullChunk(plan, partFile, index)));
+            }
+        } catch (IOException e) {
+            plan.error = e;
+        }
+        return plan;
+    }
+    
+    /**
+     * 设备不支持STA2时用stat命令查询文件大小，避免4GB及以上的文件大小回绕
+     * @param remotePath 设备上的路径
+     * @param fallback stat命令不可用时使用的大小
+     * @return 文件大小
+     */
+    private long remoteSize(String remotePath, long fallback) throws IOException {
+        ShellResult result = device.executeShell("stat -c %s " + quote(remotePath));
+        String output = result.getOutput().trim();
+        if (result.isSuccess() && output.matches("\\d+")) {
+            return Long.parseLong(output);
+        }
+        logger.warn("查询文件大小失败，使用sync STAT的32位大小: {}, 输出: {}", remotePath, output);
+        return fallback;
+    }
+    
+    /**
+     * 用dd读取设备文件的一个分块并写入本地文件的对应位置，完成后追加到进度文件
+     * @return 传输的字节数
+     */
+    private long pullChunk(Plan plan, Path partFile, int index) throws IOException {
+        long position = index * CHUNK_SIZE;
+        long length = Math.min(CHUNK_SIZE, plan.size - position);
+        int blocksPerChunk = (int) (CHUNK_SIZE / DD_BLOCK_SIZE);
+        String command = "dd if=" + quote(plan.remotePath) + " bs=" + DD_BLOCK_SIZE
+                + " skip=" + (long) index * blocksPerChunk + " count=" + blocksPerChunk + " 2>/dev/null";
+        long received = 0;
+        try (SocketChannel channel = device.getAdbClient().openService(device.getDeviceId(), "exec:" + command);
+             FileChannel file = FileChannel.open(partFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            while (received < length) {
+                long read = file.transferFrom(channel, position + received, length - received);
+                if (read <= 0) {
+                    break;
+                }
+                received += read;
+            }
+        }
+        if (received != length) {
+            throw new IOException("分块 " + index + " 长度不符: " + received + "/" + length + ", " + plan.remotePath);
+        }
+        synchronized (plan) {
+            plan.progress.write(ByteBuffer.wrap((index + "\n").getBytes(StandardCharsets.US_ASCII)));
+        }
+        return received;
+    }
+    
+    /**
+     * 等待拉取完成，将.part文件重命名为目标文件并校验
+     */
+    private Result finishPull(Plan plan, boolean verify) throws InterruptedException {
+        long start = plan.start;
+        try {
+            long transferred;
+            try {
+                transferred = await(plan);
+            } finally {
+                if (plan.progress != null) {
+                    plan.progress.close();
+                }
+            }
+            if (device.getTransport() != AdbTransport.PROCESS) {
+                Files.move(siblingPath(plan.localPath, PART_SUFFIX), plan.localPath, StandardCopyOption.REPLACE_EXISTING);
+                Files.deleteIfExists(siblingPath(plan.localPath, PROGRESS_SUFFIX));
+            }
+            Boolean verified = verify ? verify(plan.localPath, plan.remotePath) : null;
+            return new Result(plan.localPath.toString(), plan.remotePath, plan.size, transferred, plan.chunks,
+                    plan.resumed.get(), verified, elapsed(start), null);
+        } catch (IOException e) {
+            logger.error("拉取文件失败: {} -> {}", plan.remotePath, plan.localPath, e);
+            return new Result(plan.localPath.toString(), plan.remotePath, plan.size, 0, plan.chunks,
+                    plan.resumed.get(), null, elapsed(start), e.getMessage());
+        }
+    }
+    
+    /**
+     * 读取进度文件，本地.part文件不存在或大小不符时从头开始
+     */
+    private static BitSet readProgress(Path progressFile, Path partFile, long size) throws IOException {
+        BitSet done = new BitSet();
+        if (!Files.exists(progressFile) || !Files.exists(partFile) || Files.size(partFile) != size) {
+            Files.deleteIfExists(progressFile);
+            try (FileChannel file = FileChannel.open(partFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                if (size > 0) {
+                    file.write(ByteBuffer.allocate(1), size - 1); // 预先设置文件长度，分块按位置写入
+                }
+            }
+            return done;
+        }
+        for (String line : Files.readAllLines(progressFile, StandardCharsets.US_ASCII)) {
+            if (!line.trim().isEmpty()) {
+                done.set(Integer.parseInt(line.trim()));
+            }
+        }
+        return done;
+    }
+    
+    /**
+     * 等待文件的全部任务完成
+     * @return 传输的字节数
+     */
+    private static long await(Plan plan) throws IOException, InterruptedException {
+        if (plan.error != null) {
+            throw plan.error;
+        }
+        long total = 0;
+        IOException failure = null;
+        for (Future<Long> future : plan.futures) {
+            try {
+                total += future.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (failure == null) {
+                    failure = cause instanceof IOException ? (IOException) cause : new IOException(cause);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return total;
+    }
+    
+    /**
+     * 比较本地文件与设备文件的哈希
+     * @return 是否一致，设备上没有可用的哈希命令时返回null
+     */
+    private Boolean verify(Path localPath, String remotePath) throws IOException {
+        String[] algorithms = {"sha256sum", "SHA-256", "md5sum", "MD5"};
+        for (int i = 0; i < algorithms.length; i += 2) {
+            ShellResult result = device.executeShell(algorithms[i] + " " + quote(remotePath));
+            String remote = result.getOutput().trim().split("\\s+")[0].toLowerCase(Locale.ROOT);
+            if (!result.isSuccess() || !HEX_DIGEST.matcher(remote).matches()) {
+                continue;
+            }
+            String local = digest(localPath, algorithms[i + 1]);
+            if (!remote.equals(local)) {
+                logger.warn("文件校验失败: {} ({}) != {} ({})", localPath, local, remotePath, remote);
+                return false;
+            }
+            return true;
+        }
+        logger.warn("设备 {} 上没有可用的哈希命令，跳过校验: {}", device.getDeviceId(), remotePath);
+        return null;
+    }
+    
+    private static String digest(Path path, String algorithm) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+            while (file.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+    
+    private ExecutorService newExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "file-transfer-" + device.getDeviceId() + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    private static String partPath(String remotePath, int index) {
+        return remotePath + PART_SUFFIX + index;
+    }
+    
+    private static Path siblingPath(Path path, String suffix) {
+        return path.resolveSibling(path.getFileName() + suffix);
+    }
+    
+    /**
+     * 用单引号包裹Shell参数
+     */
+    private static String quote(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+    
+    private static long elapsed(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+    
+    /**
+     * Plan类记录一个文件的传输任务
+     */
+    private static class Plan {
+        final Path localPath;
+        final String remotePath;
+        final List<Future<Long>> futures = new ArrayList<>();
+        final AtomicInteger resumed = new AtomicInteger();
+        final long start = System.nanoTime();
+        volatile long size;
+        int chunks;
+        boolean resumable;
+        FileChannel progress;
+        IOException error;
+        
+        Plan(Path localPath, String remotePath) {
+            this.localPath = localPath;
+            this.remotePath = remotePath;
+        }
+    }
+    
+    /**
+     * Result类表示单个文件的传输结果
+     */
+    public static class Result {
+        private final String localPath;
+        private final String remotePath;
+        private final long size;
+        private final long transferred;
+        private final int chunks;
+        private final int resumedChunks;
+        private final Boolean verified;
+        private final long elapsedMillis;
+        private final String error;
+        
+        Result(String localPath, String remotePath, long size, long transferred, int chunks, int resumedChunks,
+               Boolean verified, long elapsedMillis, String error) {
+            this.localPath = localPath;
+            this.remotePath = remotePath;
+            this.size = size;
+            this.transferred = transferred;
+            this.chunks = chunks;
+            this.resumedChunks = resumedChunks;
+            this.verified = verified;
+            this.elapsedMillis = elapsedMillis;
+            this.error = error;
+        }
+        
+        /**
+         * 是否成功，校验不一致视为失败
+         * @return 是否成功
+         */
+        public boolean isSuccess() {
+            return error == null && !Boolean.FALSE.equals(verified);
+        }
+        
+        public long getTransferred() {
+            return transferred;
+        }
+        
+        /**
+         * 获取校验结果
+         * @return 是否一致，未校验或无法校验时为null
+         */
+        public Boolean getVerified() {
+            return verified;
+        }
+        
+        /**
+         * 转换为工具结果使用的字段表
+         * @return 字段表
+         */
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("local_path", localPath);
+            map.put("remote_path", remotePath);
+            map.put("size", size);
+            map.put("transferred", transferred);
+            map.put("chunks", chunks);
+            map.put("resumed_chunks", resumedChunks);
+            map.put("verified", verified);
+            map.put("elapsed_ms", elapsedMillis);
+            if (error != null) {
+                map.put("error", error);
+            }
+            double seconds = elapsedMillis / 1000.0;
+            map.put("throughput_mbps", seconds > 0 ? Math.round(transferred / seconds / 1024 / 1024 * 10) / 10.0 : 0);
+            return map;
+        }
+    }
+}
\ No newline at end of file
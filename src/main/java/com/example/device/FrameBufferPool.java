@@ -0,0 +1,65 @@
+package com.example.device;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * FrameBufferPool类缓存用于原始帧数据的直接内存缓冲区
+ * 同一设备的帧大小基本固定，复用缓冲区可以避免每次截图分配数十MB的直接内存
+ */
+public class FrameBufferPool {
+    private final ConcurrentLinkedDeque<ByteBuffer> buffers = new ConcurrentLinkedDeque<>();
+    private final long maxPooledBytes;
+    private final AtomicLong pooledBytes = new AtomicLong();
+    
+    /**
+     * 构造函数
+     * @param maxPooledBytes 池中最多保留的字节数
+     */
+    public FrameBufferPool(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+    }
+    
+    /**
+     * 获取容量不小于指定值的缓冲区
+     * @param minCapacity 最小容量
+     * @return 已clear的直接缓冲区
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        Iterator<ByteBuffer> iterator = buffers.iterator();
+        while (iterator.hasNext()) {
+            ByteBuffer buffer = iterator.next();
+            if (buffer.capacity() >= minCapacity && buffers.removeFirstOccurrence(buffer)) {
+                pooledBytes.addAndGet(-buffer.capacity());
+                buffer.clear();
+                return buffer;
+            }
+        }
+        return ByteBuffer.allocateDirect(minCapacity);
+    }
+    
+    /**
+     * 归还缓冲区，超过容量上限时直接丢弃
+     * @param buffer 缓冲区
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) {
+            return;
+        }
+        if (pooledBytes.addAndGet(buffer.capacity()) > maxPooledBytes) {
+            pooledBytes.addAndGet(-buffer.capacity());
+            return;
+        }
+        buffers.offerFirst(buffer);
+    }
+    
+    /**
+     * 获取池中当前保留的字节数
+     * @return 字节数
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,296 @@
+package com.example.device;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * FrameFingerprint类是屏幕帧的感知哈希指纹，用于判断两帧画面是否发生了可见变化
+ * 包含整帧的差值哈希（dHash）与均值哈希（aHash），以及将画面划分为4×8个区块后每块的dHash，
+ * 整帧哈希对小范围变化不敏感，区块哈希用于捕捉局部变化（例如弹出的提示）。
+ * dHash只反映相邻单元的明暗关系，控件变色（例如开关状态）时可能不变，
+ * 因此区块距离还计入缩略网格中亮度变化明显的单元数。
+ * 顶部状态栏（时钟、电量、通知图标）持续变化且与界面内容无关，不参与计算。
+ * 计算只对缩小后的网格做点采样，不遍历全部像素
+ */
+public final class FrameFingerprint {
+    public static final int TILE_COLUMNS = 4;
+    public static final int TILE_ROWS = 8;
+    /** 默认的判定阈值，整帧或任一区块哈希的汉明距离超过该值视为画面变化 */
+    public static final int DEFAULT_THRESHOLD = 3;
+    
+    private static final int SUBSAMPLES = 3; // 每个网格单元在每个方向上的采样点数
+    private static final int GRID_WIDTH = TILE_COLUMNS * 9;
+    private static final int LUMA_DELTA = 16; // 缩略网格单元亮度变化超过该值时计入区块距离
+    private static final int STATUS_BAR_PERCENT = 4; // 忽略的顶部区域占高度的百分比
+    
+    private final int width;
+    private final int height;
+    private final long dHash;
+    private final long aHash;
+    private final long[] tileHashes;
+    private final byte[] grid;
+    
+    private FrameFingerprint(int width, int height, long dHash, long aHash, long[] tileHashes, byte[] grid) {
+        this.width = width;
+        this.height = height;
+        this.dHash = dHash;
+        this.aHash = aHash;
+        this.tileHashes = tileHashes;
+        this.grid = grid;
+    }
+    
+    /**
+     * 计算原始帧的指纹
+     * @param frame 原始帧
+     * @return 指纹
+     */
+    public static FrameFingerprint of(RawFrame frame) {
+        return compute(frame.getWidth(), frame.getHeight(), frame::getRgb);
+    }
+    
+    /**
+     * 计算图像的指纹
+     * @param image 图像
+     * @return 指纹
+     */
+    public static FrameFingerprint of(BufferedImage image) {
+        return compute(image.getWidth(), image.getHeight(), image::getRGB);
+    }
+    
+    /**
+     * 解码PNG/JPEG数据并计算指纹
+     * @param encoded 编码后的图像数据
+     * @return 指纹
+     * @throws IOException 无法解码
+     */
+    public static FrameFingerprint of(byte[] encoded) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(encoded));
+        if (image == null) {
+            throw new IOException("无法解码图像数据");
+        }
+        return of(image);
+    }
+    
+    /**
+     * 计算与另一指纹的整帧dHash汉明距离
+     * @param other 另一指纹
+     * @return 距离，取值0到64
+     */
+    public int distance(FrameFingerprint other) {
+        return Long.bitCount(dHash ^ other.dHash);
+    }
+    
+    /**
+     * 计算与另一指纹各区块中最大的距离
+     * @param other 另一指纹
+     * @return 距离
+     */
+    public int maxTileDistance(FrameFingerprint other) {
+        int max = 0;
+        for (int i = 0; i < tileHashes.length; i++) {
+            max = Math.max(max, tileDistance(other, i));
+        }
+        return max;
+    }
+    
+    /**
+     * 统计距离超过阈值的区块数量
+     * @param other 另一指纹
+     * @param threshold 阈值
+     * @return 变化的区块数量
+     */
+    public int countChangedTiles(FrameFingerprint other, int threshold) {
+        int changed = 0;
+        for (int i = 0; i < tileHashes.length; i++) {
+            if (tileDistance(other, i) > threshold) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+    
+    /**
+     * 计算单个区块的距离：dHash汉明距离加上亮度变化明显的缩略网格单元数
+     * @param other 另一指纹
+     * @param tile 区块下标
+     * @return 距离
+     */
+    private int tileDistance(FrameFingerprint other, int tile) {
+        int distance = Long.bitCount(tileHashes[tile] ^ other.tileHashes[tile]);
+        int left = (tile % TILE_COLUMNS) * 9;
+        int top = (tile / TILE_COLUMNS) * 8;
+        for (int y = top; y < top + 8; y++) {
+            for (int x = left; x < left + 9; x++) {
+                int index = y * GRID_WIDTH + x;
+                if (Math.abs((grid[index] & 0xff) - (other.grid[index] & 0xff)) > LUMA_DELTA) {
+                    distance++;
+                }
+            }
+        }
+        return distance;
+    }
+    
+    /**
+     * 判断两帧画面是否视觉上相同
+     * 尺寸不同（例如屏幕旋转）时视为不同
+     * @param other 另一指纹，可以为null
+     * @param threshold 汉明距离阈值
+     * @return 是否相同
+     */
+    public boolean isSimilar(FrameFingerprint other, int threshold) {
+        if (other == null || width != other.width || height != other.height) {
+            return false;
+        }
+        return distance(other) <= threshold
+                && Long.bitCount(aHash ^ other.aHash) <= threshold
+                && maxTileDistance(other) <= threshold;
+    }
+    
+    public int getWidth() {
+        return width;
+    }
+    
+    public int getHeight() {
+        return height;
+    }
+    
+    public long getDHash() {
+        return dHash;
+    }
+    
+    public long getAHash() {
+        return aHash;
+    }
+    
+    /**
+     * 获取用于精确匹配的键，尺寸、全部哈希以及按LUMA_DELTA量化的缩略网格都相同时键相同，
+     * 供缓存按画面查找，控件变色等不改变哈希的变化也会得到不同的键
+     * @return 32位十六进制字符串
+     */
+    public String toKey() {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(24 + tileHashes.length * 8 + grid.length);
+        buffer.putInt(width).putInt(height).putLong(dHash).putLong(aHash);
+        for (long tileHash : tileHashes) {
+            buffer.putLong(tileHash);
+        }
+        for (byte luma : grid) {
+            buffer.put((byte) ((luma & 0xff) / LUMA_DELTA));
+        }
+        byte[] hash = digest.digest(buffer.array());
+        StringBuilder key = new StringBuilder(32);
+        for (int i = 0; i < 16; i++) {
+            key.append(Character.forDigit((hash[i] >> 4) & 0xf, 16)).append(Character.forDigit(hash[i] & 0xf, 16));
+        }
+        return key.toString();
+    }
+    
+    /**
+     * 计算指纹
+     * @param width 图像宽度
+     * @param height 图像高度
+     * @param source 像素来源
+     * @return 指纹
+     */
+    private static FrameFingerprint compute(int width, int height, RgbSource source) {
+        int[] global = sample(source, width, height, 9, 8);
+        long dHash = differenceHash(global, 9, 0, 0);
+        
+        int[] average = sample(source, width, height, 8, 8);
+        long sum = 0;
+        for (int value : average) {
+            sum += value;
+        }
+        long aHash = 0;
+        for (int i = 0; i < 64; i++) {
+            if ((long) average[i] * 64 > sum) {
+                aHash |= 1L << i;
+            }
+        }
+        
+        int[] tiles = sample(source, width, height, GRID_WIDTH, TILE_ROWS * 8);
+        long[] tileHashes = new long[TILE_COLUMNS * TILE_ROWS];
+        for (int row = 0; row < TILE_ROWS; row++) {
+            for (int column = 0; column < TILE_COLUMNS; column++) {
+                tileHashes[row * TILE_COLUMNS + column] = differenceHash(tiles, GRID_WIDTH, column * 9, row * 8);
+            }
+        }
+        byte[] grid = new byte[tiles.length];
+        for (int i = 0; i < tiles.length; i++) {
+            grid[i] = (byte) tiles[i];
+        }
+        return new FrameFingerprint(width, height, dHash, aHash, tileHashes, grid);
+    }
+    
+    /**
+     * 在9×8的窗口内比较水平相邻单元的亮度生成64位哈希
+     * @param grid 亮度网格
+     * @param gridWidth 网格宽度
+     * @param left 窗口左侧列
+     * @param top 窗口顶部行
+     * @return 哈希
+     */
+    private static long differenceHash(int[] grid, int gridWidth, int left, int top) {
+        long hash = 0;
+        int bit = 0;
+        for (int y = 0; y < 8; y++) {
+            int offset = (top + y) * gridWidth + left;
+            for (int x = 0; x < 8; x++) {
+                if (grid[offset + x] < grid[offset + x + 1]) {
+                    hash |= 1L << bit;
+                }
+                bit++;
+            }
+        }
+        return hash;
+    }
+    
+    /**
+     * 将图像（不含状态栏）缩小为指定大小的亮度网格，每个单元取若干均匀分布采样点的平均亮度
+     * @param source 像素来源
+     * @param width 图像宽度
+     * @param height 图像高度
+     * @param columns 网格列数
+     * @param rows 网格行数
+     * @return 亮度网格，按行排列，取值0到255
+     */
+    private static int[] sample(RgbSource source, int width, int height, int columns, int rows) {
+        int[] grid = new int[columns * rows];
+        int top = height * STATUS_BAR_PERCENT / 100;
+        int sampledHeight = height - top;
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int total = 0;
+                for (int sy = 0; sy < SUBSAMPLES; sy++) {
+                    int y = top + (int) ((((long) row * SUBSAMPLES + sy) * 2 + 1) * sampledHeight / (rows * SUBSAMPLES * 2));
+                    for (int sx = 0; sx < SUBSAMPLES; sx++) {
+                        int x = (int) ((((long) column * SUBSAMPLES + sx) * 2 + 1) * width / (columns * SUBSAMPLES * 2));
+                        int rgb = source.rgb(x, y);
+                        total += (((rgb >> 16) & 0xff) * 299 + ((rgb >> 8) & 0xff) * 587 + (rgb & 0xff) * 114) / 1000;
+                    }
+                }
+                grid[row * columns + column] = total / (SUBSAMPLES * SUBSAMPLES);
+            }
+        }
+        return grid;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("FrameFingerprint{%dx%d, dHash=%016x, aHash=%016x}", width, height, dHash, aHash);
+    }
+    
+    private interface RgbSource {
+        int rgb(int x, int y);
+    }
+}
\ No newline at end of file
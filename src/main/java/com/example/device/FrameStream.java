@@ -0,0 +1,301 @@
+package com.example.device;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * FrameStream类在后台按固定帧率持续采集原始帧，并在有界环形缓冲区中保留最近的N帧
+ * 采集线程从不等待消费者：缓冲区满或超过内存上限时淘汰最旧的帧，
+ * 采集耗时超过帧间隔时直接跳过错过的时间片并计为丢帧
+ */
+public class FrameStream implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(FrameStream.class);
+    private static final int FINGERPRINT_HISTORY = 256; // 指纹很小，保留的帧数远多于像素数据
+    
+    private final AndroidDevice device;
+    private final RawFrame[] frames;
+    private final long[] sequences;
+    private final FrameFingerprint[] fingerprints = new FrameFingerprint[FINGERPRINT_HISTORY];
+    private final long[] fingerprintSequences = new long[FINGERPRINT_HISTORY];
+    private final long maxBytes;
+    private volatile long intervalNanos;
+    private volatile boolean running;
+    private Thread worker;
+    
+    private int head; // 下一帧写入的位置
+    private int count;
+    private long totalBytes;
+    private long nextSequence = 1;
+    private long capturedFrames;
+    private long droppedFrames;
+    private long failedCaptures;
+    
+    /**
+     * 构造函数
+     * @param device 采集的设备
+     * @param fps 目标帧率
+     * @param capacity 保留的帧数
+     * @param maxBytes 缓冲区内帧数据的内存上限（字节）
+     */
+    public FrameStream(AndroidDevice device, double fps, int capacity, long maxBytes) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("帧缓冲区容量必须大于0");
+        }
+        this.device = device;
+        this.frames = new RawFrame[capacity];
+        this.sequences = new long[capacity];
+        this.maxBytes = maxBytes;
+        setFps(fps);
+    }
+    
+    /**
+     * 启动后台采集
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::captureLoop, "frame-stream-" + device.getDeviceId());
+        worker.setDaemon(true);
+        worker.start();
+        logger.info("帧流已启动，设备: {}，帧率: {}，容量: {} 帧", device.getDeviceId(), getFps(), frames.length);
+    }
+    
+    /**
+     * 停止后台采集并释放缓冲区中的帧
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = worker;
+            worker = null;
+        }
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            while (count > 0) {
+                evictOldest();
+            }
+        }
+        logger.info("帧流已停止，设备: {}", device.getDeviceId());
+    }
+    
+    /**
+     * 是否正在采集
+     * @return 是否运行中
+     */
+    public boolean isRunning() {
+        return running;
+    }
+    
+    /**
+     * 设置目标帧率
+     * @param fps 帧率，必须大于0
+     */
+    public void setFps(double fps) {
+        if (fps <= 0) {
+            throw new IllegalArgumentException("帧率必须大于0");
+        }
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / fps);
+    }
+    
+    /**
+     * 获取目标帧率
+     * @return 帧率
+     */
+    public double getFps() {
+        return (double) TimeUnit.SECONDS.toNanos(1) / intervalNanos;
+    }
+    
+    /**
+     * 获取最新一帧，调用方使用完毕后必须调用{@link RawFrame#release()}
+     * @return 最新帧，缓冲区为空时返回null
+     */
+    public synchronized RawFrame latest() {
+        if (count == 0) {
+            return null;
+        }
+        return frames[indexOf(count - 1)].retain();
+    }
+    
+    /**
+     * 获取不早于指定时长的最新一帧，调用方使用完毕后必须调用{@link RawFrame#release()}
+     * @param maxAgeMillis 允许的最大帧龄（毫秒）
+     * @return 最新帧，不存在或已过期时返回null
+     */
+    public synchronized RawFrame latest(long maxAgeMillis) {
+        if (count == 0) {
+            return null;
+        }
+        RawFrame frame = frames[indexOf(count - 1)];
+        if (System.currentTimeMillis() - frame.getTimestamp() > maxAgeMillis) {
+            return null;
+        }
+        return frame.retain();
+    }
+    
+    /**
+     * 获取最新一帧的序号
+     * @return 序号，缓冲区为空时返回0
+     */
+    public synchronized long latestSequence() {
+        return count == 0 ? 0 : sequences[indexOf(count - 1)];
+    }
+    
+    /**
+     * 按序号获取缓冲区中的帧，调用方使用完毕后必须调用{@link RawFrame#release()}
+     * @param sequence 帧序号
+     * @return 对应的帧，已被淘汰时返回null
+     */
+    public synchronized RawFrame get(long sequence) {
+        for (int i = 0; i < count; i++) {
+            int index = indexOf(i);
+            if (sequences[index] == sequence) {
+                return frames[index].retain();
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 按序号获取帧的指纹，帧的像素数据被淘汰后指纹仍保留最近256帧
+     * @param sequence 帧序号
+     * @return 指纹，超出保留范围时返回null
+     */
+    public synchronized FrameFingerprint getFingerprint(long sequence) {
+        int index = (int) Math.floorMod(sequence, (long) FINGERPRINT_HISTORY);
+        return fingerprintSequences[index] == sequence ? fingerprints[index] : null;
+    }
+    
+    /**
+     * 判断画面自指定帧以来是否发生了可见变化
+     * 指定帧的指纹超出保留范围时无法比较，视为已变化
+     * @param sequence 帧序号
+     * @param threshold 汉明距离阈值，参见{@link FrameFingerprint#isSimilar(FrameFingerprint, int)}
+     * @return 是否变化
+     */
+    public synchronized boolean hasChangedSince(long sequence, int threshold) {
+        if (count == 0) {
+            return true;
+        }
+        FrameFingerprint since = getFingerprint(sequence);
+        return !getFingerprint(latestSequence()).isSimilar(since, threshold);
+    }
+    
+    /**
+     * 获取采集统计信息
+     * @return 统计信息映射
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("running", running);
+        stats.put("fps", getFps());
+        stats.put("buffered_frames", count);
+        stats.put("buffered_bytes", totalBytes);
+        stats.put("captured_frames", capturedFrames);
+        stats.put("dropped_frames", droppedFrames);
+        stats.put("failed_captures", failedCaptures);
+        stats.put("latest_sequence", latestSequence());
+        return stats;
+    }
+    
+    /**
+     * 采集循环
+     */
+    private void captureLoop() {
+        long nextTick = System.nanoTime();
+        while (running) {
+            try {
+                RawFrame frame = device.captureRawFrame();
+                frame.getFingerprint(); // 在采集线程上预先计算指纹，不占用加锁区间
+                append(frame);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                synchronized (this) {
+                    failedCaptures++;
+                }
+                logger.warn("帧流采集失败，设备: {}", device.getDeviceId(), e);
+            }
+            
+            long interval = intervalNanos;
+            nextTick += interval;
+            long now = System.nanoTime();
+            if (now > nextTick) {
+                // 采集慢于目标帧率时不追帧，丢弃错过的时间片
+                long missed = (now - nextTick) / interval;
+                if (missed > 0) {
+                    synchronized (this) {
+                        droppedFrames += missed;
+                    }
+                }
+                nextTick = now;
+                continue;
+            }
+            LockSupport.parkNanos(nextTick - now);
+            if (Thread.interrupted()) {
+                break;
+            }
+        }
+    }
+    
+    /**
+     * 将新帧加入环形缓冲区，必要时淘汰最旧的帧
+     * @param frame 新帧
+     */
+    private synchronized void append(RawFrame frame) {
+        if (!running) {
+            frame.release();
+            return;
+        }
+        while (count > 0 && (count == frames.length || totalBytes + frame.getByteSize() > maxBytes)) {
+            evictOldest();
+        }
+        frames[head] = frame;
+        sequences[head] = nextSequence++;
+        int fingerprintIndex = (int) (sequences[head] % FINGERPRINT_HISTORY);
+        fingerprints[fingerprintIndex] = frame.getFingerprint();
+        fingerprintSequences[fingerprintIndex] = sequences[head];
+        head = (head + 1) % frames.length;
+        count++;
+        totalBytes += frame.getByteSize();
+        capturedFrames++;
+    }
+    
+    /**
+     * 淘汰最旧的帧
+     */
+    private void evictOldest() {
+        int index = indexOf(0);
+        RawFrame frame = frames[index];
+        frames[index] = null;
+        count--;
+        totalBytes -= frame.getByteSize();
+        frame.release();
+    }
+    
+    /**
+     * 将逻辑位置（0为最旧）转换为数组下标
+     * @param position 逻辑位置
+     * @return 数组下标
+     */
+    private int indexOf(int position) {
+        return (head - count + position + frames.length) % frames.length;
+    }
+}
\ No newline at end of file
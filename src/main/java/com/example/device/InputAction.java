@@ -0,0 +1,150 @@
+package com.example.device;
+
+/**
+ * InputAction类表示批量输入中的一个步骤（点击、滑动、按键或文本）
+ */
+public class InputAction {
+    /**
+     * 输入动作类型
+     */
+    public enum Type {
+        TAP, SWIPE, KEY, TEXT
+    }
+    
+    private final Type type;
+    private final int x;
+    private final int y;
+    private final int endX;
+    private final int endY;
+    private final int duration;
+    private final String value; // 按键码或文本
+    private long delayAfterMillis;
+    
+    private InputAction(Type type, int x, int y, int endX, int endY, int duration, String value) {
+        this.type = type;
+        this.x = x;
+        this.y = y;
+        this.endX = endX;
+        this.endY = endY;
+        this.duration = duration;
+        this.value = value;
+    }
+    
+    /**
+     * 创建点击动作
+     * @param x X坐标
+     * @param y Y坐标
+     * @return 输入动作
+     */
+    public static InputAction tap(int x, int y) {
+        return new InputAction(Type.TAP, x, y, 0, 0, 0, null);
+    }
+    
+    /**
+     * 创建滑动动作
+     * @param startX 起始X坐标
+     * @param startY 起始Y坐标
+     * @param endX 结束X坐标
+     * @param endY 结束Y坐标
+     * @param duration 滑动持续时间（毫秒）
+     * @return 输入动作
+     */
+    public static InputAction swipe(int startX, int startY, int endX, int endY, int duration) {
+        return new InputAction(Type.SWIPE, startX, startY, endX, endY, duration, null);
+    }
+    
+    /**
+     * 创建按键动作
+     * @param keyCode 按键码，例如KEYCODE_ENTER或66
+     * @return 输入动作
+     */
+    public static InputAction key(String keyCode) {
+        return new InputAction(Type.KEY, 0, 0, 0, 0, 0, keyCode);
+    }
+    
+    /**
+     * 创建文本输入动作
+     * @param text 文本
+     * @return 输入动作
+     */
+    public static InputAction text(String text) {
+        return new InputAction(Type.TEXT, 0, 0, 0, 0, 0, text);
+    }
+    
+    /**
+     * 设置本步骤完成后的等待时间
+     * @param delayAfterMillis 等待时间（毫秒）
+     * @return 当前动作
+     */
+    public InputAction withDelay(long delayAfterMillis) {
+        this.delayAfterMillis = Math.max(0, delayAfterMillis);
+        return this;
+    }
+    
+    public Type getType() {
+        return type;
+    }
+    
+    public long getDelayAfterMillis() {
+        return delayAfterMillis;
+    }
+    
+    /**
+     * 转换为设备上执行的Shell命令
+     * @return Shell命令
+     */
+    public String toShellCommand() {
+        switch (type) {
+            case TAP:
+                return "input tap " + x + " " + y;
+            case SWIPE:
+                return "input swipe " + x + " " + y + " " + endX + " " + endY + " " + duration;
+            case KEY:
+                return "input keyevent " + shellQuote(value);
+            case TEXT:
+                StringBuilder command = new StringBuilder();
+                for (String part : splitLiteralPercentS(value)) {
+                    if (command.length() > 0) {
+                        command.append(" && ");
+                    }
+                    command.append("input text ").append(shellQuote(escapeInputText(part)));
+                }
+                return command.toString();
+            default:
+                throw new IllegalStateException("未知的输入动作类型: " + type);
+        }
+    }
+    
+    /**
+     * 按input text的约定转义文本，空格需写作%s
+     * @param text 原始文本
+     * @return 转义后的文本
+     */
+    public static String escapeInputText(String text) {
+        return text.replace(" ", "%s");
+    }
+    
+    /**
+     * 在字面的"%s"的%与s之间拆分文本
+     * input text总是把%s替换为空格且没有转义方式，拆成多次输入后各段都不含%s
+     * @param text 原始文本
+     * @return 拆分后的文本段，不含%s时只有一段
+     */
+    static String[] splitLiteralPercentS(String text) {
+        return text.split("(?<=%)(?=s)");
+    }
+    
+    /**
+     * 使用单引号包裹参数，避免设备端Shell解释特殊字符
+     * @param argument 参数
+     * @return 引用后的参数
+     */
+    public static String shellQuote(String argument) {
+        return "'" + argument.replace("'", "'\\''") + "'";
+    }
+    
+    @Override
+    public String toString() {
+        return toShellCommand() + (delayAfterMillis > 0 ? " (+" + delayAfterMillis + "ms)" : "");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.example.device;
+
+/**
+ * InputBackend枚举定义点击与滑动的注入方式
+ */
+public enum InputBackend {
+    /**
+     * 使用input命令，每次调用都会在设备上启动app_process
+     */
+    INPUT,
+    
+    /**
+     * 直接向触摸屏输入设备写入原始事件，延迟更低、时序可控
+     */
+    SENDEVENT;
+    
+    /**
+     * 从配置字符串解析注入方式，无法识别时返回INPUT
+     * @param value 配置值，例如"input"或"sendevent"
+     * @return 注入方式
+     */
+    public static InputBackend fromString(String value) {
+        if (value != null && value.trim().equalsIgnoreCase("sendevent")) {
+            return SENDEVENT;
+        }
+        return INPUT;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,160 @@
+package com.example.device;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * LogEntry类表示一条解析后的logcat日志
+ */
+public class LogEntry {
+    private final long sequence;
+    private final long timestamp;
+    private final int pid;
+    private final int tid;
+    private final char level;
+    private final String tag;
+    private final String message;
+    
+    /**
+     * 构造函数
+     * @param sequence 流内递增序号
+     * @param timestamp 设备上的毫秒时间戳
+     * @param pid 进程ID
+     * @param tid 线程ID
+     * @param level 级别字符（V/D/I/W/E/F）
+     * @param tag 标签
+     * @param message 消息内容
+     */
+    public LogEntry(long sequence, long timestamp, int pid, int tid, char level, String tag, String message) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.pid = pid;
+        this.tid = tid;
+        this.level = level;
+        this.tag = tag;
+        this.message = message;
+    }
+    
+    /**
+     * 解析"-v epoch"格式的一行日志，例如"1697040000.123  1234  1250 E Tag     : message"
+     * @param sequence 分配给该条日志的序号
+     * @param line 日志行
+     * @return 日志，无法解析（例如"--------- beginning of main"）时返回null
+     */
+    static LogEntry parseEpoch(long sequence, String line) {
+        int[] cursor = {0};
+        String seconds = nextToken(line, cursor);
+        String pid = nextToken(line, cursor);
+        String tid = nextToken(line, cursor);
+        String level = nextToken(line, cursor);
+        if (seconds == null || pid == null || tid == null || level == null || level.length() != 1) {
+            return null;
+        }
+        int separator = line.indexOf(": ", cursor[0]);
+        if (separator < 0) {
+            return null;
+        }
+        try {
+            long timestamp = Math.round(Double.parseDouble(seconds) * 1000);
+            return new LogEntry(sequence, timestamp, Integer.parseInt(pid), Integer.parseInt(tid), level.charAt(0),
+                    line.substring(cursor[0], separator).trim(), line.substring(separator + 2));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    private static String nextToken(String line, int[] cursor) {
+        int start = cursor[0];
+        while (start < line.length() && line.charAt(start) == ' ') {
+            start++;
+        }
+        int end = start;
+        while (end < line.length() && line.charAt(end) != ' ') {
+            end++;
+        }
+        cursor[0] = end;
+        return end > start ? line.substring(start, end) : null;
+    }
+    
+    /**
+     * 获取级别的优先级，数值越大越严重
+     * @param level 级别字符
+     * @return 优先级，未知级别返回0
+     */
+    public static int priority(char level) {
+        switch (Character.toUpperCase(level)) {
+            case 'V':
+                return 2;
+            case 'D':
+                return 3;
+            case 'I':
+                return 4;
+            case 'W':
+                return 5;
+            case 'E':
+                return 6;
+            case 'F':
+            case 'A':
+                return 7;
+            default:
+                return 0;
+        }
+    }
+    
+    public long getSequence() {
+        return sequence;
+    }
+    
+    public long getTimestamp() {
+        return timestamp;
+    }
+    
+    public int getPid() {
+        return pid;
+    }
+    
+    public int getTid() {
+        return tid;
+    }
+    
+    public char getLevel() {
+        return level;
+    }
+    
+    public String getTag() {
+        return tag;
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+    
+    /**
+     * 估算占用的内存字节数
+     * @return 字节数
+     */
+    int estimateBytes() {
+        return 64 + 2 * (tag.length() + message.length());
+    }
+    
+    /**
+     * 转换为映射，便于序列化
+     * @return 日志映射
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("seq", sequence);
+        map.put("time", timestamp);
+        map.put("pid", pid);
+        map.put("tid", tid);
+        map.put("level", String.valueOf(level));
+        map.put("tag", tag);
+        map.put("message", message);
+        return map;
+    }
+    
+    @Override
+    public String toString() {
+        return timestamp + " " + pid + " " + tid + " " + level + " " + tag + ": " + message;
+    }
+}
\ No newline at end of file
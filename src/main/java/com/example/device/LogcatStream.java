@@ -0,0 +1,693 @@
+package com.example.device;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * LogcatStream类在后台持续读取设备的logcat输出（-v epoch格式），逐行解析到有界环形缓冲区
+ * 缓冲区、进程与标签/级别过滤条件作为logcat参数在设备端生效，减少传输量；
+ * 超过条数或内存上限时淘汰最旧的日志。读取中断后按最后一条日志的时间续读，
+ * 同时识别Java崩溃、ANR与native崩溃，可选按大小滚动写入本地文件
+ */
+public class LogcatStream implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(LogcatStream.class);
+    private static final Pattern FILTER_SPEC = Pattern.compile("[A-Za-z0-9_.$/*-]+:[VDIWEFS]");
+    private static final Pattern BUFFER_NAME = Pattern.compile("[a-z]+");
+    private static final int MAX_EVENTS = 100;
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+    private static final long RESUME_OVERLAP_MILLIS = 1000; // 续读时回退的时间，覆盖不同缓冲区交错写入的日志
+    private static final int MAX_RECENT_KEYS = 8192;
+    
+    private final AndroidDevice device;
+    private final Config config;
+    private final LogEntry[] entries;
+    private final Deque<CrashEvent> events = new ArrayDeque<>();
+    private final Deque<LineKey> recentKeys = new ArrayDeque<>(); // 续读重叠窗口内已读日志的标识
+    private final Map<LineKey, Integer> replayKeys = new HashMap<>(); // 续读时待跳过的重复日志及次数
+    private final RollingFile rollingFile;
+    private volatile boolean running;
+    private volatile InputStream current;
+    private Thread worker;
+    
+    private int head; // 下一条日志写入的位置
+    private int count;
+    private long totalBytes;
+    private long nextSequence = 1;
+    private long lastTimestamp = -1;
+    private long resumedAt = -1; // 续读前已读到的最大时间，不超过它的日志可能是重复的
+    private long readLines;
+    private long unparsedLines;
+    private long evictedEntries;
+    private long reconnects;
+    private CrashEvent pendingEvent; // 等待后续日志补充信息的事件
+    
+    /**
+     * 构造函数
+     * @param device 读取日志的设备
+     * @param config 读取配置
+     * @throws IOException 创建持久化文件失败
+     */
+    public LogcatStream(AndroidDevice device, Config config) throws IOException {
+        this.device = device;
+        this.config = config;
+        this.entries = new LogEntry[config.maxEntries];
+        this.rollingFile = config.persistDirectory != null
+                ? new RollingFile(config.persistDirectory, "logcat-" + device.getDeviceId().replaceAll("[^A-Za-z0-9_.-]", "_"),
+                config.maxFileBytes, config.maxFiles)
+                : null;
+    }
+    
+    /**
+     * 启动后台读取
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::readLoop, "logcat-" + device.getDeviceId());
+        worker.setDaemon(true);
+        worker.start();
+        logger.info("logcat读取已启动，设备: {}，命令: {}", device.getDeviceId(), buildCommand());
+    }
+    
+    /**
+     * 停止后台读取，已缓冲的日志保留
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = worker;
+            worker = null;
+        }
+        closeQuietly(current);
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (rollingFile != null) {
+            rollingFile.close();
+        }
+        logger.info("logcat读取已停止，设备: {}", device.getDeviceId());
+    }
+    
+    /**
+     * 是否正在读取
+     * @return 是否运行中
+     */
+    public boolean isRunning() {
+        return running;
+    }
+    
+    /**
+     * 查询缓冲区中的日志
+     * @param afterSequence 只返回序号大于该值的日志，0表示不限
+     * @param sinceMillis 只返回时间不早于该值的日志（设备时钟，毫秒），0表示不限
+     * @param filter 附加条件，可以为null
+     * @param limit 最多返回的条数
+     * @return 按时间顺序排列的日志
+     */
+    public synchronized List<LogEntry> query(long afterSequence, long sinceMillis, Predicate<LogEntry> filter, int limit) {
+        List<LogEntry> result = new ArrayList<>();
+        for (int position = 0; position < count && result.size() < limit; position++) {
+            LogEntry entry = entries[indexOf(position)];
+            if (entry.getSequence() > afterSequence && entry.getTimestamp() >= sinceMillis
+                    && (filter == null || filter.test(entry))) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 获取检测到的崩溃与ANR事件
+     * @param sinceMillis 只返回时间不早于该值的事件（设备时钟，毫秒）
+     * @return 事件映射列表，按时间顺序排列
+     */
+    public synchronized List<Map<String, Object>> getEvents(long sinceMillis) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (CrashEvent event : events) {
+            if (event.timestamp >= sinceMillis) {
+                result.add(event.toMap());
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 获取最新一条日志的序号
+     * @return 序号，缓冲区为空时返回0
+     */
+    public synchronized long latestSequence() {
+        return count == 0 ? 0 : entries[indexOf(count - 1)].getSequence();
+    }
+    
+    /**
+     * 获取读取统计信息
+     * @return 统计信息映射
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("running", running);
+        stats.put("command", buildCommand());
+        stats.put("buffered_entries", count);
+        stats.put("buffered_bytes", totalBytes);
+        stats.put("read_lines", readLines);
+        stats.put("unparsed_lines", unparsedLines);
+        stats.put("evicted_entries", evictedEntries);
+        stats.put("reconnects", reconnects);
+        stats.put("events", events.size());
+        stats.put("latest_sequence", latestSequence());
+        if (rollingFile != null) {
+            stats.put("persist_file", rollingFile.current.toString());
+        }
+        return stats;
+    }
+    
+    /**
+     * 读取循环，logcat退出或连接中断后按最后一条日志的时间续读
+     */
+    private void readLoop() {
+        while (running) {
+            String command;
+            synchronized (this) {
+                prepareResume();
+                command = buildCommand();
+            }
+            try (InputStream input = device.openExec(command)) {
+                current = input;
+                BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 64 * 1024);
+                String line;
+                while (running && (line = reader.readLine()) != null) {
+                    handleLine(line);
+                    if (rollingFile != null && !reader.ready()) {
+                        rollingFile.flush(); // 暂无后续数据时落盘
+                    }
+                }
+            } catch (IOException e) {
+                if (running) {
+                    logger.warn("logcat读取中断，设备: {}: {}", device.getDeviceId(), e.getMessage());
+                }
+            } finally {
+                current = null;
+            }
+            if (!running) {
+                break;
+            }
+            synchronized (this) {
+                reconnects++;
+            }
+            try {
+                Thread.sleep(RECONNECT_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+    
+    /**
+     * 处理一行输出
+     * @param line 日志行
+     */
+    private void handleLine(String line) {
+        if (rollingFile != null) {
+            rollingFile.write(line);
+        }
+        synchronized (this) {
+            readLines++;
+            LogEntry entry = LogEntry.parseEpoch(nextSequence, line);
+            if (entry == null) {
+                if (!line.startsWith("---------")) {
+                    unparsedLines++;
+                }
+                return;
+            }
+            LineKey key = new LineKey(entry);
+            if (entry.getTimestamp() <= resumedAt && consumeReplay(key)) {
+                return; // 续读时跳过已读过的日志
+            }
+            nextSequence++;
+            lastTimestamp = Math.max(lastTimestamp, entry.getTimestamp());
+            rememberKey(key);
+            append(entry);
+            detectEvent(entry);
+        }
+    }
+    
+    /**
+     * 准备续读：重叠窗口内已读日志的标识作为待跳过集合，只丢弃与之完全相同的日志，
+     * 同一毫秒或其他缓冲区交错写入的新日志仍会保留
+     */
+    private void prepareResume() {
+        replayKeys.clear();
+        resumedAt = lastTimestamp;
+        for (LineKey key : recentKeys) {
+            replayKeys.merge(key, 1, Integer::sum);
+        }
+    }
+    
+    /**
+     * 消费一次待跳过的重复日志
+     * @param key 日志标识
+     * @return 是否为已读过的日志
+     */
+    private boolean consumeReplay(LineKey key) {
+        Integer remaining = replayKeys.get(key);
+        if (remaining == null) {
+            return false;
+        }
+        if (remaining > 1) {
+            replayKeys.put(key, remaining - 1);
+        } else {
+            replayKeys.remove(key);
+        }
+        return true;
+    }
+    
+    /**
+     * 记录已读日志的标识，只保留续读重叠窗口内的部分
+     * @param key 日志标识
+     */
+    private void rememberKey(LineKey key) {
+        recentKeys.addLast(key);
+        long oldest = lastTimestamp - RESUME_OVERLAP_MILLIS;
+        while (!recentKeys.isEmpty() && (recentKeys.peekFirst().timestamp < oldest || recentKeys.size() > MAX_RECENT_KEYS)) {
+            recentKeys.removeFirst();
+        }
+    }
+    
+    /**
+     * 将日志加入环形缓冲区，必要时淘汰最旧的日志
+     * @param entry 日志
+     */
+    private void append(LogEntry entry) {
+        int bytes = entry.estimateBytes();
+        while (count > 0 && (count == entries.length || totalBytes + bytes > config.maxBytes)) {
+            int index = indexOf(0);
+            totalBytes -= entries[index].estimateBytes();
+            entries[index] = null;
+            count--;
+            evictedEntries++;
+        }
+        entries[head] = entry;
+        head = (head + 1) % entries.length;
+        count++;
+        totalBytes += bytes;
+    }
+    
+    /**
+     * 识别崩溃与ANR，后续几行日志用于补充包名与原因
+     * @param entry 日志
+     */
+    private void detectEvent(LogEntry entry) {
+        String tag = entry.getTag();
+        String message = entry.getMessage();
+        if ("AndroidRuntime".equals(tag) && message.startsWith("FATAL EXCEPTION")) {
+            addEvent(new CrashEvent("crash", entry, message));
+        } else if ("ActivityManager".equals(tag) && message.startsWith("ANR in ")) {
+            CrashEvent event = new CrashEvent("anr", entry, message);
+            event.packageName = message.substring(7).split("[\\s(]", 2)[0];
+            addEvent(event);
+        } else if ("libc".equals(tag) && message.startsWith("Fatal signal")) {
+            addEvent(new CrashEvent("native_crash", entry, message));
+        } else if (pendingEvent != null && entry.getSequence() - pendingEvent.sequence <= 5) {
+            enrichEvent(pendingEvent, tag, message);
+        } else {
+            pendingEvent = null;
+        }
+    }
+    
+    private void enrichEvent(CrashEvent event, String tag, String message) {
+        switch (event.type) {
+            case "crash":
+                if (!"AndroidRuntime".equals(tag)) {
+                    return;
+                }
+                if (message.startsWith("Process: ")) {
+                    event.packageName = message.substring(9).split(",", 2)[0].trim();
+                } else if (event.reason == null) {
+                    event.reason = message; // 异常类型与消息
+                }
+                break;
+            case "anr":
+                if ("ActivityManager".equals(tag) && message.startsWith("Reason: ")) {
+                    event.reason = message.substring(8);
+                }
+                break;
+            default:
+                int start = message.indexOf(">>> ");
+                int end = message.indexOf(" <<<");
+                if ("DEBUG".equals(tag) && start >= 0 && end > start) {
+                    event.packageName = message.substring(start + 4, end);
+                }
+                break;
+        }
+    }
+    
+    private void addEvent(CrashEvent event) {
+        if (events.size() >= MAX_EVENTS) {
+            events.pollFirst();
+        }
+        events.addLast(event);
+        pendingEvent = event;
+        logger.warn("检测到{}，设备: {}: {}", event.type, device.getDeviceId(), event.summary);
+    }
+    
+    /**
+     * 构造logcat命令，过滤条件在设备端生效
+     * @return 命令
+     */
+    private synchronized String buildCommand() {
+        StringBuilder command = new StringBuilder("logcat -v epoch");
+        for (String buffer : config.buffers) {
+            command.append(" -b ").append(buffer);
+        }
+        if (lastTimestamp >= 0) {
+            long from = Math.max(0, lastTimestamp - RESUME_OVERLAP_MILLIS);
+            command.append(String.format(Locale.ROOT, " -T %d.%03d", from / 1000, from % 1000));
+        } else {
+            command.append(" -T ").append(Math.max(1, config.tail));
+        }
+        if (config.pid > 0) {
+            command.append(" --pid=").append(config.pid);
+        }
+        if (!config.filterSpecs.isEmpty()) {
+            for (String spec : config.filterSpecs) {
+                command.append(" '").append(spec).append('\'');
+            }
+            command.append(" '*:S'");
+        } else if (config.minLevel != 'V') {
+            command.append(" '*:").append(config.minLevel).append('\'');
+        }
+        return command.toString();
+    }
+    
+    private int indexOf(int position) {
+        return (head - count + position + entries.length) % entries.length;
+    }
+    
+    private static void closeQuietly(InputStream input) {
+        if (input == null) {
+            return;
+        }
+        try {
+            input.close();
+        } catch (IOException e) {
+            logger.debug("关闭logcat输出流失败", e);
+        }
+    }
+    
+    /**
+     * Config类表示logcat读取配置
+     */
+    public static class Config {
+        private List<String> buffers = Arrays.asList("main", "system", "crash");
+        private List<String> filterSpecs = new ArrayList<>();
+        private char minLevel = 'V';
+        private int pid;
+        private int tail = 100;
+        private int maxEntries = 20000;
+        private long maxBytes = 16L * 1024 * 1024;
+        private Path persistDirectory;
+        private long maxFileBytes = 16L * 1024 * 1024;
+        private int maxFiles = 5;
+        
+        /**
+         * 设置读取的日志缓冲区
+         * @param buffers 缓冲区名称，例如main、system、crash、events
+         * @return 当前配置
+         */
+        public Config buffers(List<String> buffers) {
+            for (String buffer : buffers) {
+                if (!BUFFER_NAME.matcher(buffer).matches()) {
+                    throw new IllegalArgumentException("无效的日志缓冲区: " + buffer);
+                }
+            }
+            this.buffers = new ArrayList<>(buffers);
+            return this;
+        }
+        
+        /**
+         * 设置标签过滤条件，未列出的标签不输出
+         * @param filterSpecs 形如"Tag:Level"的过滤条件
+         * @return 当前配置
+         */
+        public Config filterSpecs(List<String> filterSpecs) {
+            for (String spec : filterSpecs) {
+                if (!FILTER_SPEC.matcher(spec).matches()) {
+                    throw new IllegalArgumentException("无效的过滤条件: " + spec + "，格式应为Tag:Level");
+                }
+            }
+            this.filterSpecs = new ArrayList<>(filterSpecs);
+            return this;
+        }
+        
+        /**
+         * 设置最低级别，未设置标签过滤条件时生效
+         * @param minLevel 级别字符（V/D/I/W/E/F）
+         * @return 当前配置
+         */
+        public Config minLevel(char minLevel) {
+            char level = Character.toUpperCase(minLevel);
+            if (LogEntry.priority(level) == 0) {
+                throw new IllegalArgumentException("无效的日志级别: " + minLevel);
+            }
+            this.minLevel = level;
+            return this;
+        }
+        
+        /**
+         * 只读取指定进程的日志
+         * @param pid 进程ID，0表示不限
+         * @return 当前配置
+         */
+        public Config pid(int pid) {
+            this.pid = pid;
+            return this;
+        }
+        
+        /**
+         * 设置启动时读取的历史日志条数
+         * @param tail 条数，至少为1
+         * @return 当前配置
+         */
+        public Config tail(int tail) {
+            this.tail = tail;
+            return this;
+        }
+        
+        /**
+         * 设置缓冲区上限
+         * @param maxEntries 最多保留的条数
+         * @param maxBytes 最多占用的内存字节数（估算值）
+         * @return 当前配置
+         */
+        public Config capacity(int maxEntries, long maxBytes) {
+            if (maxEntries <= 0 || maxBytes <= 0) {
+                throw new IllegalArgumentException("日志缓冲区容量必须大于0");
+            }
+            this.maxEntries = maxEntries;
+            this.maxBytes = maxBytes;
+            return this;
+        }
+        
+        /**
+         * 启用本地文件持久化
+         * @param directory 目标目录
+         * @param maxFileBytes 单个文件的大小上限（字节）
+         * @param maxFiles 保留的文件数（包括当前文件）
+         * @return 当前配置
+         */
+        public Config persistTo(Path directory, long maxFileBytes, int maxFiles) {
+            this.persistDirectory = directory;
+            this.maxFileBytes = maxFileBytes;
+            this.maxFiles = Math.max(1, maxFiles);
+            return this;
+        }
+    }
+    
+    /**
+     * CrashEvent类表示检测到的崩溃或ANR
+     */
+    /**
+     * LineKey类表示用于续读去重的日志标识
+     */
+    private static final class LineKey {
+        private final long timestamp;
+        private final int pid;
+        private final int tid;
+        private final String tag;
+        private final int messageHash;
+        
+        LineKey(LogEntry entry) {
+            this.timestamp = entry.getTimestamp();
+            this.pid = entry.getPid();
+            this.tid = entry.getTid();
+            this.tag = entry.getTag();
+            this.messageHash = entry.getMessage().hashCode();
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof LineKey)) {
+                return false;
+            }
+            LineKey other = (LineKey) o;
+            return timestamp == other.timestamp && pid == other.pid && tid == other.tid
+                    && messageHash == other.messageHash && Objects.equals(tag, other.tag);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(timestamp, pid, tid, tag, messageHash);
+        }
+    }
+    
+    private static class CrashEvent {
+        private final String type;
+        private final long sequence;
+        private final long timestamp;
+        private final int pid;
+        private final String summary;
+        private String packageName;
+        private String reason;
+        
+        CrashEvent(String type, LogEntry entry, String summary) {
+            this.type = type;
+            this.sequence = entry.getSequence();
+            this.timestamp = entry.getTimestamp();
+            this.pid = entry.getPid();
+            this.summary = summary;
+        }
+        
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("type", type);
+            map.put("seq", sequence);
+            map.put("time", timestamp);
+            map.put("pid", pid);
+            map.put("package", packageName);
+            map.put("summary", summary);
+            map.put("reason", reason);
+            return map;
+        }
+    }
+    
+    /**
+     * RollingFile类将日志行按大小滚动写入文件：name.log写满后依次改名为name.log.1、name.log.2……
+     */
+    private static class RollingFile {
+        private final Path directory;
+        private final Path current;
+        private final long maxFileBytes;
+        private final int maxFiles;
+        private OutputStream output;
+        private long size;
+        private boolean failed;
+        
+        RollingFile(Path directory, String baseName, long maxFileBytes, int maxFiles) throws IOException {
+            Files.createDirectories(directory);
+            this.directory = directory;
+            this.current = directory.resolve(baseName + ".log");
+            this.maxFileBytes = maxFileBytes;
+            this.maxFiles = maxFiles;
+            open();
+        }
+        
+        synchronized void write(String line) {
+            if (failed) {
+                return;
+            }
+            byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+            try {
+                if (size > 0 && size + bytes.length > maxFileBytes) {
+                    rotate();
+                }
+                output.write(bytes);
+                size += bytes.length;
+            } catch (IOException e) {
+                failed = true; // 磁盘异常时停止持久化，不影响内存中的读取
+                logger.error("写入logcat文件失败，停止持久化: {}", current, e);
+            }
+        }
+        
+        synchronized void flush() {
+            if (failed) {
+                return;
+            }
+            try {
+                output.flush();
+            } catch (IOException e) {
+                logger.debug("刷新logcat文件失败: {}", current, e);
+            }
+        }
+        
+        synchronized void close() {
+            try {
+                if (output != null) {
+                    output.close();
+                }
+            } catch (IOException e) {
+                logger.debug("关闭logcat文件失败: {}", current, e);
+            }
+        }
+        
+        private void rotate() throws IOException {
+            output.close();
+            String name = current.getFileName().toString();
+            Files.deleteIfExists(directory.resolve(name + "." + (maxFiles - 1)));
+            for (int i = maxFiles - 2; i >= 1; i--) {
+                Path source = directory.resolve(name + "." + i);
+                if (Files.exists(source)) {
+                    Files.move(source, directory.resolve(name + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            if (maxFiles > 1) {
+                Files.move(current, directory.resolve(name + ".1"), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.deleteIfExists(current);
+            }
+            open();
+        }
+        
+        private void open() throws IOException {
+            output = new BufferedOutputStream(Files.newOutputStream(current,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024);
+            size = Files.size(current);
+        }
+    }
+}
\ No newline at end of file
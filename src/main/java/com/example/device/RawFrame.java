@@ -0,0 +1,291 @@
+package com.example.device;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RawFrame类表示一帧未压缩的屏幕像素数据（screencap不带-p时的输出）
+ * 数据头为宽、高、像素格式（Android 9起追加色彩空间），均为小端int，其后是连续的像素数据，
+ * 仅在调用方需要时才编码为PNG/JPEG，编码结果按格式缓存
+ */
+public class RawFrame {
+    public static final int PIXEL_FORMAT_RGBA_8888 = 1;
+    public static final int PIXEL_FORMAT_RGBX_8888 = 2;
+    public static final int PIXEL_FORMAT_RGB_888 = 3;
+    public static final int PIXEL_FORMAT_RGB_565 = 4;
+    public static final int PIXEL_FORMAT_BGRA_8888 = 5;
+    
+    private final int width;
+    private final int height;
+    private final int format;
+    private final int bytesPerPixel;
+    private final ByteBuffer data;
+    private final int pixelOffset;
+    private final long timestamp;
+    private final FrameBufferPool pool;
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final Map<String, byte[]> encoded = new HashMap<>();
+    private volatile FrameFingerprint fingerprint;
+    
+    private RawFrame(int width, int height, int format, ByteBuffer data, int pixelOffset, FrameBufferPool pool) {
+        this.width = width;
+        this.height = height;
+        this.format = format;
+        this.bytesPerPixel = bytesPerPixel(format);
+        this.data = data;
+        this.pixelOffset = pixelOffset;
+        this.timestamp = System.currentTimeMillis();
+        this.pool = pool;
+    }
+    
+    /**
+     * 解析screencap原始输出
+     * @param data 已flip的原始输出，解析后由帧持有
+     * @param pool 释放时归还缓冲区的池，可以为null
+     * @return 原始帧
+     * @throws IOException 数据格式无效
+     */
+    public static RawFrame parse(ByteBuffer data, FrameBufferPool pool) throws IOException {
+        ByteBuffer header = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (header.remaining() < 12) {
+            throw new IOException("原始帧数据过短: " + header.remaining() + " 字节");
+        }
+        int width = header.getInt(0);
+        int height = header.getInt(4);
+        int format = header.getInt(8);
+        int bpp = bytesPerPixel(format);
+        if (width <= 0 || height <= 0 || bpp == 0) {
+            throw new IOException("无法识别的原始帧头: " + width + "x" + height + ", 格式: " + format);
+        }
+        long pixelBytes = (long) width * height * bpp;
+        long headerSize = data.remaining() - pixelBytes;
+        if (headerSize != 12 && headerSize != 16) {
+            throw new IOException("原始帧长度与帧头不符: " + data.remaining() + " 字节, " + width + "x" + height);
+        }
+        return new RawFrame(width, height, format, data, (int) headerSize, pool);
+    }
+    
+    /**
+     * 获取宽度
+     * @return 宽度（像素）
+     */
+    public int getWidth() {
+        return width;
+    }
+    
+    /**
+     * 获取高度
+     * @return 高度（像素）
+     */
+    public int getHeight() {
+        return height;
+    }
+    
+    /**
+     * 获取像素格式
+     * @return Android PixelFormat常量
+     */
+    public int getFormat() {
+        return format;
+    }
+    
+    /**
+     * 获取采集时间
+     * @return 毫秒时间戳
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+    
+    /**
+     * 获取像素数据占用的字节数
+     * @return 字节数
+     */
+    public int getByteSize() {
+        return width * height * bytesPerPixel;
+    }
+    
+    /**
+     * 获取只读的像素数据视图，位置为0，长度为宽×高×每像素字节数
+     * @return 像素数据
+     */
+    public ByteBuffer getPixels() {
+        ByteBuffer view = data.duplicate();
+        view.position(data.position() + pixelOffset);
+        view.limit(data.position() + pixelOffset + getByteSize());
+        return view.slice().asReadOnlyBuffer();
+    }
+    
+    /**
+     * 读取指定位置像素的RGB值
+     * @param x X坐标
+     * @param y Y坐标
+     * @return 0xRRGGBB格式的颜色
+     */
+    public int getRgb(int x, int y) {
+        int index = data.position() + pixelOffset + (y * width + x) * bytesPerPixel;
+        switch (format) {
+            case PIXEL_FORMAT_BGRA_8888:
+                return (data.get(index + 2) & 0xff) << 16 | (data.get(index + 1) & 0xff) << 8 | (data.get(index) & 0xff);
+            case PIXEL_FORMAT_RGB_565: {
+                int value = (data.get(index) & 0xff) | (data.get(index + 1) & 0xff) << 8;
+                int r = (value >> 11) & 0x1f;
+                int g = (value >> 5) & 0x3f;
+                int b = value & 0x1f;
+                return (r << 3 | r >> 2) << 16 | (g << 2 | g >> 4) << 8 | (b << 3 | b >> 2);
+            }
+            default:
+                return (data.get(index) & 0xff) << 16 | (data.get(index + 1) & 0xff) << 8 | (data.get(index + 2) & 0xff);
+        }
+    }
+    
+    /**
+     * 获取帧的感知哈希指纹，首次调用时计算并缓存
+     * @return 指纹
+     */
+    public FrameFingerprint getFingerprint() {
+        FrameFingerprint result = fingerprint;
+        if (result == null) {
+            result = FrameFingerprint.of(this);
+            fingerprint = result;
+        }
+        return result;
+    }
+    
+    /**
+     * 转换为不含透明通道的BufferedImage
+     * @return 图像
+     */
+    public BufferedImage toBufferedImage() {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                row[x] = getRgb(x, y);
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return image;
+    }
+    
+    /**
+     * 编码为指定格式，结果按格式缓存
+     * @param formatName 图像格式，例如png或jpeg
+     * @return 编码后的图像数据
+     * @throws IOException 编码失败
+     */
+    public synchronized byte[] encode(String formatName) throws IOException {
+        String key = formatName.toLowerCase(Locale.ROOT);
+        byte[] cached = encoded.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream(getByteSize() / 8);
+        if (!ImageIO.write(toBufferedImage(), key, output)) {
+            throw new IOException("不支持的图像格式: " + formatName);
+        }
+        byte[] bytes = output.toByteArray();
+        encoded.put(key, bytes);
+        return bytes;
+    }
+    
+    /**
+     * 以指定质量编码为JPEG，结果不缓存
+     * @param quality 质量，取值0到1
+     * @return JPEG数据
+     * @throws IOException 编码失败
+     */
+    public byte[] encodeJpeg(float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream output = new ByteArrayOutputStream(getByteSize() / 16);
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(toBufferedImage(), null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+    
+    /**
+     * 编码并写入文件，格式由扩展名决定（.jpg/.jpeg为JPEG，其余为PNG）
+     * @param path 目标文件
+     * @throws IOException 编码或写入失败
+     */
+    public void writeTo(Path path) throws IOException {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        String formatName = name.endsWith(".jpg") || name.endsWith(".jpeg") ? "jpeg" : "png";
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Files.write(path, encode(formatName));
+    }
+    
+    /**
+     * 增加引用计数，供多个消费者共享同一帧
+     * @return 当前帧
+     */
+    public RawFrame retain() {
+        if (references.getAndIncrement() <= 0) {
+            references.decrementAndGet();
+            throw new IllegalStateException("帧已释放");
+        }
+        return this;
+    }
+    
+    /**
+     * 减少引用计数，归零时将缓冲区归还到池中
+     */
+    public void release() {
+        if (references.decrementAndGet() == 0 && pool != null) {
+            pool.release(data);
+        }
+    }
+    
+    /**
+     * 获取像素格式对应的每像素字节数
+     * @param format Android PixelFormat常量
+     * @return 每像素字节数，不支持的格式返回0
+     */
+    private static int bytesPerPixel(int format) {
+        switch (format) {
+            case PIXEL_FORMAT_RGBA_8888:
+            case PIXEL_FORMAT_RGBX_8888:
+            case PIXEL_FORMAT_BGRA_8888:
+                return 4;
+            case PIXEL_FORMAT_RGB_888:
+                return 3;
+            case PIXEL_FORMAT_RGB_565:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "RawFrame{" +
+                "width=" + width +
+                ", height=" + height +
+                ", format=" + format +
+                ", timestamp=" + timestamp +
+                '}';
+    }
+}
\ No newline at end of file
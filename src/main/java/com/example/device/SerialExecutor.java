@@ -0,0 +1,72 @@
+package com.example.device;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * SerialExecutor类在共享线程池之上按提交顺序逐个执行任务
+ * 同一实例的任务不会并发执行，但不独占线程：队列为空时不占用任何线程，
+ * 每轮最多连续执行固定数量的任务后让出线程，避免单个设备长时间霸占共享池
+ */
+public class SerialExecutor implements Executor {
+    private static final Logger logger = LoggerFactory.getLogger(SerialExecutor.class);
+    private static final int MAX_TASKS_PER_TURN = 16;
+    
+    private final Executor delegate;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    
+    /**
+     * 构造函数
+     * @param delegate 实际执行任务的线程池
+     */
+    public SerialExecutor(Executor delegate) {
+        this.delegate = delegate;
+    }
+    
+    @Override
+    public void execute(Runnable task) {
+        tasks.offer(task);
+        schedule();
+    }
+    
+    /**
+     * 获取排队中的任务数量
+     * @return 任务数量
+     */
+    public int getQueuedTasks() {
+        return tasks.size();
+    }
+    
+    private void schedule() {
+        if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+            try {
+                delegate.execute(this::drain);
+            } catch (RuntimeException e) {
+                scheduled.set(false);
+                throw e;
+            }
+        }
+    }
+    
+    private void drain() {
+        try {
+            Runnable task;
+            for (int i = 0; i < MAX_TASKS_PER_TURN && (task = tasks.poll()) != null; i++) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    logger.error("串行任务执行异常", e);
+                }
+            }
+        } finally {
+            scheduled.set(false);
+            schedule();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,51 @@
+package com.example.device;
+
+/**
+ * ShellResult类表示一条设备Shell命令的执行结果
+ */
+public class ShellResult {
+    private final String output; // 命令输出（stdout与stderr合并）
+    private final int exitCode; // 命令退出码
+    
+    /**
+     * 构造函数
+     * @param output 命令输出
+     * @param exitCode 命令退出码
+     */
+    public ShellResult(String output, int exitCode) {
+        this.output = output;
+        this.exitCode = exitCode;
+    }
+    
+    /**
+     * 获取命令输出
+     * @return 命令输出
+     */
+    public String getOutput() {
+        return output;
+    }
+    
+    /**
+     * 获取命令退出码
+     * @return 命令退出码
+     */
+    public int getExitCode() {
+        return exitCode;
+    }
+    
+    /**
+     * 命令是否执行成功
+     * @return 退出码为0时返回true
+     */
+    public boolean isSuccess() {
+        return exitCode == 0;
+    }
+    
+    @Override
+    public String toString() {
+        return "ShellResult{" +
+                "exitCode=" + exitCode +
+                ", output='" + output + '\'' +
+                '}';
+    }
+}
\ No newline at end of file
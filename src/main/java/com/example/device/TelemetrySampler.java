@@ -0,0 +1,415 @@
+package com.example.device;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TelemetrySampler类在后台按固定间隔采集设备的电池、CPU、内存与温度数据
+ * 每次采样只执行一条Shell命令，结果写入按指标划分的{@link TimeSeries}，
+ * 查询快照与窗口聚合时直接读取缓冲区，不再访问设备
+ */
+public class TelemetrySampler implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(TelemetrySampler.class);
+    private static final String SECTION_MARKER = "__MCP_TELEMETRY__";
+    private static final String SAMPLE_SCRIPT = "dumpsys battery; echo " + SECTION_MARKER
+            + "; head -n 1 /proc/stat; echo " + SECTION_MARKER
+            + "; cat /proc/meminfo; echo " + SECTION_MARKER
+            + "; for z in /sys/class/thermal/thermal_zone*; do echo \"$(cat $z/type 2>/dev/null) $(cat $z/temp 2>/dev/null)\"; done";
+    
+    public static final String BATTERY_LEVEL = "battery.level";
+    public static final String BATTERY_TEMPERATURE = "battery.temperature";
+    public static final String BATTERY_VOLTAGE = "battery.voltage";
+    public static final String CPU_USAGE = "cpu.usage";
+    public static final String MEMORY_AVAILABLE = "memory.available_mb";
+    public static final String MEMORY_USED = "memory.used_percent";
+    public static final String THERMAL_MAX = "thermal.max";
+    public static final String THERMAL_PREFIX = "thermal.";
+    
+    private final AndroidDevice device;
+    private final long intervalMillis;
+    private final int capacity;
+    private final Map<String, TimeSeries> series = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+    private volatile Map<String, Object> batteryInfo;
+    
+    private long previousCpuTotal = -1;
+    private long previousCpuIdle;
+    private long samples;
+    private long failures;
+    private long lastSampleMillis;
+    private long lastDurationMillis;
+    
+    /**
+     * 构造函数
+     * @param device 采集的设备
+     * @param intervalMillis 采样间隔（毫秒）
+     * @param capacity 每个指标保留的样本数
+     */
+    public TelemetrySampler(AndroidDevice device, long intervalMillis, int capacity) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("采样间隔必须大于0");
+        }
+        this.device = device;
+        this.intervalMillis = intervalMillis;
+        this.capacity = capacity;
+    }
+    
+    /**
+     * 启动后台采样
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "telemetry-" + device.getDeviceId());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 固定延迟调度，设备响应慢时不会堆积采样任务
+        scheduler.scheduleWithFixedDelay(this::sample, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("遥测采样已启动，设备: {}，间隔: {} ms，容量: {}", device.getDeviceId(), intervalMillis, capacity);
+    }
+    
+    /**
+     * 停止后台采样，已采集的数据保留
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            logger.info("遥测采样已停止，设备: {}", device.getDeviceId());
+        }
+    }
+    
+    /**
+     * 是否正在采样
+     * @return 是否运行中
+     */
+    public synchronized boolean isRunning() {
+        return scheduler != null;
+    }
+    
+    /**
+     * 获取采样间隔
+     * @return 间隔（毫秒）
+     */
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+    
+    /**
+     * 获取最近一次采集的电池信息
+     * @return 电池信息，尚未采集到时返回null
+     */
+    public Map<String, Object> getBatteryInfo() {
+        return batteryInfo;
+    }
+    
+    /**
+     * 获取指定指标的时间序列
+     * @param name 指标名，例如{@link #CPU_USAGE}
+     * @return 时间序列，不存在时返回null
+     */
+    public TimeSeries getSeries(String name) {
+        return series.get(name);
+    }
+    
+    /**
+     * 获取各指标的最新值
+     * @return 指标名到最新值的映射，按指标名排序
+     */
+    public Map<String, Double> latest() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        series.keySet().stream().sorted().forEach(name -> result.put(name, series.get(name).latest()));
+        return result;
+    }
+    
+    /**
+     * 聚合各指标在最近一段时间内的样本
+     * @param windowMillis 窗口长度（毫秒）
+     * @return 指标名到聚合结果的映射，按指标名排序
+     */
+    public Map<String, Map<String, Object>> aggregate(long windowMillis) {
+        long since = System.currentTimeMillis() - windowMillis;
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        series.keySet().stream().sorted().forEach(name -> result.put(name, series.get(name).aggregate(since)));
+        return result;
+    }
+    
+    /**
+     * 获取采样统计信息
+     * @return 统计信息映射
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("running", scheduler != null);
+        stats.put("interval_ms", intervalMillis);
+        stats.put("capacity", capacity);
+        stats.put("samples", samples);
+        stats.put("failures", failures);
+        stats.put("last_sample_age_ms", lastSampleMillis == 0 ? -1 : System.currentTimeMillis() - lastSampleMillis);
+        stats.put("last_duration_ms", lastDurationMillis);
+        return stats;
+    }
+    
+    /**
+     * 采集一次样本
+     */
+    private void sample() {
+        long start = System.currentTimeMillis();
+        try {
+            ShellResult result = device.executeShell(SAMPLE_SCRIPT);
+            String[] sections = result.getOutput().split(SECTION_MARKER + "\\r?\\n", -1);
+            long now = System.currentTimeMillis();
+            if (sections.length > 0) {
+                recordBattery(now, sections[0]);
+            }
+            if (sections.length > 1) {
+                recordCpu(now, sections[1]);
+            }
+            if (sections.length > 2) {
+                recordMemory(now, sections[2]);
+            }
+            if (sections.length > 3) {
+                recordThermal(now, sections[3]);
+            }
+            synchronized (this) {
+                samples++;
+                lastSampleMillis = now;
+                lastDurationMillis = now - start;
+            }
+        } catch (Exception e) {
+            synchronized (this) {
+                failures++;
+            }
+            logger.warn("遥测采样失败，设备: {}: {}", device.getDeviceId(), e.getMessage());
+        }
+    }
+    
+    private void recordBattery(long now, String output) {
+        Map<String, Object> info = parseBattery(output);
+        if (info.isEmpty()) {
+            return;
+        }
+        info.put("timestamp", now);
+        batteryInfo = Collections.unmodifiableMap(info);
+        record(BATTERY_LEVEL, now, info.get("percent"));
+        record(BATTERY_TEMPERATURE, now, info.get("temperature_c"));
+        record(BATTERY_VOLTAGE, now, info.get("voltage_mv"));
+    }
+    
+    /**
+     * 根据/proc/stat首行与上次采样的差值计算CPU占用率
+     * @param now 采样时间
+     * @param output /proc/stat首行
+     */
+    private void recordCpu(long now, String output) {
+        String line = output.trim();
+        if (!line.startsWith("cpu ")) {
+            return;
+        }
+        String[] fields = line.substring(4).trim().split("\\s+");
+        long total = 0;
+        long idle = 0;
+        for (int i = 0; i < fields.length && i < 8; i++) {
+            long value = parseLong(fields[i], 0);
+            total += value;
+            if (i == 3 || i == 4) { // idle与iowait
+                idle += value;
+            }
+        }
+        if (previousCpuTotal >= 0 && total > previousCpuTotal) {
+            long totalDelta = total - previousCpuTotal;
+            long idleDelta = idle - previousCpuIdle;
+            record(CPU_USAGE, now, 100.0 * (totalDelta - idleDelta) / totalDelta);
+        }
+        previousCpuTotal = total;
+        previousCpuIdle = idle;
+    }
+    
+    private void recordMemory(long now, String output) {
+        long totalKb = -1;
+        long availableKb = -1;
+        long freeKb = 0;
+        long cachedKb = 0;
+        for (String line : output.split("\n")) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String key = line.substring(0, colon);
+            long value = parseLong(line.substring(colon + 1).trim().split("\\s+")[0], -1);
+            switch (key) {
+                case "MemTotal":
+                    totalKb = value;
+                    break;
+                case "MemAvailable":
+                    availableKb = value;
+                    break;
+                case "MemFree":
+                    freeKb = value;
+                    break;
+                case "Cached":
+                    cachedKb = value;
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (totalKb <= 0) {
+            return;
+        }
+        if (availableKb < 0) {
+            availableKb = freeKb + cachedKb; // 旧内核没有MemAvailable
+        }
+        record(MEMORY_AVAILABLE, now, availableKb / 1024.0);
+        record(MEMORY_USED, now, 100.0 * (totalKb - availableKb) / totalKb);
+    }
+    
+    /**
+     * 记录各温区温度，同类型的多个温区取最大值
+     * @param now 采样时间
+     * @param output 每行为"类型 温度"
+     */
+    private void recordThermal(long now, String output) {
+        Map<String, Double> zones = new HashMap<>();
+        for (String line : output.split("\n")) {
+            String[] parts = line.trim().split("\\s+");
+            if (parts.length != 2) {
+                continue;
+            }
+            long raw = parseLong(parts[1], Long.MIN_VALUE);
+            if (raw == Long.MIN_VALUE) {
+                continue;
+            }
+            // 大多数温区以毫摄氏度为单位，少数直接以摄氏度为单位
+            double celsius = Math.abs(raw) >= 1000 ? raw / 1000.0 : raw;
+            if (celsius <= -40 || celsius >= 150) {
+                continue; // 未接入传感器的温区会返回无效值
+            }
+            zones.merge(parts[0], celsius, Math::max);
+        }
+        double max = Double.NEGATIVE_INFINITY;
+        for (Map.Entry<String, Double> zone : zones.entrySet()) {
+            record(THERMAL_PREFIX + zone.getKey(), now, zone.getValue());
+            max = Math.max(max, zone.getValue());
+        }
+        if (!zones.isEmpty()) {
+            record(THERMAL_MAX, now, max);
+        }
+    }
+    
+    private void record(String name, long now, Object value) {
+        if (value instanceof Number) {
+            series.computeIfAbsent(name, key -> new TimeSeries(capacity)).add(now, ((Number) value).doubleValue());
+        }
+    }
+    
+    /**
+     * 解析dumpsys battery的输出
+     * @param output dumpsys battery输出
+     * @return 电池信息，包括level、scale、percent、status、health、plugged、voltage_mv、temperature_c等
+     */
+    public static Map<String, Object> parseBattery(String output) {
+        Map<String, String> raw = new HashMap<>();
+        for (String line : output.split("\n")) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                raw.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+        }
+        Map<String, Object> info = new LinkedHashMap<>();
+        if (!raw.containsKey("level")) {
+            return info;
+        }
+        long level = parseLong(raw.get("level"), -1);
+        long scale = parseLong(raw.getOrDefault("scale", "100"), 100);
+        info.put("level", level);
+        info.put("scale", scale);
+        if (level >= 0 && scale > 0) {
+            info.put("percent", 100.0 * level / scale);
+        }
+        info.put("status", batteryStatus(parseLong(raw.get("status"), 1)));
+        info.put("health", batteryHealth(parseLong(raw.get("health"), 1)));
+        String plugged = "none";
+        if ("true".equals(raw.get("ac powered"))) {
+            plugged = "ac";
+        } else if ("true".equals(raw.get("usb powered"))) {
+            plugged = "usb";
+        } else if ("true".equals(raw.get("wireless powered"))) {
+            plugged = "wireless";
+        }
+        info.put("plugged", plugged);
+        if (raw.containsKey("voltage")) {
+            info.put("voltage_mv", parseLong(raw.get("voltage"), 0));
+        }
+        if (raw.containsKey("temperature")) {
+            info.put("temperature_c", parseLong(raw.get("temperature"), 0) / 10.0); // 单位为0.1摄氏度
+        }
+        if (raw.containsKey("technology")) {
+            info.put("technology", raw.get("technology"));
+        }
+        if (raw.containsKey("present")) {
+            info.put("present", Boolean.parseBoolean(raw.get("present")));
+        }
+        return info;
+    }
+    
+    private static String batteryStatus(long code) {
+        switch ((int) code) {
+            case 2:
+                return "charging";
+            case 3:
+                return "discharging";
+            case 4:
+                return "not_charging";
+            case 5:
+                return "full";
+            default:
+                return "unknown";
+        }
+    }
+    
+    private static String batteryHealth(long code) {
+        switch ((int) code) {
+            case 2:
+                return "good";
+            case 3:
+                return "overheat";
+            case 4:
+                return "dead";
+            case 5:
+                return "over_voltage";
+            case 6:
+                return "failure";
+            case 7:
+                return "cold";
+            default:
+                return "unknown";
+        }
+    }
+    
+    private static long parseLong(String value, long defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,214 @@
+package com.example.device;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * TextInjector类负责向设备输入文本
+ * 设备安装了ADBKeyboard输入法时，临时切换到该输入法，通过ADB_INPUT_B64广播提交文本（支持中文与换行），
+ * 完成后恢复原输入法；否则退化为分段的input text，分段合并为脚本批量执行。
+ * 文本按UTF-8字节数分块且不拆分代理对，每次请求都不超过adb请求长度上限
+ */
+public class TextInjector {
+    private static final Logger logger = LoggerFactory.getLogger(TextInjector.class);
+    static final String ADB_KEYBOARD_IME = "com.android.adbkeyboard/.AdbIME";
+    // Base64编码后约32KB，低于adb请求的65535字节上限
+    private static final int BROADCAST_CHUNK_BYTES = 24 * 1024;
+    private static final int INPUT_TEXT_CHUNK_BYTES = 64;
+    private static final int MAX_SCRIPT_BYTES = 32 * 1024;
+    private static final int KEYCODE_ENTER = 66;
+    private static final String PREVIOUS_IME_PREFIX = "__TEXT_PREV=";
+    
+    private final AndroidDevice device;
+    private volatile Boolean adbKeyboardInstalled;
+    
+    /**
+     * 构造函数
+     * @param device 目标设备
+     */
+    public TextInjector(AndroidDevice device) {
+        this.device = device;
+    }
+    
+    /**
+     * 输入文本，优先使用ADBKeyboard广播
+     * @param text 文本
+     * @throws IOException 输入失败
+     */
+    public void type(String text) throws IOException {
+        if (text.isEmpty()) {
+            return;
+        }
+        if (isAdbKeyboardInstalled()) {
+            typeWithBroadcast(text);
+        } else {
+            typeWithInputText(text);
+        }
+    }
+    
+    /**
+     * 检查设备是否安装了ADBKeyboard，结果缓存到下次{@link #reset()}
+     * @return 是否安装
+     * @throws IOException 查询失败
+     */
+    public boolean isAdbKeyboardInstalled() throws IOException {
+        Boolean installed = adbKeyboardInstalled;
+        if (installed == null) {
+            installed = device.executeShell("ime list -a -s").getOutput().contains(ADB_KEYBOARD_IME);
+            adbKeyboardInstalled = installed;
+            logger.info("设备 {} {}ADBKeyboard输入法", device.getDeviceId(), installed ? "已安装" : "未安装");
+        }
+        return installed;
+    }
+    
+    /**
+     * 清除输入法检测结果，例如设备重新连接或安装了新输入法之后
+     */
+    public void reset() {
+        adbKeyboardInstalled = null;
+    }
+    
+    /**
+     * 通过ADBKeyboard广播输入文本，长文本按块发送，每块一次Shell调用以避免超出请求长度限制
+     * @param text 文本
+     * @throws IOException 输入失败
+     */
+    private void typeWithBroadcast(String text) throws IOException {
+        String previous = switchToAdbKeyboard();
+        try {
+            for (String chunk : splitUtf8(text, BROADCAST_CHUNK_BYTES)) {
+                String encoded = Base64.getEncoder().encodeToString(chunk.getBytes(StandardCharsets.UTF_8));
+                ShellResult result = device.executeShell("am broadcast -a ADB_INPUT_B64 --es msg " + encoded + " >/dev/null");
+                if (!result.isSuccess()) {
+                    throw new IOException("ADBKeyboard输入失败，退出码: " + result.getExitCode() + ", 输出: " + result.getOutput().trim());
+                }
+            }
+        } finally {
+            restoreInputMethod(previous);
+        }
+        logger.debug("已通过ADBKeyboard输入 {} 个字符", text.length());
+    }
+    
+    /**
+     * 切换到ADBKeyboard输入法
+     * @return 切换前的输入法
+     * @throws IOException 切换失败
+     */
+    private String switchToAdbKeyboard() throws IOException {
+        // 脚本在子shell中执行且不使用exit，结果以标记行输出，不影响进程传输下共享的长驻会话
+        StringBuilder script = new StringBuilder("(\n");
+        script.append("prev=$(settings get secure default_input_method)\n");
+        script.append("ime enable ").append(ADB_KEYBOARD_IME).append(" >/dev/null 2>&1\n");
+        script.append("if ime set ").append(ADB_KEYBOARD_IME).append(" >/dev/null; then\n");
+        // 输入法切换后需要短暂时间绑定到当前输入框
+        script.append("[ \"$prev\" != \"").append(ADB_KEYBOARD_IME).append("\" ] && sleep 0.3\n");
+        script.append("echo \"").append(PREVIOUS_IME_PREFIX).append("$prev\"\n");
+        script.append("fi\n");
+        script.append(")");
+        ShellResult result = device.executeShell(script.toString());
+        for (String line : result.getOutput().split("\r?\n")) {
+            if (line.startsWith(PREVIOUS_IME_PREFIX)) {
+                return line.substring(PREVIOUS_IME_PREFIX.length()).trim();
+            }
+        }
+        throw new IOException("切换到ADBKeyboard输入法失败，退出码: " + result.getExitCode() + ", 输出: " + result.getOutput().trim());
+    }
+    
+    /**
+     * 恢复切换前的输入法，失败时只记录日志
+     * @param previous 切换前的输入法
+     */
+    private void restoreInputMethod(String previous) {
+        if (previous.isEmpty() || "null".equals(previous) || ADB_KEYBOARD_IME.equals(previous)) {
+            return;
+        }
+        try {
+            ShellResult result = device.executeShell("ime set " + InputAction.shellQuote(previous) + " >/dev/null");
+            if (!result.isSuccess()) {
+                logger.warn("设备 {} 恢复输入法 {} 失败，退出码: {}", device.getDeviceId(), previous, result.getExitCode());
+            }
+        } catch (IOException e) {
+            logger.warn("设备 {} 恢复输入法 {} 失败: {}", device.getDeviceId(), previous, e.getMessage());
+        }
+    }
+    
+    /**
+     * 通过input text分段输入文本，换行转换为回车键
+     * @param text 文本
+     * @throws IOException 输入失败
+     */
+    private void typeWithInputText(String text) throws IOException {
+        if (!text.chars().allMatch(c -> c < 0x80)) {
+            logger.warn("文本包含非ASCII字符，input text可能无法输入，建议在设备上安装ADBKeyboard输入法");
+        }
+        List<String> commands = new ArrayList<>();
+        String[] lines = text.split("\n", -1);
+        for (int i = 0; i < lines.length; i++) {
+            // 每段都不含字面的%s，保证一段只对应一条input text命令
+            for (String part : InputAction.splitLiteralPercentS(lines[i])) {
+                for (String chunk : splitUtf8(part, INPUT_TEXT_CHUNK_BYTES)) {
+                    commands.add(InputAction.text(chunk).toShellCommand());
+                }
+            }
+            if (i < lines.length - 1) {
+                commands.add("input keyevent " + KEYCODE_ENTER);
+            }
+        }
+        // set -e限定在子shell内
+        StringBuilder script = new StringBuilder("(set -e\n");
+        int scriptBytes = script.length();
+        for (String command : commands) {
+            int commandBytes = command.getBytes(StandardCharsets.UTF_8).length + 1;
+            if (scriptBytes + commandBytes + 1 > MAX_SCRIPT_BYTES) {
+                runInputScript(script.append(')').toString());
+                script.setLength(0);
+                script.append("(set -e\n");
+                scriptBytes = script.length();
+            }
+            script.append(command).append('\n');
+            scriptBytes += commandBytes;
+        }
+        runInputScript(script.append(')').toString());
+    }
+    
+    private void runInputScript(String script) throws IOException {
+        ShellResult result = device.executeShell(script);
+        if (!result.isSuccess()) {
+            throw new IOException("input text输入失败，退出码: " + result.getExitCode() + ", 输出: " + result.getOutput().trim());
+        }
+    }
+    
+    /**
+     * 按UTF-8编码后的字节数拆分文本，只在码点边界处拆分
+     * @param text 文本
+     * @param maxBytes 每块的最大字节数
+     * @return 文本块
+     */
+    static List<String> splitUtf8(String text, int maxBytes) {
+        List<String> chunks = new ArrayList<>();
+        int start = 0;
+        int bytes = 0;
+        int offset = 0;
+        while (offset < text.length()) {
+            int codePoint = text.codePointAt(offset);
+            int length = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+            if (bytes + length > maxBytes && offset > start) {
+                chunks.add(text.substring(start, offset));
+                start = offset;
+                bytes = 0;
+            }
+            bytes += length;
+            offset += Character.charCount(codePoint);
+        }
+        if (offset > start) {
+            chunks.add(text.substring(start));
+        }
+        return chunks;
+    }
+}
\ No newline at end of file
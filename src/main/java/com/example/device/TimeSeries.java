@@ -0,0 +1,114 @@
+package com.example.device;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * TimeSeries类是定长的数值时间序列，时间戳与数值分别保存在long/double环形数组中
+ * 写满后覆盖最旧的样本，写入与聚合都不分配对象
+ */
+public class TimeSeries {
+    private final long[] timestamps;
+    private final double[] values;
+    private int head; // 下一个样本写入的位置
+    private int count;
+    
+    /**
+     * 构造函数
+     * @param capacity 保留的样本数
+     */
+    public TimeSeries(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("时间序列容量必须大于0");
+        }
+        this.timestamps = new long[capacity];
+        this.values = new double[capacity];
+    }
+    
+    /**
+     * 追加样本
+     * @param timestamp 毫秒时间戳
+     * @param value 数值
+     */
+    public synchronized void add(long timestamp, double value) {
+        timestamps[head] = timestamp;
+        values[head] = value;
+        head = (head + 1) % values.length;
+        if (count < values.length) {
+            count++;
+        }
+    }
+    
+    /**
+     * 获取样本数量
+     * @return 样本数量
+     */
+    public synchronized int size() {
+        return count;
+    }
+    
+    /**
+     * 获取最新的数值
+     * @return 数值，没有样本时返回NaN
+     */
+    public synchronized double latest() {
+        return count == 0 ? Double.NaN : values[indexOf(count - 1)];
+    }
+    
+    /**
+     * 获取最新样本的时间戳
+     * @return 毫秒时间戳，没有样本时返回0
+     */
+    public synchronized long latestTimestamp() {
+        return count == 0 ? 0 : timestamps[indexOf(count - 1)];
+    }
+    
+    /**
+     * 聚合不早于指定时间的样本
+     * @param sinceMillis 起始毫秒时间戳
+     * @return 包含count、min、max、avg、first、last的映射，窗口内没有样本时count为0
+     */
+    public synchronized Map<String, Object> aggregate(long sinceMillis) {
+        int n = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum = 0;
+        double first = Double.NaN;
+        double last = Double.NaN;
+        // 从最新样本向前扫描，遇到窗口外的样本即停止
+        for (int position = count - 1; position >= 0; position--) {
+            int index = indexOf(position);
+            if (timestamps[index] < sinceMillis) {
+                break;
+            }
+            double value = values[index];
+            if (n == 0) {
+                last = value;
+            }
+            first = value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+            n++;
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("count", n);
+        if (n > 0) {
+            result.put("min", min);
+            result.put("max", max);
+            result.put("avg", sum / n);
+            result.put("first", first);
+            result.put("last", last);
+        }
+        return result;
+    }
+    
+    /**
+     * 将逻辑位置（0为最旧）转换为数组下标
+     * @param position 逻辑位置
+     * @return 数组下标
+     */
+    private int indexOf(int position) {
+        return (head - count + position + values.length) % values.length;
+    }
+}
\ No newline at end of file
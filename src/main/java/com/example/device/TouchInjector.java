@@ -0,0 +1,414 @@
+package com.example.device;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * TouchInjector类向触摸屏输入设备直接写入多点触控（Type B协议）事件，效果与sendevent相同
+ * 首次使用时通过getevent -pl发现触摸屏设备节点及其坐标范围，并通过wm size获取屏幕分辨率；
+ * 每次手势前读取当前屏幕方向，把屏幕坐标旋转回触摸屏的自然方向后再换算。
+ * 整个手势生成为一个Shell脚本在一次往返中执行：设备节点只打开一次，每帧（到SYN_REPORT为止的一组事件）
+ * 编码为input_event结构后由一次printf写入，步进间隔由设备端sleep控制
+ */
+public class TouchInjector {
+    private static final Logger logger = LoggerFactory.getLogger(TouchInjector.class);
+    
+    private static final int EV_SYN = 0;
+    private static final int EV_KEY = 1;
+    private static final int EV_ABS = 3;
+    private static final int SYN_REPORT = 0;
+    private static final int BTN_TOUCH = 0x14a;
+    private static final int ABS_MT_SLOT = 0x2f;
+    private static final int ABS_MT_TOUCH_MAJOR = 0x30;
+    private static final int ABS_MT_POSITION_X = 0x35;
+    private static final int ABS_MT_POSITION_Y = 0x36;
+    private static final int ABS_MT_TRACKING_ID = 0x39;
+    private static final int ABS_MT_PRESSURE = 0x3a;
+    
+    private static final long STEP_INTERVAL_MILLIS = 16;
+    private static final int MAX_FRAMES = 150; // 限制脚本长度，套接字传输下单个请求不超过64KB
+    private static final Pattern DEVICE_PATTERN = Pattern.compile("^add device \\d+: (\\S+)");
+    private static final Pattern AXIS_PATTERN = Pattern.compile("(ABS_MT_POSITION_X|ABS_MT_POSITION_Y|ABS_MT_PRESSURE|ABS_MT_TOUCH_MAJOR)\\s*:.*?min (-?\\d+), max (-?\\d+)");
+    private static final Pattern SIZE_PATTERN = Pattern.compile("(Physical|Override) size: (\\d+)x(\\d+)");
+    private static final Pattern SURFACE_ORIENTATION = Pattern.compile("SurfaceOrientation:\\s*(\\d)");
+    private static final Pattern VIEWPORT_ORIENTATION = Pattern.compile("Viewport INTERNAL:.*?orientation=(\\d)");
+    
+    private final AndroidDevice device;
+    private String devicePath;
+    private int minX;
+    private int maxX;
+    private int minY;
+    private int maxY;
+    private int maxPressure = -1;
+    private int maxTouchMajor = -1;
+    private boolean hasBtnTouch;
+    private boolean hasSlot;
+    private int eventSize; // input_event结构的字节数，64位用户空间为24，32位为16
+    private int screenWidth;
+    private int screenHeight;
+    private int trackingId;
+    
+    /**
+     * 构造函数
+     * @param device 目标设备
+     */
+    public TouchInjector(AndroidDevice device) {
+        this.device = device;
+    }
+    
+    /**
+     * 点击
+     * @param x 屏幕X坐标
+     * @param y 屏幕Y坐标
+     * @throws IOException 注入失败
+     */
+    public void tap(int x, int y) throws IOException {
+        longPress(x, y, 50);
+    }
+    
+    /**
+     * 长按
+     * @param x 屏幕X坐标
+     * @param y 屏幕Y坐标
+     * @param durationMillis 按住时间（毫秒）
+     * @throws IOException 注入失败
+     */
+    public void longPress(int x, int y, long durationMillis) throws IOException {
+        Script script = newScript();
+        touchDown(script, x, y);
+        script.sleep(durationMillis);
+        touchUp(script);
+        run(script);
+    }
+    
+    /**
+     * 滑动
+     * @param startX 起始X坐标
+     * @param startY 起始Y坐标
+     * @param endX 结束X坐标
+     * @param endY 结束Y坐标
+     * @param durationMillis 滑动持续时间（毫秒）
+     * @throws IOException 注入失败
+     */
+    public void swipe(int startX, int startY, int endX, int endY, long durationMillis) throws IOException {
+        gesture(new int[][]{{startX, startY}, {endX, endY}}, new long[]{durationMillis});
+    }
+    
+    /**
+     * 多段手势：手指在第一个点按下，依次移动经过各点后抬起
+     * @param points 途经点，每项为{x, y}
+     * @param segmentMillis 每段的持续时间，长度为points.length - 1
+     * @throws IOException 注入失败
+     */
+    public void gesture(int[][] points, long[] segmentMillis) throws IOException {
+        if (points.length < 2 || segmentMillis.length != points.length - 1) {
+            throw new IllegalArgumentException("手势至少需要两个点，且每段都需要持续时间");
+        }
+        Script script = newScript();
+        touchDown(script, points[0][0], points[0][1]);
+        long totalMillis = 0;
+        for (long millis : segmentMillis) {
+            totalMillis += millis;
+        }
+        // 手势很长时加大步进间隔，使总帧数不超过上限
+        long interval = Math.max(STEP_INTERVAL_MILLIS, totalMillis / MAX_FRAMES);
+        for (int segment = 0; segment < segmentMillis.length; segment++) {
+            int[] from = points[segment];
+            int[] to = points[segment + 1];
+            int steps = (int) Math.max(1, segmentMillis[segment] / interval);
+            long stepMillis = segmentMillis[segment] / steps;
+            for (int step = 1; step <= steps; step++) {
+                script.sleep(stepMillis);
+                int x = from[0] + (to[0] - from[0]) * step / steps;
+                int y = from[1] + (to[1] - from[1]) * step / steps;
+                move(script, x, y);
+            }
+        }
+        touchUp(script);
+        run(script);
+    }
+    
+    /**
+     * 获取发现的触摸屏设备节点
+     * @return 设备节点路径，尚未发现时返回null
+     */
+    public synchronized String getDevicePath() {
+        return devicePath;
+    }
+    
+    /**
+     * 发现触摸屏设备及屏幕分辨率，结果在实例内缓存
+     * @throws IOException 未找到触摸屏或命令执行失败
+     */
+    public synchronized void discover() throws IOException {
+        if (devicePath != null) {
+            return;
+        }
+        String current = null;
+        int[] xRange = null;
+        int[] yRange = null;
+        int pressure = -1;
+        int touchMajor = -1;
+        boolean btnTouch = false;
+        boolean slot = false;
+        for (String line : (device.executeShell("getevent -pl").getOutput() + "\nadd device 0: <end>").split("\n")) {
+            Matcher deviceMatcher = DEVICE_PATTERN.matcher(line.trim());
+            if (deviceMatcher.find()) {
+                if (current != null && xRange != null && yRange != null) {
+                    break;
+                }
+                current = deviceMatcher.group(1);
+                xRange = null;
+                yRange = null;
+                pressure = -1;
+                touchMajor = -1;
+                btnTouch = false;
+                slot = false;
+                continue;
+            }
+            if (line.contains("BTN_TOUCH")) {
+                btnTouch = true;
+            }
+            if (line.contains("ABS_MT_SLOT")) {
+                slot = true;
+            }
+            Matcher axisMatcher = AXIS_PATTERN.matcher(line);
+            if (axisMatcher.find()) {
+                int[] range = {Integer.parseInt(axisMatcher.group(2)), Integer.parseInt(axisMatcher.group(3))};
+                switch (axisMatcher.group(1)) {
+                    case "ABS_MT_POSITION_X":
+                        xRange = range;
+                        break;
+                    case "ABS_MT_POSITION_Y":
+                        yRange = range;
+                        break;
+                    case "ABS_MT_PRESSURE":
+                        pressure = range[1];
+                        break;
+                    default:
+                        touchMajor = range[1];
+                        break;
+                }
+            }
+        }
+        if (current == null || xRange == null || yRange == null || current.startsWith("<")) {
+            throw new IOException("未找到支持多点触控的触摸屏设备");
+        }
+        
+        int[] size = readScreenSize();
+        String abi = device.executeShell("getprop ro.product.cpu.abi").getOutput().trim();
+        devicePath = current;
+        minX = xRange[0];
+        maxX = xRange[1];
+        minY = yRange[0];
+        maxY = yRange[1];
+        maxPressure = pressure;
+        maxTouchMajor = touchMajor;
+        hasBtnTouch = btnTouch;
+        hasSlot = slot;
+        eventSize = abi.contains("64") ? 24 : 16;
+        screenWidth = size[0];
+        screenHeight = size[1];
+        logger.info("发现触摸屏设备: {}，坐标范围: X[{}, {}] Y[{}, {}]，屏幕: {}x{}，ABI: {}",
+                devicePath, minX, maxX, minY, maxY, screenWidth, screenHeight, abi);
+    }
+    
+    /**
+     * 读取当前屏幕方向，优先取触摸屏的SurfaceOrientation，其次取内置屏幕视口的orientation
+     * @return 0到3，分别对应0、90、180、270度，无法解析时返回0
+     * @throws IOException 命令执行失败
+     */
+    private int readRotation() throws IOException {
+        String output = device.executeShell("dumpsys input | grep -E 'SurfaceOrientation|Viewport INTERNAL'").getOutput();
+        Matcher matcher = SURFACE_ORIENTATION.matcher(output);
+        if (matcher.find()) {
+            return Integer.parseInt(matcher.group(1)) & 3;
+        }
+        matcher = VIEWPORT_ORIENTATION.matcher(output);
+        if (matcher.find()) {
+            return Integer.parseInt(matcher.group(1)) & 3;
+        }
+        logger.debug("无法读取屏幕方向，按竖屏处理: {}", output.trim());
+        return 0;
+    }
+    
+    /**
+     * 读取屏幕分辨率，优先使用Override size
+     * @return {宽, 高}
+     * @throws IOException 命令执行失败或输出无法解析
+     */
+    private int[] readScreenSize() throws IOException {
+        int[] size = null;
+        Matcher matcher = SIZE_PATTERN.matcher(device.executeShell("wm size").getOutput());
+        while (matcher.find()) {
+            size = new int[]{Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(3))};
+        }
+        if (size == null) {
+            throw new IOException("无法获取屏幕分辨率");
+        }
+        return size;
+    }
+    
+    /**
+     * 发现触摸屏并读取当前屏幕方向，创建手势脚本
+     */
+    private Script newScript() throws IOException {
+        discover();
+        return new Script(readRotation());
+    }
+    
+    private void touchDown(Script script, int x, int y) {
+        if (hasSlot) {
+            script.event(EV_ABS, ABS_MT_SLOT, 0);
+        }
+        script.event(EV_ABS, ABS_MT_TRACKING_ID, nextTrackingId());
+        script.position(x, y);
+        if (maxTouchMajor > 0) {
+            script.event(EV_ABS, ABS_MT_TOUCH_MAJOR, Math.max(1, maxTouchMajor / 16));
+        }
+        if (maxPressure > 0) {
+            script.event(EV_ABS, ABS_MT_PRESSURE, Math.max(1, maxPressure / 2));
+        }
+        if (hasBtnTouch) {
+            script.event(EV_KEY, BTN_TOUCH, 1);
+        }
+        script.sync();
+    }
+    
+    private void move(Script script, int x, int y) {
+        script.position(x, y);
+        script.sync();
+    }
+    
+    private void touchUp(Script script) {
+        if (hasSlot) {
+            script.event(EV_ABS, ABS_MT_SLOT, 0);
+        }
+        script.event(EV_ABS, ABS_MT_TRACKING_ID, -1);
+        if (hasBtnTouch) {
+            script.event(EV_KEY, BTN_TOUCH, 0);
+        }
+        script.sync();
+    }
+    
+    private synchronized int nextTrackingId() {
+        trackingId = (trackingId + 1) & 0xffff;
+        return trackingId;
+    }
+    
+    /**
+     * 将屏幕坐标换算为输入设备坐标
+     */
+    private static int scale(int value, int screenSize, int min, int max) {
+        long clamped = Math.max(0, Math.min(value, screenSize - 1));
+        return (int) (min + clamped * (max - min) / Math.max(1, screenSize - 1));
+    }
+    
+    private void run(Script script) throws IOException {
+        // set -e与打开的文件描述符都限定在子shell内，不影响进程传输下共享的长驻会话
+        ShellResult result = device.executeShell("(set -e\n" + script.build() + ")");
+        if (!result.isSuccess()) {
+            throw new IOException("sendevent注入失败，退出码: " + result.getExitCode() + ", 输出: " + result.getOutput().trim());
+        }
+    }
+    
+    /**
+     * 获取触摸屏坐标范围等发现结果
+     * @return 描述字符串
+     */
+    @Override
+    public synchronized String toString() {
+        return "TouchInjector{" +
+                "devicePath='" + devicePath + '\'' +
+                ", x=[" + minX + ", " + maxX + "]" +
+                ", y=[" + minY + ", " + maxY + "]" +
+                ", screen=" + screenWidth + "x" + screenHeight +
+                '}';
+    }
+    
+    /**
+     * Script类按帧生成手势脚本，坐标在生成时按屏幕方向旋转并换算
+     */
+    private final class Script {
+        private final StringBuilder text = new StringBuilder();
+        private final StringBuilder frame = new StringBuilder();
+        private final int rotation;
+        
+        Script(int rotation) {
+            this.rotation = rotation;
+            text.append("exec 3>").append(devicePath).append('\n');
+        }
+        
+        /**
+         * 写入当前方向下的屏幕坐标，先旋转回自然方向（wm size给出的宽高）
+         */
+        void position(int x, int y) {
+            int naturalX;
+            int naturalY;
+            switch (rotation) {
+                case 1:
+                    naturalX = screenWidth - 1 - y;
+                    naturalY = x;
+                    break;
+                case 2:
+                    naturalX = screenWidth - 1 - x;
+                    naturalY = screenHeight - 1 - y;
+                    break;
+                case 3:
+                    naturalX = y;
+                    naturalY = screenHeight - 1 - x;
+                    break;
+                default:
+                    naturalX = x;
+                    naturalY = y;
+                    break;
+            }
+            event(EV_ABS, ABS_MT_POSITION_X, scale(naturalX, screenWidth, minX, maxX));
+            event(EV_ABS, ABS_MT_POSITION_Y, scale(naturalY, screenHeight, minY, maxY));
+        }
+        
+        /**
+         * 以八进制转义追加一个小端序的input_event，时间戳由内核填写，保持为0
+         */
+        void event(int type, int code, int value) {
+            for (int i = 0; i < eventSize - 8; i++) {
+                frame.append("\\0");
+            }
+            appendBytes(type, 2);
+            appendBytes(code, 2);
+            appendBytes(value, 4);
+        }
+        
+        /**
+         * 追加SYN_REPORT并把整帧交给一次printf写入
+         */
+        void sync() {
+            event(EV_SYN, SYN_REPORT, 0);
+            text.append("printf '").append(frame).append("' >&3\n");
+            frame.setLength(0);
+        }
+        
+        void sleep(long millis) {
+            if (millis > 0) {
+                text.append(String.format(Locale.ROOT, "sleep %.3f%n", millis / 1000.0));
+            }
+        }
+        
+        String build() {
+            return text.toString();
+        }
+        
+        // 转义后总是紧跟反斜杠或引号，八进制位数不需要补齐
+        private void appendBytes(int value, int count) {
+            for (int i = 0; i < count; i++) {
+                frame.append('\\').append(Integer.toOctalString((value >>> (8 * i)) & 0xff));
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,465 @@
+package com.example.device.adb;
+
+import com.example.device.Buffers;
+import com.example.device.ShellResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * AdbClient类直接通过TCP与adb服务器通信，不再为每条命令启动adb进程
+ * 支持host:、shell:、exec:与sync:服务，连接按设备预热复用
+ */
+public class AdbClient implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(AdbClient.class);
+    
+    public static final String DEFAULT_HOST = "127.0.0.1";
+    public static final int DEFAULT_PORT = 5037;
+    public static final long SHELL_TIMEOUT_MILLIS = 60_000;
+    public static final long EXEC_TIMEOUT_MILLIS = 30_000;
+    public static final long TRANSFER_TIMEOUT_MILLIS = 10 * 60_000;
+    
+    private static final int SHELL_V2_STDOUT = 1;
+    private static final int SHELL_V2_STDERR = 2;
+    private static final int SHELL_V2_EXIT = 3;
+    private static final String LEGACY_EXIT_MARKER = "__MCP_RC__:";
+    private static final int STREAM_CHUNK_SIZE = 64 * 1024;
+    
+    private final InetSocketAddress address;
+    private final AdbConnectionPool pool;
+    private final Set<String> legacyShellDevices = ConcurrentHashMap.newKeySet();
+    private final Map<String, Set<String>> deviceFeatures = new ConcurrentHashMap<>();
+    
+    /**
+     * 构造函数，使用本机adb服务器
+     * 端口优先取ANDROID_ADB_SERVER_PORT环境变量，与adb命令行保持一致
+     */
+    public AdbClient() {
+        this(DEFAULT_HOST, defaultPort());
+    }
+    
+    /**
+     * 构造函数
+     * @param host adb服务器地址
+     * @param port adb服务器端口
+     */
+    public AdbClient(String host, int port) {
+        this.address = new InetSocketAddress(host, port);
+        this.pool = new AdbConnectionPool(address, 2);
+        logger.info("创建AdbClient，服务器地址: {}:{}", host, port);
+    }
+    
+    /**
+     * 查询adb服务器版本
+     * @return 服务器协议版本
+     * @throws IOException 通信失败
+     */
+    public int version() throws IOException {
+        return Integer.parseInt(hostQuery("host:version"), 16);
+    }
+    
+    /**
+     * 检查adb服务器是否可达
+     * @return 是否可达
+     */
+    public boolean isServerReachable() {
+        try {
+            version();
+            return true;
+        } catch (IOException | NumberFormatException e) {
+            logger.debug("adb服务器不可达: {}", address, e);
+            return false;
+        }
+    }
+    
+    /**
+     * 获取已连接设备列表（等同于adb devices -l）
+     * @return 每行一个设备的原始描述
+     * @throws IOException 通信失败
+     */
+    public List<String> devices() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String line : hostQuery("host:devices-l").split("\n")) {
+            if (!line.trim().isEmpty()) {
+                lines.add(line.trim());
+            }
+        }
+        return lines;
+    }
+    
+    /**
+     * 发送主机请求并读取长度前缀的响应
+     * @param request 主机请求，例如host:version
+     * @return 响应内容
+     * @throws IOException 通信失败
+     */
+    public String hostQuery(String request) throws IOException {
+        try (SocketChannel channel = pool.connect();
+             AdbDeadline deadline = AdbDeadline.start(channel, AdbConnectionPool.CONNECT_TIMEOUT_MILLIS, request)) {
+            try {
+                AdbProtocol.writeRequest(channel, request);
+                AdbProtocol.readStatus(channel, request);
+                return AdbProtocol.readLengthPrefixed(channel);
+            } catch (IOException e) {
+                throw deadline.translate(e);
+            }
+        }
+    }
+    
+    /**
+     * 在设备上执行Shell命令
+     * 优先使用shell v2协议分离出退出码，设备不支持时降级为旧版shell服务
+     * @param serial 设备序列号
+     * @param command Shell命令
+     * @return 命令执行结果（stdout与stderr合并）
+     * @throws IOException 通信失败或超过{@link #SHELL_TIMEOUT_MILLIS}
+     */
+    public ShellResult shell(String serial, String command) throws IOException {
+        return shell(serial, command, SHELL_TIMEOUT_MILLIS);
+    }
+    
+    /**
+     * 在设备上执行Shell命令，超过截止时间时关闭连接并抛出超时异常
+     * @param serial 设备序列号
+     * @param command Shell命令
+     * @param timeoutMillis 截止时间（毫秒），不大于0时不设截止时间
+     * @return 命令执行结果（stdout与stderr合并）
+     * @throws IOException 通信失败或超时
+     */
+    public ShellResult shell(String serial, String command, long timeoutMillis) throws IOException {
+        if (!legacyShellDevices.contains(serial)) {
+            try {
+                return shellV2(serial, command, timeoutMillis);
+            } catch (AdbCommandRejectedException e) {
+                logger.info("设备不支持shell v2协议，降级为旧版shell服务: {}", serial);
+                legacyShellDevices.add(serial);
+            }
+        }
+        return legacyShell(serial, command, timeoutMillis);
+    }
+    
+    /**
+     * 通过exec服务执行命令并读取原始字节输出（不经过PTY转换）
+     * @param serial 设备序列号
+     * @param command 命令
+     * @return 命令的stdout字节
+     * @throws IOException 通信失败
+     */
+    public byte[] exec(String serial, String command) throws IOException {
+        return Buffers.toArray(exec(serial, command, null));
+    }
+    
+    /**
+     * 通过exec服务执行命令，将stdout直接读入可复用的缓冲区
+     * @param serial 设备序列号
+     * @param command 命令
+     * @param reuse 可复用的缓冲区，可以为null
+     * @return 已flip的缓冲区，容量不足时为扩容后的新实例
+     * @throws IOException 通信失败
+     */
+    public ByteBuffer exec(String serial, String command, ByteBuffer reuse) throws IOException {
+        return call(serial, "exec:" + command, EXEC_TIMEOUT_MILLIS, channel -> Buffers.readToEnd(channel, reuse));
+    }
+    
+    /**
+     * 通过exec服务执行命令并以流的方式读取stdout，调用方负责关闭
+     * 超过截止时间仍未关闭流时关闭连接，之后的读取抛出{@link com.example.device.exec.CommandTimeoutException}
+     * @param serial 设备序列号
+     * @param command 命令
+     * @param timeoutMillis 截止时间（毫秒），不大于0时不设截止时间
+     * @return 命令的stdout流
+     * @throws IOException 通信失败
+     */
+    public InputStream openExec(String serial, String command, long timeoutMillis) throws IOException {
+        String service = "exec:" + command;
+        SocketChannel channel = openService(serial, service);
+        AdbDeadline deadline = AdbDeadline.start(channel, timeoutMillis, "adb", "-s", serial, service);
+        return new FilterInputStream(Channels.newInputStream(channel)) {
+            @Override
+            public int read() throws IOException {
+                try {
+                    return checkDeadline(super.read());
+                } catch (IOException e) {
+                    throw deadline.translate(e);
+                }
+            }
+            
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                try {
+                    return checkDeadline(super.read(buffer, offset, length));
+                } catch (IOException e) {
+                    throw deadline.translate(e);
+                }
+            }
+            
+            @Override
+            public void close() throws IOException {
+                deadline.close();
+                super.close();
+            }
+            
+            // 连接被截止时间关闭后读到的流末尾不是正常结束
+            private int checkDeadline(int read) throws IOException {
+                if (read < 0 && deadline.isExpired()) {
+                    throw deadline.translate(new EOFException("连接已被关闭: " + service));
+                }
+                return read;
+            }
+        };
+    }
+    
+    /**
+     * 通过exec服务执行命令，先将输入数据写入命令的stdin，再读取stdout直到命令结束
+     * 适用于cmd package install -S等从stdin读取指定长度数据的命令，输入不落地到设备存储
+     * @param serial 设备序列号
+     * @param command 命令
+     * @param input 写入stdin的文件，按块读取后写出，不整体载入内存
+     * @return 命令的stdout字节
+     * @throws IOException 通信失败
+     */
+    public byte[] execWithInput(String serial, String command, Path input) throws IOException {
+        try (FileChannel file = FileChannel.open(input, StandardOpenOption.READ)) {
+            return call(serial, "exec:" + command, TRANSFER_TIMEOUT_MILLIS, channel -> {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(STREAM_CHUNK_SIZE);
+                while (file.read(buffer) >= 0) {
+                    buffer.flip();
+                    AdbProtocol.writeFully(channel, buffer);
+                    buffer.clear();
+                }
+                return Buffers.toArray(Buffers.readToEnd(channel, null));
+            });
+        }
+    }
+    
+    /**
+     * 打开sync会话用于文件传输
+     * @param serial 设备序列号
+     * @return sync会话
+     * @throws IOException 通信失败
+     */
+    public AdbSyncSession openSync(String serial) throws IOException {
+        return new AdbSyncSession(openService(serial, "sync:"), hasFeature(serial, "stat_v2"));
+    }
+    
+    /**
+     * 检查设备与adb服务器是否都支持某项特性，结果按设备缓存
+     * @param serial 设备序列号
+     * @param feature 特性名称，例如stat_v2
+     * @return 是否支持，查询失败时视为不支持
+     */
+    public boolean hasFeature(String serial, String feature) {
+        Set<String> features = deviceFeatures.get(serial);
+        if (features == null) {
+            try {
+                features = new HashSet<>(Arrays.asList(hostQuery("host-serial:" + serial + ":features").trim().split(",")));
+                features.retainAll(Arrays.asList(hostQuery("host:host-features").trim().split(",")));
+                deviceFeatures.put(serial, features);
+            } catch (IOException e) {
+                logger.debug("查询设备特性失败: {}", serial, e);
+                return false;
+            }
+        }
+        return features.contains(feature);
+    }
+    
+    /**
+     * 打开设备服务通道，调用方负责关闭
+     * @param serial 设备序列号
+     * @param service 服务请求，例如shell:ls或exec:screencap -p
+     * @return 已收到OKAY的连接通道
+     * @throws IOException 通信失败
+     */
+    public SocketChannel openService(String serial, String service) throws IOException {
+        SocketChannel channel = pool.acquire(serial);
+        try {
+            return requestService(channel, service);
+        } catch (AdbCommandRejectedException e) {
+            throw e;
+        } catch (IOException e) {
+            // 预热连接可能已随设备断开失效，丢弃后用新连接重试一次
+            logger.debug("预热连接不可用，重新建立连接: {}", serial, e);
+            pool.evict(serial);
+            return requestService(pool.connectTransport(serial), service);
+        }
+    }
+    
+    /**
+     * 为设备预热连接
+     * @param serial 设备序列号
+     */
+    public void warmUp(String serial) {
+        pool.warmUp(serial, 2);
+    }
+    
+    /**
+     * 获取adb服务器地址
+     * @return 服务器地址
+     */
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+    
+    /**
+     * 关闭客户端并释放连接
+     */
+    @Override
+    public void close() {
+        pool.close();
+    }
+    
+    /**
+     * 在已切换transport的连接上请求服务
+     * @param channel 连接通道
+     * @param service 服务请求
+     * @return 同一连接通道
+     * @throws IOException 通信失败
+     */
+    private SocketChannel requestService(SocketChannel channel, String service) throws IOException {
+        try (AdbDeadline deadline = AdbDeadline.start(channel, AdbConnectionPool.CONNECT_TIMEOUT_MILLIS, service)) {
+            try {
+                AdbProtocol.writeRequest(channel, service);
+                AdbProtocol.readStatus(channel, service);
+                return channel;
+            } catch (IOException e) {
+                AdbConnectionPool.closeQuietly(channel);
+                throw deadline.translate(e);
+            }
+        }
+    }
+    
+    /**
+     * 打开设备服务并在截止时间内完成读写，到期时关闭连接
+     * @param serial 设备序列号
+     * @param service 服务请求
+     * @param timeoutMillis 截止时间（毫秒），不大于0时不设截止时间
+     * @param call 在连接上执行的读写
+     * @return 读写结果
+     * @throws IOException 通信失败或超时
+     */
+    private <T> T call(String serial, String service, long timeoutMillis, ChannelCall<T> call) throws IOException {
+        try (SocketChannel channel = openService(serial, service);
+             AdbDeadline deadline = AdbDeadline.start(channel, timeoutMillis, "adb", "-s", serial, service)) {
+            try {
+                return call.apply(channel);
+            } catch (IOException e) {
+                throw deadline.translate(e);
+            }
+        }
+    }
+    
+    /**
+     * 使用shell v2协议执行命令
+     * 每个数据包由1字节类型、4字节小端长度与负载组成
+     * @param serial 设备序列号
+     * @param command Shell命令
+     * @param timeoutMillis 截止时间（毫秒）
+     * @return 命令执行结果
+     * @throws IOException 通信失败或超时
+     */
+    private ShellResult shellV2(String serial, String command, long timeoutMillis) throws IOException {
+        return call(serial, "shell,v2,raw:" + command, timeoutMillis, channel -> {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ByteBuffer header = ByteBuffer.allocate(5).order(ByteOrder.LITTLE_ENDIAN);
+            while (true) {
+                header.clear();
+                try {
+                    AdbProtocol.readFully(channel, header);
+                } catch (EOFException e) {
+                    throw new IOException("shell v2连接在收到退出码前关闭: " + command, e);
+                }
+                header.flip();
+                int id = header.get();
+                int length = header.getInt();
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                AdbProtocol.readFully(channel, payload);
+                if (id == SHELL_V2_STDOUT || id == SHELL_V2_STDERR) {
+                    output.write(payload.array(), 0, length);
+                } else if (id == SHELL_V2_EXIT) {
+                    int exitCode = length > 0 ? payload.get(0) & 0xff : -1;
+                    return new ShellResult(output.toString(StandardCharsets.UTF_8.name()), exitCode);
+                }
+            }
+        });
+    }
+    
+    /**
+     * 使用旧版shell服务执行命令，通过输出末尾的标记获取退出码
+     * @param serial 设备序列号
+     * @param command Shell命令
+     * @param timeoutMillis 截止时间（毫秒）
+     * @return 命令执行结果
+     * @throws IOException 通信失败或超时
+     */
+    private ShellResult legacyShell(String serial, String command, long timeoutMillis) throws IOException {
+        // 与AdbShellSession相同，在子Shell中执行，命令中的exit不会跳过退出码标记
+        String wrapped = "( " + command + "\n) </dev/null 2>&1; echo \"" + LEGACY_EXIT_MARKER + "$?\"";
+        String text = call(serial, "shell:" + wrapped, timeoutMillis, channel -> {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                output.write(buffer.array(), 0, buffer.limit());
+                buffer.clear();
+            }
+            return output.toString(StandardCharsets.UTF_8.name()).replace("\r\n", "\n");
+        });
+        int index = text.lastIndexOf(LEGACY_EXIT_MARKER);
+        if (index < 0) {
+            return new ShellResult(text, -1);
+        }
+        int exitCode;
+        try {
+            exitCode = Integer.parseInt(text.substring(index + LEGACY_EXIT_MARKER.length()).trim());
+        } catch (NumberFormatException e) {
+            exitCode = -1;
+        }
+        return new ShellResult(text.substring(0, index), exitCode);
+    }
+    
+    /**
+     * 读取默认端口
+     * @return adb服务器端口
+     */
+    private static int defaultPort() {
+        String port = System.getenv("ANDROID_ADB_SERVER_PORT");
+        if (port != null && !port.isEmpty()) {
+            try {
+                return Integer.parseInt(port.trim());
+            } catch (NumberFormatException e) {
+                logger.warn("ANDROID_ADB_SERVER_PORT无效: {}，使用默认端口", port);
+            }
+        }
+        return DEFAULT_PORT;
+    }
+    
+    /**
+     * ChannelCall接口表示在已打开的服务连接上执行的读写
+     */
+    @FunctionalInterface
+    private interface ChannelCall<T> {
+        T apply(SocketChannel channel) throws IOException;
+    }
+}
\ No newline at end of file
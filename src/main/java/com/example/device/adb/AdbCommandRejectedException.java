@@ -0,0 +1,31 @@
+package com.example.device.adb;
+
+import java.io.IOException;
+
+/**
+ * AdbCommandRejectedException表示adb服务器以FAIL拒绝了请求
+ * 与连接类的IO异常区分开，便于调用方判断是否需要降级或重试
+ */
+public class AdbCommandRejectedException extends IOException {
+    private static final long serialVersionUID = 1L;
+    
+    private final String reason;
+    
+    /**
+     * 构造函数
+     * @param request 被拒绝的请求
+     * @param reason 服务器返回的原因
+     */
+    public AdbCommandRejectedException(String request, String reason) {
+        super("adb服务器拒绝请求: " + request + ", 原因: " + reason);
+        this.reason = reason;
+    }
+    
+    /**
+     * 获取服务器返回的原因
+     * @return 拒绝原因
+     */
+    public String getReason() {
+        return reason;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,178 @@
+package com.example.device.adb;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * AdbConnectionPool类按设备缓存已完成transport切换的连接
+ * adb服务器的每个连接只能承载一个服务请求，因此池中保存的是预热好的空闲连接，
+ * 取出后由后台线程补充，使服务请求省去建连与transport切换的往返
+ */
+class AdbConnectionPool implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(AdbConnectionPool.class);
+    static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    
+    private final InetSocketAddress address;
+    private final int maxIdlePerDevice;
+    private final Map<String, Deque<SocketChannel>> idle = new ConcurrentHashMap<>();
+    private final ExecutorService refiller;
+    private volatile boolean closed;
+    
+    /**
+     * 构造函数
+     * @param address adb服务器地址
+     * @param maxIdlePerDevice 每个设备保留的空闲连接数
+     */
+    AdbConnectionPool(InetSocketAddress address, int maxIdlePerDevice) {
+        this.address = address;
+        this.maxIdlePerDevice = maxIdlePerDevice;
+        this.refiller = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "adb-pool-refill");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * 获取一个已切换到指定设备的连接
+     * @param serial 设备序列号
+     * @return 连接通道
+     * @throws IOException 建连失败
+     */
+    SocketChannel acquire(String serial) throws IOException {
+        Deque<SocketChannel> queue = idle.get(serial);
+        if (queue != null) {
+            SocketChannel channel;
+            while ((channel = queue.pollFirst()) != null) {
+                if (channel.isOpen() && channel.isConnected()) {
+                    scheduleRefill(serial);
+                    return channel;
+                }
+                closeQuietly(channel);
+            }
+        }
+        SocketChannel channel = connectTransport(serial);
+        scheduleRefill(serial);
+        return channel;
+    }
+    
+    /**
+     * 为设备预热指定数量的连接
+     * @param serial 设备序列号
+     * @param count 连接数量
+     */
+    void warmUp(String serial, int count) {
+        for (int i = 0; i < Math.min(count, maxIdlePerDevice); i++) {
+            scheduleRefill(serial);
+        }
+    }
+    
+    /**
+     * 建立新连接并切换到指定设备，切换超过建连超时时关闭连接
+     * @param serial 设备序列号
+     * @return 连接通道
+     * @throws IOException 建连或切换失败
+     */
+    SocketChannel connectTransport(String serial) throws IOException {
+        SocketChannel channel = connect();
+        String request = "host:transport:" + serial;
+        try (AdbDeadline deadline = AdbDeadline.start(channel, CONNECT_TIMEOUT_MILLIS, request)) {
+            try {
+                AdbProtocol.writeRequest(channel, request);
+                AdbProtocol.readStatus(channel, request);
+                return channel;
+            } catch (IOException e) {
+                closeQuietly(channel);
+                throw deadline.translate(e);
+            }
+        }
+    }
+    
+    /**
+     * 建立到adb服务器的新连接
+     * @return 连接通道
+     * @throws IOException 建连失败或超时
+     */
+    SocketChannel connect() throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.socket().setTcpNoDelay(true);
+            channel.socket().connect(address, CONNECT_TIMEOUT_MILLIS);
+            return channel;
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+    }
+    
+    /**
+     * 丢弃指定设备的全部空闲连接
+     * @param serial 设备序列号
+     */
+    void evict(String serial) {
+        Deque<SocketChannel> queue = idle.remove(serial);
+        if (queue != null) {
+            queue.forEach(AdbConnectionPool::closeQuietly);
+        }
+    }
+    
+    /**
+     * 关闭连接池
+     */
+    @Override
+    public void close() {
+        closed = true;
+        refiller.shutdownNow();
+        idle.values().forEach(queue -> queue.forEach(AdbConnectionPool::closeQuietly));
+        idle.clear();
+    }
+    
+    /**
+     * 在后台补充一个空闲连接
+     * @param serial 设备序列号
+     */
+    private void scheduleRefill(String serial) {
+        if (closed) {
+            return;
+        }
+        try {
+            refiller.execute(() -> {
+                Deque<SocketChannel> queue = idle.computeIfAbsent(serial, key -> new ConcurrentLinkedDeque<>());
+                if (closed || queue.size() >= maxIdlePerDevice) {
+                    return;
+                }
+                try {
+                    queue.offerLast(connectTransport(serial));
+                } catch (IOException e) {
+                    logger.debug("预热adb连接失败: {}", serial, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("连接池已关闭，跳过预热: {}", serial);
+        }
+    }
+    
+    /**
+     * 静默关闭通道
+     * @param channel 通道
+     */
+    static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("关闭adb连接失败", e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.example.device.adb;
+
+import com.example.device.exec.CommandTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * AdbDeadline类为套接字上的一次adb请求设置截止时间
+ * 到期后由看门狗线程关闭通道，阻塞在读写上的调用方随即失败，异常经{@link #translate}转换为超时异常
+ */
+final class AdbDeadline implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(AdbDeadline.class);
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "adb-socket-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final List<String> request;
+    private final long timeoutMillis;
+    private final AtomicBoolean expired = new AtomicBoolean();
+    private final ScheduledFuture<?> future;
+    
+    private AdbDeadline(SocketChannel channel, List<String> request, long timeoutMillis) {
+        this.request = request;
+        this.timeoutMillis = timeoutMillis;
+        this.future = timeoutMillis <= 0 ? null : WATCHDOG.schedule(() -> {
+            expired.set(true);
+            logger.warn("adb请求超时（{} 毫秒），关闭连接: {}", timeoutMillis, String.join(" ", request));
+            AdbConnectionPool.closeQuietly(channel);
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * 开始计时
+     * @param channel 到期后关闭的通道
+     * @param timeoutMillis 截止时间（毫秒），不大于0时不设截止时间
+     * @param request 请求描述，用于日志与异常信息
+     * @return 截止时间，请求结束后调用close取消
+     */
+    static AdbDeadline start(SocketChannel channel, long timeoutMillis, String... request) {
+        return new AdbDeadline(channel, Arrays.asList(request), timeoutMillis);
+    }
+    
+    /**
+     * 将通道被关闭导致的异常转换为超时异常，未到期时原样返回
+     * @param e 读写时的异常
+     * @return 应抛出的异常
+     */
+    IOException translate(IOException e) {
+        if (!isExpired()) {
+            return e;
+        }
+        IOException timeout = new CommandTimeoutException("adb请求超时（" + timeoutMillis + " 毫秒），已关闭连接: "
+                + String.join(" ", request), request, timeoutMillis);
+        timeout.initCause(e);
+        return timeout;
+    }
+    
+    /**
+     * 检查是否已到期
+     * @return 是否已到期并关闭了通道
+     */
+    boolean isExpired() {
+        return expired.get();
+    }
+    
+    /**
+     * 取消截止时间
+     */
+    @Override
+    public void close() {
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+}
\ No newline at end of file
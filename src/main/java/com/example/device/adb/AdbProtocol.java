@@ -0,0 +1,122 @@
+package com.example.device.adb;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * AdbProtocol类封装adb主机协议的编解码
+ * 请求格式为4位十六进制长度加负载，响应以OKAY或FAIL开头
+ */
+final class AdbProtocol {
+    static final String OKAY = "OKAY";
+    static final String FAIL = "FAIL";
+    static final int MAX_REQUEST_LENGTH = 0xFFFF;
+    
+    private AdbProtocol() {
+    }
+    
+    /**
+     * 发送主机协议请求
+     * @param channel 目标通道
+     * @param request 请求内容
+     * @throws IOException 写入失败，或请求超过4位十六进制长度能表示的{@link #MAX_REQUEST_LENGTH}字节
+     */
+    static void writeRequest(WritableByteChannel channel, String request) throws IOException {
+        byte[] payload = request.getBytes(StandardCharsets.UTF_8);
+        if (payload.length > MAX_REQUEST_LENGTH) {
+            throw new IOException("adb请求过长: " + payload.length + " 字节，上限 " + MAX_REQUEST_LENGTH + " 字节");
+        }
+        byte[] header = String.format("%04x", payload.length).getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer buffer = ByteBuffer.allocate(header.length + payload.length);
+        buffer.put(header).put(payload).flip();
+        writeFully(channel, buffer);
+    }
+    
+    /**
+     * 读取响应状态，FAIL时抛出异常
+     * @param channel 来源通道
+     * @param request 对应的请求，用于错误信息
+     * @throws IOException 读取失败
+     * @throws AdbCommandRejectedException 服务器返回FAIL
+     */
+    static void readStatus(ReadableByteChannel channel, String request) throws IOException {
+        String status = readAscii(channel, 4);
+        if (OKAY.equals(status)) {
+            return;
+        }
+        if (FAIL.equals(status)) {
+            throw new AdbCommandRejectedException(request, readLengthPrefixed(channel));
+        }
+        throw new IOException("adb服务器返回未知状态: " + status + ", 请求: " + request);
+    }
+    
+    /**
+     * 读取以4位十六进制长度为前缀的字符串
+     * @param channel 来源通道
+     * @return 字符串内容
+     * @throws IOException 读取失败
+     */
+    static String readLengthPrefixed(ReadableByteChannel channel) throws IOException {
+        int length = Integer.parseInt(readAscii(channel, 4), 16);
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(channel, buffer);
+        return new String(buffer.array(), StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * 读取固定长度的ASCII字符串
+     * @param channel 来源通道
+     * @param length 长度
+     * @return 字符串内容
+     * @throws IOException 读取失败
+     */
+    static String readAscii(ReadableByteChannel channel, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(channel, buffer);
+        return new String(buffer.array(), StandardCharsets.US_ASCII);
+    }
+    
+    /**
+     * 读取一个小端序的int
+     * @param channel 来源通道
+     * @return 整数值
+     * @throws IOException 读取失败
+     */
+    static int readIntLe(ReadableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, buffer);
+        buffer.flip();
+        return buffer.getInt();
+    }
+    
+    /**
+     * 读满缓冲区，通道提前结束时抛出EOFException
+     * @param channel 来源通道
+     * @param buffer 目标缓冲区
+     * @throws IOException 读取失败
+     */
+    static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("adb连接已关闭，缺少 " + buffer.remaining() + " 字节");
+            }
+        }
+    }
+    
+    /**
+     * 写出缓冲区的全部内容
+     * @param channel 目标通道
+     * @param buffer 来源缓冲区
+     * @throws IOException 写入失败
+     */
+    static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,309 @@
+package com.example.device.adb;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * AdbSyncSession类实现adb sync协议的文件传输
+ * 每条消息由4字节ASCII标识与4字节小端长度组成
+ */
+public class AdbSyncSession implements Closeable {
+    static final int MAX_DATA_CHUNK = 64 * 1024;
+    private static final int STAT_V2_RESPONSE_SIZE = 72;
+    
+    private final SocketChannel channel;
+    private final boolean statV2;
+    private final ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+    
+    /**
+     * 构造函数
+     * @param channel 已进入sync模式的连接
+     * @param statV2 设备是否支持STA2请求（stat_v2特性）
+     */
+    AdbSyncSession(SocketChannel channel, boolean statV2) {
+        this.channel = channel;
+        this.statV2 = statV2;
+    }
+    
+    /**
+     * 查询远程文件状态
+     * 设备支持stat_v2时使用64位大小的STA2，否则使用STAT，此时大小只有32位，4GB及以上的文件会回绕
+     * @param remotePath 设备上的路径
+     * @return 文件状态，文件不存在时mode为0
+     * @throws IOException 传输失败
+     */
+    public SyncStat stat(String remotePath) throws IOException {
+        if (statV2) {
+            return stat2(remotePath);
+        }
+        writeRequest("STAT", remotePath);
+        ByteBuffer response = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        AdbProtocol.readFully(channel, response);
+        response.flip();
+        byte[] id = new byte[4];
+        response.get(id);
+        if (!"STAT".equals(new String(id, StandardCharsets.US_ASCII))) {
+            throw new IOException("sync STAT响应异常: " + remotePath);
+        }
+        int mode = response.getInt();
+        long size = Integer.toUnsignedLong(response.getInt());
+        long mtime = Integer.toUnsignedLong(response.getInt());
+        return new SyncStat(mode, size, mtime, false);
+    }
+    
+    /**
+     * 通过STA2查询远程文件状态，响应依次为错误码、dev、ino、mode、nlink、uid、gid、size、atime、mtime、ctime
+     */
+    private SyncStat stat2(String remotePath) throws IOException {
+        writeRequest("STA2", remotePath);
+        ByteBuffer response = ByteBuffer.allocate(STAT_V2_RESPONSE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        AdbProtocol.readFully(channel, response);
+        response.flip();
+        byte[] id = new byte[4];
+        response.get(id);
+        if (!"STA2".equals(new String(id, StandardCharsets.US_ASCII))) {
+            throw new IOException("sync STA2响应异常: " + remotePath);
+        }
+        if (response.getInt() != 0) {
+            return new SyncStat(0, 0, 0, true); // 错误码非0，例如文件不存在
+        }
+        response.position(response.position() + 16); // 跳过dev与ino
+        int mode = response.getInt();
+        response.position(response.position() + 12); // 跳过nlink、uid与gid
+        long size = response.getLong();
+        response.getLong(); // atime
+        long mtime = response.getLong();
+        return new SyncStat(mode, size, mtime, true);
+    }
+    
+    /**
+     * 推送本地文件到设备
+     * @param localPath 本地文件
+     * @param remotePath 设备上的目标路径
+     * @param mode 文件权限，例如0644
+     * @return 传输的字节数
+     * @throws IOException 传输失败
+     */
+    public long push(Path localPath, String remotePath, int mode) throws IOException {
+        try (FileChannel file = FileChannel.open(localPath, StandardOpenOption.READ)) {
+            return push(file, 0, file.size(), remotePath, mode);
+        }
+    }
+    
+    /**
+     * 推送本地文件的指定区间到设备上的一个文件
+     * 每个DATA块由transferTo直接从文件发送到套接字，不经过Java堆
+     * @param file 本地文件通道，不改变其位置
+     * @param position 区间起始位置
+     * @param length 区间长度
+     * @param remotePath 设备上的目标路径
+     * @param mode 文件权限，例如0644
+     * @return 传输的字节数
+     * @throws IOException 传输失败
+     */
+    public long push(FileChannel file, long position, long length, String remotePath, int mode) throws IOException {
+        writeRequest("SEND", remotePath + "," + mode);
+        long total = 0;
+        while (total < length) {
+            int size = (int) Math.min(MAX_DATA_CHUNK, length - total);
+            writeHeader("DATA", size);
+            long sent = 0;
+            while (sent < size) {
+                long written = file.transferTo(position + total + sent, size - sent, channel);
+                if (written <= 0 && position + total + sent >= file.size()) {
+                    throw new IOException("本地文件在传输过程中被截断: " + remotePath);
+                }
+                sent += written;
+            }
+            total += size;
+        }
+        writeHeader("DONE", (int) (System.currentTimeMillis() / 1000));
+        readSyncStatus(remotePath);
+        return total;
+    }
+    
+    /**
+     * 从设备拉取文件到本地
+     * @param remotePath 设备上的路径
+     * @param localPath 本地目标文件
+     * @return 传输的字节数
+     * @throws IOException 传输失败
+     */
+    public long pull(String remotePath, Path localPath) throws IOException {
+        try (FileChannel file = FileChannel.open(localPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return pull(remotePath, file, 0);
+        }
+    }
+    
+    /**
+     * 从设备拉取文件，写入本地文件通道的指定位置
+     * 每个DATA块由transferFrom从套接字写入文件
+     * @param remotePath 设备上的路径
+     * @param file 本地文件通道，不改变其位置
+     * @param position 写入的起始位置
+     * @return 传输的字节数
+     * @throws IOException 传输失败
+     */
+    public long pull(String remotePath, FileChannel file, long position) throws IOException {
+        long total = 0;
+        writeRequest("RECV", remotePath);
+        while (true) {
+            String id = readHeader();
+            int length = header.getInt();
+            if ("DONE".equals(id)) {
+                break;
+            }
+            if ("FAIL".equals(id)) {
+                throw new IOException("拉取文件失败: " + remotePath + ", 原因: " + readString(length));
+            }
+            if (!"DATA".equals(id)) {
+                throw new IOException("sync RECV响应异常: " + id);
+            }
+            long received = 0;
+            while (received < length) {
+                long read = file.transferFrom(channel, position + total + received, length - received);
+                if (read <= 0) {
+                    throw new IOException("sync连接在数据块中途关闭: " + remotePath);
+                }
+                received += read;
+            }
+            total += length;
+        }
+        return total;
+    }
+    
+    /**
+     * 结束sync会话并关闭连接
+     */
+    @Override
+    public void close() {
+        try {
+            if (channel.isOpen()) {
+                writeHeader("QUIT", 0);
+            }
+        } catch (IOException e) {
+            // 连接可能已被服务器关闭，忽略
+        } finally {
+            AdbConnectionPool.closeQuietly(channel);
+        }
+    }
+    
+    /**
+     * 发送带路径参数的请求
+     * @param id 请求标识
+     * @param argument 参数
+     * @throws IOException 写入失败
+     */
+    private void writeRequest(String id, String argument) throws IOException {
+        byte[] payload = argument.getBytes(StandardCharsets.UTF_8);
+        writeHeader(id, payload.length);
+        AdbProtocol.writeFully(channel, ByteBuffer.wrap(payload));
+    }
+    
+    /**
+     * 发送消息头
+     * @param id 消息标识
+     * @param value 长度或参数
+     * @throws IOException 写入失败
+     */
+    private void writeHeader(String id, int value) throws IOException {
+        header.clear();
+        header.put(id.getBytes(StandardCharsets.US_ASCII)).putInt(value).flip();
+        AdbProtocol.writeFully(channel, header);
+    }
+    
+    /**
+     * 读取消息头，读取后header位于长度字段处
+     * @return 消息标识
+     * @throws IOException 读取失败
+     */
+    private String readHeader() throws IOException {
+        header.clear();
+        AdbProtocol.readFully(channel, header);
+        header.flip();
+        byte[] id = new byte[4];
+        header.get(id);
+        return new String(id, StandardCharsets.US_ASCII);
+    }
+    
+    /**
+     * 读取SEND结束后的OKAY/FAIL状态
+     * @param remotePath 目标路径，用于错误信息
+     * @throws IOException 读取失败或服务器返回FAIL
+     */
+    private void readSyncStatus(String remotePath) throws IOException {
+        String id = readHeader();
+        int length = header.getInt();
+        if ("FAIL".equals(id)) {
+            throw new IOException("推送文件失败: " + remotePath + ", 原因: " + readString(length));
+        }
+        if (!"OKAY".equals(id)) {
+            throw new IOException("sync SEND响应异常: " + id);
+        }
+    }
+    
+    /**
+     * 读取指定长度的字符串
+     * @param length 字节长度
+     * @return 字符串内容
+     * @throws IOException 读取失败
+     */
+    private String readString(int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        AdbProtocol.readFully(channel, buffer);
+        return new String(buffer.array(), StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * SyncStat类表示远程文件状态
+     */
+    public static class SyncStat {
+        private final int mode;
+        private final long size;
+        private final long mtime;
+        private final boolean size64;
+        
+        SyncStat(int mode, long size, long mtime, boolean size64) {
+            this.mode = mode;
+            this.size = size;
+            this.mtime = mtime;
+            this.size64 = size64;
+        }
+        
+        public int getMode() {
+            return mode;
+        }
+        
+        public long getSize() {
+            return size;
+        }
+        
+        public long getMtime() {
+            return mtime;
+        }
+        
+        /**
+         * 大小是否为完整的64位值，STAT响应只有低32位
+         * @return 是否为64位大小
+         */
+        public boolean isSize64() {
+            return size64;
+        }
+        
+        /**
+         * 文件是否存在
+         * @return 是否存在
+         */
+        public boolean exists() {
+            return mode != 0;
+        }
+    }
+}
\ No newline at end of file
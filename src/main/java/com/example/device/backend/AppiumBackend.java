@@ -0,0 +1,146 @@
+package com.example.device.backend;
+
+import com.example.device.AppiumSessionManager;
+import com.example.device.ShellResult;
+import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.interactions.PointerInput;
+import org.openqa.selenium.interactions.Sequence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.function.Supplier;
+
+/**
+ * AppiumBackend类通过UiAutomator2会话与设备通信
+ * 截图使用驱动的原生截图接口，点击与滑动使用W3C动作序列，文件传输使用驱动的push/pull接口。
+ * 会话按需创建，尚未建立会话时后端视为不可用，不会因参与选择而触发会话创建
+ */
+public class AppiumBackend implements DeviceBackend {
+    private final Supplier<AppiumSessionManager> session;
+    
+    /**
+     * 构造函数
+     * @param session 会话管理器提供者
+     */
+    public AppiumBackend(Supplier<AppiumSessionManager> session) {
+        this.session = session;
+    }
+    
+    @Override
+    public String getName() {
+        return "appium";
+    }
+    
+    @Override
+    public boolean supports(DeviceOperation operation) {
+        switch (operation) {
+            case CAPTURE:
+            case INPUT:
+            case PUSH:
+            case PULL:
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    @Override
+    public boolean isAvailable() {
+        return session.get().isAlive();
+    }
+    
+    @Override
+    public ShellResult shell(String command) throws IOException {
+        throw new IOException("Appium后端不支持Shell命令");
+    }
+    
+    @Override
+    public ByteBuffer exec(String command, ByteBuffer reuse) throws IOException {
+        throw new IOException("Appium后端不支持exec");
+    }
+    
+    @Override
+    public ByteBuffer screenshot(ByteBuffer reuse) throws IOException {
+        try {
+            return ByteBuffer.wrap(driver().getScreenshotAs(OutputType.BYTES));
+        } catch (RuntimeException e) {
+            throw failure("Appium截图失败", e);
+        }
+    }
+    
+    @Override
+    public void tap(int x, int y) throws IOException {
+        PointerInput finger = new PointerInput(PointerInput.Kind.TOUCH, "finger");
+        Sequence sequence = new Sequence(finger, 0)
+                .addAction(finger.createPointerMove(Duration.ZERO, PointerInput.Origin.viewport(), x, y))
+                .addAction(finger.createPointerDown(PointerInput.MouseButton.LEFT.asArg()))
+                .addAction(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
+        perform(sequence);
+    }
+    
+    @Override
+    public void swipe(int startX, int startY, int endX, int endY, int durationMillis) throws IOException {
+        PointerInput finger = new PointerInput(PointerInput.Kind.TOUCH, "finger");
+        Sequence sequence = new Sequence(finger, 0)
+                .addAction(finger.createPointerMove(Duration.ZERO, PointerInput.Origin.viewport(), startX, startY))
+                .addAction(finger.createPointerDown(PointerInput.MouseButton.LEFT.asArg()))
+                .addAction(finger.createPointerMove(Duration.ofMillis(durationMillis), PointerInput.Origin.viewport(), endX, endY))
+                .addAction(finger.createPointerUp(PointerInput.MouseButton.LEFT.asArg()));
+        perform(sequence);
+    }
+    
+    @Override
+    public void push(Path localPath, String remotePath) throws IOException {
+        byte[] content = Files.readAllBytes(localPath);
+        try {
+            driver().pushFile(remotePath, content);
+        } catch (RuntimeException e) {
+            throw failure("Appium推送文件失败: " + remotePath, e);
+        }
+    }
+    
+    @Override
+    public void pull(String remotePath, Path localPath) throws IOException {
+        byte[] content;
+        try {
+            content = driver().pullFile(remotePath);
+        } catch (RuntimeException e) {
+            throw failure("Appium拉取文件失败: " + remotePath, e);
+        }
+        if (localPath.getParent() != null) {
+            Files.createDirectories(localPath.getParent());
+        }
+        Files.write(localPath, content);
+    }
+    
+    private void perform(Sequence sequence) throws IOException {
+        try {
+            driver().perform(Collections.singletonList(sequence));
+        } catch (RuntimeException e) {
+            throw failure("Appium手势执行失败", e);
+        }
+    }
+    
+    private AndroidDriver driver() throws IOException {
+        return session.get().getDriver();
+    }
+    
+    /**
+     * 将驱动异常转换为IO异常，服务器已丢弃会话时使会话失效，下一次调用重新创建
+     * @param message 错误信息
+     * @param cause 驱动异常
+     * @return IO异常
+     */
+    private IOException failure(String message, RuntimeException cause) {
+        if (cause instanceof NoSuchSessionException) {
+            session.get().invalidate();
+        }
+        return new IOException(message, cause);
+    }
+}
\ No newline at end of file
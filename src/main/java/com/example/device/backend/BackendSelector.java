@@ -0,0 +1,190 @@
+package com.example.device.backend;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * BackendSelector类为每次设备操作选择后端
+ * FIXED策略优先使用指定的后端，该后端不支持或不可用时依次使用其他后端；
+ * ADAPTIVE策略按操作类别统计各后端延迟的指数加权移动平均值，选择最快的可用后端，
+ * 样本不足的后端优先尝试，并以小概率探索其他后端以跟踪延迟变化。失败的调用计入惩罚延迟
+ */
+public class BackendSelector {
+    private static final Logger logger = LoggerFactory.getLogger(BackendSelector.class);
+    private static final double ALPHA = 0.2;
+    private static final int MIN_SAMPLES = 3;
+    private static final double EXPLORE_PROBABILITY = 0.05;
+    private static final long FAILURE_PENALTY_NANOS = 1_000_000_000L;
+    
+    /**
+     * Policy枚举定义后端选择策略
+     */
+    public enum Policy {
+        FIXED,
+        ADAPTIVE
+    }
+    
+    /**
+     * 在选定后端上执行的调用
+     */
+    public interface BackendCall<T> {
+        T call(DeviceBackend backend) throws IOException;
+    }
+    
+    private final List<DeviceBackend> backends;
+    private final Map<String, LatencyStats> stats = new ConcurrentHashMap<>();
+    private volatile Policy policy = Policy.FIXED;
+    private volatile DeviceBackend preferred;
+    
+    /**
+     * 构造函数
+     * @param backends 候选后端，FIXED策略下未指定首选后端时按此顺序使用
+     */
+    public BackendSelector(List<DeviceBackend> backends) {
+        this.backends = new ArrayList<>(backends);
+        this.preferred = backends.isEmpty() ? null : backends.get(0);
+    }
+    
+    /**
+     * 使用固定的首选后端
+     * @param backend 首选后端
+     */
+    public void useFixed(DeviceBackend backend) {
+        this.preferred = backend;
+        this.policy = Policy.FIXED;
+    }
+    
+    /**
+     * 按延迟自动选择后端
+     */
+    public void useAdaptive() {
+        this.policy = Policy.ADAPTIVE;
+    }
+    
+    /**
+     * 获取当前策略
+     * @return 选择策略
+     */
+    public Policy getPolicy() {
+        return policy;
+    }
+    
+    /**
+     * 在选定的后端上执行操作，并记录延迟
+     * 候选后端由{@link DeviceBackend#supports(DeviceOperation)}预先筛选，
+     * 通信失败直接抛出而不换用其他后端，避免非幂等操作被重复执行
+     * @param operation 操作类别
+     * @param call 调用
+     * @return 调用结果
+     * @throws IOException 执行失败或没有可用后端
+     */
+    public <T> T execute(DeviceOperation operation, BackendCall<T> call) throws IOException {
+        List<DeviceBackend> ranked = rank(operation);
+        if (ranked.isEmpty()) {
+            throw new IOException("没有可执行该操作的后端: " + operation);
+        }
+        DeviceBackend backend = ranked.get(0);
+        logger.trace("操作 {} 使用后端 {}", operation, backend.getName());
+        long start = System.nanoTime();
+        try {
+            T result = call.call(backend);
+            record(operation, backend, System.nanoTime() - start);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            recordFailure(operation, backend, System.nanoTime() - start);
+            throw e;
+        }
+    }
+    
+    /**
+     * 按当前策略对支持该操作的可用后端排序
+     * @param operation 操作类别
+     * @return 后端列表，首个为本次首选
+     */
+    List<DeviceBackend> rank(DeviceOperation operation) {
+        List<DeviceBackend> candidates = new ArrayList<>();
+        for (DeviceBackend backend : backends) {
+            if (backend.supports(operation) && backend.isAvailable()) {
+                candidates.add(backend);
+            }
+        }
+        if (policy == Policy.FIXED) {
+            DeviceBackend first = preferred;
+            if (first != null && candidates.remove(first)) {
+                candidates.add(0, first);
+            }
+            return candidates;
+        }
+        candidates.sort(Comparator.comparingDouble(backend -> {
+            LatencyStats entry = stats.get(key(operation, backend));
+            // 样本不足的后端排在最前，以便尽快获得延迟估计
+            return entry == null || entry.samples < MIN_SAMPLES ? -1 : entry.ewmaNanos;
+        }));
+        if (candidates.size() > 1 && ThreadLocalRandom.current().nextDouble() < EXPLORE_PROBABILITY) {
+            int index = 1 + ThreadLocalRandom.current().nextInt(candidates.size() - 1);
+            candidates.add(0, candidates.remove(index));
+        }
+        return candidates;
+    }
+    
+    /**
+     * 获取各后端在每类操作上的延迟统计
+     * @return 以"操作/后端"为键的统计，包括平均延迟（毫秒）、样本数与失败数
+     */
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        stats.forEach((key, entry) -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+            synchronized (entry) {
+                values.put("ewma_ms", entry.ewmaNanos / 1_000_000.0);
+                values.put("samples", entry.samples);
+                values.put("failures", entry.failures);
+            }
+            result.put(key, values);
+        });
+        return result;
+    }
+    
+    private void record(DeviceOperation operation, DeviceBackend backend, long elapsedNanos) {
+        LatencyStats entry = stats(operation, backend);
+        synchronized (entry) {
+            entry.ewmaNanos = entry.samples == 0 ? elapsedNanos : entry.ewmaNanos + ALPHA * (elapsedNanos - entry.ewmaNanos);
+            entry.samples++;
+        }
+    }
+    
+    private void recordFailure(DeviceOperation operation, DeviceBackend backend, long elapsedNanos) {
+        LatencyStats entry = stats(operation, backend);
+        synchronized (entry) {
+            entry.failures++;
+        }
+        record(operation, backend, elapsedNanos + FAILURE_PENALTY_NANOS);
+    }
+    
+    private LatencyStats stats(DeviceOperation operation, DeviceBackend backend) {
+        return stats.computeIfAbsent(key(operation, backend), key -> new LatencyStats());
+    }
+    
+    private static String key(DeviceOperation operation, DeviceBackend backend) {
+        return operation.name().toLowerCase(Locale.ROOT) + "/" + backend.getName();
+    }
+    
+    /**
+     * LatencyStats类记录单个后端在单类操作上的延迟
+     */
+    private static class LatencyStats {
+        private double ewmaNanos;
+        private long samples;
+        private long failures;
+    }
+}
\ No newline at end of file
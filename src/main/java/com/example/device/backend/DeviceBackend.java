@@ -0,0 +1,156 @@
+package com.example.device.backend;
+
+import com.example.device.Buffers;
+import com.example.device.ShellResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * DeviceBackend接口定义与设备通信的一种具体方式
+ * 同一设备可以同时拥有多个后端（adb进程、adb服务器套接字、Appium），
+ * 由{@link BackendSelector}按操作类别选择最快的可用后端。
+ * 后端通过{@link #supports(DeviceOperation)}声明能力，选择器只会把后端用于其声明支持的操作，
+ * 仍被直接调用的不支持的方法抛出IOException
+ */
+public interface DeviceBackend extends Closeable {
+    
+    /**
+     * 获取后端名称
+     * @return 名称，用于日志与统计
+     */
+    String getName();
+    
+    /**
+     * 是否支持指定的操作
+     * @param operation 操作类别
+     * @return 是否支持
+     */
+    boolean supports(DeviceOperation operation);
+    
+    /**
+     * 后端当前是否可以立即使用，不可用的后端不参与选择
+     * @return 是否可用
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+    
+    /**
+     * 执行Shell命令，退出码非0时不抛出异常
+     * @param command Shell命令
+     * @return 命令执行结果
+     * @throws IOException 通信失败
+     */
+    ShellResult shell(String command) throws IOException;
+    
+    /**
+     * 执行命令并读取原始字节输出
+     * @param command 命令
+     * @param reuse 可复用的缓冲区，可以为null
+     * @return 已flip的输出缓冲区
+     * @throws IOException 执行失败
+     */
+    ByteBuffer exec(String command, ByteBuffer reuse) throws IOException;
+    
+    /**
+     * 执行命令并以流的方式读取输出，调用方负责关闭
+     * 默认实现先完整读取输出，支持流式读取的后端应覆盖此方法
+     * @param command 命令
+     * @return 输出流
+     * @throws IOException 执行失败
+     */
+    default InputStream openExec(String command) throws IOException {
+        return new ByteArrayInputStream(Buffers.toArray(exec(command, null)));
+    }
+    
+    /**
+     * 执行命令并以流的方式读取输出，超过截止时间后终止命令，调用方负责关闭
+     * 默认实现不设截止时间，能够终止命令的后端应覆盖此方法
+     * @param command 命令
+     * @param timeoutMillis 截止时间（毫秒）
+     * @return 输出流
+     * @throws IOException 执行失败
+     */
+    default InputStream openExec(String command, long timeoutMillis) throws IOException {
+        return openExec(command);
+    }
+    
+    /**
+     * 截取PNG屏幕截图
+     * @param reuse 可复用的缓冲区，可以为null
+     * @return 已flip的PNG数据
+     * @throws IOException 截图失败
+     */
+    ByteBuffer screenshot(ByteBuffer reuse) throws IOException;
+    
+    /**
+     * 点击
+     * @param x X坐标
+     * @param y Y坐标
+     * @throws IOException 执行失败
+     */
+    void tap(int x, int y) throws IOException;
+    
+    /**
+     * 滑动
+     * @param startX 起始X坐标
+     * @param startY 起始Y坐标
+     * @param endX 结束X坐标
+     * @param endY 结束Y坐标
+     * @param durationMillis 持续时间（毫秒）
+     * @throws IOException 执行失败
+     */
+    void swipe(int startX, int startY, int endX, int endY, int durationMillis) throws IOException;
+    
+    /**
+     * 推送本地文件到设备
+     * @param localPath 本地文件
+     * @param remotePath 设备上的目标路径
+     * @throws IOException 传输失败
+     */
+    void push(Path localPath, String remotePath) throws IOException;
+    
+    /**
+     * 从设备拉取文件
+     * @param remotePath 设备上的路径
+     * @param localPath 本地目标文件
+     * @throws IOException 传输失败
+     */
+    void pull(String remotePath, Path localPath) throws IOException;
+    
+    /**
+     * 读取getprop的全量输出
+     * @return getprop原始输出
+     * @throws IOException 读取失败
+     */
+    default String dumpProperties() throws IOException {
+        return checked(shell("getprop"), "getprop").getOutput();
+    }
+    
+    /**
+     * 释放后端持有的资源
+     */
+    @Override
+    default void close() {
+    }
+    
+    /**
+     * 检查Shell命令的退出码，非0时抛出异常
+     * @param result 命令执行结果
+     * @param command 命令，用于错误信息
+     * @return 原结果
+     * @throws IOException 退出码非0
+     */
+    static ShellResult checked(ShellResult result, String command) throws IOException {
+        if (!result.isSuccess()) {
+            throw new IOException("Shell命令执行失败，退出码: " + result.getExitCode() + ", 命令: " + command
+                    + ", 输出: " + result.getOutput().trim());
+        }
+        return result;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.example.device.backend;
+
+/**
+ * DeviceOperation枚举定义设备后端可承担的操作类别，后端选择按类别分别统计延迟
+ */
+public enum DeviceOperation {
+    /**
+     * 执行Shell命令并获取退出码
+     */
+    SHELL,
+    
+    /**
+     * 以exec方式读取命令的原始字节输出
+     */
+    EXEC,
+    
+    /**
+     * 截取PNG屏幕截图
+     */
+    CAPTURE,
+    
+    /**
+     * 点击与滑动
+     */
+    INPUT,
+    
+    /**
+     * 推送文件到设备
+     */
+    PUSH,
+    
+    /**
+     * 从设备拉取文件
+     */
+    PULL,
+    
+    /**
+     * 读取系统属性
+     */
+    PROPERTIES
+}
\ No newline at end of file
@@ -0,0 +1,179 @@
+package com.example.device.backend;
+
+import com.example.device.AdbShellSession;
+import com.example.device.ShellResult;
+import com.example.device.exec.CommandExecutor;
+import com.example.device.exec.CommandResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ProcessBackend类通过启动adb客户端进程与设备通信
+ * Shell命令复用长驻的adb shell会话，其余操作每次启动一个带截止时间的adb进程
+ */
+public class ProcessBackend implements DeviceBackend {
+    private static final Logger logger = LoggerFactory.getLogger(ProcessBackend.class);
+    
+    public static final long COMMAND_TIMEOUT_MILLIS = 60_000;
+    public static final long EXEC_TIMEOUT_MILLIS = 30_000;
+    public static final long TRANSFER_TIMEOUT_MILLIS = 10 * 60_000;
+    
+    private final String deviceId;
+    private final CommandExecutor executor;
+    private volatile String adbPath;
+    private AdbShellSession shellSession;
+    
+    /**
+     * 构造函数
+     * @param adbPath ADB可执行文件路径
+     * @param deviceId 设备ID
+     */
+    public ProcessBackend(String adbPath, String deviceId) {
+        this(adbPath, deviceId, CommandExecutor.getDefault());
+    }
+    
+    /**
+     * 构造函数
+     * @param adbPath ADB可执行文件路径
+     * @param deviceId 设备ID
+     * @param executor 外部命令执行器
+     */
+    public ProcessBackend(String adbPath, String deviceId, CommandExecutor executor) {
+        this.adbPath = adbPath;
+        this.deviceId = deviceId;
+        this.executor = executor;
+    }
+    
+    @Override
+    public String getName() {
+        return "process";
+    }
+    
+    @Override
+    public boolean supports(DeviceOperation operation) {
+        return true;
+    }
+    
+    @Override
+    public ShellResult shell(String command) throws IOException {
+        return getShellSession().execute(command);
+    }
+    
+    @Override
+    public ByteBuffer exec(String command, ByteBuffer reuse) throws IOException {
+        return executor.runBinary(Arrays.asList(adbPath, "-s", deviceId, "exec-out", command), EXEC_TIMEOUT_MILLIS, reuse);
+    }
+    
+    @Override
+    public InputStream openExec(String command) throws IOException {
+        return executor.openStream(Arrays.asList(adbPath, "-s", deviceId, "exec-out", command));
+    }
+    
+    @Override
+    public InputStream openExec(String command, long timeoutMillis) throws IOException {
+        return executor.openStream(Arrays.asList(adbPath, "-s", deviceId, "exec-out", command), timeoutMillis);
+    }
+    
+    @Override
+    public ByteBuffer screenshot(ByteBuffer reuse) throws IOException {
+        return exec("screencap -p", reuse);
+    }
+    
+    @Override
+    public void tap(int x, int y) throws IOException {
+        String command = "input tap " + x + " " + y;
+        DeviceBackend.checked(shell(command), command);
+    }
+    
+    @Override
+    public void swipe(int startX, int startY, int endX, int endY, int durationMillis) throws IOException {
+        String command = "input swipe " + startX + " " + startY + " " + endX + " " + endY + " " + durationMillis;
+        DeviceBackend.checked(shell(command), command);
+    }
+    
+    @Override
+    public void push(Path localPath, String remotePath) throws IOException {
+        runAdbCommand(TRANSFER_TIMEOUT_MILLIS, "push", localPath.toString(), remotePath);
+    }
+    
+    @Override
+    public void pull(String remotePath, Path localPath) throws IOException {
+        runAdbCommand(TRANSFER_TIMEOUT_MILLIS, "pull", remotePath, localPath.toString());
+    }
+    
+    /**
+     * 以默认截止时间运行ADB命令
+     * @param args 命令参数
+     * @return 标准输出
+     * @throws IOException 命令执行失败或超时
+     */
+    public String runAdbCommand(String... args) throws IOException {
+        return runAdbCommand(COMMAND_TIMEOUT_MILLIS, args);
+    }
+    
+    /**
+     * 运行ADB命令，超时后终止adb及其子进程
+     * @param timeoutMillis 截止时间（毫秒）
+     * @param args 命令参数
+     * @return 标准输出
+     * @throws IOException 命令执行失败或超时
+     */
+    public String runAdbCommand(long timeoutMillis, String... args) throws IOException {
+        List<String> arguments = new ArrayList<>(Arrays.asList(adbPath, "-s", deviceId));
+        arguments.addAll(Arrays.asList(args));
+        String fullCommand = String.join(" ", arguments);
+        logger.debug("运行ADB命令: {}", fullCommand);
+        
+        CommandResult result = executor.run(arguments, timeoutMillis);
+        if (!result.isSuccess()) {
+            throw new IOException("ADB命令执行失败，退出码: " + result.getExitCode() + ", 命令: " + fullCommand
+                    + ", 输出: " + (result.getStdout() + result.getStderr()).trim());
+        }
+        
+        logger.debug("ADB命令输出: {}，耗时: {} ms", result.getStdout().trim(), result.getElapsedMillis());
+        return result.getStdout();
+    }
+    
+    /**
+     * 设置ADB可执行文件路径，已有的Shell会话会被关闭
+     * @param adbPath ADB可执行文件路径
+     */
+    public synchronized void setAdbPath(String adbPath) {
+        this.adbPath = adbPath;
+        closeSession();
+    }
+    
+    /**
+     * 关闭长驻Shell会话
+     */
+    @Override
+    public synchronized void close() {
+        closeSession();
+    }
+    
+    private void closeSession() {
+        if (shellSession != null) {
+            shellSession.close();
+            shellSession = null;
+        }
+    }
+    
+    /**
+     * 获取长驻adb shell会话，首次调用时创建
+     * @return adb shell会话
+     */
+    private synchronized AdbShellSession getShellSession() {
+        if (shellSession == null) {
+            shellSession = new AdbShellSession(adbPath, deviceId, COMMAND_TIMEOUT_MILLIS);
+        }
+        return shellSession;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,93 @@
+package com.example.device.backend;
+
+import com.example.device.ShellResult;
+import com.example.device.adb.AdbClient;
+import com.example.device.adb.AdbSyncSession;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * SocketBackend类通过直连adb服务器的套接字与设备通信，不启动adb进程
+ */
+public class SocketBackend implements DeviceBackend {
+    private final AdbClient adbClient;
+    private final String deviceId;
+    
+    /**
+     * 构造函数
+     * @param adbClient adb服务器客户端
+     * @param deviceId 设备ID
+     */
+    public SocketBackend(AdbClient adbClient, String deviceId) {
+        this.adbClient = adbClient;
+        this.deviceId = deviceId;
+    }
+    
+    @Override
+    public String getName() {
+        return "socket";
+    }
+    
+    @Override
+    public boolean supports(DeviceOperation operation) {
+        return true;
+    }
+    
+    @Override
+    public ShellResult shell(String command) throws IOException {
+        return adbClient.shell(deviceId, command);
+    }
+    
+    @Override
+    public ByteBuffer exec(String command, ByteBuffer reuse) throws IOException {
+        return adbClient.exec(deviceId, command, reuse);
+    }
+    
+    @Override
+    public InputStream openExec(String command) throws IOException {
+        return openExec(command, 0);
+    }
+    
+    @Override
+    public InputStream openExec(String command, long timeoutMillis) throws IOException {
+        return adbClient.openExec(deviceId, command, timeoutMillis);
+    }
+    
+    @Override
+    public ByteBuffer screenshot(ByteBuffer reuse) throws IOException {
+        return exec("screencap -p", reuse);
+    }
+    
+    @Override
+    public void tap(int x, int y) throws IOException {
+        String command = "input tap " + x + " " + y;
+        DeviceBackend.checked(shell(command), command);
+    }
+    
+    @Override
+    public void swipe(int startX, int startY, int endX, int endY, int durationMillis) throws IOException {
+        String command = "input swipe " + startX + " " + startY + " " + endX + " " + endY + " " + durationMillis;
+        DeviceBackend.checked(shell(command), command);
+    }
+    
+    @Override
+    public void push(Path localPath, String remotePath) throws IOException {
+        try (AdbSyncSession sync = adbClient.openSync(deviceId)) {
+            sync.push(localPath, remotePath, 0644);
+        }
+    }
+    
+    @Override
+    public void pull(String remotePath, Path localPath) throws IOException {
+        if (localPath.getParent() != null) {
+            Files.createDirectories(localPath.getParent());
+        }
+        try (AdbSyncSession sync = adbClient.openSync(deviceId)) {
+            sync.pull(remotePath, localPath);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,481 @@
+package com.example.device.exec;
+
+import com.example.device.Buffers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CommandExecutor类以截止时间运行外部命令
+ * 标准输出与错误输出由独立线程同时读取，避免任一管道写满导致子进程阻塞；
+ * 超时、取消或调用线程被中断时终止整个进程树（包括adb派生的子进程）。
+ * 同时按阶段统计启动、执行与输出读取耗时
+ */
+public class CommandExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(CommandExecutor.class);
+    private static final CommandExecutor DEFAULT = new CommandExecutor(60_000, 4 * 1024 * 1024, 64 * 1024);
+    
+    private static final ExecutorService DRAINERS = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger();
+        
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "command-drain-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private static final ScheduledExecutorService DEADLINES = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "command-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final long defaultTimeoutMillis;
+    private final int maxStdoutBytes;
+    private final int maxStderrBytes;
+    private final Metrics metrics = new Metrics();
+    
+    /**
+     * 构造函数
+     * @param defaultTimeoutMillis 未指定时使用的截止时间（毫秒）
+     * @param maxStdoutBytes 文本模式下标准输出保留的最大字节数
+     * @param maxStderrBytes 错误输出保留的最大字节数
+     */
+    public CommandExecutor(long defaultTimeoutMillis, int maxStdoutBytes, int maxStderrBytes) {
+        this.defaultTimeoutMillis = defaultTimeoutMillis;
+        this.maxStdoutBytes = maxStdoutBytes;
+        this.maxStderrBytes = maxStderrBytes;
+    }
+    
+    /**
+     * 获取进程内共享的执行器
+     * @return 默认执行器
+     */
+    public static CommandExecutor getDefault() {
+        return DEFAULT;
+    }
+    
+    /**
+     * 以默认截止时间运行命令
+     * @param command 命令及参数
+     * @return 执行结果，退出码非0时不抛出异常
+     * @throws IOException 启动失败、超时或被中断
+     */
+    public CommandResult run(List<String> command) throws IOException {
+        return run(command, defaultTimeoutMillis);
+    }
+    
+    /**
+     * 运行命令并等待结束
+     * @param command 命令及参数
+     * @param timeoutMillis 截止时间（毫秒）
+     * @return 执行结果，退出码非0时不抛出异常
+     * @throws IOException 启动失败、超时或被中断
+     */
+    public CommandResult run(List<String> command, long timeoutMillis) throws IOException {
+        return start(command, timeoutMillis).await();
+    }
+    
+    /**
+     * 运行命令，将标准输出完整读入可复用的缓冲区，适用于exec-out等二进制输出
+     * @param command 命令及参数
+     * @param timeoutMillis 截止时间（毫秒）
+     * @param reuse 可复用的缓冲区，可以为null
+     * @return 已flip的标准输出
+     * @throws IOException 启动失败、超时、被中断或退出码非0
+     */
+    public ByteBuffer runBinary(List<String> command, long timeoutMillis, ByteBuffer reuse) throws IOException {
+        Handle handle = launch(command, timeoutMillis, process -> {
+            try (ReadableByteChannel channel = Channels.newChannel(process.getInputStream())) {
+                return Buffers.readToEnd(channel, reuse);
+            }
+        });
+        ByteBuffer output = (ByteBuffer) handle.awaitOutput();
+        if (handle.exitCode != 0) {
+            throw new IOException("命令执行失败，退出码: " + handle.exitCode + ", 命令: " + String.join(" ", command)
+                    + ", 错误输出: " + handle.stderrText().trim());
+        }
+        return output;
+    }
+    
+    /**
+     * 启动命令，不等待结束
+     * @param command 命令及参数
+     * @param timeoutMillis 截止时间（毫秒）
+     * @return 可等待、可取消的句柄
+     * @throws IOException 启动失败
+     */
+    public Handle start(List<String> command, long timeoutMillis) throws IOException {
+        return launch(command, timeoutMillis, process -> {
+            BoundedSink sink = new BoundedSink(maxStdoutBytes);
+            sink.drain(process.getInputStream());
+            return sink;
+        });
+    }
+    
+    /**
+     * 启动长时间运行的命令并以流的方式读取标准输出，适用于logcat等不会自行结束的命令
+     * 不设截止时间，错误输出在后台读取后丢弃；关闭返回的流时终止整个进程树
+     * @param command 命令及参数
+     * @return 标准输出流
+     * @throws IOException 启动失败
+     */
+    public InputStream openStream(List<String> command) throws IOException {
+        return openStream(command, 0);
+    }
+    
+    /**
+     * 启动命令并以流的方式读取标准输出，超过截止时间仍未关闭流时终止整个进程树，
+     * 之后的读取抛出{@link CommandTimeoutException}
+     * @param command 命令及参数
+     * @param timeoutMillis 截止时间（毫秒），不大于0时不设截止时间
+     * @return 标准输出流
+     * @throws IOException 启动失败
+     */
+    public InputStream openStream(List<String> command, long timeoutMillis) throws IOException {
+        Process process;
+        try {
+            process = new ProcessBuilder(new ArrayList<>(command)).start();
+        } catch (IOException e) {
+            metrics.failed.incrementAndGet();
+            throw e;
+        }
+        metrics.started.incrementAndGet();
+        logger.debug("启动流式命令: {}，pid: {}", String.join(" ", command), process.pid());
+        process.getOutputStream().close();
+        DRAINERS.execute(() -> {
+            try {
+                new BoundedSink(0).drain(process.getErrorStream());
+            } catch (IOException e) {
+                logger.debug("读取错误输出中断: {}", e.getMessage());
+            }
+        });
+        AtomicBoolean timedOut = new AtomicBoolean();
+        ScheduledFuture<?> deadline = timeoutMillis <= 0 ? null : DEADLINES.schedule(() -> {
+            timedOut.set(true);
+            metrics.timedOut.incrementAndGet();
+            logger.warn("命令执行超时（{} 毫秒），已终止进程树: {}", timeoutMillis, String.join(" ", command));
+            killTree(process);
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        return new FilterInputStream(process.getInputStream()) {
+            @Override
+            public int read() throws IOException {
+                try {
+                    return checkDeadline(super.read());
+                } catch (IOException e) {
+                    throw timedOut.get() ? new CommandTimeoutException(command, timeoutMillis) : e;
+                }
+            }
+            
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                try {
+                    return checkDeadline(super.read(buffer, offset, length));
+                } catch (IOException e) {
+                    throw timedOut.get() ? new CommandTimeoutException(command, timeoutMillis) : e;
+                }
+            }
+            
+            @Override
+            public void close() throws IOException {
+                if (deadline != null) {
+                    deadline.cancel(false);
+                }
+                try {
+                    super.close();
+                } finally {
+                    killTree(process);
+                }
+            }
+            
+            // 进程被截止时间终止后读到的流末尾不是正常结束
+            private int checkDeadline(int read) throws IOException {
+                if (read < 0 && timedOut.get()) {
+                    throw new CommandTimeoutException(command, timeoutMillis);
+                }
+                return read;
+            }
+        };
+    }
+    
+    /**
+     * 获取执行统计
+     * @return 统计值，耗时单位为毫秒
+     */
+    public Map<String, Object> getMetrics() {
+        return metrics.snapshot();
+    }
+    
+    private Handle launch(List<String> command, long timeoutMillis, OutputReader reader) throws IOException {
+        long start = System.nanoTime();
+        Process process;
+        try {
+            process = new ProcessBuilder(new ArrayList<>(command)).start();
+        } catch (IOException e) {
+            metrics.failed.incrementAndGet();
+            throw e;
+        }
+        long spawned = System.nanoTime();
+        metrics.record(metrics.spawnNanos, metrics.maxSpawnNanos, spawned - start);
+        metrics.started.incrementAndGet();
+        logger.debug("启动命令: {}，pid: {}", String.join(" ", command), process.pid());
+        
+        process.getOutputStream().close();
+        BoundedSink stderr = new BoundedSink(maxStderrBytes);
+        CompletableFuture<Void> stderrDrain = CompletableFuture.runAsync(() -> {
+            try {
+                stderr.drain(process.getErrorStream());
+            } catch (IOException e) {
+                logger.debug("读取错误输出中断: {}", e.getMessage());
+            }
+        }, DRAINERS);
+        CompletableFuture<Object> stdoutDrain = CompletableFuture.supplyAsync(() -> {
+            try {
+                return reader.read(process);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, DRAINERS);
+        return new Handle(command, process, timeoutMillis, start, spawned, stdoutDrain, stderrDrain, stderr);
+    }
+    
+    /**
+     * 终止进程及其全部子进程
+     * @param process 进程
+     */
+    static void killTree(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+    
+    /**
+     * 标准输出读取方式
+     */
+    private interface OutputReader {
+        Object read(Process process) throws IOException;
+    }
+    
+    /**
+     * Handle类表示一个正在运行的命令
+     */
+    public class Handle {
+        private final List<String> command;
+        private final Process process;
+        private final long deadline;
+        private final long timeoutMillis;
+        private final long startNanos;
+        private final long spawnedNanos;
+        private final CompletableFuture<Object> stdoutDrain;
+        private final CompletableFuture<Void> stderrDrain;
+        private final BoundedSink stderr;
+        private volatile boolean cancelled;
+        private int exitCode = -1;
+        
+        private Handle(List<String> command, Process process, long timeoutMillis, long startNanos, long spawnedNanos,
+                       CompletableFuture<Object> stdoutDrain, CompletableFuture<Void> stderrDrain, BoundedSink stderr) {
+            this.command = command;
+            this.process = process;
+            this.timeoutMillis = timeoutMillis;
+            this.deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            this.startNanos = startNanos;
+            this.spawnedNanos = spawnedNanos;
+            this.stdoutDrain = stdoutDrain;
+            this.stderrDrain = stderrDrain;
+            this.stderr = stderr;
+        }
+        
+        /**
+         * 取消命令并终止进程树
+         */
+        public void cancel() {
+            cancelled = true;
+            killTree(process);
+        }
+        
+        /**
+         * 获取进程ID
+         * @return 进程ID
+         */
+        public long getPid() {
+            return process.pid();
+        }
+        
+        /**
+         * 等待命令结束并读取输出
+         * @return 执行结果
+         * @throws IOException 超时、取消或被中断
+         */
+        public CommandResult await() throws IOException {
+            BoundedSink stdout = (BoundedSink) awaitOutput();
+            return new CommandResult(exitCode, stdout.toByteArray(), stdout.truncated,
+                    stderr.toByteArray(), stderr.truncated, System.nanoTime() - startNanos);
+        }
+        
+        private Object awaitOutput() throws IOException {
+            try {
+                if (!process.waitFor(remainingNanos(), TimeUnit.NANOSECONDS)) {
+                    throw timeout();
+                }
+                long exited = System.nanoTime();
+                exitCode = process.exitValue();
+                // 进程退出后其子进程可能仍持有管道，输出读取同样受截止时间约束
+                Object output = stdoutDrain.get(Math.max(remainingNanos(), TimeUnit.SECONDS.toNanos(1)), TimeUnit.NANOSECONDS);
+                stderrDrain.get(Math.max(remainingNanos(), TimeUnit.SECONDS.toNanos(1)), TimeUnit.NANOSECONDS);
+                long drained = System.nanoTime();
+                metrics.record(metrics.execNanos, metrics.maxExecNanos, exited - spawnedNanos);
+                metrics.record(metrics.drainNanos, metrics.maxDrainNanos, drained - exited);
+                if (cancelled) {
+                    throw cancelledException();
+                }
+                metrics.completed.incrementAndGet();
+                return output;
+            } catch (InterruptedException e) {
+                killTree(process);
+                metrics.cancelled.incrementAndGet();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("等待命令时被中断: " + String.join(" ", command));
+            } catch (TimeoutException e) {
+                throw timeout();
+            } catch (ExecutionException e) {
+                killTree(process);
+                if (cancelled) {
+                    throw cancelledException();
+                }
+                metrics.failed.incrementAndGet();
+                Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+                throw cause instanceof IOException ? (IOException) cause : new IOException("读取命令输出失败", cause);
+            }
+        }
+        
+        private String stderrText() {
+            return new String(stderr.toByteArray(), StandardCharsets.UTF_8);
+        }
+        
+        private long remainingNanos() {
+            return deadline - System.nanoTime();
+        }
+        
+        private CommandTimeoutException timeout() {
+            killTree(process);
+            if (cancelled) {
+                metrics.cancelled.incrementAndGet();
+            } else {
+                metrics.timedOut.incrementAndGet();
+                logger.warn("命令执行超时（{} 毫秒），已终止进程树: {}", timeoutMillis, String.join(" ", command));
+            }
+            return new CommandTimeoutException(command, timeoutMillis);
+        }
+        
+        private IOException cancelledException() {
+            metrics.cancelled.incrementAndGet();
+            IOException exception = new InterruptedIOException("命令已取消: " + String.join(" ", command));
+            exception.initCause(new CancellationException());
+            return exception;
+        }
+    }
+    
+    /**
+     * BoundedSink类读取输入流直到结束，只保留前若干字节，其余字节读取后丢弃
+     */
+    private static class BoundedSink {
+        private final int limit;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private volatile boolean truncated;
+        
+        BoundedSink(int limit) {
+            this.limit = limit;
+        }
+        
+        void drain(InputStream input) throws IOException {
+            byte[] chunk = new byte[8192];
+            try (InputStream stream = input) {
+                int read;
+                while ((read = stream.read(chunk)) >= 0) {
+                    synchronized (buffer) {
+                        int keep = Math.min(read, limit - buffer.size());
+                        if (keep > 0) {
+                            buffer.write(chunk, 0, keep);
+                        }
+                        if (keep < read) {
+                            truncated = true;
+                        }
+                    }
+                }
+            }
+        }
+        
+        byte[] toByteArray() {
+            synchronized (buffer) {
+                return buffer.toByteArray();
+            }
+        }
+    }
+    
+    /**
+     * Metrics类累计命令执行统计
+     */
+    private static class Metrics {
+        private final AtomicLong started = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong timedOut = new AtomicLong();
+        private final AtomicLong cancelled = new AtomicLong();
+        private final AtomicLong spawnNanos = new AtomicLong();
+        private final AtomicLong execNanos = new AtomicLong();
+        private final AtomicLong drainNanos = new AtomicLong();
+        private final AtomicLong maxSpawnNanos = new AtomicLong();
+        private final AtomicLong maxExecNanos = new AtomicLong();
+        private final AtomicLong maxDrainNanos = new AtomicLong();
+        
+        void record(AtomicLong total, AtomicLong max, long nanos) {
+            total.addAndGet(nanos);
+            max.accumulateAndGet(nanos, Math::max);
+        }
+        
+        Map<String, Object> snapshot() {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("started", started.get());
+            values.put("completed", completed.get());
+            values.put("failed", failed.get());
+            values.put("timed_out", timedOut.get());
+            values.put("cancelled", cancelled.get());
+            long count = Math.max(1, started.get());
+            values.put("spawn_avg_ms", spawnNanos.get() / count / 1e6);
+            values.put("spawn_max_ms", maxSpawnNanos.get() / 1e6);
+            long finished = Math.max(1, completed.get() + failed.get());
+            values.put("exec_avg_ms", execNanos.get() / finished / 1e6);
+            values.put("exec_max_ms", maxExecNanos.get() / 1e6);
+            values.put("drain_avg_ms", drainNanos.get() / finished / 1e6);
+            values.put("drain_max_ms", maxDrainNanos.get() / 1e6);
+            return values;
+        }
+    }
+}
\ No newline at end of file
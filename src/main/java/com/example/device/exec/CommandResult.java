@@ -0,0 +1,71 @@
+package com.example.device.exec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CommandResult类表示一次外部命令的执行结果
+ * 标准输出与错误输出分别保存在有上限的缓冲区中，超出部分被丢弃并标记为截断
+ */
+public class CommandResult {
+    private final int exitCode;
+    private final byte[] stdout;
+    private final byte[] stderr;
+    private final boolean stdoutTruncated;
+    private final boolean stderrTruncated;
+    private final long elapsedNanos;
+    
+    CommandResult(int exitCode, byte[] stdout, boolean stdoutTruncated, byte[] stderr, boolean stderrTruncated, long elapsedNanos) {
+        this.exitCode = exitCode;
+        this.stdout = stdout;
+        this.stdoutTruncated = stdoutTruncated;
+        this.stderr = stderr;
+        this.stderrTruncated = stderrTruncated;
+        this.elapsedNanos = elapsedNanos;
+    }
+    
+    public int getExitCode() {
+        return exitCode;
+    }
+    
+    public boolean isSuccess() {
+        return exitCode == 0;
+    }
+    
+    public byte[] getStdoutBytes() {
+        return stdout;
+    }
+    
+    public String getStdout() {
+        return new String(stdout, StandardCharsets.UTF_8);
+    }
+    
+    public String getStderr() {
+        return new String(stderr, StandardCharsets.UTF_8);
+    }
+    
+    public boolean isStdoutTruncated() {
+        return stdoutTruncated;
+    }
+    
+    public boolean isStderrTruncated() {
+        return stderrTruncated;
+    }
+    
+    /**
+     * 获取从启动到输出读取完毕的耗时
+     * @return 耗时（毫秒）
+     */
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+    
+    @Override
+    public String toString() {
+        return "CommandResult{" +
+                "exitCode=" + exitCode +
+                ", stdout=" + stdout.length + " bytes" + (stdoutTruncated ? " (truncated)" : "") +
+                ", stderr=" + stderr.length + " bytes" + (stderrTruncated ? " (truncated)" : "") +
+                ", elapsedMillis=" + getElapsedMillis() +
+                '}';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,32 @@
+package com.example.device.exec;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * CommandTimeoutException表示外部命令超过截止时间被终止
+ */
+public class CommandTimeoutException extends IOException {
+    private static final long serialVersionUID = 1L;
+    
+    private final List<String> command;
+    private final long timeoutMillis;
+    
+    public CommandTimeoutException(List<String> command, long timeoutMillis) {
+        this("命令执行超时（" + timeoutMillis + " 毫秒），已终止进程树: " + String.join(" ", command), command, timeoutMillis);
+    }
+    
+    public CommandTimeoutException(String message, List<String> command, long timeoutMillis) {
+        super(message);
+        this.command = command;
+        this.timeoutMillis = timeoutMillis;
+    }
+    
+    public List<String> getCommand() {
+        return command;
+    }
+    
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.example.tools;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ToolResult类表示工具执行结果
+ */
+public class ToolResult {
+    private String status;
+    private String message;
+    private Map<String, Object> data;
+    
+    public ToolResult() {
+        this.status = "success";
+        this.data = new HashMap<>();
+    }
+    
+    public ToolResult(String status, String message) {
+        this();
+        this.status = status;
+        this.message = message;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+    
+    public void setMessage(String message) {
+        this.message = message;
+    }
+    
+    public Map<String, Object> getData() {
+        return data;
+    }
+    
+    public void setData(Map<String, Object> data) {
+        this.data = data;
+    }
+    
+    public void addData(String key, Object value) {
+        this.data.put(key, value);
+    }
+}
\ No newline at end of file
@@ -3,22 +3,75 @@ package com.example.tools;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import com.example.device.AndroidDevice;
+import com.example.device.ApkFile;
+import com.example.device.ApkInstaller;
+import com.example.device.AsyncAndroidDevice;
+import com.example.device.DevicePool;
+import com.example.device.FileTransfer;
+import com.example.device.FrameFingerprint;
+import com.example.device.FrameStream;
+import com.example.device.InputAction;
+import com.example.device.InputBackend;
+import com.example.device.LogEntry;
+import com.example.device.LogcatStream;
+import com.example.device.RawFrame;
+import com.example.device.ShellResult;
+import com.example.device.TelemetrySampler;
+import com.example.device.exec.CommandExecutor;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.vision.Element;
+import com.example.vision.ElementIndex;
+import com.example.vision.UiHierarchyParser;
 import com.example.vision.VisionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
 /**
  * ToolsService类负责管理和调用各种ADB工具
+ * 单设备的工具调用在设备的异步通道上执行：只读工具走读取通道，其余按提交顺序在动作通道上串行，
+ * 同步与异步调用共享同一顺序
  */
 public class ToolsService {
     private static final Logger logger = LoggerFactory.getLogger(ToolsService.class);
+    private static final Set<String> READ_ONLY_TOOLS = Set.of(
+            "get_device_info", "get_battery_info", "get_metrics", "get_telemetry", "logcat_query");
+    private static final AtomicInteger TOOL_THREAD_COUNTER = new AtomicInteger();
+    // 每台设备最多同时占用两个线程（动作与读取通道），线程数随设备数增长，不会因共享固定线程池而互相排队
+    private static final ExecutorService TOOL_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "tool-call-" + TOOL_THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
     
     private Map<String, Tool> tools;
     private AndroidDevice device;
+    private AsyncAndroidDevice asyncDevice;
     private VisionService visionService;
+    private DevicePool devicePool;
+    private final Map<String, ToolsService> deviceServices = new ConcurrentHashMap<>();
     
     /**
      * 构造函数
@@ -26,6 +79,7 @@ public class ToolsService {
      */
     public ToolsService(AndroidDevice device) {
         this.device = device;
+        this.asyncDevice = new AsyncAndroidDevice(device, TOOL_EXECUTOR);
         this.tools = new HashMap<>();
         logger.info("ToolsService初始化，设备: {}", device.getDeviceId());
         
@@ -44,6 +98,22 @@ public class ToolsService {
         logger.info("ToolsService初始化，包含视觉服务");
     }
     
+    /**
+     * 构造函数，多设备模式
+     * 设备相关的工具调用通过device_id或device_selector参数路由到池中的设备，
+     * 两者都未提供时分配任意空闲设备
+     * @param devicePool 设备池
+     * @param visionService 视觉服务实例，可以为null
+     */
+    public ToolsService(DevicePool devicePool, VisionService visionService) {
+        this.devicePool = devicePool;
+        this.visionService = visionService;
+        this.tools = new HashMap<>();
+        logger.info("ToolsService初始化，多设备模式");
+        registerTool("list_devices", new ListDevicesTool(devicePool));
+        registerTool("app_install_all", new AppInstallAllTool(devicePool));
+    }
+    
     /**
      * 注册默认工具
      */
@@ -56,6 +126,10 @@ public class ToolsService {
         registerTool("app_start", new AppStartTool(device));
         registerTool("app_stop", new AppStopTool(device));
         
+        // 文件传输工具
+        registerTool("file_push", new FilePushTool(device));
+        registerTool("file_pull", new FilePullTool(device));
+        
         // 屏幕控制工具
         registerTool("screen_unlock", new ScreenUnlockTool(device));
         registerTool("screen_lock", new ScreenLockTool(device));
@@ -64,14 +138,27 @@ public class ToolsService {
         registerTool("input_text", new InputTextTool(device));
         registerTool("input_key", new InputKeyTool(device));
         registerTool("tap", new TapTool(device));
+        registerTool("long_press", new LongPressTool(device));
         registerTool("swipe", new SwipeTool(device));
+        registerTool("input_batch", new InputBatchTool(device));
         
         // 系统信息工具
         registerTool("get_device_info", new GetDeviceInfoTool(device));
         registerTool("get_battery_info", new BatteryInfoTool(device));
+        registerTool("get_metrics", new MetricsTool(device));
+        registerTool("get_telemetry", new TelemetryTool(device));
+        
+        // 日志工具
+        registerTool("logcat_start", new LogcatStartTool(device));
+        registerTool("logcat_query", new LogcatQueryTool(device));
+        registerTool("logcat_stop", new LogcatStopTool(device));
         
         // 截图工具
         registerTool("screenshot", new ScreenshotTool(device));
+        registerTool("frame_stream", new FrameStreamTool(device));
+        
+        // UI层级工具
+        registerTool("dump_ui", new DumpUiTool(device));
         
         // 视觉相关工具
         if (visionService != null) {
@@ -99,24 +186,152 @@ public class ToolsService {
      * @throws Exception 执行异常
      */
     public ToolResult callTool(String name, Map<String, Object> params) throws Exception {
+        return callTool(name, params, null);
+    }
+    
+    /**
+     * 调用工具，执行过程中的部分输出通过监听器转发
+     * @param name 工具名称
+     * @param params 工具参数
+     * @param progress 进度监听器，可以为null
+     * @return 工具执行结果
+     * @throws Exception 执行异常
+     */
+    public ToolResult callTool(String name, Map<String, Object> params, ProgressListener progress) throws Exception {
         logger.info("调用工具: {}, 参数: {}", name, params);
         
         Tool tool = tools.get(name);
+        if (tool == null && devicePool != null) {
+            return callPooledTool(name, params, progress);
+        }
         if (tool == null) {
             throw new IllegalArgumentException("工具不存在: " + name);
         }
         
-        ToolResult result = tool.execute(params);
+        ToolResult result;
+        if (asyncDevice == null) {
+            result = tool.execute(params, progress);
+        } else {
+            try {
+                result = submit(name, () -> tool.execute(params, progress)).join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
         logger.info("工具调用完成: {}, 结果: {}", name, result.getStatus());
         return result;
     }
     
+    /**
+     * 异步调用工具，立即返回
+     * 单设备模式下在设备的异步通道上执行，与同步调用保持提交顺序；
+     * 多设备模式下在后台线程中申请设备后调用
+     * @param name 工具名称
+     * @param params 工具参数
+     * @param progress 进度监听器，在后台线程中调用，可以为null
+     * @return 工具执行结果的Future，工具不存在或执行失败时以异常完成
+     */
+    public CompletableFuture<ToolResult> callToolAsync(String name, Map<String, Object> params, ProgressListener progress) {
+        logger.info("异步调用工具: {}, 参数: {}", name, params);
+        
+        Tool tool = tools.get(name);
+        if (tool == null && devicePool != null) {
+            return submit(name, () -> callPooledTool(name, params, progress));
+        }
+        if (tool == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("工具不存在: " + name));
+        }
+        return submit(name, () -> tool.execute(params, progress));
+    }
+    
+    /**
+     * 提交工具调用：单设备模式下只读工具使用读取通道，其余使用动作通道；
+     * 多设备模式下直接在后台线程中执行
+     * @param name 工具名称
+     * @param task 工具调用
+     * @return 工具执行结果的Future
+     */
+    private CompletableFuture<ToolResult> submit(String name, Callable<ToolResult> task) {
+        if (asyncDevice == null) {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return task.call();
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, TOOL_EXECUTOR);
+        }
+        return READ_ONLY_TOOLS.contains(name) ? asyncDevice.read(task) : asyncDevice.action(task);
+    }
+    
+    /**
+     * 在设备池中申请设备并调用该设备上的工具
+     * @param name 工具名称
+     * @param params 工具参数，device_id、device_selector与queue_timeout_ms用于路由，不会传给工具
+     * @param progress 进度监听器，可以为null
+     * @return 工具执行结果，附带实际使用的设备ID
+     * @throws Exception 执行异常
+     */
+    private ToolResult callPooledTool(String name, Map<String, Object> params, ProgressListener progress) throws Exception {
+        Map<String, Object> toolParams = new HashMap<>(params);
+        String deviceId = ToolParams.getString(toolParams, "device_id", null);
+        String selector = ToolParams.getString(toolParams, "device_selector", null);
+        long timeout = ToolParams.getLong(toolParams, "queue_timeout_ms", 60000);
+        toolParams.remove("device_id");
+        toolParams.remove("device_selector");
+        toolParams.remove("queue_timeout_ms");
+        
+        try (DevicePool.Lease lease = devicePool.acquire(deviceId, selector, timeout)) {
+            ToolsService service = deviceService(lease.getDevice());
+            try {
+                ToolResult result = service.callTool(name, toolParams, progress);
+                // 设备方法捕获异常后返回false，工具以error结果报告，同样计入设备健康评分
+                if ("error".equals(result.getStatus())) {
+                    lease.markFailed();
+                }
+                result.addData("device_id", lease.getDevice().getDeviceId());
+                return result;
+            } catch (IllegalArgumentException e) {
+                // 参数错误与设备无关
+                throw e;
+            } catch (Exception e) {
+                lease.markFailed();
+                throw e;
+            }
+        }
+    }
+    
+    /**
+     * 获取绑定到指定设备的单设备工具服务，首次使用时创建
+     * @param device 设备
+     * @return 工具服务
+     */
+    private ToolsService deviceService(AndroidDevice device) {
+        return deviceServices.computeIfAbsent(device.getDeviceId(), id -> {
+            ToolsService service = new ToolsService(device);
+            if (visionService != null) {
+                service.setVisionService(visionService);
+            }
+            return service;
+        });
+    }
+    
     /**
      * 获取所有注册的工具名称
+     * 多设备模式下包含池中设备可用的全部工具
      * @return 工具名称列表
      */
     public Map<String, Tool> getTools() {
-        return tools;
+        if (devicePool == null) {
+            return tools;
+        }
+        Map<String, Tool> all = new HashMap<>();
+        List<AndroidDevice> pooled = devicePool.getDevices();
+        if (!pooled.isEmpty()) {
+            all.putAll(deviceService(pooled.get(0)).getTools());
+        }
+        all.putAll(tools);
+        return all;
     }
     
     /**
@@ -125,6 +340,10 @@ public class ToolsService {
      */
     public void setVisionService(VisionService visionService) {
         this.visionService = visionService;
+        if (devicePool != null) {
+            deviceServices.values().forEach(service -> service.setVisionService(visionService));
+            return;
+        }
         
         // 注册视觉相关工具
         if (!tools.containsKey("describe_screenshot")) {
@@ -161,6 +380,17 @@ public class ToolsService {
         return sdf.format(new Date());
     }
     
+    /**
+     * ProgressListener接口接收工具执行过程中的部分输出，例如流式生成的描述
+     */
+    public interface ProgressListener {
+        /**
+         * 收到部分输出
+         * @param partial 新增的部分输出
+         */
+        void onProgress(String partial);
+    }
+    
     /**
      * 电池信息工具
      */
@@ -199,6 +429,17 @@ interface Tool {
      */
     ToolResult execute(Map<String, Object> params) throws Exception;
     
+    /**
+     * 执行工具并转发部分输出，不产生部分输出的工具使用默认实现
+     * @param params 工具参数
+     * @param progress 进度监听器，可以为null
+     * @return 执行结果
+     * @throws Exception 执行异常
+     */
+    default ToolResult execute(Map<String, Object> params, ToolsService.ProgressListener progress) throws Exception {
+        return execute(params);
+    }
+    
     /**
      * 获取工具描述
      * @return 工具描述
@@ -206,54 +447,6 @@ interface Tool {
     String getDescription();
 }
 
-/**
- * ToolResult类表示工具执行结果
- */
-class ToolResult {
-    private String status;
-    private String message;
-    private Map<String, Object> data;
-    
-    public ToolResult() {
-        this.status = "success";
-        this.data = new HashMap<>();
-    }
-    
-    public ToolResult(String status, String message) {
-        this();
-        this.status = status;
-        this.message = message;
-    }
-    
-    public String getStatus() {
-        return status;
-    }
-    
-    public void setStatus(String status) {
-        this.status = status;
-    }
-    
-    public String getMessage() {
-        return message;
-    }
-    
-    public void setMessage(String message) {
-        this.message = message;
-    }
-    
-    public Map<String, Object> getData() {
-        return data;
-    }
-    
-    public void setData(Map<String, Object> data) {
-        this.data = data;
-    }
-    
-    public void addData(String key, Object value) {
-        this.data.put(key, value);
-    }
-}
-
 /**
  * 应用安装工具
  */
@@ -266,25 +459,32 @@ class AppInstallTool implements Tool {
     
     @Override
     public ToolResult execute(Map<String, Object> params) throws Exception {
-        String apkPath = (String) params.get("apk_path");
-        if (apkPath == null) {
-            throw new IllegalArgumentException("需要提供apk_path参数");
+        List<String> apkPaths = ToolParams.getStringList(params, "apk_paths");
+        String apkPath = ToolParams.getString(params, "apk_path", null);
+        if (apkPath != null) {
+            apkPaths.add(0, apkPath);
+        }
+        if (apkPaths.isEmpty()) {
+            throw new IllegalArgumentException("需要提供apk_path或apk_paths参数");
         }
         
-        boolean result = device.installApp(apkPath);
+        ApkInstaller.Result result = device.installApp(apkPaths, ToolParams.getBoolean(params, "force", false));
         ToolResult toolResult = new ToolResult();
-        if (result) {
+        if (result.getStatus() == ApkInstaller.Status.SKIPPED) {
+            toolResult.setMessage("应用已是相同版本，跳过安装");
+        } else if (result.isSuccess()) {
             toolResult.setMessage("应用安装成功");
         } else {
             toolResult.setStatus("error");
-            toolResult.setMessage("应用安装失败");
+            toolResult.setMessage("应用安装失败: " + result.getMessage());
         }
+        toolResult.getData().putAll(result.toMap());
         return toolResult;
     }
     
     @Override
     public String getDescription() {
-        return "安装Android应用";
+        return "安装Android应用，apk_paths可传入基础包与split包，设备上已是相同内容时跳过，force为true时强制重装";
     }
 }
 
@@ -392,6 +592,117 @@ class AppStopTool implements Tool {
     }
 }
 
+/**
+ * 文件推送工具
+ */
+class FilePushTool implements Tool {
+    private AndroidDevice device;
+    
+    public FilePushTool(AndroidDevice device) {
+        this.device = device;
+    }
+    
+    @Override
+    public ToolResult execute(Map<String, Object> params) throws Exception {
+        List<String> localPaths = ToolParams.getStringList(params, "local_paths");
+        String localPath = ToolParams.getString(params, "local_path", null);
+        if (localPath != null) {
+            localPaths.add(0, localPath);
+        }
+        String remotePath = ToolParams.getString(params, "remote_path", null);
+        if (localPaths.isEmpty() || remotePath == null) {
+            throw new IllegalArgumentException("需要提供local_path（或local_paths）和remote_path参数");
+        }
+        
+        // 多个文件或remote_path以/结尾时，remote_path视为目录
+        boolean toDirectory = localPaths.size() > 1 || remotePath.endsWith("/");
+        String directory = remotePath.endsWith("/") ? remotePath : remotePath + "/";
+        List<Path> sources = new ArrayList<>();
+        List<String> targets = new ArrayList<>();
+        for (String path : localPaths) {
+            Path source = Paths.get(path);
+            sources.add(source);
+            targets.add(toDirectory ? directory + source.getFileName() : remotePath);
+        }
+        FileTransfer transfer = new FileTransfer(device, ToolParams.getInt(params, "parallelism", 4));
+        return FileTransferTools.toResult(transfer.pushAll(sources, targets, ToolParams.getBoolean(params, "verify", true)), "推送");
+    }
+    
+    @Override
+    public String getDescription() {
+        return "推送文件到设备，大文件分块并行传输，中断后重试时跳过已完成的分块，默认校验哈希";
+    }
+}
+
+/**
+ * 文件拉取工具
+ */
+class FilePullTool implements Tool {
+    private AndroidDevice device;
+    
+    public FilePullTool(AndroidDevice device) {
+        this.device = device;
+    }
+    
+    @Override
+    public ToolResult execute(Map<String, Object> params) throws Exception {
+        List<String> remotePaths = ToolParams.getStringList(params, "remote_paths");
+        String remotePath = ToolParams.getString(params, "remote_path", null);
+        if (remotePath != null) {
+            remotePaths.add(0, remotePath);
+        }
+        String localPath = ToolParams.getString(params, "local_path", null);
+        if (remotePaths.isEmpty() || localPath == null) {
+            throw new IllegalArgumentException("需要提供remote_path（或remote_paths）和local_path参数");
+        }
+        
+        // 多个文件或local_path是已存在的目录时，local_path视为目录
+        Path local = Paths.get(localPath);
+        boolean toDirectory = remotePaths.size() > 1 || Files.isDirectory(local);
+        List<Path> targets = new ArrayList<>();
+        for (String path : remotePaths) {
+            targets.add(toDirectory ? local.resolve(path.substring(path.lastIndexOf('/') + 1)) : local);
+        }
+        FileTransfer transfer = new FileTransfer(device, ToolParams.getInt(params, "parallelism", 4));
+        return FileTransferTools.toResult(transfer.pullAll(remotePaths, targets, ToolParams.getBoolean(params, "verify", true)), "拉取");
+    }
+    
+    @Override
+    public String getDescription() {
+        return "从设备拉取文件，大文件分块并行传输，中断后重试时跳过已完成的分块，默认校验哈希";
+    }
+}
+
+/**
+ * FileTransferTools类汇总文件传输结果
+ */
+class FileTransferTools {
+    private FileTransferTools() {
+    }
+    
+    static ToolResult toResult(List<FileTransfer.Result> results, String action) {
+        List<Map<String, Object>> files = new ArrayList<>();
+        int failed = 0;
+        long bytes = 0;
+        for (FileTransfer.Result result : results) {
+            files.add(result.toMap());
+            bytes += result.getTransferred();
+            if (!result.isSuccess()) {
+                failed++;
+            }
+        }
+        ToolResult toolResult = new ToolResult();
+        if (failed > 0) {
+            toolResult.setStatus("error");
+            toolResult.setMessage(action + "失败 " + failed + "/" + results.size() + " 个文件");
+        } else {
+            toolResult.setMessage(action + "完成 " + results.size() + " 个文件，共 " + bytes + " 字节");
+        }
+        toolResult.addData("files", files);
+        return toolResult;
+    }
+}
+
 /**
  * 屏幕解锁工具
  */
@@ -537,7 +848,10 @@ class TapTool implements Tool {
             throw new IllegalArgumentException("需要提供x和y参数");
         }
         
-        boolean result = device.tap(x, y);
+        String backend = ToolParams.getString(params, "backend", null);
+        boolean result = backend != null
+                ? device.tap(x, y, InputBackend.fromString(backend))
+                : device.tap(x, y);
         ToolResult toolResult = new ToolResult();
         if (result) {
             toolResult.setMessage("屏幕点击成功");
@@ -554,6 +868,42 @@ class TapTool implements Tool {
     }
 }
 
+/**
+ * 长按屏幕工具
+ */
+class LongPressTool implements Tool {
+    private AndroidDevice device;
+    
+    public LongPressTool(AndroidDevice device) {
+        this.device = device;
+    }
+    
+    @Override
+    public ToolResult execute(Map<String, Object> params) throws Exception {
+        if (!params.containsKey("x") || !params.containsKey("y")) {
+            throw new IllegalArgumentException("需要提供x和y参数");
+        }
+        int x = ToolParams.getInt(params, "x", 0);
+        int y = ToolParams.getInt(params, "y", 0);
+        int duration = ToolParams.getInt(params, "duration", 800);
+        
+        boolean result = device.longPress(x, y, duration);
+        ToolResult toolResult = new ToolResult();
+        if (result) {
+            toolResult.setMessage("屏幕长按成功");
+        } else {
+            toolResult.setStatus("error");
+            toolResult.setMessage("屏幕长按失败");
+        }
+        return toolResult;
+    }
+    
+    @Override
+    public String getDescription() {
+        return "长按屏幕";
+    }
+}
+
 /**
  * 滑动屏幕工具
  */
@@ -576,7 +926,10 @@ class SwipeTool implements Tool {
             throw new IllegalArgumentException("需要提供start_x, start_y, end_x和end_y参数");
         }
         
-        boolean result = device.swipe(startX, startY, endX, endY, duration);
+        String backend = ToolParams.getString(params, "backend", null);
+        boolean result = backend != null
+                ? device.swipe(startX, startY, endX, endY, duration, InputBackend.fromString(backend))
+                : device.swipe(startX, startY, endX, endY, duration);
         ToolResult toolResult = new ToolResult();
         if (result) {
             toolResult.setMessage("屏幕滑动成功");
@@ -593,6 +946,93 @@ class SwipeTool implements Tool {
     }
 }
 
+/**
+ * 批量输入工具
+ */
+class InputBatchTool implements Tool {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    
+    private AndroidDevice device;
+    
+    public InputBatchTool(AndroidDevice device) {
+        this.device = device;
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public ToolResult execute(Map<String, Object> params) throws Exception {
+        Object rawActions = params.get("actions");
+        if (rawActions == null) {
+            throw new IllegalArgumentException("需要提供actions参数");
+        }
+        
+        // 命令行传入JSON字符串，MCP调用直接传入列表
+        List<Map<String, Object>> actionParams = rawActions instanceof String
+                ? objectMapper.readValue((String) rawActions, new TypeReference<List<Map<String, Object>>>() {})
+                : (List<Map<String, Object>>) rawActions;
+        
+        List<InputAction> actions = new ArrayList<>();
+        for (Map<String, Object> action : actionParams) {
+            actions.add(toInputAction(action));
+        }
+        
+        List<ShellResult> results = device.inputBatch(actions);
+        List<Map<String, Object>> steps = new ArrayList<>();
+        int succeeded = 0;
+        for (int i = 0; i < results.size(); i++) {
+            Map<String, Object> step = new HashMap<>();
+            step.put("index", i);
+            step.put("type", actions.get(i).getType().name().toLowerCase(Locale.ROOT));
+            step.put("success", results.get(i).isSuccess());
+            step.put("exit_code", results.get(i).getExitCode());
+            steps.add(step);
+            if (results.get(i).isSuccess()) {
+                succeeded++;
+            }
+        }
+        
+        ToolResult toolResult = new ToolResult();
+        if (succeeded == results.size()) {
+            toolResult.setMessage("批量输入成功");
+        } else {
+            toolResult.setStatus("error");
+            toolResult.setMessage("批量输入部分失败，成功 " + succeeded + "/" + results.size() + " 步");
+        }
+        toolResult.addData("steps", steps);
+        toolResult.addData("success_count", succeeded);
+        return toolResult;
+    }
+    
+    private static InputAction toInputAction(Map<String, Object> action) {
+        String type = ToolParams.getString(action, "type", "");
+        InputAction inputAction;
+        switch (type) {
+            case "tap":
+                inputAction = InputAction.tap(ToolParams.getInt(action, "x", 0), ToolParams.getInt(action, "y", 0));
+                break;
+            case "swipe":
+                inputAction = InputAction.swipe(ToolParams.getInt(action, "start_x", 0), ToolParams.getInt(action, "start_y", 0),
+                        ToolParams.getInt(action, "end_x", 0), ToolParams.getInt(action, "end_y", 0),
+                        ToolParams.getInt(action, "duration", 500));
+                break;
+            case "key":
+                inputAction = InputAction.key(ToolParams.getString(action, "key_code", ""));
+                break;
+            case "text":
+                inputAction = InputAction.text(ToolParams.getString(action, "text", ""));
+                break;
+            default:
+                throw new IllegalArgumentException("不支持的输入动作类型: " + type);
+        }
+        return inputAction.withDelay(ToolParams.getLong(action, "delay_ms", 0));
+    }
+    
+    @Override
+    public String getDescription() {
+        return "批量执行点击、滑动、按键和文本输入";
+    }
+}
+
 /**
  * 获取设备信息工具
  */
@@ -605,6 +1045,9 @@ class GetDeviceInfoTool implements Tool {
     
     @Override
     public ToolResult execute(Map<String, Object> params) throws Exception {
+        if (ToolParams.getBoolean(params, "refresh", false)) {
+            device.invalidateProperties();
+        }
         ToolResult toolResult = new ToolResult();
         toolResult.setMessage("获取设备信息成功");
         toolResult.setData(device.getDeviceInfo());
@@ -631,7 +1074,13 @@ class ScreenshotTool implements Tool {
     public ToolResult execute(Map<String, Object> params) throws Exception {
         String outputPath = (String) params.get("output_path");
         if (outputPath == null) {
-            throw new IllegalArgumentException("需要提供output_path参数");
+            // 未指定输出路径时在内存中截图，帧流运行时直接使用最新帧
+            byte[] png = device.captureLatestScreen(ToolParams.getLong(params, "max_age_ms", 1000));
+            ToolResult toolResult = new ToolResult();
+            toolResult.setMessage("截图成功");
+            toolResult.addData("image_base64", Base64.getEncoder().encodeToString(png));
+            toolResult.addData("image_size", png.length);
+            return toolResult;
         }
         
         boolean result = device.screenshot(outputPath);
@@ -658,6 +1107,9 @@ class ScreenshotTool implements Tool {
 class DescribeScreenshotTool implements Tool {
     private AndroidDevice device;
     private VisionService visionService;
+    private FrameFingerprint lastFingerprint; // 上次实际描述的画面
+    private String lastPrompt;
+    private String lastDescription;
     
     public DescribeScreenshotTool(AndroidDevice device, VisionService visionService) {
         this.device = device;
@@ -666,30 +1118,640 @@ class DescribeScreenshotTool implements Tool {
     
     @Override
     public ToolResult execute(Map<String, Object> params) throws Exception {
+        return execute(params, null);
+    }
+    
+    @Override
+    public ToolResult execute(Map<String, Object> params, ToolsService.ProgressListener progress) throws Exception {
         String prompt = (String) params.getOrDefault("prompt", "请详细描述截图内容");
-        String outputPath = (String) params.getOrDefault("output_path", "screenshot.png");
+        String outputPath = (String) params.get("output_path");
+        boolean reuseIfUnchanged = ToolParams.getBoolean(params, "reuse_if_unchanged", false);
+        int threshold = ToolParams.getInt(params, "change_threshold", FrameFingerprint.DEFAULT_THRESHOLD);
+        long maxAgeMillis = ToolParams.getLong(params, "max_age_ms", 1000);
         
-        // 先截图
-        boolean screenshotResult = device.screenshot(outputPath);
-        if (!screenshotResult) {
+        // 先截图，截图数据保留在内存中
+        byte[] png;
+        FrameFingerprint fingerprint = null;
+        try {
+            if (reuseIfUnchanged) {
+                RawFrame frame = captureFrame(maxAgeMillis);
+                if (frame != null) {
+                    try {
+                        fingerprint = frame.getFingerprint();
+                        ToolResult reused = reuseDescription(prompt, fingerprint, threshold);
+                        if (reused != null) {
+                            // 复用描述时只在需要保存截图时编码
+                            if (outputPath != null) {
+                                writeScreenshot(reused, outputPath, frame.encode("png"));
+                            }
+                            return reused;
+                        }
+                        png = frame.encode("png");
+                    } finally {
+                        frame.release();
+                    }
+                } else {
+                    png = device.captureLatestScreen(maxAgeMillis);
+                    fingerprint = FrameFingerprint.of(png);
+                    ToolResult reused = reuseDescription(prompt, fingerprint, threshold);
+                    if (reused != null) {
+                        writeScreenshot(reused, outputPath, png);
+                        return reused;
+                    }
+                }
+            } else {
+                png = device.captureLatestScreen(maxAgeMillis);
+            }
+        } catch (Exception e) {
             ToolResult toolResult = new ToolResult();
             toolResult.setStatus("error");
-            toolResult.setMessage("截图失败");
+            toolResult.setMessage("截图失败: " + e.getMessage());
             return toolResult;
         }
         
-        // 然后生成描述
-        String description = visionService.describeScreenshot(outputPath, prompt);
+        // 然后生成描述，有进度监听器时以流式方式转发部分描述
+        boolean stream = progress != null && ToolParams.getBoolean(params, "stream", true);
+        String description = stream
+                ? visionService.describeScreenshot(png, prompt, progress::onProgress)
+                : visionService.describeScreenshot(png, prompt);
+        // 只缓存成功生成的描述，空描述不作为后续复用的依据
+        if (fingerprint != null && description != null && !description.trim().isEmpty()) {
+            synchronized (this) {
+                lastFingerprint = fingerprint;
+                lastPrompt = prompt;
+                lastDescription = description;
+            }
+        }
         
         ToolResult toolResult = new ToolResult();
         toolResult.setMessage("截图描述生成成功");
-        toolResult.addData("screenshot_path", outputPath);
+        writeScreenshot(toolResult, outputPath, png);
         toolResult.addData("description", description);
+        toolResult.addData("reused", false);
+        toolResult.addData("streamed", stream);
         return toolResult;
     }
     
+    /**
+     * 指定了输出路径时保存截图并记录路径
+     * @param toolResult 工具结果
+     * @param outputPath 输出路径，可以为null
+     * @param png PNG数据
+     * @throws IOException 写入失败
+     */
+    private static void writeScreenshot(ToolResult toolResult, String outputPath, byte[] png) throws IOException {
+        if (outputPath != null) {
+            Files.write(Paths.get(outputPath), png);
+            toolResult.addData("screenshot_path", outputPath);
+        }
+    }
+    
+    /**
+     * 采集用于计算指纹的原始帧，设备不支持原始帧时返回null
+     * @param maxAgeMillis 允许使用的最大帧龄（毫秒）
+     * @return 原始帧
+     * @throws InterruptedException 中断异常
+     */
+    private RawFrame captureFrame(long maxAgeMillis) throws InterruptedException {
+        try {
+            return device.captureLatestFrame(maxAgeMillis);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * 画面与上次描述时视觉上相同且提示相同时，返回上次的描述
+     * @param prompt 提示
+     * @param fingerprint 当前画面的指纹
+     * @param threshold 汉明距离阈值
+     * @return 复用的结果，不能复用时返回null
+     */
+    private synchronized ToolResult reuseDescription(String prompt, FrameFingerprint fingerprint, int threshold) {
+        if (lastDescription == null || !prompt.equals(lastPrompt) || !fingerprint.isSimilar(lastFingerprint, threshold)) {
+            return null;
+        }
+        ToolResult toolResult = new ToolResult();
+        toolResult.setMessage("画面未变化，复用上次的截图描述");
+        toolResult.addData("description", lastDescription);
+        toolResult.addData("reused", true);
+        toolResult.addData("distance", fingerprint.distance(lastFingerprint));
+        return toolResult;
+    }
+    
+    @Override
+    public String getDescription() {
+        return "生成截图描述，reuse_if_unchanged为true时画面未变化则直接返回上次的描述，调用方接收进度时以流式方式逐段输出（stream为false时关闭）";
+    }
+}
+
+/**
+ * 帧流控制工具
+ */
+class FrameStreamTool implements Tool {
+    private AndroidDevice device;
+    
+    public FrameStreamTool(AndroidDevice device) {
+        this.device = device;
+    }
+    
+    @Override
+    public ToolResult execute(Map<String, Object> params) throws Exception {
+        String action = ToolParams.getString(params, "action", "status");
+        ToolResult toolResult = new ToolResult();
+        switch (action) {
+            case "start":
+                double fps = ToolParams.getDouble(params, "fps", 2);
+                int capacity = ToolParams.getInt(params, "capacity", 8);
+                long maxBytes = ToolParams.getLong(params, "max_mb", 256) * 1024 * 1024;
+                device.startFrameStream(fps, capacity, maxBytes);
+                toolResult.setMessage("帧流已启动");
+                break;
+            case "stop":
+                device.stopFrameStream();
+                toolResult.setMessage("帧流已停止");
+                return toolResult;
+            case "status":
+                toolResult.setMessage("获取帧流状态成功");
+                break;
+            case "changed": {
+                FrameStream stream = device.getFrameStream();
+                if (stream == null || !stream.isRunning()) {
+                    throw new IllegalStateException("帧流未启动");
+                }
+                if (!params.containsKey("since")) {
+                    throw new IllegalArgumentException("需要提供since参数（帧序号）");
+                }
+                long since = ToolParams.getLong(params, "since", 0);
+                int threshold = ToolParams.getInt(params, "change_threshold", FrameFingerprint.DEFAULT_THRESHOLD);
+                boolean changed = stream.hasChangedSince(since, threshold);
+                toolResult.setMessage(changed ? "画面已变化" : "画面未变化");
+                toolResult.addData("changed", changed);
+                toolResult.addData("since", since);
+                toolResult.addData("latest_sequence", stream.latestSequence());
+                return toolResult;
+            }
+            default:
+                throw new IllegalArgumentException("action参数只能是start、stop、status或changed");
+        }
+        FrameStream stream = device.getFrameStream();
+        if (stream == null) {
+            toolResult.addData("running", false);
+        } else {
+            toolResult.getData().putAll(stream.getStats());
+        }
+        return toolResult;
+    }
+    
+    @Override
+    public String getDescription() {
+        return "控制后台帧流采集（action: start/stop/status/changed），changed判断画面自since帧以来是否变化";
+    }
+}
+
+/**
+ * 执行统计工具
+ */
+class MetricsTool implements Tool {
+    private AndroidDevice device;
+    
+    public MetricsTool(AndroidDevice device) {
+        this.device = device;
+    }
+    
+    @Override
+    public ToolResult execute(Map<String, Object> params) throws Exception {
+        ToolResult toolResult = new ToolResult();
+        toolResult.setMessage("获取执行统计成功");
+        toolResult.addData("commands", CommandExecutor.getDefault().getMetrics());
+        toolResult.addData("backends", device.getBackendStats());
+        return toolResult;
+    }
+    
+    @Override
+    public String getDescription() {
+        return "获取外部命令与设备后端的耗时统计";
+    }
+}
+
+/**
+ * 遥测数据工具
+ */
+class TelemetryTool implements Tool {
+    private AndroidDevice device;
+    
+    public TelemetryTool(AndroidDevice device) {
+        this.device = device;
+    }
+    
+    @Override
+    public ToolResult execute(Map<String, Object> params) throws Exception {
+        String action = ToolParams.getString(params, "action", "status");
+        ToolResult toolResult = new ToolResult();
+        switch (action) {
+            case "start":
+                long intervalMillis = ToolParams.getLong(params, "interval_ms", 5000);
+                int capacity = ToolParams.getInt(params, "capacity", 720);
+                device.startTelemetry(intervalMillis, capacity);
+                toolResult.setMessage("遥测采样已启动");
+                break;
+            case "stop":
+                device.stopTelemetry();
+                toolResult.setMessage("遥测采样已停止");
+                return toolResult;
+            case "status":
+                toolResult.setMessage("获取遥测数据成功");
+                break;
+            default:
+                throw new IllegalArgumentException("action参数只能是start、stop或status");
+        }
+        TelemetrySampler telemetry = device.getTelemetry();
+        if (telemetry == null) {
+            toolResult.addData("running", false);
+            return toolResult;
+        }
+        long windowMillis = ToolParams.getLong(params, "window_ms", 60000);
+        toolResult.getData().putAll(telemetry.getStats());
+        toolResult.addData("battery", telemetry.getBatteryInfo());
+        toolResult.addData("latest", telemetry.latest());
+        toolResult.addData("window_ms", windowMillis);
+        toolResult.addData("window", telemetry.aggregate(windowMillis));
+        return toolResult;
+    }
+    
+    @Override
+    public String getDescription() {
+        return "控制后台遥测采样并返回电池、CPU、内存与温度的最新值及窗口聚合（action: start/stop/status）";
+    }
+}
+
+/**
+ * 启动logcat读取工具
+ */
+class LogcatStartTool implements Tool {
+    private AndroidDevice device;
+    
+    public LogcatStartTool(AndroidDevice device) {
+        this.device = device;
+    }
+    
+    @Override
+    public ToolResult execute(Map<String, Object> params) throws Exception {
+        LogcatStream.Config config = new LogcatStream.Config()
+                .filterSpecs(ToolParams.getStringList(params, "filters"))
+                .minLevel(ToolParams.getString(params, "level", "V").charAt(0))
+                .tail(ToolParams.getInt(params, "tail", 100))
+                .capacity(ToolParams.getInt(params, "max_entries", 20000), ToolParams.getLong(params, "max_mb", 16) * 1024 * 1024);
+        List<String> buffers = ToolParams.getStringList(params, "buffers");
+        if (!buffers.isEmpty()) {
+            config.buffers(buffers);
+        }
+        
+        ToolResult toolResult = new ToolResult();
+        int pid = ToolParams.getInt(params, "pid", 0);
+        String packageName = ToolParams.getString(params, "package", null);
+        if (pid == 0 && packageName != null) {
+            pid = device.getPid(packageName);
+            if (pid < 0) {
+                toolResult.setStatus("error");
+                toolResult.setMessage("应用未运行: " + packageName);
+                return toolResult;
+            }
+        }
+        config.pid(pid);
+        
+        String persistDir = ToolParams.getString(params, "persist_dir", null);
+        if (persistDir != null) {
+            config.persistTo(Paths.get(persistDir), ToolParams.getLong(params, "file_mb", 16) * 1024 * 1024,
+                    ToolParams.getInt(params, "max_files", 5));
+        }
+        
+        LogcatStream stream = device.startLogcat(config);
+        toolResult.setMessage("logcat读取已启动");
+        toolResult.getData().putAll(stream.getStats());
+        return toolResult;
+    }
+    
+    @Override
+    public String getDescription() {
+        return "在后台持续读取logcat，filters（Tag:Level列表）、level、pid/package与buffers在设备端过滤，可选persist_dir滚动写入文件";
+    }
+}
+
+/**
+ * 查询logcat工具
+ */
+class LogcatQueryTool implements Tool {
+    private AndroidDevice device;
+    
+    public LogcatQueryTool(AndroidDevice device) {
+        this.device = device;
+    }
+    
+    @Override
+    public ToolResult execute(Map<String, Object> params) throws Exception {
+        LogcatStream stream = device.getLogcat();
+        if (stream == null) {
+            throw new IllegalStateException("logcat读取未启动，请先调用logcat_start");
+        }
+        long afterSequence = ToolParams.getLong(params, "after_seq", 0);
+        long sinceMillis = ToolParams.getLong(params, "since_ms", 0);
+        int limit = ToolParams.getInt(params, "limit", 200);
+        
+        Predicate<LogEntry> filter = entry -> true;
+        String level = ToolParams.getString(params, "level", null);
+        if (level != null && !level.isEmpty()) {
+            int priority = LogEntry.priority(level.charAt(0));
+            filter = filter.and(entry -> LogEntry.priority(entry.getLevel()) >= priority);
+        }
+        String tag = ToolParams.getString(params, "tag", null);
+        if (tag != null) {
+            filter = filter.and(entry -> tag.equals(entry.getTag()));
+        }
+        int pid = ToolParams.getInt(params, "pid", 0);
+        if (pid > 0) {
+            filter = filter.and(entry -> entry.getPid() == pid);
+        }
+        String contains = ToolParams.getString(params, "contains", null);
+        if (contains != null) {
+            filter = filter.and(entry -> entry.getMessage().contains(contains));
+        }
+        String regex = ToolParams.getString(params, "regex", null);
+        if (regex != null) {
+            Pattern pattern = Pattern.compile(regex);
+            filter = filter.and(entry -> pattern.matcher(entry.getMessage()).find());
+        }
+        
+        List<LogEntry> entries = stream.query(afterSequence, sinceMillis, filter, limit + 1);
+        boolean truncated = entries.size() > limit;
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (int i = 0; i < Math.min(limit, entries.size()); i++) {
+            items.add(entries.get(i).toMap());
+        }
+        
+        ToolResult toolResult = new ToolResult();
+        toolResult.setMessage("查询到 " + items.size() + " 条日志");
+        toolResult.addData("entries", items);
+        toolResult.addData("truncated", truncated);
+        toolResult.addData("next_seq", items.isEmpty() ? afterSequence : entries.get(items.size() - 1).getSequence());
+        toolResult.addData("events", stream.getEvents(sinceMillis));
+        toolResult.addData("latest_sequence", stream.latestSequence());
+        return toolResult;
+    }
+    
+    @Override
+    public String getDescription() {
+        return "查询已缓冲的logcat日志（after_seq、since_ms、level、tag、pid、contains、regex），同时返回检测到的崩溃与ANR";
+    }
+}
+
+/**
+ * 停止logcat读取工具
+ */
+class LogcatStopTool implements Tool {
+    private AndroidDevice device;
+    
+    public LogcatStopTool(AndroidDevice device) {
+        this.device = device;
+    }
+    
+    @Override
+    public ToolResult execute(Map<String, Object> params) throws Exception {
+        LogcatStream stream = device.getLogcat();
+        ToolResult toolResult = new ToolResult();
+        if (stream == null) {
+            toolResult.setMessage("logcat读取未启动");
+            return toolResult;
+        }
+        Map<String, Object> stats = stream.getStats();
+        device.stopLogcat();
+        toolResult.setMessage("logcat读取已停止");
+        toolResult.getData().putAll(stats);
+        toolResult.addData("running", false);
+        return toolResult;
+    }
+    
+    @Override
+    public String getDescription() {
+        return "停止后台logcat读取";
+    }
+}
+
+/**
+ * UI层级工具
+ */
+class DumpUiTool implements Tool {
+    private AndroidDevice device;
+    
+    public DumpUiTool(AndroidDevice device) {
+        this.device = device;
+    }
+    
+    @Override
+    public ToolResult execute(Map<String, Object> params) throws Exception {
+        String text = ToolParams.getString(params, "text", null);
+        boolean clickableOnly = ToolParams.getBoolean(params, "clickable_only", false);
+        int maxElements = ToolParams.getInt(params, "max_elements", 200);
+        
+        long start = System.nanoTime();
+        Element root = device.dumpUi();
+        List<Element> elements = text != null && !text.isEmpty()
+                ? UiHierarchyParser.findByText(root, text)
+                : UiHierarchyParser.flatten(root);
+        
+        List<Map<String, Object>> items = new ArrayList<>();
+        int matched = 0;
+        for (Element element : elements) {
+            if (clickableOnly && !element.isClickable()) {
+                continue;
+            }
+            matched++;
+            if (items.size() < maxElements) {
+                items.add(toMap(element));
+            }
+        }
+        
+        ToolResult toolResult = new ToolResult();
+        toolResult.setMessage("获取UI层级成功，共 " + matched + " 个元素");
+        toolResult.addData("elements", items);
+        toolResult.addData("count", matched);
+        toolResult.addData("truncated", matched > items.size());
+        if (params.containsKey("x") && params.containsKey("y")) {
+            int x = ToolParams.getInt(params, "x", 0);
+            int y = ToolParams.getInt(params, "y", 0);
+            ElementIndex index = ElementIndex.of(root);
+            Element hit = index.elementAt(x, y);
+            Element nearest = index.nearestClickable(x, y);
+            toolResult.addData("element_at", hit != null ? toMap(hit) : null);
+            toolResult.addData("nearest_clickable", nearest != null ? toMap(nearest) : null);
+        }
+        toolResult.addData("elapsed_ms", (System.nanoTime() - start) / 1_000_000);
+        return toolResult;
+    }
+    
+    private Map<String, Object> toMap(Element element) {
+        Map<String, Object> item = new HashMap<>();
+        Rectangle rect = element.getRect();
+        item.put("text", element.getText());
+        item.put("content_desc", element.getContentDescription());
+        item.put("resource_id", element.getResourceId());
+        item.put("class", element.getClassName());
+        item.put("bounds", new int[]{rect.x, rect.y, rect.x + rect.width, rect.y + rect.height});
+        item.put("center", new int[]{(int) rect.getCenterX(), (int) rect.getCenterY()});
+        item.put("clickable", element.isClickable());
+        item.put("enabled", element.isEnabled());
+        return item;
+    }
+    
     @Override
     public String getDescription() {
-        return "生成截图描述";
+        return "获取当前界面的UI层级，可按文本过滤或只返回可点击元素，提供x和y时同时返回该点处的元素与最近的可点击元素";
+    }
+}
+
+/**
+ * 设备池状态工具
+ */
+class ListDevicesTool implements Tool {
+    private DevicePool devicePool;
+    
+    public ListDevicesTool(DevicePool devicePool) {
+        this.devicePool = devicePool;
+    }
+    
+    @Override
+    public ToolResult execute(Map<String, Object> params) throws Exception {
+        if (ToolParams.getBoolean(params, "refresh", false)) {
+            devicePool.refresh();
+        }
+        List<Map<String, Object>> devices = devicePool.getStatus();
+        ToolResult toolResult = new ToolResult();
+        toolResult.setMessage("共 " + devices.size() + " 台设备");
+        toolResult.addData("devices", devices);
+        toolResult.addData("waiting", devicePool.getWaiting());
+        return toolResult;
+    }
+    
+    @Override
+    public String getDescription() {
+        return "列出设备池中的设备及其状态";
+    }
+}
+
+/**
+ * 多设备并行安装工具
+ */
+class AppInstallAllTool implements Tool {
+    private DevicePool devicePool;
+    
+    public AppInstallAllTool(DevicePool devicePool) {
+        this.devicePool = devicePool;
+    }
+    
+    @Override
+    public ToolResult execute(Map<String, Object> params) throws Exception {
+        List<String> apkPaths = ToolParams.getStringList(params, "apk_paths");
+        String apkPath = ToolParams.getString(params, "apk_path", null);
+        if (apkPath != null) {
+            apkPaths.add(0, apkPath);
+        }
+        if (apkPaths.isEmpty()) {
+            throw new IllegalArgumentException("需要提供apk_path或apk_paths参数");
+        }
+        List<ApkFile> apks = new ArrayList<>();
+        for (String path : apkPaths) {
+            apks.add(ApkFile.of(Paths.get(path)));
+        }
+        
+        List<ApkInstaller.Result> results = ApkInstaller.installAll(devicePool, apks,
+                ToolParams.getBoolean(params, "force", false),
+                ToolParams.getInt(params, "parallelism", 4),
+                ToolParams.getLong(params, "queue_timeout_ms", 60000));
+        List<Map<String, Object>> items = new ArrayList<>();
+        int failed = 0;
+        int skipped = 0;
+        for (ApkInstaller.Result result : results) {
+            items.add(result.toMap());
+            if (!result.isSuccess()) {
+                failed++;
+            } else if (result.getStatus() == ApkInstaller.Status.SKIPPED) {
+                skipped++;
+            }
+        }
+        ToolResult toolResult = new ToolResult();
+        if (failed > 0) {
+            toolResult.setStatus("error");
+        }
+        toolResult.setMessage("共 " + results.size() + " 台设备，失败 " + failed + " 台，跳过 " + skipped + " 台");
+        toolResult.addData("results", items);
+        return toolResult;
+    }
+    
+    @Override
+    public String getDescription() {
+        return "在设备池的全部在线设备上并行安装应用，APK只读取和计算哈希一次";
+    }
+}
+
+/**
+ * ToolParams类负责读取工具参数，兼容命令行传入的字符串和JSON传入的数值
+ */
+class ToolParams {
+    private ToolParams() {
+    }
+    
+    static String getString(Map<String, Object> params, String key, String defaultValue) {
+        Object value = params.get(key);
+        return value == null ? defaultValue : value.toString();
+    }
+    
+    static int getInt(Map<String, Object> params, String key, int defaultValue) {
+        Object value = params.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString().trim());
+    }
+    
+    static long getLong(Map<String, Object> params, String key, long defaultValue) {
+        Object value = params.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString().trim());
+    }
+    
+    static double getDouble(Map<String, Object> params, String key, double defaultValue) {
+        Object value = params.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString().trim());
+    }
+    
+    static boolean getBoolean(Map<String, Object> params, String key, boolean defaultValue) {
+        Object value = params.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        return value instanceof Boolean ? (Boolean) value : Boolean.parseBoolean(value.toString().trim());
+    }
+    
+    static List<String> getStringList(Map<String, Object> params, String key) {
+        Object value = params.get(key);
+        List<String> result = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                result.add(item.toString().trim());
+            }
+        } else if (value != null) {
+            // 也接受逗号分隔的字符串
+            for (String item : value.toString().split(",")) {
+                if (!item.trim().isEmpty()) {
+                    result.add(item.trim());
+                }
+            }
+        }
+        return result;
     }
 }
\ No newline at end of file
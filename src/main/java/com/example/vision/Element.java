@@ -1,6 +1,8 @@
 package com.example.vision;
 
 import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Element类表示屏幕上的一个元素
@@ -11,6 +13,12 @@ public class Element {
     private String type; // 元素类型（如按钮、文本框等）
     private String text; // 元素上的文本内容
     private double confidence; // 识别置信度
+    private String resourceId; // 资源ID（来自UI层级）
+    private String className; // 控件类名（来自UI层级）
+    private String contentDescription; // 无障碍描述（来自UI层级）
+    private boolean clickable; // 是否可点击
+    private boolean enabled = true; // 是否可用
+    private List<Element> children = new ArrayList<>(); // 子元素
     
     /**
      * 构造函数
@@ -109,6 +117,102 @@ public class Element {
         this.confidence = confidence;
     }
     
+    /**
+     * 获取资源ID
+     * @return 资源ID，例如com.example:id/send
+     */
+    public String getResourceId() {
+        return resourceId;
+    }
+    
+    /**
+     * 设置资源ID
+     * @param resourceId 资源ID
+     */
+    public void setResourceId(String resourceId) {
+        this.resourceId = resourceId;
+    }
+    
+    /**
+     * 获取控件类名
+     * @return 控件类名，例如android.widget.Button
+     */
+    public String getClassName() {
+        return className;
+    }
+    
+    /**
+     * 设置控件类名
+     * @param className 控件类名
+     */
+    public void setClassName(String className) {
+        this.className = className;
+    }
+    
+    /**
+     * 获取无障碍描述
+     * @return 无障碍描述
+     */
+    public String getContentDescription() {
+        return contentDescription;
+    }
+    
+    /**
+     * 设置无障碍描述
+     * @param contentDescription 无障碍描述
+     */
+    public void setContentDescription(String contentDescription) {
+        this.contentDescription = contentDescription;
+    }
+    
+    /**
+     * 是否可点击
+     * @return 是否可点击
+     */
+    public boolean isClickable() {
+        return clickable;
+    }
+    
+    /**
+     * 设置是否可点击
+     * @param clickable 是否可点击
+     */
+    public void setClickable(boolean clickable) {
+        this.clickable = clickable;
+    }
+    
+    /**
+     * 是否可用
+     * @return 是否可用
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * 设置是否可用
+     * @param enabled 是否可用
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    /**
+     * 获取子元素
+     * @return 子元素列表
+     */
+    public List<Element> getChildren() {
+        return children;
+    }
+    
+    /**
+     * 添加子元素
+     * @param child 子元素
+     */
+    public void addChild(Element child) {
+        children.add(child);
+    }
+    
     @Override
     public String toString() {
         return "Element{" +
@@ -117,6 +221,10 @@ public class Element {
                 ", type='" + type + '\'' +
                 ", text='" + text + '\'' +
                 ", confidence=" + confidence +
+                ", resourceId='" + resourceId + '\'' +
+                ", className='" + className + '\'' +
+                ", clickable=" + clickable +
+                ", children=" + children.size() +
                 '}';
     }
 }
\ No newline at end of file
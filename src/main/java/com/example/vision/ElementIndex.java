@@ -0,0 +1,388 @@
+package com.example.vision;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * ElementIndex类是屏幕元素的均匀网格空间索引，按帧构建，构建后只读
+ * 元素边界保存在int数组中，每个网格单元以压缩行（CSR）格式记录与其相交的元素下标，
+ * 命中测试、区域查询与最近元素查询只访问相关的单元，不再逐个扫描元素列表
+ */
+public class ElementIndex {
+    private static final int MIN_CELL_SIZE = 16;
+    private static final int MAX_CELLS_PER_AXIS = 256;
+    
+    private final List<Element> elements;
+    private final Map<Element, Integer> positions = new IdentityHashMap<>();
+    private final int[] bounds; // 每个元素4个值：左、上、右、下（右下不含）
+    private final int[] parents;
+    private final int originX;
+    private final int originY;
+    private final int cellSize;
+    private final int columns;
+    private final int rows;
+    private final int[] cellStart;
+    private final int[] cellItems;
+    
+    /**
+     * 构造函数，宽或高不大于0的元素不参与索引
+     * @param elements 屏幕元素，顺序靠后的元素在面积相同时视为更靠上层
+     */
+    public ElementIndex(List<Element> elements) {
+        List<Element> indexed = new ArrayList<>(elements.size());
+        for (Element element : elements) {
+            Rectangle rect = element.getRect();
+            if (rect != null && rect.width > 0 && rect.height > 0) {
+                indexed.add(element);
+            }
+        }
+        this.elements = indexed;
+        int count = indexed.size();
+        this.bounds = new int[count * 4];
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            Rectangle rect = indexed.get(i).getRect();
+            int base = i * 4;
+            bounds[base] = rect.x;
+            bounds[base + 1] = rect.y;
+            bounds[base + 2] = rect.x + rect.width;
+            bounds[base + 3] = rect.y + rect.height;
+            minX = Math.min(minX, rect.x);
+            minY = Math.min(minY, rect.y);
+            maxX = Math.max(maxX, bounds[base + 2]);
+            maxY = Math.max(maxY, bounds[base + 3]);
+            positions.put(indexed.get(i), i);
+        }
+        if (count == 0) {
+            minX = minY = 0;
+            maxX = maxY = 1;
+        }
+        
+        // 单元边长取平均每个元素占据的面积的平方根，并限制单元数量
+        long extentWidth = (long) maxX - minX;
+        long extentHeight = (long) maxY - minY;
+        int size = (int) Math.sqrt((double) extentWidth * extentHeight / Math.max(1, count));
+        size = Math.max(size, MIN_CELL_SIZE);
+        size = Math.max(size, (int) ((Math.max(extentWidth, extentHeight) + MAX_CELLS_PER_AXIS - 1) / MAX_CELLS_PER_AXIS));
+        this.originX = minX;
+        this.originY = minY;
+        this.cellSize = size;
+        this.columns = (int) Math.max(1, (extentWidth + size - 1) / size);
+        this.rows = (int) Math.max(1, (extentHeight + size - 1) / size);
+        
+        // 两遍构建：先统计每个单元的元素数，再按前缀和填充
+        this.cellStart = new int[columns * rows + 1];
+        for (int i = 0; i < count; i++) {
+            forEachCell(i, cell -> cellStart[cell + 1]++);
+        }
+        for (int cell = 0; cell < columns * rows; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        this.cellItems = new int[cellStart[columns * rows]];
+        int[] fill = new int[columns * rows];
+        for (int i = 0; i < count; i++) {
+            int element = i;
+            forEachCell(i, cell -> cellItems[cellStart[cell] + fill[cell]++] = element);
+        }
+        
+        this.parents = new int[count];
+        for (int i = 0; i < count; i++) {
+            parents[i] = findParent(i);
+        }
+    }
+    
+    /**
+     * 基于UI层级构建索引
+     * @param root UI层级的根元素
+     * @return 包含全部后代元素的索引
+     */
+    public static ElementIndex of(Element root) {
+        return new ElementIndex(UiHierarchyParser.flatten(root));
+    }
+    
+    /**
+     * 获取已索引的元素数量
+     * @return 元素数量
+     */
+    public int size() {
+        return elements.size();
+    }
+    
+    /**
+     * 获取包含指定点的最上层元素（面积最小者）
+     * @param x X坐标
+     * @param y Y坐标
+     * @return 元素，不存在时返回null
+     */
+    public Element elementAt(int x, int y) {
+        return elementAt(x, y, element -> true);
+    }
+    
+    /**
+     * 获取包含指定点且满足条件的最上层元素（面积最小者）
+     * @param x X坐标
+     * @param y Y坐标
+     * @param filter 条件
+     * @return 元素，不存在时返回null
+     */
+    public Element elementAt(int x, int y, Predicate<Element> filter) {
+        int cell = cellOf(x, y);
+        if (cell < 0) {
+            return null;
+        }
+        int best = -1;
+        long bestArea = Long.MAX_VALUE;
+        for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+            int i = cellItems[k];
+            if (contains(i, x, y)) {
+                long area = area(i);
+                if (area <= bestArea && filter.test(elements.get(i))) {
+                    best = i;
+                    bestArea = area;
+                }
+            }
+        }
+        return best < 0 ? null : elements.get(best);
+    }
+    
+    /**
+     * 获取包含指定点的最上层元素及其全部容器元素，由外层到内层排列
+     * @param x X坐标
+     * @param y Y坐标
+     * @return 元素列表
+     */
+    public List<Element> elementsAt(int x, int y) {
+        List<Element> result = new ArrayList<>();
+        Element innermost = elementAt(x, y);
+        if (innermost == null) {
+            return result;
+        }
+        int i = positions.get(innermost);
+        while (i >= 0) {
+            result.add(0, elements.get(i));
+            i = parents[i];
+        }
+        return result;
+    }
+    
+    /**
+     * 获取与区域相交的元素
+     * @param region 区域
+     * @param fullyContained 为true时只返回完全位于区域内的元素
+     * @return 元素列表，按原始顺序排列
+     */
+    public List<Element> elementsIn(Rectangle region, boolean fullyContained) {
+        List<Element> result = new ArrayList<>();
+        if (region.width <= 0 || region.height <= 0 || elements.isEmpty()) {
+            return result;
+        }
+        int left = region.x;
+        int top = region.y;
+        int right = region.x + region.width;
+        int bottom = region.y + region.height;
+        int firstColumn = clamp((left - originX) / cellSize, columns);
+        int lastColumn = clamp(Math.floorDiv(right - 1 - originX, cellSize), columns);
+        int firstRow = clamp((top - originY) / cellSize, rows);
+        int lastRow = clamp(Math.floorDiv(bottom - 1 - originY, cellSize), rows);
+        BitSet matched = new BitSet(elements.size());
+        BitSet visited = new BitSet(elements.size());
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int cell = row * columns + column;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    int i = cellItems[k];
+                    if (visited.get(i)) {
+                        continue;
+                    }
+                    visited.set(i);
+                    int base = i * 4;
+                    boolean hit = fullyContained
+                            ? bounds[base] >= left && bounds[base + 1] >= top && bounds[base + 2] <= right && bounds[base + 3] <= bottom
+                            : bounds[base] < right && bounds[base + 2] > left && bounds[base + 1] < bottom && bounds[base + 3] > top;
+                    if (hit) {
+                        matched.set(i);
+                    }
+                }
+            }
+        }
+        for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+            result.add(elements.get(i));
+        }
+        return result;
+    }
+    
+    /**
+     * 获取距离指定点最近的可点击且可用的元素，点位于元素内部时距离为0
+     * @param x X坐标
+     * @param y Y坐标
+     * @return 元素，不存在时返回null
+     */
+    public Element nearestClickable(int x, int y) {
+        return nearest(x, y, Integer.MAX_VALUE, element -> element.isClickable() && element.isEnabled());
+    }
+    
+    /**
+     * 获取距离指定点最近且满足条件的元素，距离相同时取面积较小者
+     * 按网格环由近及远搜索，已找到的距离不大于下一环的最小可能距离时停止
+     * @param x X坐标
+     * @param y Y坐标
+     * @param maxDistance 最大距离（像素）
+     * @param filter 条件
+     * @return 元素，不存在时返回null
+     */
+    public Element nearest(int x, int y, int maxDistance, Predicate<Element> filter) {
+        if (elements.isEmpty()) {
+            return null;
+        }
+        int centerColumn = clamp(Math.floorDiv(x - originX, cellSize), columns);
+        int centerRow = clamp(Math.floorDiv(y - originY, cellSize), rows);
+        int maxRing = Math.max(Math.max(centerColumn, columns - 1 - centerColumn), Math.max(centerRow, rows - 1 - centerRow));
+        long limit = (long) maxDistance * maxDistance;
+        int best = -1;
+        long bestDistance = Long.MAX_VALUE;
+        long bestArea = Long.MAX_VALUE;
+        BitSet visited = new BitSet(elements.size());
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // 第ring环中任意单元与查询点的距离不小于(ring-1)个单元边长
+            long reach = (long) Math.max(0, ring - 1) * cellSize;
+            if (reach * reach > Math.min(bestDistance, limit)) {
+                break;
+            }
+            for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+                if (row < 0 || row >= rows) {
+                    continue;
+                }
+                boolean edgeRow = row == centerRow - ring || row == centerRow + ring;
+                int step = edgeRow ? 1 : Math.max(1, 2 * ring);
+                for (int column = centerColumn - ring; column <= centerColumn + ring; column += step) {
+                    if (column < 0 || column >= columns) {
+                        continue;
+                    }
+                    int cell = row * columns + column;
+                    for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                        int i = cellItems[k];
+                        if (visited.get(i)) {
+                            continue;
+                        }
+                        visited.set(i);
+                        long distance = distanceSquared(i, x, y);
+                        if (distance > limit || distance > bestDistance) {
+                            continue;
+                        }
+                        long area = area(i);
+                        if ((distance < bestDistance || area <= bestArea) && filter.test(elements.get(i))) {
+                            best = i;
+                            bestDistance = distance;
+                            bestArea = area;
+                        }
+                    }
+                }
+            }
+        }
+        return best < 0 ? null : elements.get(best);
+    }
+    
+    /**
+     * 获取完全包含指定元素的最小元素
+     * @param element 已索引的元素
+     * @return 父元素，不存在或元素未被索引时返回null
+     */
+    public Element getParent(Element element) {
+        Integer i = positions.get(element);
+        if (i == null || parents[i] < 0) {
+            return null;
+        }
+        return elements.get(parents[i]);
+    }
+    
+    /**
+     * 查找完全包含指定元素的最小元素，边界相同时顺序靠前者为父元素
+     * @param i 元素下标
+     * @return 父元素下标，不存在时返回-1
+     */
+    private int findParent(int i) {
+        int base = i * 4;
+        int cell = cellOf(bounds[base], bounds[base + 1]);
+        long ownArea = area(i);
+        int best = -1;
+        long bestArea = Long.MAX_VALUE;
+        for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+            int j = cellItems[k];
+            if (j == i) {
+                continue;
+            }
+            int other = j * 4;
+            if (bounds[other] > bounds[base] || bounds[other + 1] > bounds[base + 1]
+                    || bounds[other + 2] < bounds[base + 2] || bounds[other + 3] < bounds[base + 3]) {
+                continue;
+            }
+            long area = area(j);
+            if (area == ownArea && j > i) {
+                continue;
+            }
+            if (area < bestArea || (area == bestArea && j > best)) {
+                best = j;
+                bestArea = area;
+            }
+        }
+        return best;
+    }
+    
+    private void forEachCell(int i, CellConsumer consumer) {
+        int base = i * 4;
+        int firstColumn = (bounds[base] - originX) / cellSize;
+        int lastColumn = Math.min(columns - 1, (bounds[base + 2] - 1 - originX) / cellSize);
+        int firstRow = (bounds[base + 1] - originY) / cellSize;
+        int lastRow = Math.min(rows - 1, (bounds[base + 3] - 1 - originY) / cellSize);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                consumer.accept(row * columns + column);
+            }
+        }
+    }
+    
+    private int cellOf(int x, int y) {
+        if (x < originX || y < originY) {
+            return -1;
+        }
+        int column = (x - originX) / cellSize;
+        int row = (y - originY) / cellSize;
+        if (column >= columns || row >= rows) {
+            return -1;
+        }
+        return row * columns + column;
+    }
+    
+    private boolean contains(int i, int x, int y) {
+        int base = i * 4;
+        return x >= bounds[base] && y >= bounds[base + 1] && x < bounds[base + 2] && y < bounds[base + 3];
+    }
+    
+    private long area(int i) {
+        int base = i * 4;
+        return (long) (bounds[base + 2] - bounds[base]) * (bounds[base + 3] - bounds[base + 1]);
+    }
+    
+    private long distanceSquared(int i, int x, int y) {
+        int base = i * 4;
+        long dx = Math.max(0, Math.max(bounds[base] - x, x - (bounds[base + 2] - 1)));
+        long dy = Math.max(0, Math.max(bounds[base + 1] - y, y - (bounds[base + 3] - 1)));
+        return dx * dx + dy * dy;
+    }
+    
+    private static int clamp(int value, int count) {
+        return Math.max(0, Math.min(count - 1, value));
+    }
+    
+    private interface CellConsumer {
+        void accept(int cell);
+    }
+}
\ No newline at end of file
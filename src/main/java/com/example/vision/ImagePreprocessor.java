@@ -0,0 +1,384 @@
+package com.example.vision;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * ImagePreprocessor类在图像上传到视觉模型之前进行缩放与重新编码
+ * 依次按最长边上限与token预算确定分辨率，可选转为灰度，以指定质量编码为JPEG/PNG；
+ * 设置了字节预算时先逐步降低JPEG质量，仍超出预算再按比例缩小分辨率
+ */
+public class ImagePreprocessor {
+    private static final Logger logger = LoggerFactory.getLogger(ImagePreprocessor.class);
+    private static final int PATCH_SIZE = 28;
+    private static final int MIN_LONG_EDGE = 256;
+    private static final float MIN_QUALITY = 0.5f;
+    private static final int MAX_ATTEMPTS = 8;
+    
+    private final Options options;
+    private final String formatName;
+    
+    /**
+     * 构造函数
+     * @param options 预处理选项
+     */
+    public ImagePreprocessor(Options options) {
+        this.options = options;
+        String format = options.format;
+        if ("webp".equals(format) && !ImageIO.getImageWritersByFormatName("webp").hasNext()) {
+            // JDK自带的ImageIO没有WebP编码器，未安装WebP插件时使用JPEG
+            logger.warn("当前环境没有WebP编码器，改用JPEG");
+            format = "jpeg";
+        }
+        this.formatName = format;
+    }
+    
+    /**
+     * 处理已编码的图像
+     * @param imageBytes PNG/JPEG等格式的图像数据
+     * @return 处理结果
+     * @throws IOException 图像无法解码或编码失败
+     */
+    public Processed process(byte[] imageBytes) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageBytes));
+        if (image == null) {
+            throw new IOException("无法解码图像数据，大小: " + imageBytes.length + " 字节");
+        }
+        return process(image);
+    }
+    
+    /**
+     * 处理图像
+     * @param image 原始图像
+     * @return 处理结果
+     * @throws IOException 编码失败
+     */
+    public Processed process(BufferedImage image) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = 1.0;
+        int longEdge = Math.max(width, height);
+        if (options.maxLongEdge > 0 && longEdge > options.maxLongEdge) {
+            scale = (double) options.maxLongEdge / longEdge;
+        }
+        if (options.maxTokens > 0) {
+            double tokens = estimateTokens(scaled(width, scale), scaled(height, scale));
+            if (tokens > options.maxTokens) {
+                scale *= Math.sqrt(options.maxTokens / tokens);
+                while (scale * longEdge > MIN_LONG_EDGE
+                        && estimateTokens(scaled(width, scale), scaled(height, scale)) > options.maxTokens) {
+                    scale *= 0.97;
+                }
+            }
+        }
+        
+        float quality = options.quality;
+        byte[] data = null;
+        BufferedImage resized = null;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (resized == null) {
+                resized = resize(image, scaled(width, scale), scaled(height, scale), options.grayscale);
+            }
+            data = encode(resized, quality);
+            if (options.maxBytes <= 0 || data.length <= options.maxBytes) {
+                break;
+            }
+            if (attempt == MAX_ATTEMPTS - 1) {
+                logger.warn("图像在{}次尝试后仍超出字节预算: {} > {}", MAX_ATTEMPTS, data.length, options.maxBytes);
+                break; // 保留最后一次的结果，不再缩小
+            }
+            if (isLossy() && quality - 0.1f >= MIN_QUALITY) {
+                quality -= 0.1f;
+                continue;
+            }
+            double shrink = Math.sqrt((double) options.maxBytes / data.length) * 0.95;
+            if (scale * longEdge * shrink < MIN_LONG_EDGE) {
+                logger.warn("图像在最小分辨率下仍超出字节预算: {} > {}", data.length, options.maxBytes);
+                break;
+            }
+            scale *= shrink;
+            resized = null;
+        }
+        return new Processed(data, "image/" + formatName, resized.getWidth(), resized.getHeight(), width, height);
+    }
+    
+    /**
+     * 按28像素patch估算视觉模型为图像消耗的token数（Qwen2.5-VL等模型的计算方式）
+     * @param width 宽度
+     * @param height 高度
+     * @return token数
+     */
+    public static int estimateTokens(int width, int height) {
+        int columns = Math.max(1, Math.round((float) width / PATCH_SIZE));
+        int rows = Math.max(1, Math.round((float) height / PATCH_SIZE));
+        return columns * rows;
+    }
+    
+    /**
+     * 获取预处理选项
+     * @return 选项
+     */
+    public Options getOptions() {
+        return options;
+    }
+    
+    private boolean isLossy() {
+        return !"png".equals(formatName);
+    }
+    
+    private static int scaled(int size, double scale) {
+        return Math.max(1, (int) Math.round(size * scale));
+    }
+    
+    /**
+     * 缩放图像，缩小超过一半时逐级减半后再做最后一次双线性插值，避免直接大比例缩放产生的锯齿
+     */
+    private static BufferedImage resize(BufferedImage image, int width, int height, boolean grayscale) {
+        int type = grayscale ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= width && current.getHeight() / 2 >= height) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2, BufferedImage.TYPE_INT_RGB);
+        }
+        if (current.getWidth() == width && current.getHeight() == height && current.getType() == type) {
+            return current;
+        }
+        return draw(current, width, height, type);
+    }
+    
+    private static BufferedImage draw(BufferedImage source, int width, int height, int type) {
+        BufferedImage target = new BufferedImage(width, height, type);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+    
+    private byte[] encode(BufferedImage image, float quality) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(formatName);
+        if (!writers.hasNext()) {
+            throw new IOException("不支持的图像格式: " + formatName);
+        }
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream output = new ByteArrayOutputStream(image.getWidth() * image.getHeight() / 4);
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (isLossy() && param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                if (param.getCompressionType() == null) {
+                    param.setCompressionType(param.getCompressionTypes()[0]);
+                }
+                param.setCompressionQuality(quality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+    
+    /**
+     * Options类表示预处理选项
+     */
+    public static class Options {
+        private int maxLongEdge = 1280;
+        private String format = "jpeg";
+        private float quality = 0.8f;
+        private boolean grayscale;
+        private int maxBytes;
+        private int maxTokens;
+        
+        /**
+         * 从逗号分隔的key=value配置解析选项，例如"max_edge=1280,format=jpeg,quality=0.8,max_tokens=1200"
+         * 未出现的键使用默认值
+         * @param spec 配置字符串
+         * @return 选项，配置为空或为none时返回null
+         */
+        public static Options parse(String spec) {
+            if (spec == null || spec.trim().isEmpty() || "none".equalsIgnoreCase(spec.trim())) {
+                return null;
+            }
+            Options options = new Options();
+            for (String item : spec.split(",")) {
+                String[] pair = item.split("=", 2);
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("无效的图像预处理配置: " + item);
+                }
+                String key = pair[0].trim().toLowerCase(Locale.ROOT);
+                String value = pair[1].trim();
+                switch (key) {
+                    case "max_edge":
+                        options.maxLongEdge(Integer.parseInt(value));
+                        break;
+                    case "format":
+                        options.format(value);
+                        break;
+                    case "quality":
+                        options.quality(Float.parseFloat(value));
+                        break;
+                    case "grayscale":
+                        options.grayscale(Boolean.parseBoolean(value));
+                        break;
+                    case "max_bytes":
+                        options.maxBytes(Integer.parseInt(value));
+                        break;
+                    case "max_tokens":
+                        options.maxTokens(Integer.parseInt(value));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("未知的图像预处理配置项: " + key);
+                }
+            }
+            return options;
+        }
+        
+        /**
+         * 设置最长边上限
+         * @param maxLongEdge 像素，0表示不限制
+         * @return 当前选项
+         */
+        public Options maxLongEdge(int maxLongEdge) {
+            this.maxLongEdge = maxLongEdge;
+            return this;
+        }
+        
+        /**
+         * 设置编码格式
+         * @param format jpeg、png或webp（需要WebP插件，否则使用JPEG）
+         * @return 当前选项
+         */
+        public Options format(String format) {
+            String normalized = format.toLowerCase(Locale.ROOT);
+            this.format = "jpg".equals(normalized) ? "jpeg" : normalized;
+            return this;
+        }
+        
+        /**
+         * 设置有损编码的质量
+         * @param quality 取值0到1
+         * @return 当前选项
+         */
+        public Options quality(float quality) {
+            this.quality = Math.max(0.1f, Math.min(1f, quality));
+            return this;
+        }
+        
+        /**
+         * 设置是否转为灰度
+         * @param grayscale 是否转为灰度
+         * @return 当前选项
+         */
+        public Options grayscale(boolean grayscale) {
+            this.grayscale = grayscale;
+            return this;
+        }
+        
+        /**
+         * 设置编码后的字节预算
+         * @param maxBytes 字节数，0表示不限制
+         * @return 当前选项
+         */
+        public Options maxBytes(int maxBytes) {
+            this.maxBytes = maxBytes;
+            return this;
+        }
+        
+        /**
+         * 设置图像token预算
+         * @param maxTokens token数，0表示不限制
+         * @return 当前选项
+         */
+        public Options maxTokens(int maxTokens) {
+            this.maxTokens = maxTokens;
+            return this;
+        }
+        
+        @Override
+        public String toString() {
+            return "max_edge=" + maxLongEdge + ",format=" + format + ",quality=" + quality + ",grayscale=" + grayscale
+                    + ",max_bytes=" + maxBytes + ",max_tokens=" + maxTokens;
+        }
+    }
+    
+    /**
+     * Processed类表示预处理后的图像
+     */
+    public static class Processed {
+        private final byte[] data;
+        private final String mimeType;
+        private final int width;
+        private final int height;
+        private final int originalWidth;
+        private final int originalHeight;
+        
+        Processed(byte[] data, String mimeType, int width, int height, int originalWidth, int originalHeight) {
+            this.data = data;
+            this.mimeType = mimeType;
+            this.width = width;
+            this.height = height;
+            this.originalWidth = originalWidth;
+            this.originalHeight = originalHeight;
+        }
+        
+        public byte[] getData() {
+            return data;
+        }
+        
+        public String getMimeType() {
+            return mimeType;
+        }
+        
+        public int getWidth() {
+            return width;
+        }
+        
+        public int getHeight() {
+            return height;
+        }
+        
+        /**
+         * 获取缩放比例，模型返回的坐标除以该值即为原图坐标
+         * @return 处理后宽度与原图宽度之比
+         */
+        public double getScale() {
+            return (double) width / originalWidth;
+        }
+        
+        /**
+         * 获取估算的token数
+         * @return token数
+         */
+        public int getEstimatedTokens() {
+            return estimateTokens(width, height);
+        }
+        
+        @Override
+        public String toString() {
+            return "Processed{" +
+                    "mimeType='" + mimeType + '\'' +
+                    ", size=" + data.length +
+                    ", " + width + "x" + height +
+                    ", original=" + originalWidth + "x" + originalHeight +
+                    '}';
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,217 @@
+package com.example.vision;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+/**
+ * UiHierarchyParser类将uiautomator dump输出的XML流式解析为Element树
+ * 解析过程边读边建树，不会把整份文档转换为字符串；读到根元素结束即停止，
+ * 因此可以直接解析/dev/tty输出中XML之后附带的提示文字
+ */
+public class UiHierarchyParser {
+    private static final XMLInputFactory FACTORY = createFactory();
+    
+    private UiHierarchyParser() {
+    }
+    
+    /**
+     * 解析UI层级
+     * @param input uiautomator dump的输出流
+     * @return 根元素（类型为hierarchy），其子元素为各窗口的根节点
+     * @throws IOException 输出不是有效的UI层级
+     */
+    public static Element parse(InputStream input) throws IOException {
+        XMLStreamReader reader = null;
+        try {
+            reader = FACTORY.createXMLStreamReader(input, "UTF-8");
+            Element root = null;
+            Deque<Element> stack = new ArrayDeque<>();
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if (root == null) {
+                        if (!"hierarchy".equals(name)) {
+                            throw new IOException("UI层级根元素应为hierarchy，实际为: " + name);
+                        }
+                        root = new Element();
+                        root.setType("hierarchy");
+                        root.setConfidence(1.0);
+                        stack.push(root);
+                    } else if ("node".equals(name)) {
+                        Element element = toElement(reader);
+                        stack.peek().addChild(element);
+                        stack.push(element);
+                    } else {
+                        stack.push(stack.peek()); // 未知元素，保持层级对应
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    stack.pop();
+                    if (stack.isEmpty()) {
+                        return root; // 根元素结束，忽略其后的内容
+                    }
+                }
+            }
+            throw new IOException(root == null ? "UI层级输出为空" : "UI层级输出不完整");
+        } catch (XMLStreamException e) {
+            throw new IOException("解析UI层级失败: " + e.getMessage(), e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // 忽略关闭异常
+                }
+            }
+        }
+    }
+    
+    /**
+     * 深度优先展开元素树，不包含根元素
+     * @param root 根元素
+     * @return 全部元素
+     */
+    public static List<Element> flatten(Element root) {
+        return find(root, element -> true);
+    }
+    
+    /**
+     * 按条件查找元素，结果按深度优先顺序排列
+     * @param root 根元素
+     * @param predicate 条件
+     * @return 匹配的元素
+     */
+    public static List<Element> find(Element root, Predicate<Element> predicate) {
+        List<Element> result = new ArrayList<>();
+        Deque<Element> pending = new ArrayDeque<>();
+        for (int i = root.getChildren().size() - 1; i >= 0; i--) {
+            pending.push(root.getChildren().get(i));
+        }
+        while (!pending.isEmpty()) {
+            Element element = pending.pop();
+            if (predicate.test(element)) {
+                result.add(element);
+            }
+            List<Element> children = element.getChildren();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                pending.push(children.get(i));
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 查找文本或无障碍描述包含指定内容的元素（忽略大小写）
+     * @param root 根元素
+     * @param text 要查找的文本
+     * @return 匹配的元素
+     */
+    public static List<Element> findByText(Element root, String text) {
+        String needle = text.toLowerCase(Locale.ROOT);
+        return find(root, element -> contains(element.getText(), needle) || contains(element.getContentDescription(), needle));
+    }
+    
+    private static boolean contains(String value, String needle) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(needle);
+    }
+    
+    /**
+     * 将node元素的属性转换为Element
+     * @param reader 位于node开始标签的读取器
+     * @return 元素
+     */
+    private static Element toElement(XMLStreamReader reader) {
+        Element element = new Element();
+        element.setConfidence(1.0);
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String value = reader.getAttributeValue(i);
+            switch (reader.getAttributeLocalName(i)) {
+                case "text":
+                    element.setText(value);
+                    break;
+                case "resource-id":
+                    element.setResourceId(value);
+                    break;
+                case "class":
+                    element.setClassName(value);
+                    element.setType(value.substring(value.lastIndexOf('.') + 1));
+                    break;
+                case "content-desc":
+                    element.setContentDescription(value);
+                    break;
+                case "clickable":
+                    element.setClickable("true".equals(value));
+                    break;
+                case "enabled":
+                    element.setEnabled("true".equals(value));
+                    break;
+                case "bounds":
+                    element.setRect(parseBounds(value));
+                    break;
+                default:
+                    break;
+            }
+        }
+        element.setLabel(firstNonEmpty(element.getText(), element.getContentDescription(), element.getResourceId()));
+        return element;
+    }
+    
+    /**
+     * 解析"[left,top][right,bottom]"格式的边界
+     * @param bounds 边界字符串
+     * @return 矩形，格式无效时返回空矩形
+     */
+    static Rectangle parseBounds(String bounds) {
+        int[] values = new int[4];
+        int index = 0;
+        int current = 0;
+        boolean negative = false;
+        boolean inNumber = false;
+        for (int i = 0; i < bounds.length() && index < 4; i++) {
+            char c = bounds.charAt(i);
+            if (c >= '0' && c <= '9') {
+                current = current * 10 + (c - '0');
+                inNumber = true;
+            } else if (c == '-') {
+                negative = true;
+            } else if (inNumber) {
+                values[index++] = negative ? -current : current;
+                current = 0;
+                negative = false;
+                inNumber = false;
+            }
+        }
+        if (index < 4) {
+            return new Rectangle();
+        }
+        return new Rectangle(values[0], values[1], values[2] - values[0], values[3] - values[1]);
+    }
+    
+    private static String firstNonEmpty(String... values) {
+        for (String value : values) {
+            if (value != null && !value.isEmpty()) {
+                return value;
+            }
+        }
+        return null;
+    }
+    
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        return factory;
+    }
+}
\ No newline at end of file
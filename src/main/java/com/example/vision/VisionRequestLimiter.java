@@ -0,0 +1,181 @@
+package com.example.vision;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * VisionRequestLimiter类限制同一模型端点同时进行的请求数
+ * 超出并发上限的请求按到达顺序排队，排队数达到上限或等待超时时立即拒绝，向调用方施加背压。
+ * 异步请求在提交到后台线程前登记，登记数不超过并发与排队上限之和，后台线程数因此有界。
+ * 同一端点的所有VisionService实例共享一个限流器
+ */
+public class VisionRequestLimiter {
+    private static final Map<String, VisionRequestLimiter> ENDPOINTS = new ConcurrentHashMap<>();
+    private static final int DEFAULT_MAX_IN_FLIGHT = 4;
+    private static final int DEFAULT_MAX_QUEUED = 64;
+    private static final long DEFAULT_QUEUE_TIMEOUT_MILLIS = 120_000;
+    
+    private final String endpoint;
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition available = lock.newCondition();
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private int maxQueued = DEFAULT_MAX_QUEUED;
+    private long queueTimeoutMillis = DEFAULT_QUEUE_TIMEOUT_MILLIS;
+    private int inFlight;
+    private int waiting;
+    private int admitted;
+    private long completed;
+    private long rejected;
+    
+    private VisionRequestLimiter(String endpoint) {
+        this.endpoint = endpoint;
+    }
+    
+    /**
+     * 获取端点的限流器，首次使用时以默认上限创建
+     * @param endpoint 端点地址
+     * @return 限流器
+     */
+    public static VisionRequestLimiter forEndpoint(String endpoint) {
+        return ENDPOINTS.computeIfAbsent(endpoint, VisionRequestLimiter::new);
+    }
+    
+    /**
+     * 设置上限，正在排队的请求按新的上限重新判断
+     * @param maxInFlight 同时进行的请求数上限
+     * @param maxQueued 排队请求数上限
+     * @param queueTimeoutMillis 排队的最长时间（毫秒）
+     */
+    public void setLimits(int maxInFlight, int maxQueued, long queueTimeoutMillis) {
+        lock.lock();
+        try {
+            this.maxInFlight = Math.max(1, maxInFlight);
+            this.maxQueued = Math.max(0, maxQueued);
+            this.queueTimeoutMillis = queueTimeoutMillis;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 设置同时进行的请求数上限，排队设置不变
+     * @param maxInFlight 同时进行的请求数上限
+     */
+    public void setMaxInFlight(int maxInFlight) {
+        lock.lock();
+        try {
+            this.maxInFlight = Math.max(1, maxInFlight);
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 获取一个请求配额，没有空闲配额时排队等待
+     * @throws RejectedExecutionException 排队已满或等待超时
+     * @throws InterruptedException 等待被中断
+     */
+    public void acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            // 已有请求在排队时不插队
+            if (inFlight < maxInFlight && waiting == 0) {
+                inFlight++;
+                return;
+            }
+            if (waiting >= maxQueued) {
+                rejected++;
+                throw new RejectedExecutionException("视觉请求排队已满: " + endpoint + "，排队: " + waiting);
+            }
+            waiting++;
+            try {
+                long remaining = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis);
+                while (inFlight >= maxInFlight) {
+                    if (remaining <= 0) {
+                        rejected++;
+                        throw new RejectedExecutionException("等待视觉请求配额超时: " + endpoint);
+                    }
+                    remaining = available.awaitNanos(remaining);
+                }
+                inFlight++;
+            } finally {
+                waiting--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 登记一个即将提交到后台线程的异步请求，不阻塞
+     * @throws RejectedExecutionException 已登记的请求数达到并发与排队上限之和
+     */
+    public void admit() {
+        lock.lock();
+        try {
+            if (admitted >= maxInFlight + maxQueued) {
+                rejected++;
+                throw new RejectedExecutionException("视觉异步请求已满: " + endpoint + "，已提交: " + admitted);
+            }
+            admitted++;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 注销异步请求，请求结束（无论成功与否）后调用
+     */
+    public void leave() {
+        lock.lock();
+        try {
+            admitted--;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 归还请求配额
+     */
+    public void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            completed++;
+            // 单个signal可能落在已超时或被中断的等待方上而丢失，等待方会在循环中重新检查inFlight
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 获取限流统计
+     * @return 统计信息
+     */
+    public Map<String, Object> getStats() {
+        lock.lock();
+        try {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("endpoint", endpoint);
+            stats.put("maxInFlight", maxInFlight);
+            stats.put("maxQueued", maxQueued);
+            stats.put("inFlight", inFlight);
+            stats.put("waiting", waiting);
+            stats.put("admitted", admitted);
+            stats.put("completed", completed);
+            stats.put("rejected", rejected);
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
\ No newline at end of file
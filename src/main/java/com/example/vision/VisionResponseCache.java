@@ -0,0 +1,394 @@
+package com.example.vision;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * VisionResponseCache类缓存视觉模型的响应，键由画面指纹、提示与模型名称组成
+ * 内存层为按字节预算淘汰的LRU；可选的磁盘层由内存映射的开放寻址索引与只追加的值文件组成，
+ * 进程重启后仍然有效。值文件超出预算时整体清空重建，不做压缩
+ */
+public class VisionResponseCache implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(VisionResponseCache.class);
+    private static final int ENTRY_OVERHEAD = 96; // LinkedHashMap节点与两个String对象的大致开销
+    private static final int INDEX_MAGIC = 0x56524349; // "VRCI"
+    private static final long VALUES_MAGIC = 0x5652435630303031L; // "VRCV0001"
+    private static final int INDEX_HEADER = 16;
+    private static final int SLOT_SIZE = 32;
+    private static final int INITIAL_SLOTS = 4096;
+    private static final double MAX_LOAD = 0.7;
+    
+    private final long maxMemoryBytes;
+    private final LinkedHashMap<String, String> memory = new LinkedHashMap<>(256, 0.75f, true);
+    private long memoryBytes;
+    private final Path directory;
+    private final long maxDiskBytes;
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private FileChannel values;
+    private int slots;
+    private int count;
+    private long memoryHits;
+    private long diskHits;
+    private long misses;
+    
+    /**
+     * 构造函数
+     * @param maxMemoryBytes 内存层的字节预算
+     * @param directory 磁盘层目录，为null时只使用内存层
+     * @param maxDiskBytes 值文件的字节上限
+     * @throws IOException 磁盘层无法打开
+     */
+    public VisionResponseCache(long maxMemoryBytes, Path directory, long maxDiskBytes) throws IOException {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        if (directory != null) {
+            openDisk();
+        }
+    }
+    
+    /**
+     * 从逗号分隔的key=value配置创建缓存，例如"memory_mb=64,dir=/var/cache/vision,disk_mb=1024"
+     * @param spec 配置字符串
+     * @return 缓存，配置为空或为none时返回null
+     * @throws IOException 磁盘层无法打开
+     */
+    public static VisionResponseCache parse(String spec) throws IOException {
+        if (spec == null || spec.trim().isEmpty() || "none".equalsIgnoreCase(spec.trim())) {
+            return null;
+        }
+        long memoryMb = 32;
+        long diskMb = 1024;
+        Path directory = null;
+        for (String item : spec.split(",")) {
+            String[] pair = item.split("=", 2);
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("无效的视觉缓存配置: " + item);
+            }
+            String key = pair[0].trim().toLowerCase(Locale.ROOT);
+            String value = pair[1].trim();
+            switch (key) {
+                case "memory_mb":
+                    memoryMb = Long.parseLong(value);
+                    break;
+                case "disk_mb":
+                    diskMb = Long.parseLong(value);
+                    break;
+                case "dir":
+                    directory = Paths.get(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知的视觉缓存配置项: " + key);
+            }
+        }
+        return new VisionResponseCache(memoryMb * 1024 * 1024, directory, diskMb * 1024 * 1024);
+    }
+    
+    /**
+     * 计算缓存键
+     * @param imageKey 画面指纹的精确键
+     * @param modelName 模型名称
+     * @param prompt 提示
+     * @return 32位十六进制字符串
+     */
+    public static String key(String imageKey, String modelName, String prompt) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] hash = digest.digest((imageKey + '\0' + modelName + '\0' + prompt).getBytes(StandardCharsets.UTF_8));
+        StringBuilder key = new StringBuilder(32);
+        for (int i = 0; i < 16; i++) {
+            key.append(Character.forDigit((hash[i] >> 4) & 0xf, 16)).append(Character.forDigit(hash[i] & 0xf, 16));
+        }
+        return key.toString();
+    }
+    
+    /**
+     * 查找缓存的响应，磁盘层命中时同时放入内存层
+     * @param key 缓存键
+     * @return 响应，未命中时返回null
+     */
+    public synchronized String get(String key) {
+        String value = memory.get(key);
+        if (value != null) {
+            memoryHits++;
+            return value;
+        }
+        if (index != null) {
+            try {
+                value = readDisk(key);
+            } catch (IOException e) {
+                logger.warn("读取视觉缓存失败: {}", key, e);
+            }
+            if (value != null) {
+                diskHits++;
+                putMemory(key, value);
+                return value;
+            }
+        }
+        misses++;
+        return null;
+    }
+    
+    /**
+     * 写入响应
+     * @param key 缓存键
+     * @param value 响应
+     */
+    public synchronized void put(String key, String value) {
+        putMemory(key, value);
+        if (index != null) {
+            try {
+                writeDisk(key, value);
+            } catch (IOException e) {
+                logger.warn("写入视觉缓存失败: {}", key, e);
+            }
+        }
+    }
+    
+    /**
+     * 获取缓存统计
+     * @return 统计信息
+     */
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("memoryEntries", memory.size());
+        stats.put("memoryBytes", memoryBytes);
+        stats.put("memoryHits", memoryHits);
+        stats.put("diskHits", diskHits);
+        stats.put("misses", misses);
+        if (index != null) {
+            stats.put("diskEntries", count);
+            try {
+                stats.put("diskBytes", values.size());
+            } catch (IOException e) {
+                stats.put("diskBytes", -1L);
+            }
+        }
+        return stats;
+    }
+    
+    /**
+     * 将索引刷到磁盘并关闭文件
+     */
+    @Override
+    public synchronized void close() {
+        if (index == null) {
+            return;
+        }
+        index.force();
+        closeQuietly(indexChannel);
+        closeQuietly(values);
+        index = null;
+    }
+    
+    private void putMemory(String key, String value) {
+        String previous = memory.put(key, value);
+        if (previous != null) {
+            memoryBytes -= entrySize(key, previous);
+        }
+        memoryBytes += entrySize(key, value);
+        Iterator<Map.Entry<String, String>> iterator = memory.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && iterator.hasNext()) {
+            Map.Entry<String, String> eldest = iterator.next();
+            memoryBytes -= entrySize(eldest.getKey(), eldest.getValue());
+            iterator.remove();
+        }
+    }
+    
+    private static long entrySize(String key, String value) {
+        return ENTRY_OVERHEAD + 2L * (key.length() + value.length());
+    }
+    
+    /**
+     * 打开磁盘层，文件不存在或格式不符时重新创建
+     */
+    private void openDisk() throws IOException {
+        Files.createDirectories(directory);
+        values = FileChannel.open(directory.resolve("values.bin"), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(8);
+        values.read(header, 0);
+        Path indexPath = directory.resolve("index.bin");
+        boolean valid = header.getLong(0) == VALUES_MAGIC && Files.exists(indexPath);
+        if (valid) {
+            indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = indexChannel.size();
+            if (size >= INDEX_HEADER) {
+                index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                slots = index.getInt(8);
+                count = index.getInt(12);
+                valid = index.getInt(0) == INDEX_MAGIC && Integer.bitCount(slots) == 1
+                        && size == INDEX_HEADER + (long) slots * SLOT_SIZE;
+            } else {
+                valid = false;
+            }
+            if (!valid) {
+                closeQuietly(indexChannel);
+                index = null;
+            }
+        }
+        if (!valid) {
+            reset();
+        }
+        logger.info("视觉缓存磁盘层已打开: {}，条目: {}", directory, count);
+    }
+    
+    /**
+     * 清空磁盘层，重新创建索引与值文件
+     */
+    private void reset() throws IOException {
+        values.truncate(0);
+        values.write(ByteBuffer.allocate(8).putLong(0, VALUES_MAGIC), 0);
+        if (indexChannel != null) {
+            closeQuietly(indexChannel);
+        }
+        Path indexPath = directory.resolve("index.bin");
+        Files.deleteIfExists(indexPath);
+        indexChannel = FileChannel.open(indexPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        index = mapIndex(indexChannel, INITIAL_SLOTS);
+        slots = INITIAL_SLOTS;
+        count = 0;
+    }
+    
+    private static MappedByteBuffer mapIndex(FileChannel channel, int slotCount) throws IOException {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER + (long) slotCount * SLOT_SIZE);
+        mapped.putInt(0, INDEX_MAGIC);
+        mapped.putInt(4, 1);
+        mapped.putInt(8, slotCount);
+        mapped.putInt(12, 0);
+        return mapped;
+    }
+    
+    /**
+     * 在索引中查找键，返回键所在或应插入的槽位
+     */
+    private static int findSlot(MappedByteBuffer index, int slotCount, long high, long low) {
+        int slot = (int) (high ^ (high >>> 32)) & (slotCount - 1);
+        while (true) {
+            int position = INDEX_HEADER + slot * SLOT_SIZE;
+            if (index.getLong(position + 16) == 0
+                    || (index.getLong(position) == high && index.getLong(position + 8) == low)) {
+                return position;
+            }
+            slot = (slot + 1) & (slotCount - 1);
+        }
+    }
+    
+    private String readDisk(String key) throws IOException {
+        long high = Long.parseUnsignedLong(key.substring(0, 16), 16);
+        long low = Long.parseUnsignedLong(key.substring(16), 16);
+        int position = findSlot(index, slots, high, low);
+        long offset = index.getLong(position + 16);
+        int length = index.getInt(position + 24);
+        if (offset == 0 || offset + 4 + length > values.size()) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(4 + length);
+        while (buffer.hasRemaining()) {
+            if (values.read(buffer, offset + buffer.position()) < 0) {
+                return null;
+            }
+        }
+        if (buffer.getInt(0) != length) {
+            return null;
+        }
+        return new String(buffer.array(), 4, length, StandardCharsets.UTF_8);
+    }
+    
+    private void writeDisk(String key, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (values.size() + 4 + bytes.length > maxDiskBytes) {
+            logger.info("视觉缓存值文件超出上限 {} 字节，清空磁盘层", maxDiskBytes);
+            reset();
+        }
+        if (count + 1 > slots * MAX_LOAD) {
+            grow();
+        }
+        long offset = values.size();
+        ByteBuffer record = ByteBuffer.allocate(4 + bytes.length);
+        record.putInt(bytes.length).put(bytes).flip();
+        while (record.hasRemaining()) {
+            values.write(record, offset + record.position());
+        }
+        long high = Long.parseUnsignedLong(key.substring(0, 16), 16);
+        long low = Long.parseUnsignedLong(key.substring(16), 16);
+        int position = findSlot(index, slots, high, low);
+        if (index.getLong(position + 16) == 0) {
+            count++;
+            index.putInt(12, count);
+        }
+        // 先写键与长度，最后写偏移，写入中途退出时槽位仍视为空
+        index.putLong(position, high);
+        index.putLong(position + 8, low);
+        index.putInt(position + 24, bytes.length);
+        index.putLong(position + 16, offset);
+    }
+    
+    /**
+     * 将索引扩容为两倍，写入临时文件后替换
+     */
+    private void grow() throws IOException {
+        int newSlots = slots * 2;
+        Path indexPath = directory.resolve("index.bin");
+        Path temporary = directory.resolve("index.bin.tmp");
+        Files.deleteIfExists(temporary);
+        FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        MappedByteBuffer grown = mapIndex(channel, newSlots);
+        for (int slot = 0; slot < slots; slot++) {
+            int position = INDEX_HEADER + slot * SLOT_SIZE;
+            long offset = index.getLong(position + 16);
+            if (offset == 0) {
+                continue;
+            }
+            long high = index.getLong(position);
+            long low = index.getLong(position + 8);
+            int target = findSlot(grown, newSlots, high, low);
+            grown.putLong(target, high);
+            grown.putLong(target + 8, low);
+            grown.putInt(target + 24, index.getInt(position + 24));
+            grown.putLong(target + 16, offset);
+        }
+        grown.putInt(12, count);
+        grown.force();
+        closeQuietly(indexChannel);
+        Files.move(temporary, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        indexChannel = channel;
+        index = grown;
+        slots = newSlots;
+        logger.debug("视觉缓存索引已扩容为 {} 个槽位", newSlots);
+    }
+    
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("关闭视觉缓存文件失败", e);
+        }
+    }
+}
\ No newline at end of file
@@ -1,7 +1,9 @@
 package com.example.vision;
 
+import com.example.device.FrameFingerprint;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.theokanning.openai.OpenAiService;
+import com.theokanning.openai.completion.chat.ChatCompletionChoice;
 import com.theokanning.openai.completion.chat.ChatCompletionRequest;
 import com.theokanning.openai.completion.chat.ChatMessage;
 import com.theokanning.openai.image.CreateImageRequest;
@@ -11,24 +13,46 @@ import org.slf4j.LoggerFactory;
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * VisionService类负责视觉模型的集成和操作
  */
 public class VisionService {
     private static final Logger logger = LoggerFactory.getLogger(VisionService.class);
+    private static final AtomicInteger ASYNC_THREAD_COUNTER = new AtomicInteger();
+    private static final ExecutorService ASYNC_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "vision-async-" + ASYNC_THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
     
     private OpenAiService openAiService;
     private String modelName;
     private String apiBaseUrl;
     private ObjectMapper objectMapper;
+    private volatile ImagePreprocessor imagePreprocessor;
+    private volatile VisionResponseCache responseCache;
+    private final Map<String, CompletableFuture<String>> inFlightRequests = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedRequests = new AtomicLong();
     
     /**
      * 构造函数
@@ -83,6 +107,17 @@ public class VisionService {
         return base64;
     }
     
+    /**
+     * 将内存中的图像数据转换为Base64编码
+     * @param imageBytes 图像数据
+     * @return Base64编码的图像数据
+     */
+    public String imageToBase64(byte[] imageBytes) {
+        String base64 = Base64.getEncoder().encodeToString(imageBytes);
+        logger.debug("图像Base64编码完成，长度: {}", base64.length());
+        return base64;
+    }
+    
     /**
      * 生成截图描述
      * @param imagePath 截图文件路径
@@ -91,14 +126,151 @@ public class VisionService {
      * @throws IOException IO异常
      */
     public String describeScreenshot(String imagePath, String prompt) throws IOException {
+        logger.info("生成截图描述，图像: {}, 提示: {}", imagePath, prompt);
+        return describeScreenshot(Files.readAllBytes(new File(imagePath).toPath()), prompt);
+    }
+    
+    /**
+     * 根据内存中的截图数据生成描述，无需落盘
+     * @param imageBytes PNG格式的截图数据
+     * @param prompt 用户提示
+     * @return 截图描述
+     */
+    public String describeScreenshot(byte[] imageBytes, String prompt) {
+        return describeScreenshot(imageBytes, prompt, null);
+    }
+    
+    /**
+     * 根据内存中的截图数据生成描述
+     * onDelta不为null时以流式（SSE）方式请求，每收到一段增量内容即回调，首段内容无需等待完整回答；
+     * 命中缓存时以完整描述回调一次
+     * @param imageBytes PNG格式的截图数据
+     * @param prompt 用户提示
+     * @param onDelta 增量内容回调，可以为null
+     * @return 完整的截图描述
+     */
+    public String describeScreenshot(byte[] imageBytes, String prompt, Consumer<String> onDelta) {
         if (openAiService == null) {
             throw new IllegalStateException("OpenAI服务未初始化，请提供API密钥");
         }
         
-        logger.info("生成截图描述，图像: {}, 提示: {}", imagePath, prompt);
+        logger.info("生成截图描述，图像大小: {} 字节, 提示: {}", imageBytes.length, prompt);
+        
+        // 按画面指纹、提示与模型生成请求键，用于缓存与合并相同请求；截图只解码一次，预处理复用解码结果
+        BufferedImage decoded = null;
+        String requestKey = null;
+        try {
+            decoded = ImageIO.read(new ByteArrayInputStream(imageBytes));
+            if (decoded != null) {
+                requestKey = VisionResponseCache.key(FrameFingerprint.of(decoded).toKey(), modelName, prompt);
+            }
+        } catch (IOException e) {
+            logger.warn("计算截图指纹失败，不使用缓存与请求合并", e);
+        }
+        if (requestKey == null) {
+            return callModel(imageBytes, decoded, prompt, onDelta);
+        }
+        
+        VisionResponseCache cache = responseCache;
+        if (cache != null) {
+            String cached = cache.get(requestKey);
+            if (cached != null) {
+                logger.info("命中视觉响应缓存，跳过模型调用");
+                if (onDelta != null) {
+                    onDelta.accept(cached);
+                }
+                return cached;
+            }
+        }
+        
+        // 相同画面与提示的请求正在进行时等待其结果，多台设备停在同一画面只调用一次模型
+        CompletableFuture<String> flight = new CompletableFuture<>();
+        CompletableFuture<String> leader = inFlightRequests.putIfAbsent(requestKey, flight);
+        if (leader != null) {
+            coalescedRequests.incrementAndGet();
+            logger.info("相同的视觉请求正在进行，等待其结果");
+            String response = awaitResult(leader);
+            if (onDelta != null && response != null) {
+                onDelta.accept(response);
+            }
+            return response;
+        }
+        try {
+            String response = callModel(imageBytes, decoded, prompt, onDelta);
+            if (cache != null && response != null) {
+                cache.put(requestKey, response);
+            }
+            flight.complete(response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightRequests.remove(requestKey, flight);
+        }
+    }
+    
+    /**
+     * 异步生成截图描述，在共享的后台线程中执行
+     * 提交前先在端点的限流器登记，已提交的请求数达到并发与排队上限之和时不占用线程，
+     * 返回的Future直接以RejectedExecutionException失败
+     * @param imageBytes PNG格式的截图数据
+     * @param prompt 用户提示
+     * @return 截图描述的Future
+     */
+    public CompletableFuture<String> describeScreenshotAsync(byte[] imageBytes, String prompt) {
+        return describeScreenshotAsync(imageBytes, prompt, null);
+    }
+    
+    /**
+     * 异步生成截图描述，onDelta不为null时以流式方式请求
+     * @param imageBytes PNG格式的截图数据
+     * @param prompt 用户提示
+     * @param onDelta 增量内容回调，在后台线程中调用，可以为null
+     * @return 截图描述的Future
+     */
+    public CompletableFuture<String> describeScreenshotAsync(byte[] imageBytes, String prompt, Consumer<String> onDelta) {
+        VisionRequestLimiter limiter = VisionRequestLimiter.forEndpoint(apiBaseUrl);
+        try {
+            limiter.admit();
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return describeScreenshot(imageBytes, prompt, onDelta);
+            } finally {
+                limiter.leave();
+            }
+        }, ASYNC_EXECUTOR);
+    }
+    
+    /**
+     * 调用模型生成描述，调用期间占用端点的一个请求配额
+     * @param imageBytes 原始截图数据
+     * @param decoded 已解码的截图，可以为null
+     * @param prompt 用户提示
+     * @param onDelta 增量内容回调，可以为null
+     * @return 截图描述
+     */
+    private String callModel(byte[] imageBytes, BufferedImage decoded, String prompt, Consumer<String> onDelta) {
+        // 上传前缩放与重新编码，预处理失败时上传原图
+        String mimeType = "image/png";
+        ImagePreprocessor preprocessor = imagePreprocessor;
+        if (preprocessor != null) {
+            try {
+                ImagePreprocessor.Processed processed = decoded != null
+                        ? preprocessor.process(decoded) : preprocessor.process(imageBytes);
+                logger.debug("图像预处理完成: {} 字节 -> {}", imageBytes.length, processed);
+                imageBytes = processed.getData();
+                mimeType = processed.getMimeType();
+            } catch (IOException | RuntimeException e) {
+                logger.warn("图像预处理失败，上传原图", e);
+            }
+        }
         
         // 将图像转换为Base64
-        String base64Image = imageToBase64(imagePath);
+        String base64Image = imageToBase64(imageBytes);
         
         // 构建请求消息
         List<ChatMessage> messages = new ArrayList<>();
@@ -109,7 +281,7 @@ public class VisionService {
         
         ChatMessage userMessage = new ChatMessage();
         userMessage.setRole("user");
-        userMessage.setContent(prompt + "\n\n" + "data:image/png;base64," + base64Image);
+        userMessage.setContent(prompt + "\n\n" + "data:" + mimeType + ";base64," + base64Image);
         messages.add(userMessage);
         
         // 发送请求
@@ -120,11 +292,67 @@ public class VisionService {
                 .temperature(0.7)
                 .build();
         
-        String response = openAiService.createChatCompletion(request)
-                .getChoices().get(0).getMessage().getContent();
-        
-        logger.info("截图描述生成完成");
-        return response;
+        VisionRequestLimiter limiter = VisionRequestLimiter.forEndpoint(apiBaseUrl);
+        try {
+            limiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待视觉请求配额时被中断", e);
+        }
+        try {
+            String response = onDelta != null
+                    ? streamChatCompletion(request, onDelta)
+                    : openAiService.createChatCompletion(request).getChoices().get(0).getMessage().getContent();
+            logger.info("截图描述生成完成");
+            return response;
+        } finally {
+            limiter.release();
+        }
+    }
+    
+    /**
+     * 等待正在进行的相同请求的结果
+     * @param leader 相同请求的Future
+     * @return 截图描述
+     */
+    private static String awaitResult(CompletableFuture<String> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * 以流式方式请求对话补全，逐段回调增量内容
+     * @param request 请求
+     * @param onDelta 增量内容回调
+     * @return 拼接后的完整内容
+     */
+    private String streamChatCompletion(ChatCompletionRequest request, Consumer<String> onDelta) {
+        long start = System.nanoTime();
+        StringBuilder content = new StringBuilder();
+        openAiService.streamChatCompletion(request).blockingForEach(chunk -> {
+            for (ChatCompletionChoice choice : chunk.getChoices()) {
+                ChatMessage delta = choice.getMessage();
+                if (delta == null || delta.getContent() == null || delta.getContent().isEmpty()) {
+                    continue;
+                }
+                if (content.length() == 0) {
+                    logger.info("收到首段流式内容，耗时: {} ms", (System.nanoTime() - start) / 1_000_000);
+                }
+                content.append(delta.getContent());
+                onDelta.accept(delta.getContent());
+            }
+        });
+        return content.toString();
     }
     
     /**
@@ -215,6 +443,70 @@ public class VisionService {
         logger.info("模型名称已更新为: {}", modelName);
     }
     
+    /**
+     * 设置上传前的图像预处理
+     * @param imagePreprocessor 图像预处理器，为null时上传原图
+     */
+    public void setImagePreprocessor(ImagePreprocessor imagePreprocessor) {
+        this.imagePreprocessor = imagePreprocessor;
+        logger.info("图像预处理已{}", imagePreprocessor != null ? "设置为: " + imagePreprocessor.getOptions() : "关闭");
+    }
+    
+    /**
+     * 获取图像预处理器
+     * @return 图像预处理器，未设置时返回null
+     */
+    public ImagePreprocessor getImagePreprocessor() {
+        return imagePreprocessor;
+    }
+    
+    /**
+     * 设置视觉响应缓存
+     * @param responseCache 响应缓存，为null时不使用缓存
+     */
+    public void setResponseCache(VisionResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+    
+    /**
+     * 获取视觉响应缓存
+     * @return 响应缓存，未设置时返回null
+     */
+    public VisionResponseCache getResponseCache() {
+        return responseCache;
+    }
+    
+    /**
+     * 设置当前端点同时进行的请求数上限，同一端点的所有实例共享
+     * @param maxInFlight 同时进行的请求数上限
+     */
+    public void setConcurrency(int maxInFlight) {
+        VisionRequestLimiter.forEndpoint(apiBaseUrl).setMaxInFlight(maxInFlight);
+        logger.info("视觉请求并发上限已设置为: {}，端点: {}", maxInFlight, apiBaseUrl);
+    }
+    
+    /**
+     * 设置当前端点的并发上限，同一端点的所有实例共享
+     * @param maxInFlight 同时进行的请求数上限
+     * @param maxQueued 排队请求数上限，超出时立即拒绝
+     * @param queueTimeoutMillis 排队的最长时间（毫秒），超时后拒绝
+     */
+    public void setConcurrency(int maxInFlight, int maxQueued, long queueTimeoutMillis) {
+        VisionRequestLimiter.forEndpoint(apiBaseUrl).setLimits(maxInFlight, maxQueued, queueTimeoutMillis);
+        logger.info("视觉请求并发上限已设置为: {}，排队上限: {}，端点: {}", maxInFlight, maxQueued, apiBaseUrl);
+    }
+    
+    /**
+     * 获取请求统计，包括端点限流状态与合并的请求数
+     * @return 统计信息
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>(VisionRequestLimiter.forEndpoint(apiBaseUrl).getStats());
+        stats.put("pending", inFlightRequests.size());
+        stats.put("coalesced", coalescedRequests.get());
+        return stats;
+    }
+    
     /**
      * 获取API基础URL
      * @return API基础URL
@@ -0,0 +1,51 @@
+package com.example.device;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * TextInjectorTest类验证文本分块与input text转义
+ */
+class TextInjectorTest {
+    
+    @Test
+    void splitsByUtf8BytesWithoutBreakingSurrogatePairs() {
+        String text = "ab中文😀😀x";
+        
+        List<String> chunks = TextInjector.splitUtf8(text, 5);
+        
+        assertEquals(Arrays.asList("ab中", "文", "😀", "😀x"), chunks);
+        for (String chunk : chunks) {
+            assertTrue(chunk.getBytes(StandardCharsets.UTF_8).length <= 5);
+            assertFalse(Character.isHighSurrogate(chunk.charAt(chunk.length() - 1)));
+        }
+        assertEquals(text, String.join("", chunks));
+    }
+    
+    @Test
+    void keepsOversizedCodePointsInTheirOwnChunk() {
+        assertEquals(Arrays.asList("😀", "😀"), TextInjector.splitUtf8("😀😀", 2));
+        assertTrue(TextInjector.splitUtf8("", 16).isEmpty());
+    }
+    
+    @Test
+    void escapesSpacesForInputText() {
+        assertEquals("input text 'a%sb'", InputAction.text("a b").toShellCommand());
+        assertEquals("input text 'it'\\''s'", InputAction.text("it's").toShellCommand());
+    }
+    
+    @Test
+    void typesLiteralPercentSInSeparateInputs() {
+        // input text会把%s当作空格，字面的%s必须拆开输入
+        assertEquals("input text '100%' && input text 's%sdone'", InputAction.text("100%s done").toShellCommand());
+        assertEquals("input text '%' && input text 's%' && input text 's'", InputAction.text("%s%s").toShellCommand());
+        assertEquals("input text '50%%sx'", InputAction.text("50% x").toShellCommand());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,230 @@
+package com.example.device.adb;
+
+import com.example.device.ShellResult;
+import com.example.device.exec.CommandTimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * AdbClientTest类通过FakeAdbServer验证AdbClient的协议往返
+ */
+class AdbClientTest {
+    private static final String SERIAL = "emulator-5554";
+    
+    private FakeAdbServer server;
+    private AdbClient client;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new FakeAdbServer().start();
+        server.addDevice(SERIAL, "product:sdk model:fake device:generic");
+        client = new AdbClient("127.0.0.1", server.getPort());
+    }
+    
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+    
+    @Test
+    void shellV2ReturnsOutputAndExitCode() throws IOException {
+        server.setShellHandler((serial, command) -> new ShellResult("out:" + command + "\n", 3));
+        
+        ShellResult result = client.shell(SERIAL, "getprop ro.build.version.sdk");
+        
+        assertEquals("out:getprop ro.build.version.sdk\n", result.getOutput());
+        assertEquals(3, result.getExitCode());
+        assertTrue(server.getRequests().contains("shell,v2,raw:getprop ro.build.version.sdk"));
+    }
+    
+    @Test
+    void fallsBackToLegacyShellWhenV2IsRejected() throws IOException {
+        server.setShellV2Supported(false);
+        server.setShellHandler((serial, command) -> new ShellResult("line1\nline2\n", 7));
+        
+        ShellResult first = client.shell(SERIAL, "ls /sdcard");
+        ShellResult second = client.shell(SERIAL, "ls /sdcard");
+        
+        assertEquals("line1\nline2\n", first.getOutput());
+        assertEquals(7, first.getExitCode());
+        assertEquals(7, second.getExitCode());
+        // 降级后不再尝试shell v2
+        long v2Requests = server.getRequests().stream().filter(r -> r.startsWith("shell,v2,raw:")).count();
+        assertEquals(1, v2Requests);
+    }
+    
+    @Test
+    void execReturnsRawBytes() throws IOException {
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0};
+        server.setExecHandler((serial, command) -> "screencap -p".equals(command) ? png : new byte[0]);
+        
+        assertArrayEquals(png, client.exec(SERIAL, "screencap -p"));
+    }
+    
+    @Test
+    void execWithInputStreamsTheWholeFile() throws IOException {
+        byte[] content = randomBytes(300 * 1024);
+        Path apk = Files.createTempFile("fake-adb", ".apk");
+        try {
+            Files.write(apk, content);
+            server.setExecHandler((serial, command) -> "Success\n".getBytes(StandardCharsets.UTF_8));
+            
+            byte[] output = client.execWithInput(SERIAL, "cmd package install -S " + content.length, apk);
+            
+            assertEquals("Success\n", new String(output, StandardCharsets.UTF_8));
+            assertEquals(content.length, server.getExecInputBytes());
+        } finally {
+            Files.deleteIfExists(apk);
+        }
+    }
+    
+    @Test
+    void syncSendAndRecvRoundTrip() throws IOException {
+        byte[] content = randomBytes(AdbSyncSession.MAX_DATA_CHUNK * 3 + 123);
+        Path source = Files.createTempFile("fake-adb", ".bin");
+        Path target = Files.createTempFile("fake-adb", ".bin");
+        try {
+            Files.write(source, content);
+            try (AdbSyncSession sync = client.openSync(SERIAL)) {
+                assertEquals(content.length, sync.push(source, "/sdcard/a.bin", 0644));
+            }
+            assertArrayEquals(content, server.getFile(SERIAL, "/sdcard/a.bin"));
+            
+            try (AdbSyncSession sync = client.openSync(SERIAL)) {
+                assertEquals(content.length, sync.pull("/sdcard/a.bin", target));
+            }
+            assertArrayEquals(content, Files.readAllBytes(target));
+        } finally {
+            Files.deleteIfExists(source);
+            Files.deleteIfExists(target);
+        }
+    }
+    
+    @Test
+    void syncRecvOfMissingFileFails() throws IOException {
+        Path target = Files.createTempFile("fake-adb", ".bin");
+        try (AdbSyncSession sync = client.openSync(SERIAL)) {
+            assertThrows(IOException.class, () -> sync.pull("/sdcard/missing.bin", target));
+        } finally {
+            Files.deleteIfExists(target);
+        }
+    }
+    
+    @Test
+    void statUsesSta2ForSizesOver4GiB() throws IOException {
+        long size = 5L * 1024 * 1024 * 1024 + 17;
+        server.putSparseFile(SERIAL, "/sdcard/big.bin", size);
+        
+        try (AdbSyncSession sync = client.openSync(SERIAL)) {
+            AdbSyncSession.SyncStat stat = sync.stat("/sdcard/big.bin");
+            assertTrue(stat.exists());
+            assertTrue(stat.isSize64());
+            assertEquals(size, stat.getSize());
+            assertFalse(sync.stat("/sdcard/missing.bin").exists());
+        }
+        assertTrue(server.getRequests().contains("sync:STA2 /sdcard/big.bin"));
+    }
+    
+    @Test
+    void statFallsBackToV1WithoutStatV2() throws IOException {
+        server.setStatV2Supported(false);
+        long size = 5L * 1024 * 1024 * 1024 + 17;
+        server.putSparseFile(SERIAL, "/sdcard/big.bin", size);
+        
+        try (AdbSyncSession sync = client.openSync(SERIAL)) {
+            AdbSyncSession.SyncStat stat = sync.stat("/sdcard/big.bin");
+            assertTrue(stat.exists());
+            assertFalse(stat.isSize64());
+            assertEquals(size & 0xFFFFFFFFL, stat.getSize());
+            assertFalse(sync.stat("/sdcard/missing.bin").exists());
+        }
+        assertTrue(server.getRequests().contains("sync:STAT /sdcard/big.bin"));
+    }
+    
+    @Test
+    void shellTimesOutWhenTheDeviceHangs() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        server.setShellHandler((serial, command) -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new ShellResult("", 0);
+        });
+        try {
+            long start = System.nanoTime();
+            CommandTimeoutException e = assertThrows(CommandTimeoutException.class,
+                    () -> client.shell(SERIAL, "uiautomator dump", 300));
+            assertEquals(300, e.getTimeoutMillis());
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        } finally {
+            release.countDown();
+        }
+    }
+    
+    @Test
+    void openExecStreamsOutput() throws IOException {
+        byte[] content = randomBytes(200 * 1024);
+        server.setExecHandler((serial, command) -> content);
+        
+        try (InputStream in = client.openExec(SERIAL, "cat /sdcard/a.bin", 5_000)) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+    }
+    
+    @Test
+    void openExecTimesOutWhenTheDeviceHangs() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        server.setExecHandler((serial, command) -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new byte[0];
+        });
+        try (InputStream in = client.openExec(SERIAL, "screenrecord --output-format=h264 -", 300)) {
+            long start = System.nanoTime();
+            CommandTimeoutException e = assertThrows(CommandTimeoutException.class, in::read);
+            assertEquals(300, e.getTimeoutMillis());
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        } finally {
+            release.countDown();
+        }
+    }
+    
+    @Test
+    void rejectsRequestsLongerThanTheLengthPrefix() {
+        StringBuilder command = new StringBuilder("echo ");
+        while (command.length() <= AdbProtocol.MAX_REQUEST_LENGTH) {
+            command.append("0123456789");
+        }
+        
+        IOException e = assertThrows(IOException.class, () -> client.shell(SERIAL, command.toString()));
+        assertTrue(e.getMessage().contains("adb请求过长"));
+    }
+    
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,473 @@
+package com.example.device.adb;
+
+import com.example.device.ShellResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * FakeAdbServer类是一个本地模拟adb服务器，用于在没有真实设备的环境下测试AdbClient
+ * 支持host:version、host:devices-l、特性查询、host:transport、shell v2、旧版shell、exec与sync服务，
+ * 文件保存在内存中，Shell与exec命令的输出由可替换的处理函数生成
+ */
+public class FakeAdbServer implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(FakeAdbServer.class);
+    
+    private static final int SERVER_VERSION = 41;
+    private static final Pattern LEGACY_WRAPPER = Pattern.compile("\\( (.*)\\n\\) </dev/null 2>&1; echo \"(\\S+)\\$\\?\"", Pattern.DOTALL);
+    
+    private final ServerSocketChannel server;
+    private final ExecutorService workers;
+    private final Map<String, String> devices = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+    private final Map<String, Long> sparseSizes = new ConcurrentHashMap<>();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private volatile BiFunction<String, String, ShellResult> shellHandler = (serial, command) -> new ShellResult("", 0);
+    private volatile BiFunction<String, String, byte[]> execHandler =
+            (serial, command) -> shellHandler.apply(serial, command).getOutput().getBytes(StandardCharsets.UTF_8);
+    private final AtomicLong execInputBytes = new AtomicLong();
+    private volatile boolean shellV2Supported = true;
+    private volatile boolean statV2Supported = true;
+    
+    /**
+     * 构造函数，在本机随机端口上监听
+     * @throws IOException 绑定端口失败
+     */
+    public FakeAdbServer() throws IOException {
+        this(0);
+    }
+    
+    /**
+     * 构造函数
+     * @param port 监听端口，0表示随机端口
+     * @throws IOException 绑定端口失败
+     */
+    public FakeAdbServer(int port) throws IOException {
+        this.server = ServerSocketChannel.open();
+        this.server.bind(new InetSocketAddress("127.0.0.1", port));
+        this.workers = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "fake-adb-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * 启动接收连接的后台线程
+     * @return 当前实例
+     */
+    public FakeAdbServer start() {
+        workers.execute(() -> {
+            while (server.isOpen()) {
+                try {
+                    SocketChannel channel = server.accept();
+                    workers.execute(() -> handle(channel));
+                } catch (IOException e) {
+                    if (server.isOpen()) {
+                        logger.warn("模拟adb服务器接收连接失败", e);
+                    }
+                }
+            }
+        });
+        logger.info("模拟adb服务器已启动，端口: {}", getPort());
+        return this;
+    }
+    
+    /**
+     * 获取监听端口
+     * @return 端口
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+    
+    /**
+     * 添加模拟设备
+     * @param serial 设备序列号
+     * @param description devices -l中的描述，例如"product:x model:y"
+     */
+    public void addDevice(String serial, String description) {
+        devices.put(serial, description);
+    }
+    
+    /**
+     * 设置Shell命令处理函数
+     * @param shellHandler 参数为设备序列号与命令
+     */
+    public void setShellHandler(BiFunction<String, String, ShellResult> shellHandler) {
+        this.shellHandler = shellHandler;
+    }
+    
+    /**
+     * 设置exec命令处理函数
+     * @param execHandler 参数为设备序列号与命令，返回原始字节输出
+     */
+    public void setExecHandler(BiFunction<String, String, byte[]> execHandler) {
+        this.execHandler = execHandler;
+    }
+    
+    /**
+     * 获取exec命令（带-S参数）从stdin接收的累计字节数
+     * @return 字节数
+     */
+    public long getExecInputBytes() {
+        return execInputBytes.get();
+    }
+    
+    /**
+     * 设置是否支持shell v2协议
+     * @param shellV2Supported 是否支持
+     */
+    public void setShellV2Supported(boolean shellV2Supported) {
+        this.shellV2Supported = shellV2Supported;
+    }
+    
+    /**
+     * 设置是否支持STA2请求（stat_v2特性）
+     * @param statV2Supported 是否支持
+     */
+    public void setStatV2Supported(boolean statV2Supported) {
+        this.statV2Supported = statV2Supported;
+    }
+    
+    /**
+     * 在模拟设备上放置只用于STAT/STA2查询的文件，内容不保存在内存中
+     * @param serial 设备序列号
+     * @param path 文件路径
+     * @param size 文件大小，可以超过4GB
+     */
+    public void putSparseFile(String serial, String path, long size) {
+        sparseSizes.put(serial + ":" + path, size);
+    }
+    
+    /**
+     * 在模拟设备上放置文件
+     * @param serial 设备序列号
+     * @param path 文件路径
+     * @param content 文件内容
+     */
+    public void putFile(String serial, String path, byte[] content) {
+        files.put(serial + ":" + path, content);
+    }
+    
+    /**
+     * 读取模拟设备上的文件
+     * @param serial 设备序列号
+     * @param path 文件路径
+     * @return 文件内容，不存在时返回null
+     */
+    public byte[] getFile(String serial, String path) {
+        return files.get(serial + ":" + path);
+    }
+    
+    /**
+     * 获取收到的全部请求，按到达顺序排列
+     * @return 请求列表
+     */
+    public List<String> getRequests() {
+        return requests;
+    }
+    
+    /**
+     * 关闭服务器
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        workers.shutdownNow();
+    }
+    
+    /**
+     * 处理单个客户端连接
+     * @param channel 客户端通道
+     */
+    private void handle(SocketChannel channel) {
+        String serial = null;
+        try (SocketChannel client = channel) {
+            while (true) {
+                String request = readRequest(client);
+                if (request == null) {
+                    return;
+                }
+                requests.add(request);
+                if (serial == null) {
+                    if ("host:version".equals(request)) {
+                        writeOkay(client, String.format("%04x", SERVER_VERSION));
+                        return;
+                    } else if ("host:devices-l".equals(request) || "host:devices".equals(request)) {
+                        StringBuilder list = new StringBuilder();
+                        devices.forEach((id, description) -> list.append(id).append("\tdevice ").append(description).append("\n"));
+                        writeOkay(client, list.toString());
+                        return;
+                    } else if ("host:host-features".equals(request)) {
+                        writeOkay(client, features());
+                        return;
+                    } else if (request.startsWith("host-serial:") && request.endsWith(":features")) {
+                        String target = request.substring("host-serial:".length(), request.length() - ":features".length());
+                        if (!devices.containsKey(target)) {
+                            writeFail(client, "device '" + target + "' not found");
+                        } else {
+                            writeOkay(client, features());
+                        }
+                        return;
+                    } else if (request.startsWith("host:transport:")) {
+                        serial = request.substring("host:transport:".length());
+                        if (!devices.containsKey(serial)) {
+                            writeFail(client, "device '" + serial + "' not found");
+                            return;
+                        }
+                        writeStatus(client, AdbProtocol.OKAY);
+                        continue;
+                    }
+                    writeFail(client, "unknown host service");
+                    return;
+                }
+                handleDeviceService(client, serial, request);
+                return;
+            }
+        } catch (IOException e) {
+            logger.debug("模拟adb服务器连接结束", e);
+        }
+    }
+    
+    /**
+     * 处理transport切换后的设备服务请求
+     * @param client 客户端通道
+     * @param serial 设备序列号
+     * @param request 服务请求
+     * @throws IOException 通信失败
+     */
+    private void handleDeviceService(SocketChannel client, String serial, String request) throws IOException {
+        if (request.startsWith("shell,v2,raw:")) {
+            if (!shellV2Supported) {
+                writeFail(client, "shell v2 not supported");
+                return;
+            }
+            writeStatus(client, AdbProtocol.OKAY);
+            ShellResult result = shellHandler.apply(serial, request.substring("shell,v2,raw:".length()));
+            byte[] output = result.getOutput().getBytes(StandardCharsets.UTF_8);
+            writeShellPacket(client, 1, output);
+            writeShellPacket(client, 3, new byte[]{(byte) result.getExitCode()});
+        } else if (request.startsWith("shell:")) {
+            // 旧版shell没有退出码，像设备一样执行客户端包装的echo标记，并以PTY的\r\n换行输出
+            String command = request.substring("shell:".length());
+            Matcher wrapper = LEGACY_WRAPPER.matcher(command);
+            writeStatus(client, AdbProtocol.OKAY);
+            ShellResult result = shellHandler.apply(serial, wrapper.matches() ? wrapper.group(1) : command);
+            String output = result.getOutput();
+            if (wrapper.matches()) {
+                output += wrapper.group(2) + result.getExitCode() + "\n";
+            }
+            AdbProtocol.writeFully(client, ByteBuffer.wrap(output.replace("\n", "\r\n").getBytes(StandardCharsets.UTF_8)));
+        } else if (request.startsWith("exec:")) {
+            writeStatus(client, AdbProtocol.OKAY);
+            drainExecInput(client, request);
+            byte[] output = execHandler.apply(serial, request.substring("exec:".length()));
+            AdbProtocol.writeFully(client, ByteBuffer.wrap(output));
+        } else if ("sync:".equals(request)) {
+            writeStatus(client, AdbProtocol.OKAY);
+            handleSync(client, serial);
+        } else {
+            writeFail(client, "unknown device service");
+        }
+    }
+    
+    /**
+     * 处理sync会话
+     * @param client 客户端通道
+     * @param serial 设备序列号
+     * @throws IOException 通信失败
+     */
+    private void handleSync(SocketChannel client, String serial) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        while (true) {
+            header.clear();
+            if (!readFullyOrEof(client, header)) {
+                return;
+            }
+            header.flip();
+            String id = readId(header);
+            int length = header.getInt();
+            if ("QUIT".equals(id)) {
+                return;
+            }
+            String argument = readString(client, length);
+            requests.add("sync:" + id + " " + argument);
+            if ("STAT".equals(id)) {
+                Long size = fileSize(serial, argument);
+                ByteBuffer response = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+                response.put("STAT".getBytes(StandardCharsets.US_ASCII));
+                response.putInt(size == null ? 0 : 0100644);
+                response.putInt(size == null ? 0 : (int) size.longValue()); // v1只有低32位
+                response.putInt(size == null ? 0 : (int) (System.currentTimeMillis() / 1000));
+                response.flip();
+                AdbProtocol.writeFully(client, response);
+            } else if ("STA2".equals(id) && statV2Supported) {
+                Long size = fileSize(serial, argument);
+                ByteBuffer response = ByteBuffer.allocate(72).order(ByteOrder.LITTLE_ENDIAN);
+                response.put("STA2".getBytes(StandardCharsets.US_ASCII));
+                response.putInt(size == null ? 2 : 0); // ENOENT
+                response.putLong(0).putLong(0); // dev、ino
+                response.putInt(size == null ? 0 : 0100644);
+                response.putInt(1).putInt(0).putInt(0); // nlink、uid、gid
+                response.putLong(size == null ? 0 : size);
+                long now = System.currentTimeMillis() / 1000;
+                response.putLong(now).putLong(now).putLong(now);
+                response.flip();
+                AdbProtocol.writeFully(client, response);
+            } else if ("SEND".equals(id)) {
+                String path = argument.contains(",") ? argument.substring(0, argument.lastIndexOf(',')) : argument;
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                while (true) {
+                    header.clear();
+                    AdbProtocol.readFully(client, header);
+                    header.flip();
+                    String dataId = readId(header);
+                    int dataLength = header.getInt();
+                    if ("DONE".equals(dataId)) {
+                        break;
+                    }
+                    ByteBuffer data = ByteBuffer.allocate(dataLength);
+                    AdbProtocol.readFully(client, data);
+                    content.write(data.array(), 0, dataLength);
+                }
+                files.put(serial + ":" + path, content.toByteArray());
+                writeSyncHeader(client, "OKAY", 0);
+            } else if ("RECV".equals(id)) {
+                byte[] content = files.get(serial + ":" + argument);
+                if (content == null) {
+                    byte[] message = "No such file or directory".getBytes(StandardCharsets.UTF_8);
+                    writeSyncHeader(client, "FAIL", message.length);
+                    AdbProtocol.writeFully(client, ByteBuffer.wrap(message));
+                    continue;
+                }
+                for (int offset = 0; offset < content.length; offset += AdbSyncSession.MAX_DATA_CHUNK) {
+                    int chunk = Math.min(AdbSyncSession.MAX_DATA_CHUNK, content.length - offset);
+                    writeSyncHeader(client, "DATA", chunk);
+                    AdbProtocol.writeFully(client, ByteBuffer.wrap(content, offset, chunk));
+                }
+                writeSyncHeader(client, "DONE", 0);
+            } else {
+                byte[] message = ("unknown sync request " + id).getBytes(StandardCharsets.UTF_8);
+                writeSyncHeader(client, "FAIL", message.length);
+                AdbProtocol.writeFully(client, ByteBuffer.wrap(message));
+                return;
+            }
+        }
+    }
+    
+    private Long fileSize(String serial, String path) {
+        byte[] content = files.get(serial + ":" + path);
+        return content != null ? Long.valueOf(content.length) : sparseSizes.get(serial + ":" + path);
+    }
+    
+    private String features() {
+        return statV2Supported ? "shell_v2,cmd,stat_v2" : "shell_v2,cmd";
+    }
+    
+    private static String readRequest(SocketChannel client) throws IOException {
+        ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+        if (!readFullyOrEof(client, lengthBuffer)) {
+            return null;
+        }
+        int length = Integer.parseInt(new String(lengthBuffer.array(), StandardCharsets.US_ASCII), 16);
+        return readString(client, length);
+    }
+    
+    private static String readString(SocketChannel client, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        AdbProtocol.readFully(client, buffer);
+        return new String(buffer.array(), StandardCharsets.UTF_8);
+    }
+    
+    private static String readId(ByteBuffer header) {
+        byte[] id = new byte[4];
+        header.get(id);
+        return new String(id, StandardCharsets.US_ASCII);
+    }
+    
+    /**
+     * 像cmd package一样读取-S指定长度的stdin数据后再响应，install-create的-S只声明总大小，不读取stdin
+     * @param client 客户端通道
+     * @param request 服务请求
+     * @throws IOException 通信失败
+     */
+    private void drainExecInput(SocketChannel client, String request) throws IOException {
+        Matcher matcher = Pattern.compile(" -S (\\d+)").matcher(request);
+        if (!matcher.find() || request.contains("install-create")) {
+            return;
+        }
+        long remaining = Long.parseLong(matcher.group(1));
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        while (remaining > 0) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+            int read = client.read(buffer);
+            if (read < 0) {
+                throw new IOException("stdin数据被截断");
+            }
+            remaining -= read;
+            execInputBytes.addAndGet(read);
+        }
+    }
+    
+    private static boolean readFullyOrEof(SocketChannel client, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (client.read(buffer) < 0) {
+                if (buffer.position() == 0) {
+                    return false;
+                }
+                throw new IOException("请求被截断");
+            }
+        }
+        return true;
+    }
+    
+    private static void writeStatus(SocketChannel client, String status) throws IOException {
+        AdbProtocol.writeFully(client, ByteBuffer.wrap(status.getBytes(StandardCharsets.US_ASCII)));
+    }
+    
+    private static void writeOkay(SocketChannel client, String payload) throws IOException {
+        writeStatus(client, AdbProtocol.OKAY);
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        writeStatus(client, String.format("%04x", bytes.length));
+        AdbProtocol.writeFully(client, ByteBuffer.wrap(bytes));
+    }
+    
+    private static void writeFail(SocketChannel client, String message) throws IOException {
+        writeStatus(client, AdbProtocol.FAIL);
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        writeStatus(client, String.format("%04x", bytes.length));
+        AdbProtocol.writeFully(client, ByteBuffer.wrap(bytes));
+    }
+    
+    private static void writeShellPacket(SocketChannel client, int id, byte[] payload) throws IOException {
+        ByteBuffer packet = ByteBuffer.allocate(5 + payload.length).order(ByteOrder.LITTLE_ENDIAN);
+        packet.put((byte) id).putInt(payload.length).put(payload).flip();
+        AdbProtocol.writeFully(client, packet);
+    }
+    
+    private static void writeSyncHeader(SocketChannel client, String id, int value) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(id.getBytes(StandardCharsets.US_ASCII)).putInt(value).flip();
+        AdbProtocol.writeFully(client, header);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,152 @@
+package com.example.device.backend;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * BackendSelectorTest类通过FakeBackend验证FIXED与ADAPTIVE策略的后端选择
+ */
+class BackendSelectorTest {
+    
+    @Test
+    void fixedUsesThePreferredBackend() throws IOException {
+        FakeBackend first = new FakeBackend("first");
+        FakeBackend second = new FakeBackend("second");
+        BackendSelector selector = new BackendSelector(Arrays.asList(first, second));
+        
+        selector.execute(DeviceOperation.INPUT, backend -> {
+            backend.tap(1, 2);
+            return null;
+        });
+        selector.useFixed(second);
+        selector.execute(DeviceOperation.INPUT, backend -> {
+            backend.tap(3, 4);
+            return null;
+        });
+        
+        assertEquals(Arrays.asList("tap 1 2"), first.getInputs());
+        assertEquals(Arrays.asList("tap 3 4"), second.getInputs());
+        assertSame(BackendSelector.Policy.FIXED, selector.getPolicy());
+    }
+    
+    @Test
+    void fixedFallsThroughWhenThePreferredBackendCannotServe() {
+        FakeBackend socket = new FakeBackend("socket", EnumSet.of(DeviceOperation.SHELL, DeviceOperation.EXEC));
+        FakeBackend process = new FakeBackend("process");
+        BackendSelector selector = new BackendSelector(Arrays.asList(socket, process));
+        selector.useFixed(socket);
+        
+        assertEquals(Arrays.asList(socket, process), selector.rank(DeviceOperation.SHELL));
+        // 首选后端不支持该操作
+        assertEquals(Arrays.asList(process), selector.rank(DeviceOperation.CAPTURE));
+        // 首选后端不可用
+        socket.setAvailable(false);
+        assertEquals(Arrays.asList(process), selector.rank(DeviceOperation.SHELL));
+    }
+    
+    @Test
+    void failsWhenNoBackendSupportsTheOperation() {
+        FakeBackend shellOnly = new FakeBackend("shell", EnumSet.of(DeviceOperation.SHELL));
+        BackendSelector selector = new BackendSelector(Arrays.asList(shellOnly));
+        
+        IOException e = assertThrows(IOException.class, () -> selector.execute(DeviceOperation.PUSH, backend -> null));
+        assertTrue(e.getMessage().contains("PUSH"));
+    }
+    
+    @Test
+    void failuresPropagateWithoutRetryingOnAnotherBackend() {
+        FakeBackend broken = new FakeBackend("broken");
+        FakeBackend healthy = new FakeBackend("healthy");
+        broken.setFailure(new IOException("连接断开"));
+        BackendSelector selector = new BackendSelector(Arrays.asList(broken, healthy));
+        
+        IOException e = assertThrows(IOException.class, () -> selector.execute(DeviceOperation.INPUT, backend -> {
+            backend.tap(5, 6);
+            return null;
+        }));
+        
+        assertEquals("连接断开", e.getMessage());
+        assertTrue(healthy.getInputs().isEmpty());
+        Map<String, Object> stats = selector.getStats().get("input/broken");
+        assertEquals(1L, stats.get("samples"));
+        assertEquals(1L, stats.get("failures"));
+    }
+    
+    @Test
+    void adaptiveTriesUndersampledBackendsFirst() throws IOException {
+        FakeBackend first = new FakeBackend("first");
+        FakeBackend second = new FakeBackend("second");
+        BackendSelector selector = new BackendSelector(Arrays.asList(first, second));
+        warmUp(selector, DeviceOperation.SHELL, first);
+        selector.useAdaptive();
+        
+        // second尚无样本，即使first已有估计也应优先尝试second
+        assertTrue(countFirst(selector, DeviceOperation.SHELL, second, 200) > 170);
+    }
+    
+    @Test
+    void adaptivePrefersTheFasterBackend() throws IOException {
+        FakeBackend slow = new FakeBackend("slow");
+        FakeBackend fast = new FakeBackend("fast");
+        slow.setLatencyMillis(20);
+        BackendSelector selector = new BackendSelector(Arrays.asList(slow, fast));
+        warmUp(selector, DeviceOperation.SHELL, slow, fast);
+        selector.useAdaptive();
+        
+        int fastChoices = countFirst(selector, DeviceOperation.SHELL, fast, 200);
+        
+        // 允许少量探索
+        assertTrue(fastChoices > 170, "fast被选中 " + fastChoices + " 次");
+        assertSame(BackendSelector.Policy.ADAPTIVE, selector.getPolicy());
+    }
+    
+    @Test
+    void adaptiveMovesAwayFromAFailingBackend() throws IOException {
+        FakeBackend flaky = new FakeBackend("flaky");
+        FakeBackend steady = new FakeBackend("steady");
+        steady.setLatencyMillis(5);
+        BackendSelector selector = new BackendSelector(Arrays.asList(flaky, steady));
+        warmUp(selector, DeviceOperation.EXEC, flaky, steady);
+        selector.useAdaptive();
+        assertTrue(countFirst(selector, DeviceOperation.EXEC, flaky, 200) > 170);
+        
+        flaky.setFailure(new IOException("设备离线"));
+        selector.useFixed(flaky);
+        assertThrows(IOException.class, () -> selector.execute(DeviceOperation.EXEC, backend -> backend.exec("true", null)));
+        selector.useAdaptive();
+        
+        // 失败计入惩罚延迟后改选steady
+        assertTrue(countFirst(selector, DeviceOperation.EXEC, steady, 200) > 170);
+        assertEquals(1L, selector.getStats().get("exec/flaky").get("failures"));
+    }
+    
+    private static void warmUp(BackendSelector selector, DeviceOperation operation, DeviceBackend... backends) throws IOException {
+        for (DeviceBackend backend : backends) {
+            selector.useFixed(backend);
+            for (int i = 0; i < 3; i++) {
+                selector.execute(operation, candidate -> candidate.exec("true", null));
+            }
+        }
+    }
+    
+    private static int countFirst(BackendSelector selector, DeviceOperation operation, DeviceBackend expected, int rounds) {
+        int count = 0;
+        for (int i = 0; i < rounds; i++) {
+            List<DeviceBackend> ranked = selector.rank(operation);
+            if (ranked.get(0) == expected) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,196 @@
+package com.example.device.backend;
+
+import com.example.device.ShellResult;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * FakeBackend类是完全在内存中运行的设备后端，用于测试与基准对比
+ * Shell输出由可替换的处理函数生成，文件保存在内存中，输入动作按顺序记录，
+ * 可为每次调用注入固定延迟以模拟不同速度的后端
+ */
+public class FakeBackend implements DeviceBackend {
+    private final String name;
+    private final Set<DeviceOperation> supported;
+    private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+    private final List<String> inputs = Collections.synchronizedList(new ArrayList<>());
+    private volatile Function<String, ShellResult> shellHandler = command -> new ShellResult("", 0);
+    private volatile byte[] screen = new byte[0];
+    private volatile long latencyMillis;
+    private volatile boolean available = true;
+    private volatile IOException failure;
+    
+    /**
+     * 构造函数，支持全部操作
+     * @param name 后端名称
+     */
+    public FakeBackend(String name) {
+        this(name, EnumSet.allOf(DeviceOperation.class));
+    }
+    
+    /**
+     * 构造函数
+     * @param name 后端名称
+     * @param supported 支持的操作
+     */
+    public FakeBackend(String name, Set<DeviceOperation> supported) {
+        this.name = name;
+        this.supported = EnumSet.copyOf(supported);
+    }
+    
+    @Override
+    public String getName() {
+        return name;
+    }
+    
+    @Override
+    public boolean supports(DeviceOperation operation) {
+        return supported.contains(operation);
+    }
+    
+    @Override
+    public boolean isAvailable() {
+        return available;
+    }
+    
+    @Override
+    public ShellResult shell(String command) throws IOException {
+        simulate();
+        return shellHandler.apply(command);
+    }
+    
+    @Override
+    public ByteBuffer exec(String command, ByteBuffer reuse) throws IOException {
+        simulate();
+        return ByteBuffer.wrap(shellHandler.apply(command).getOutput().getBytes());
+    }
+    
+    @Override
+    public ByteBuffer screenshot(ByteBuffer reuse) throws IOException {
+        simulate();
+        return ByteBuffer.wrap(screen);
+    }
+    
+    @Override
+    public void tap(int x, int y) throws IOException {
+        simulate();
+        inputs.add("tap " + x + " " + y);
+    }
+    
+    @Override
+    public void swipe(int startX, int startY, int endX, int endY, int durationMillis) throws IOException {
+        simulate();
+        inputs.add("swipe " + startX + " " + startY + " " + endX + " " + endY + " " + durationMillis);
+    }
+    
+    @Override
+    public void push(Path localPath, String remotePath) throws IOException {
+        simulate();
+        files.put(remotePath, Files.readAllBytes(localPath));
+    }
+    
+    @Override
+    public void pull(String remotePath, Path localPath) throws IOException {
+        simulate();
+        byte[] content = files.get(remotePath);
+        if (content == null) {
+            throw new IOException("文件不存在: " + remotePath);
+        }
+        Files.write(localPath, content);
+    }
+    
+    /**
+     * 设置Shell命令处理函数
+     * @param shellHandler 处理函数，输入命令，返回执行结果
+     */
+    public void setShellHandler(Function<String, ShellResult> shellHandler) {
+        this.shellHandler = shellHandler;
+    }
+    
+    /**
+     * 设置截图返回的数据
+     * @param screen PNG数据
+     */
+    public void setScreen(byte[] screen) {
+        this.screen = screen;
+    }
+    
+    /**
+     * 设置每次调用的模拟延迟
+     * @param latencyMillis 延迟（毫秒）
+     */
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+    
+    /**
+     * 设置后端是否可用
+     * @param available 是否可用
+     */
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+    
+    /**
+     * 设置后续调用抛出的异常，为null时恢复正常
+     * @param failure 异常
+     */
+    public void setFailure(IOException failure) {
+        this.failure = failure;
+    }
+    
+    /**
+     * 放入设备端文件
+     * @param remotePath 设备上的路径
+     * @param content 文件内容
+     */
+    public void putFile(String remotePath, byte[] content) {
+        files.put(remotePath, content);
+    }
+    
+    /**
+     * 获取设备端文件
+     * @param remotePath 设备上的路径
+     * @return 文件内容，不存在时返回null
+     */
+    public byte[] getFile(String remotePath) {
+        return files.get(remotePath);
+    }
+    
+    /**
+     * 获取已记录的输入动作
+     * @return 输入动作列表的副本
+     */
+    public List<String> getInputs() {
+        synchronized (inputs) {
+            return new ArrayList<>(inputs);
+        }
+    }
+    
+    private void simulate() throws IOException {
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("模拟延迟被中断");
+            }
+        }
+        IOException current = failure;
+        if (current != null) {
+            throw current;
+        }
+    }
+}
\ No newline at end of file